@@ -0,0 +1,437 @@
+/*
+ * BatchRunner.java
+ *
+ * Created on October 19, 2026, 6:20 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import kobdig.agent.Agent;
+import kobdig.agent.AplLexer;
+import kobdig.agent.AplTokenizer;
+import kobdig.agent.Fact;
+import kobdig.agent.MentalStateSnapshot;
+import kobdig.agent.PersistentFactSet;
+import kobdig.logic.PossibilityDistribution;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.TruthDegree;
+import kobdig.runtime.Message;
+
+/**
+ * A headless runner of agent programs and scripts of belief updates.
+ * <p>Each job loads an agent program and applies to the agent, one after
+ * the other, the belief updates of a script, which is a sequence of facts
+ * in the syntax of the facts of a fact set, <code>formula : trust</code>,
+ * where the trust degree defaults to 1 and facts may be separated by commas.
+ * The mental state of the agent, i.e., its beliefs, qualitative utility,
+ * obligations, and goals, is written as a line of JSON after loading and
+ * after each update, and a timing summary is written on the standard error
+ * at the end. Jobs are independent, and may run in parallel; the output of
+ * each job is written as a whole, in the order of the jobs.</p>
+ * <p>Usage: <code>java kobdig.Main batch [options] agent.apl[=script]
+ * ...</code>, with the options</p>
+ * <dl>
+ * <dt><code>--threads n</code></dt><dd>run n jobs in parallel (default 1);</dd>
+ * <dt><code>--jobs file</code></dt><dd>read further jobs from a file, one per
+ *     line, as an agent program optionally followed by a script, separated
+ *     by white space; lines beginning with <code>#</code> are ignored;</dd>
+ * <dt><code>--output file</code></dt><dd>write the mental states to a file
+ *     instead of the standard output;</dd>
+ * <dt><code>--final</code></dt><dd>only write the final mental state of each
+ *     agent;</dd>
+ * <dt><code>--quiet</code></dt><dd>write no mental state, only the timing
+ *     summary.</dd>
+ * </dl>
+ * <p>A utility is written as the list of the atoms of its language and the
+ * possibility degrees of the worlds which are not impossible, by index,
+ * the i-th bit of the index of a world being the truth value of the i-th
+ * atom.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class BatchRunner
+{
+    /** The usage message. */
+    private static final String USAGE = "Usage: java kobdig.Main batch [--threads n] [--jobs file] " +
+        "[--output file] [--final | --quiet] agent.apl[=script] ...";
+
+    /** Write all the mental states. */
+    private static final int ALL = 0;
+
+    /** Write the final mental states only. */
+    private static final int FINAL = 1;
+
+    /** Write no mental state. */
+    private static final int NONE = 2;
+
+    /** This class cannot have instances. */
+    private BatchRunner()
+    {
+    }
+
+    /**
+     * The outcome of a job: its output, and how long its updates took.
+     */
+    private static class Result
+    {
+        /** The output of the job. */
+        final StringBuilder output = new StringBuilder();
+
+        /** The number of updates applied. */
+        int updates;
+
+        /** The total time taken by the updates, in nanoseconds. */
+        long total;
+
+        /** The longest time taken by an update, in nanoseconds. */
+        long max;
+
+        /** True if the job failed. */
+        boolean failed;
+    }
+
+    /**
+     * Runs an agent program and its script.
+     */
+    private static Result run(int job, String program, String script, int mode)
+    {
+        Result r = new Result();
+        try
+        {
+            Agent agent;
+            InputStream is = new FileInputStream(program);
+            try
+            {
+                agent = new Agent(is);
+            }
+            finally
+            {
+                is.close();
+            }
+            if(mode==ALL)
+                state(r.output, job, agent, 0, null, 0L);
+            if(script!=null)
+            {
+                Reader in = new InputStreamReader(new FileInputStream(script), StandardCharsets.UTF_8);
+                try
+                {
+                    AplTokenizer source = new AplLexer(in);
+                    source.nextToken();
+                    while(source.ttype!=AplTokenizer.TT_EOF)
+                    {
+                        if(source.ttype==',' || source.ttype==';')
+                        {
+                            source.nextToken();
+                            continue;
+                        }
+                        Message m = Message.parse(source, script);
+                        long began = System.nanoTime();
+                        agent.updateBeliefs(m.fact(), m.trust());
+                        long elapsed = System.nanoTime() - began;
+                        r.updates++;
+                        r.total += elapsed;
+                        r.max = Math.max(r.max, elapsed);
+                        if(mode==ALL)
+                            state(r.output, job, agent, r.updates, m, elapsed);
+                    }
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            if(mode==FINAL)
+                state(r.output, job, agent, r.updates, null, r.total);
+        }
+        catch(Exception e)
+        {
+            r.failed = true;
+            r.output.append("{\"job\":").append(job).append(",\"program\":");
+            string(r.output, program);
+            r.output.append(",\"error\":");
+            string(r.output, String.valueOf(e.getMessage()));
+            r.output.append("}\n");
+        }
+        return r;
+    }
+
+    /**
+     * Appends the mental state of an agent as a line of JSON.
+     */
+    private static void state(StringBuilder s, int job, Agent agent, int step,
+        Message update, long nanos)
+    {
+        MentalStateSnapshot snapshot = agent.snapshot();
+        s.append("{\"job\":").append(job).append(",\"agent\":");
+        string(s, agent.name());
+        s.append(",\"step\":").append(step);
+        if(update!=null)
+        {
+            s.append(",\"update\":{\"formula\":");
+            string(s, update.fact().formula().toString());
+            s.append(",\"trust\":").append(update.trust().doubleValue()).append('}');
+        }
+        s.append(",\"micros\":").append(nanos/1000L);
+        s.append(",\"beliefs\":");
+        facts(s, snapshot.beliefs());
+        s.append(",\"utility\":");
+        utility(s, snapshot.utility());
+        s.append(",\"obligations\":");
+        facts(s, snapshot.obligations());
+        s.append(",\"goals\":");
+        facts(s, snapshot.goals());
+        s.append("}\n");
+    }
+
+    /**
+     * Appends a fact set as a JSON array.
+     */
+    private static void facts(StringBuilder s, PersistentFactSet fs)
+    {
+        s.append('[');
+        Iterator<Fact> i = fs.factIterator();
+        while(i.hasNext())
+        {
+            Fact f = i.next();
+            s.append("{\"formula\":");
+            string(s, f.formula().toString());
+            s.append(",\"degree\":").append(fs.membership(f).doubleValue()).append('}');
+            if(i.hasNext())
+                s.append(',');
+        }
+        s.append(']');
+    }
+
+    /**
+     * Appends a qualitative utility as a JSON object.
+     */
+    private static void utility(StringBuilder s, PossibilityDistribution u)
+    {
+        PropositionalAtom[] atoms = u==null ? null : u.atoms();
+        s.append("{\"atoms\":[");
+        if(atoms!=null)
+            for(int i = 0; i<atoms.length; i++)
+            {
+                if(i>0)
+                    s.append(',');
+                string(s, atoms[i].toString());
+            }
+        s.append("],\"worlds\":{");
+        if(atoms!=null)
+        {
+            boolean first = true;
+            for(int w = 0; w<(1 << atoms.length); w++)
+            {
+                TruthDegree t = u.possibility(w);
+                if(t.doubleValue()==0.0)
+                    continue;
+                if(!first)
+                    s.append(',');
+                first = false;
+                s.append('"').append(w).append("\":").append(t.doubleValue());
+            }
+        }
+        s.append("}}");
+    }
+
+    /**
+     * Appends a string as a JSON string.
+     */
+    private static void string(StringBuilder s, String str)
+    {
+        s.append('"');
+        for(int i = 0; i<str.length(); i++)
+        {
+            char c = str.charAt(i);
+            switch(c)
+            {
+                case '"':
+                    s.append("\\\"");
+                    break;
+                case '\\':
+                    s.append("\\\\");
+                    break;
+                case '\n':
+                    s.append("\\n");
+                    break;
+                case '\r':
+                    s.append("\\r");
+                    break;
+                case '\t':
+                    s.append("\\t");
+                    break;
+                default:
+                    if(c<' ')
+                        s.append(String.format("\\u%04x", (int) c));
+                    else
+                        s.append(c);
+            }
+        }
+        s.append('"');
+    }
+
+    /**
+     * Adds the jobs listed in a file.
+     */
+    private static void jobs(String file, List<String[]> jobs) throws IOException
+    {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+            StandardCharsets.UTF_8));
+        try
+        {
+            String line;
+            while((line = in.readLine())!=null)
+            {
+                line = line.trim();
+                if(line.length()==0 || line.startsWith("#"))
+                    continue;
+                String[] words = line.split("\\s+");
+                jobs.add(new String[] {words[0], words.length>1 ? words[1] : null});
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Runs the jobs given on the command line.
+     *
+     * @param args the command-line arguments, without the <code>batch</code>
+     *        command
+     * @return the exit status: 0 if all the jobs succeeded, 1 if some failed,
+     *         2 if the arguments are wrong
+     */
+    public static int run(String[] args)
+    {
+        int threads = 1;
+        int mode = ALL;
+        String output = null;
+        final List<String[]> jobs = new ArrayList<String[]>();
+        try
+        {
+            for(int i = 0; i<args.length; i++)
+            {
+                if(args[i].equals("--threads") && i + 1<args.length)
+                    threads = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--jobs") && i + 1<args.length)
+                    jobs(args[++i], jobs);
+                else if(args[i].equals("--output") && i + 1<args.length)
+                    output = args[++i];
+                else if(args[i].equals("--final"))
+                    mode = FINAL;
+                else if(args[i].equals("--quiet"))
+                    mode = NONE;
+                else if(args[i].startsWith("--"))
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                else
+                {
+                    int eq = args[i].indexOf('=');
+                    jobs.add(eq<0 ? new String[] {args[i], null} :
+                        new String[] {args[i].substring(0, eq), args[i].substring(eq + 1)});
+                }
+            }
+            if(jobs.isEmpty() || threads<1)
+                throw new IllegalArgumentException("No jobs");
+        }
+        catch(IOException e)
+        {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        catch(IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        PrintWriter out;
+        try
+        {
+            out = new PrintWriter(new OutputStreamWriter(output==null ? System.out :
+                new FileOutputStream(output), StandardCharsets.UTF_8), false);
+        }
+        catch(IOException e)
+        {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        final int outputMode = mode;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, jobs.size()));
+        long began = System.nanoTime();
+        List<Future<Result>> results = new ArrayList<Future<Result>>();
+        for(int j = 0; j<jobs.size(); j++)
+        {
+            final int job = j;
+            results.add(executor.submit(new Callable<Result>()
+            {
+                public Result call()
+                {
+                    return BatchRunner.run(job, jobs.get(job)[0], jobs.get(job)[1], outputMode);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        int failed = 0;
+        long updates = 0;
+        long total = 0;
+        long max = 0;
+        for(int j = 0; j<results.size(); j++)
+        {
+            Result r;
+            try
+            {
+                r = results.get(j).get();
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch(ExecutionException e)
+            {
+                failed++;
+                continue;
+            }
+            out.print(r.output);
+            out.flush();
+            if(r.failed)
+                failed++;
+            updates += r.updates;
+            total += r.total;
+            max = Math.max(max, r.max);
+        }
+        long wall = System.nanoTime() - began;
+        out.close();
+        System.err.printf("%d jobs (%d failed), %d updates, %d threads, %.1f ms, %.1f updates/s, " +
+            "update latency avg %.1f us max %.1f us%n", jobs.size(), failed, updates,
+            Math.min(threads, jobs.size()), wall/1e6, updates*1e9/wall,
+            updates==0 ? 0.0 : total/1e3/updates, max/1e3);
+        return failed==0 ? 0 : 1;
+    }
+}
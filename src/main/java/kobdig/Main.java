@@ -12,6 +12,7 @@ package kobdig;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import kobdig.agent.Agent;
@@ -20,6 +21,7 @@ import kobdig.gui.MainFrame;
 import kobdig.logic.*;
 import kobdig.market.Market;
 import kobdig.market.Simulation;
+import kobdig.metrics.Probes;
 
 /**
  * Main class for the KOBDIG application.
@@ -35,9 +37,6 @@ public class Main
     /** Version information. */
     public static final String version = "1.0";
     
-    /** Counter of entailment checks performed. */
-    public static int entailmentChecks;
-    
     /** This class cannot have instances. */
     private Main()
     {
@@ -51,6 +50,7 @@ public class Main
     public static void test()
     {
         double beta = 0.5;
+        Probes.REGISTRY.setEnabled(true);
         System.out.print("n\ti\tchecks\tcard\n");
         // for(int trial = 0; trial<20; trial++)
         for(int n = 1; n<=12; n++)
@@ -65,9 +65,9 @@ public class Main
                 TruthDegree t = new TruthDegree(0.1*Math.floor(Math.random()*10.0));
                 // System.out.printf("n = " + n + ", i = " + i + ", B <- B * " +
                 //         t + "/" + phi + ";\n");
-                entailmentChecks = 0;
+                Probes.ENTAILMENT_CHECKS.reset();
                 agent.updateBeliefs(new Fact(phi), t);
-                System.out.printf("%d\t%d\t%d\t%d\n", n, i, entailmentChecks, agent.beliefs().size());
+                System.out.printf("%d\t%d\t%d\t%d\n", n, i, Probes.ENTAILMENT_CHECKS.sum(), agent.beliefs().size());
             }
             // System.out.printf("B = " + agent.beliefs());
         }
@@ -132,13 +132,18 @@ public class Main
     }
     
     /**
-     * Launch the application.
+     * Launch the application: without arguments, the graphical user
+     * interface; with <code>batch</code> as the first argument, the
+     * headless {@link BatchRunner}, to which the other arguments are passed;
+     * with any other arguments, the market simulator.
      *
      * @param args the command line arguments
      */
     public static void main(String[] args)
     {
-        if(args.length!=0)
+        if(args.length!=0 && args[0].equals("batch"))
+            System.exit(BatchRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        else if(args.length!=0)
             marketSimulator();
         else
             java.awt.EventQueue.invokeLater(new Runnable() {
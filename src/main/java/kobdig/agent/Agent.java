@@ -9,23 +9,17 @@
 
 package kobdig.agent;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.*;
-import kobdig.logic.Atom;
-import kobdig.logic.BooleanFormula;
-import kobdig.logic.BooleanTerm;
 import kobdig.logic.Formula;
-import kobdig.logic.Interpretation;
 import kobdig.logic.Operator;
 import kobdig.logic.PossibilityDistribution;
 import kobdig.logic.PropositionalFormula;
-import kobdig.logic.PropositionalInterpretation;
-import kobdig.logic.PropositionalInterpretationIterator;
 import kobdig.logic.TruthDegree;
+import kobdig.metrics.Probes;
 
 /**
  * A KOBDIG deliberating agent, equipped with knowledge and belief bases,
@@ -149,6 +143,43 @@ public class Agent
      */
     protected FactSet goals;
     
+    /**
+     * True if the agent deliberates in <em>anytime</em> mode, i.e., if,
+     * when the deadline of a deliberation expires, it keeps the results
+     * computed so far instead of restoring its previous mental state.
+     */
+    protected boolean anytime;
+    
+    /**
+     * True if the last deliberation was stopped by its deadline, in anytime
+     * mode, so that the desires and goals of the agent are approximate.
+     */
+    protected boolean approximate;
+    
+    /**
+     * True if the knowledge base is shared with copies of this agent,
+     * and must therefore be copied before it is exposed to changes.
+     */
+    protected boolean knowledgeShared;
+    
+    /**
+     * True if the belief base is shared with copies of this agent,
+     * and must therefore be copied before it is exposed to changes.
+     */
+    protected boolean beliefsShared;
+    
+    /**
+     * The snapshot of the mental state published at the end of the last
+     * deliberation, which other threads may read at any time.
+     */
+    protected volatile MentalStateSnapshot snapshot;
+    
+    /**
+     * The journal in which the revisions of the beliefs and the new pieces
+     * of knowledge are recorded, or <code>null</code>.
+     */
+    protected BeliefJournal journal;
+    
     /**
      * Creates an empty KOBDIG deliberating agent.
      */
@@ -163,6 +194,7 @@ public class Agent
         utility = new PossibilityDistribution();
         desires = new FactSet();
         goals = new FactSet();
+        publish();
     }
     
     /**
@@ -192,6 +224,21 @@ public class Agent
      * </p>
      */
     public Agent(InputStream is) throws IOException
+    {
+        // The lexer buffers the characters itself:
+        this(new AplLexer(new InputStreamReader(is)));
+    }
+    
+    /**
+     * Creates a KOBDIG deliberating agent from a program read by the given
+     * tokenizer (see {@link #Agent(InputStream)}), e.g., embedded in a larger
+     * text. The first token read must be the first token of the program;
+     * the closing brace of the program remains the current token.
+     * 
+     * @param source the tokenizer of the agent program
+     * @throws IOException if the program cannot be read or contains a syntax error
+     */
+    public Agent(AplTokenizer source) throws IOException
     {
         FactBase k = new FactBase();
         FactBase b = new FactBase();
@@ -202,10 +249,6 @@ public class Agent
         desires = new FactSet();
         goals = new FactSet();
         
-        // Use a buffered reader with default buffer size
-        Reader r = new BufferedReader(new InputStreamReader(is));
-        // Initialize the agent program source tokenizer:
-        AplTokenizer source = new AplTokenizer(r);
         source.nextToken();
         source.require("agent");
         source.nextToken();
@@ -239,9 +282,87 @@ public class Agent
         source.require('}');
         
         // Initialize the obligations, desires, and goals:
-        updateDesires();
-        updateObligations();
-        updateGoals();
+        deliberate();
+    }
+    
+    /**
+     * Creates a KOBDIG deliberating agent from its parts, e.g., read from
+     * a binary file (see {@link BinaryReader}), and deliberates, to
+     * initialize its obligations, desires, and goals.
+     * 
+     * @param name the name of the agent
+     * @param knowledge the knowledge base
+     * @param beliefs the belief base
+     * @param desRules the desire-generation rule base
+     * @param oblRules the obligation-generation rule base
+     */
+    public Agent(String name, PossibilisticFactBase knowledge,
+        PossibilisticFactBase beliefs, RuleBase desRules, RuleBase oblRules)
+    {
+        this.name = name;
+        this.knowledge = knowledge;
+        this.beliefs = beliefs;
+        this.desRules = desRules;
+        this.oblRules = oblRules;
+        obligations = new FactSet();
+        utility = new PossibilityDistribution();
+        desires = new FactSet();
+        goals = new FactSet();
+        deliberate();
+    }
+    
+    /**
+     * Creates a copy of the given agent.
+     * <p>The copy shares the rule bases of the agent, which never change
+     * once parsed, together with the caches built on them, and its
+     * obligation, desire, and goal sets and its utility, which deliberation
+     * replaces instead of modifying them. The knowledge and belief bases
+     * are shared too, but copy-on-write: either agent makes its own copy of
+     * a shared base as soon as it uses it, i.e., when it hands it out through
+     * {@link #knowledge()} or {@link #beliefs()}, or queries it, which
+     * updates its caches; copies of an agent may thus deliberate
+     * concurrently, in different threads.</p>
+     *
+     * @param a the agent to copy
+     */
+    protected Agent(Agent a)
+    {
+        name = a.name;
+        knowledge = a.knowledge;
+        beliefs = a.beliefs;
+        desRules = a.desRules;
+        oblRules = a.oblRules;
+        obligations = a.obligations;
+        utility = a.utility;
+        desires = a.desires;
+        goals = a.goals;
+        anytime = a.anytime;
+        approximate = a.approximate;
+        knowledgeShared = a.knowledgeShared = true;
+        beliefsShared = a.beliefsShared = true;
+        snapshot = a.snapshot;
+    }
+    
+    /**
+     * Returns a copy of this agent, with the same program and mental state,
+     * which is much cheaper than parsing the program and deliberating anew
+     * (see {@link #Agent(Agent)}).
+     * 
+     * @return a copy of this agent
+     */
+    public Agent copy()
+    {
+        return new Agent(this);
+    }
+    
+    /**
+     * Sets the name of this agent.
+     * 
+     * @param name the new name of the agent
+     */
+    public void setName(String name)
+    {
+        this.name = name;
     }
     
     /**
@@ -259,6 +380,9 @@ public class Agent
      */
     public PossibilisticFactBase knowledge()
     {
+        if(knowledgeShared && knowledge!=null)
+            knowledge = knowledge.copy();
+        knowledgeShared = false;
         return knowledge;
     }
     
@@ -267,6 +391,9 @@ public class Agent
      */
     public PossibilisticFactBase beliefs()
     {
+        if(beliefsShared && beliefs!=null)
+            beliefs = beliefs.copy();
+        beliefsShared = false;
         return beliefs;
     }
     
@@ -304,19 +431,21 @@ public class Agent
     }
     
     /**
-     * Returns the agent's obligation-generation rules.
+     * Returns an unmodifiable view of the agent's obligation-generation
+     * rules, which may be shared with copies of the agent.
      */
     public RuleBase obligationRules()
     {
-        return oblRules;
+        return oblRules.unmodifiableView();
     }
     
     /**
-     * Returns the agent's desire-generation rules.
+     * Returns an unmodifiable view of the agent's desire-generation rules,
+     * which may be shared with copies of the agent.
      */
     public RuleBase desireRules()
     {
-        return desRules;
+        return desRules.unmodifiableView();
     }
     
     /**
@@ -324,7 +453,7 @@ public class Agent
      */
     public TruthDegree knows(Fact fact)
     {
-        return knowledge.necessity(fact);
+        return knowledge().necessity(fact);
     }
     
     /**
@@ -332,7 +461,7 @@ public class Agent
      */
     public TruthDegree believes(Fact fact)
     {
-        return beliefs.necessity(fact);
+        return beliefs().necessity(fact);
     }
     
     /**
@@ -425,15 +554,53 @@ public class Agent
      *     in the initial belief base will have to be considered.
      * </ol>
      * 
+     * <p>Belief revision is followed by deliberation, i.e., the obligations,
+     * desires, and goals of the agent are updated.</p>
+     * 
      * @param fact the new incoming fact
      * @param trust the degree to which the source of the incoming fact
      *              is trusted
      */
     public void updateBeliefs(Fact fact, TruthDegree trust)
     {
+        long began = Probes.start();
+        reviseBeliefs(fact, trust);
+        deliberate();
+        Probes.stop(Probes.UPDATE_BELIEFS, began);
+    }
+    
+    /**
+     * Performs belief revision according to a new piece of information,
+     * like {@link #updateBeliefs(Fact, TruthDegree)}, without deliberating.
+     * <p>This allows a batch of pieces of information to be taken into
+     * account by a single deliberation, by calling {@link #deliberate()}
+     * once they have all been used to revise the beliefs.</p>
+     * <p>If the agent keeps a journal (see {@link #setJournal(BeliefJournal)}),
+     * the revision is recorded in it.</p>
+     * 
+     * @param fact the new incoming fact
+     * @param trust the degree to which the source of the incoming fact
+     *              is trusted
+     * @throws UncheckedIOException if the revision cannot be journaled
+     */
+    public void reviseBeliefs(Fact fact, TruthDegree trust)
+    {
+        revise(fact, trust);
+        journalRevision(fact, trust);
+    }
+    
+    /**
+     * Performs belief revision according to a new piece of information,
+     * without journaling it.
+     */
+    void revise(Fact fact, TruthDegree trust)
+    {
+        DeliberationEvent event = new DeliberationEvent.Contraction();
+        event.start();
+        
         // First of all, compute the degree to which the incoming
         // fact contradicts the agent's current beliefs:
-        TruthDegree contradiction = beliefs.necessity(fact.negated());
+        TruthDegree contradiction = beliefs().necessity(fact.negated());
         
         // Save a copy of the original belief base:
         PossibilisticFactBase revisedBeliefs = new PossibilisticFactBase();
@@ -458,6 +625,9 @@ public class Agent
                 revisedBeliefs.tell(psi, tcond);
             }
         }
+        event.stop(revisedBeliefs);
+        event = new DeliberationEvent.Expansion();
+        event.start();
         
         // 3. for all fact in the base, add a new fact whose formula
         //    is the disjunction of the existing fact and the incoming
@@ -476,34 +646,218 @@ public class Agent
         //    with the same membership degree as its degree of trust
         if(!revisedBeliefs.necessity(fact).isAtLeastAsTrueAs(trust))
            revisedBeliefs.tell(fact, trust);
+        event.stop(revisedBeliefs);
         
         // Done! Now, replace the original beliefs:
         beliefs = revisedBeliefs;
+        beliefsShared = false;
         // The belief base must be simplified because, even if we checked
         // not to include redundant facts, depending on the order they were
         // inserted, some redundant facts may still be there:
+        event = new DeliberationEvent.Simplification();
+        event.start();
         beliefs.simplify();
-        
-        // 5. Finally, update the mental state to reflect the
-        //    changes in beliefs:
+        event.stop(beliefs);
+    }
+    
+    /**
+     * Updates the mental state of the agent to reflect its current
+     * knowledge and beliefs, i.e., its obligations, desires, and goals.
+     */
+    public void deliberate()
+    {
         updateDesires();
         updateObligations();
         updateGoals();
+        publish();
+    }
+    
+    /**
+     * Publishes a snapshot of the current mental state of the agent.
+     */
+    protected void publish()
+    {
+        long version = snapshot==null ? 0 : snapshot.version() + 1;
+        snapshot = new MentalStateSnapshot(snapshot, version, knowledge, beliefs,
+            obligations, utility, goals, approximate);
+    }
+    
+    /**
+     * Returns the snapshot of the mental state of the agent published at
+     * the end of its last deliberation.
+     * <p>Unlike the other accessors, this method may be called by any thread,
+     * also while the agent is deliberating; the snapshot returned is
+     * immutable and consistent.</p>
+     * 
+     * @return the last published snapshot
+     */
+    public MentalStateSnapshot snapshot()
+    {
+        return snapshot;
+    }
+    
+    /**
+     * Revises the beliefs of the agent with a new piece of information, like
+     * {@link #updateBeliefs(Fact, TruthDegree)}, within the given deadline.
+     * <p>If the deadline expires or is cancelled, or the thread is interrupted,
+     * before the belief base has been revised, the mental state of the agent
+     * is left unchanged and a {@link DeliberationTimeoutException} is thrown.
+     * Afterwards, the same happens if the agent is not in anytime mode;
+     * in anytime mode, instead, the agent keeps the revised beliefs and
+     * the best desires and goals computed so far, and flags them as
+     * approximate (see {@link #isApproximate()}).</p>
+     *
+     * @param fact the new incoming fact
+     * @param trust the degree to which the source of the incoming fact
+     *              is trusted
+     * @param deadline the deadline of the revision and of the deliberation
+     * @throws DeliberationTimeoutException if the deliberation was stopped
+     *         and its results have been discarded
+     */
+    public void updateBeliefs(Fact fact, TruthDegree trust, Deadline deadline)
+    {
+        long began = Probes.start();
+        Deadline previous = Deadline.install(deadline);
+        PossibilisticFactBase oldBeliefs = beliefs();
+        PossibilityDistribution oldUtility = utility;
+        FactSet oldObligations = obligations;
+        FactSet oldGoals = goals;
+        boolean wasApproximate = approximate;
+        approximate = false;
+        try
+        {
+            revise(fact, trust);
+            deliberate();
+            journalRevision(fact, trust);
+        }
+        catch(DeliberationTimeoutException e)
+        {
+            if(!anytime || beliefs==oldBeliefs)
+            {
+                beliefs = oldBeliefs;
+                utility = oldUtility;
+                obligations = oldObligations;
+                goals = oldGoals;
+                approximate = wasApproximate;
+                throw e;
+            }
+            approximate = true;
+            journalRevision(fact, trust);
+            publish();
+        }
+        finally
+        {
+            Deadline.install(previous);
+            Probes.stop(Probes.UPDATE_BELIEFS, began);
+        }
+    }
+    
+    /**
+     * Makes the agent record the revisions of its beliefs and the new
+     * pieces of knowledge it is told in the given journal, from now on.
+     * If the journal is empty, a checkpoint of the current knowledge and
+     * beliefs of the agent is taken, from which it may later be restored
+     * (see {@link BeliefJournal#restore(Agent, long)}).
+     * 
+     * @param journal a journal, or <code>null</code> to stop journaling
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void setJournal(BeliefJournal journal) throws IOException
+    {
+        if(journal!=null && journal.sequence()==0 && !journal.hasCheckpoint())
+            journal.checkpoint(this);
+        this.journal = journal;
+    }
+    
+    /**
+     * Returns the journal of the agent, or <code>null</code> if it has none.
+     */
+    public BeliefJournal journal()
+    {
+        return journal;
+    }
+    
+    /**
+     * Enables or disables the anytime mode of deliberation
+     * (see {@link #updateBeliefs(Fact, TruthDegree, Deadline)}).
+     */
+    public void setAnytime(boolean anytime)
+    {
+        this.anytime = anytime;
+    }
+    
+    /**
+     * Tells whether the agent deliberates in anytime mode.
+     */
+    public boolean isAnytime()
+    {
+        return anytime;
+    }
+    
+    /**
+     * Tells whether the desires and goals of the agent are approximate,
+     * because its last deliberation was stopped by its deadline.
+     */
+    public boolean isApproximate()
+    {
+        return approximate;
     }
     
     /**
      * Update the knowledge base with a new piece of knowledge
      * (a fact) with a given degree of truth.
+     * <p>Learning is not implemented yet: the knowledge base is left
+     * unchanged, and the agent only deliberates again.</p>
+     * <p>If the agent keeps a journal (see {@link #setJournal(BeliefJournal)}),
+     * the new piece of knowledge is recorded in it.</p>
+     * 
+     * @throws UncheckedIOException if the new knowledge cannot be journaled
      */
     public void tell(Fact fact, TruthDegree truth)
     {
-        // TO DO
+        learn(fact, truth);
+        if(journal!=null)
+        {
+            try
+            {
+                journal.told(this, fact, truth);
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
         
         // Finally, update the mental state to reflect the
         // changes in knowledge:
-        updateDesires();
-        updateObligations();
-        updateGoals();
+        deliberate();
+    }
+    
+    /**
+     * Updates the knowledge base with a new piece of knowledge,
+     * without journaling it; not implemented yet, hence it does nothing,
+     * also when a journal is replayed (see {@link BeliefJournal#KNOWLEDGE}).
+     */
+    void learn(Fact fact, TruthDegree truth)
+    {
+        // TO DO
+    }
+    
+    /**
+     * Records a revision of the beliefs in the journal, if any.
+     */
+    private void journalRevision(Fact fact, TruthDegree trust)
+    {
+        if(journal==null)
+            return;
+        try
+        {
+            journal.revised(this, fact, trust);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
     }
     
     /**
@@ -545,70 +899,85 @@ public class Agent
      */
     public void updateDesires()
     {
-        boolean changed;
-
-        Set<Atom> rhsAtoms = desRules.consequentAtomSet();
-        utility = new PossibilityDistribution(rhsAtoms, TruthDegree.FALSE);
+        long began = Probes.start();
+        utility = new PossibilityDistribution(desRules.consequentLanguage(), TruthDegree.FALSE);
         
-        do
+        // Iterate to the fixpoint, semi-naively.
+        // Starting from a utility which is everywhere zero, rule
+        // activations and the utility can only grow from one round to
+        // the next; therefore, instead of recomputing all activations
+        // and the whole utility at every round, only the rules whose
+        // D(...) antecedent reads a part of the utility which has
+        // changed in the previous round are re-evaluated, and the
+        // utility is raised, on the models of the consequent of each
+        // rule whose activation has grown, to that activation.
+        // The following is what is called Deg in the AAMAS 2010 paper
+        Map<Rule,TruthDegree> activations = new HashMap<Rule,TruthDegree>();
+        Set<Rule> agenda = new HashSet<Rule>();
+        Iterator<Rule> rit = desRules.iterator();
+        while(rit.hasNext())
+            agenda.add(rit.next());
+        int rounds = 0;
+        while(!agenda.isEmpty())
         {
-            // The following is what is called Deg in the AAMAS 2010 paper
-            Map<Rule,TruthDegree> activations = new HashMap<Rule,TruthDegree>();
+            DeliberationEvent.DesireRound event = new DeliberationEvent.DesireRound();
+            event.start();
+            event.round = ++rounds;
+            int evaluated = agenda.size();
             
-            // 1. Pre-compute rule activations, for the sake of efficiency.
-            Iterator<Rule> rit = desRules.iterator();
+            // 1. Re-compute the activations of the rules on the agenda:
+            List<Rule> grown = new ArrayList<Rule>();
+            rit = agenda.iterator();
             while(rit.hasNext())
             {
+                Deadline.check();
                 Rule r = rit.next();
-                activations.put(r, r.activation(this));
+                TruthDegree t = r.activation(this);
+                TruthDegree old = activations.get(r);
+                if(old==null || t.compareTo(old)>0)
+                {
+                    activations.put(r, t);
+                    grown.add(r);
+                }
             }
             
-            // 2. For all interpretations, update the qualitative utility:
-            Iterator<Interpretation> i = new PropositionalInterpretationIterator(rhsAtoms);
-            changed = false;
-            while(i.hasNext())
+            // 2. Update the qualitative utility, by scattering the
+            //    activation of each rule over the models of its consequent,
+            //    and put on the agenda the rules which read the part of it
+            //    that has changed:
+            agenda = new HashSet<Rule>();
+            rit = grown.iterator();
+            while(rit.hasNext())
             {
-                Interpretation itp = i.next();
-                
-                // Consider the rules whose consequent is satisfied by the
-                // interpretation, and compute the maximum of their activations:
-                rit = desRules.iterator();
-                TruthDegree t = TruthDegree.FALSE;
-                while(rit.hasNext() && !t.isTrue())
-                {
-                    Rule r = rit.next();
-                    if(r.consequent().formula().truth(itp).isTrue())
-                        t = TruthDegree.snorm(t, activations.get(r));
-                }
-                changed = !t.equals(utility.possibility(itp));
-                utility.possibility(itp, t);
+                Rule r = rit.next();
+                if(utility.raise(desRules.consequentModels(r), activations.get(r)))
+                    agenda.addAll(desRules.readers(r));
             }
+            if(event.stop())
+                event.commit(utility.atoms().length, evaluated, utility.levelSet().size());
         }
-        while(changed);
+        Probes.stop(Probes.UPDATE_DESIRES, began);
     }
     
     /**
      * Updates the obligation set.
-     * This method is obsolete and should be replaced.
      * 
-     * This is, in essence, the algorithm shown in Figure&nbsp;1 of
+     * This computes the same fixpoint as the algorithm shown in Figure&nbsp;1 of
      * C&eacute;lia da Costa Pereira and Andrea G. B. Tettamanzi,
      * "Goal Generation and Adoption from Partially Trusted Beliefs", in
      * Proceedings of the European Conference on Artificial Intelligence
-     * (ECAI 2008), Patras, Greece.
+     * (ECAI 2008), Patras, Greece;
+     * however, instead of applying all the rules over and over until the
+     * obligation set stops changing, the rules are stratified according to
+     * the dependencies among their obligation antecedents and consequents,
+     * and each stratum is evaluated once, in topological order, only cyclic
+     * strata being iterated (see {@link ObligationEngine}).
      */
     public void updateObligations()
     {
-        // TO DO: test correctness
-        boolean changed;
-        
-        do
-        {
-            FactSet updatedObligations = applyRules(oblRules, obligations);
-            changed = !updatedObligations.equals(obligations);
-            obligations = updatedObligations;
-        }
-        while(changed);
+        long began = Probes.start();
+        obligations = oblRules.obligationEngine().evaluate(this, obligations);
+        Probes.stop(Probes.UPDATE_OBLIGATIONS, began);
     }
     
     /**
@@ -628,63 +997,35 @@ public class Agent
      * <em>Frontiers in Artificial Intelligence and Applications</em>,
      * pages 641&ndash;646, IOS Press, 2010.</p>
      * 
+     * <p>The cuts of the utility, their simplified formulas and their
+     * possibility are computed at most once (see {@link GoalElection}).</p>
+     * 
      * <p>A known issue with this implementation is that no simplification
      * of the goal formula is performed, and the goal may be exceedingly
      * hard to read, although correct.</p>
+     * 
+     * <p>In anytime mode, if the deadline of the deliberation expires during
+     * the election, the best goal found so far is adopted, if any, or else
+     * the current goals are kept, and they are flagged as approximate.</p>
      */
     public void updateGoals()
     {
-        goals = new FactSet();
-        
-        SortedSet<TruthDegree> levels = beliefs.levelSet();
-        while(!levels.isEmpty())
+        long began = Probes.start();
+        GoalElection election = new GoalElection(utility, beliefs());
+        Fact goal = election.elect(anytime);
+        if(election.approximate)
         {
-            // Take the highest remaining degree in the belief base:
-            TruthDegree gamma = levels.last();
-            
-            // Compute G_gamma by Algorithm 2:
-            
-            SortedSet<TruthDegree> uLevels = utility.levelSet();
-            while(!uLevels.isEmpty())
+            approximate = true;
+            if(goal==null)
             {
-                // Take the highest remaining utility degree:
-                TruthDegree delta = uLevels.last();
-                
-                // Determine the least specific formula phi
-                // such that J(phi) >= delta: this is the disjunction
-                // of all minterms of interpretations whose utility
-                // is greater then or equal to delta:
-                List<BooleanTerm> termList = new ArrayList<BooleanTerm>();
-                Iterator<Interpretation> i = utility.interpretations();
-                while(i.hasNext())
-                {
-                    Interpretation itp = i.next();
-                    if(utility.possibility(itp).isAtLeastAsTrueAs(delta))
-                        termList.add(new BooleanTerm((PropositionalInterpretation) itp));
-                }
-                BooleanFormula f = new BooleanFormula(termList);
-                // Simplify the formula:
-                f.simplify();
-                PropositionalFormula phi = f.toPropositionalFormula();
-            
-                // If the possibility of phi is at least gamma,
-                // terminate with G_gamma = {phi}:
-                if(phi!=null)
-                {
-                    Fact goal = new Fact(phi);
-                    if(beliefs.possibility(goal).isAtLeastAsTrueAs(gamma))
-                    {
-                        goals.tell(goal);
-                        break;
-                    }
-                }
-            
-                // Otherwise, consider the next value of delta:
-                uLevels = uLevels.headSet(delta);
+                Probes.stop(Probes.UPDATE_GOALS, began);
+                return;
             }
-            if(goals.size()>0) break;
-            levels = levels.headSet(gamma);
         }
+        goals = new FactSet();
+        if(goal!=null)
+            goals.tell(goal);
+        Probes.stop(Probes.UPDATE_GOALS, began);
     }
     
     /**
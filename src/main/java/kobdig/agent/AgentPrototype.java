@@ -0,0 +1,88 @@
+/*
+ * AgentPrototype.java
+ *
+ * Created on October 19, 2026, 9:20 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A prototype from which any number of KOBDIG agents running the same
+ * program may be instantiated cheaply.
+ * <p>The program is parsed, and the initial obligations, desires, and goals
+ * are deliberated, only once, when the prototype is created; each instance
+ * is then a copy of the prototypical agent (see {@link Agent#copy()}),
+ * which shares its rule bases and initial mental state, and copies its
+ * knowledge and belief bases only when it first uses them.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class AgentPrototype
+{
+    /** The prototypical agent, which is never handed out. */
+    protected Agent prototype;
+
+    /**
+     * Creates a prototype from an agent program
+     * (see {@link Agent#Agent(InputStream)}).
+     *
+     * @param is the source of the agent program
+     * @throws IOException if the program cannot be read
+     */
+    public AgentPrototype(InputStream is) throws IOException
+    {
+        this(new Agent(is));
+    }
+
+    /**
+     * Creates a prototype from a copy of the given agent, whose subsequent
+     * changes do not affect the prototype.
+     *
+     * @param agent an agent
+     */
+    public AgentPrototype(Agent agent)
+    {
+        prototype = agent.copy();
+        // Build the caches of the rule bases, which the instances share:
+        prototype.desRules.consequentLanguage();
+        prototype.oblRules.obligationEngine();
+    }
+
+    /**
+     * Returns the name of the prototypical agent.
+     */
+    public String name()
+    {
+        return prototype.name();
+    }
+
+    /**
+     * Returns a new agent, in the same mental state as the prototype.
+     *
+     * @return a new agent
+     */
+    public Agent instantiate()
+    {
+        return prototype.copy();
+    }
+
+    /**
+     * Returns a new agent with the given name, in the same mental state
+     * as the prototype.
+     *
+     * @param name the name of the new agent
+     * @return a new agent
+     */
+    public Agent instantiate(String name)
+    {
+        Agent a = prototype.copy();
+        a.setName(name);
+        return a;
+    }
+}
@@ -0,0 +1,511 @@
+/*
+ * AplLexer.java
+ *
+ * Created on October 19, 2026, 4:30 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import kobdig.logic.PropositionalAtom;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A hand-written lexer for the extended 3apl syntax, which can be used
+ * wherever an {@link AplTokenizer} is expected and yields the same tokens,
+ * with the same values, as the latter, but much faster.
+ * <p>The lexer scans a window of a character buffer, which is refilled from
+ * the underlying character stream as it is consumed, so that arbitrarily
+ * large sources, such as multi-gigabyte fact files, are parsed in constant
+ * memory, apart from the vocabulary. Keywords are recognized by a perfect
+ * hash of their length and first and last characters, and the value of
+ * a keyword token is the very string constant the parsers compare it with;
+ * any other word is interned, directly from the buffer, into a
+ * {@link Vocabulary}, so that no string is created for a name that has
+ * already been met, and {@link #atom()} returns the same atom for every
+ * occurrence of a name. Numbers are accumulated as they are scanned.</p>
+ * <p>The lexer implements the syntax of an {@link AplTokenizer} with its
+ * default settings, i.e., with C and C++ style comments; the methods
+ * inherited from {@link java.io.StreamTokenizer} which change the syntax
+ * table have no effect.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class AplLexer extends AplTokenizer
+{
+    /** The default size of the character buffer. */
+    public static final int BUFFER_SIZE = 65536;
+
+    /** The type of the token before the first one has been read. */
+    private static final int NOTHING = -4;
+
+    /**
+     * The keywords of the syntax, at the position given by their perfect
+     * hash (see {@link #keyword(int, int, int)}).
+     */
+    private static final String[] KEYWORDS = new String[16];
+
+    static
+    {
+        String[] k = {"agent", "knowledge", "beliefs", "desires", "obligations",
+            "if", "then", "and", "or", "not", "true"};
+        for(int i = 0; i<k.length; i++)
+        {
+            int h = keyword(k[i].length(), k[i].charAt(0), k[i].charAt(k[i].length() - 1));
+            if(KEYWORDS[h]!=null)
+                throw new AssertionError("Keyword hash collision");
+            KEYWORDS[h] = k[i];
+        }
+    }
+
+    /** The underlying character stream, or <code>null</code> if there is none. */
+    private final Reader in;
+
+    /** The character buffer. */
+    private char[] buf;
+
+    /** The position of the next character in the buffer. */
+    private int pos;
+
+    /** The end of the characters in the buffer. */
+    private int limit;
+
+    /**
+     * The position of the first character of the token being scanned,
+     * which must be kept in the buffer when it is refilled, or -1.
+     */
+    private int mark = -1;
+
+    /** True if the end of the stream has been reached. */
+    private boolean eof;
+
+    /** The current line number. */
+    private int line = 1;
+
+    /** True if the current token has been pushed back. */
+    private boolean pushedBack;
+
+    /** The vocabulary into which names are interned. */
+    private final Vocabulary vocabulary;
+
+    /**
+     * The index in the vocabulary of the current word,
+     * or -1 if it is a keyword or has not been interned.
+     */
+    private int word = -1;
+
+    /**
+     * Creates a lexer of the given character stream, with a vocabulary
+     * of its own.
+     *
+     * @param r a character stream, represented by a reader.
+     */
+    public AplLexer(Reader r)
+    {
+        this(r, new Vocabulary());
+    }
+
+    /**
+     * Creates a lexer of the given character stream, which interns names
+     * into the given vocabulary.
+     *
+     * @param r a character stream, represented by a reader.
+     * @param vocabulary a vocabulary
+     */
+    public AplLexer(Reader r, Vocabulary vocabulary)
+    {
+        super(r);
+        in = r;
+        buf = new char[BUFFER_SIZE];
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Creates a lexer of the given window of a character array, which
+     * is not copied, and interns names into the given vocabulary.
+     *
+     * @param text a character array
+     * @param offset the position of the first character to be scanned
+     * @param length the number of characters to be scanned
+     * @param vocabulary a vocabulary
+     */
+    public AplLexer(char[] text, int offset, int length, Vocabulary vocabulary)
+    {
+        super(new CharArrayReader(text, offset, length));
+        in = null;
+        buf = text;
+        pos = offset;
+        limit = offset + length;
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Returns the vocabulary into which this lexer interns names.
+     */
+    public Vocabulary vocabulary()
+    {
+        return vocabulary;
+    }
+
+    /**
+     * Returns the perfect hash of a keyword of the given length and
+     * first and last characters.
+     */
+    private static int keyword(int length, int first, int last)
+    {
+        return (length + 11*first + last) & 15;
+    }
+
+    /**
+     * Returns the next character, or -1 at the end of the stream.
+     */
+    private int read() throws IOException
+    {
+        if(pos==limit && !fill())
+            return -1;
+        return buf[pos++];
+    }
+
+    /**
+     * Moves back by one the character just returned by {@link #read()},
+     * unless it was the end of the stream.
+     */
+    private void unread(int c)
+    {
+        if(c>=0)
+            pos--;
+    }
+
+    /**
+     * Refills the buffer, keeping the token being scanned, if any.
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean fill() throws IOException
+    {
+        if(in==null || eof)
+            return false;
+        int keep = mark<0 ? limit : mark;
+        if(keep>0)
+        {
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            limit -= keep;
+            pos -= keep;
+            if(mark>=0)
+                mark = 0;
+        }
+        if(limit==buf.length)
+            buf = Arrays.copyOf(buf, 2*buf.length);
+        int n;
+        do
+            n = in.read(buf, limit, buf.length - limit);
+        while(n==0);
+        if(n<0)
+        {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    /**
+     * Tells whether a character may start a word.
+     */
+    private static boolean isWordStart(int c)
+    {
+        return (c>='a' && c<='z') || (c>='A' && c<='Z') || c>=160;
+    }
+
+    /**
+     * Tells whether a character may continue a word.
+     */
+    private static boolean isWordPart(int c)
+    {
+        return isWordStart(c) || (c>='0' && c<='9') || c=='.' || c=='-';
+    }
+
+    /**
+     * Parses the next token.
+     *
+     * @return the type of the token, which is also stored in {@link #ttype}
+     */
+    @Override
+    public int nextToken() throws IOException
+    {
+        if(pushedBack)
+        {
+            pushedBack = false;
+            return ttype;
+        }
+        sval = null;
+        word = -1;
+        int c = read();
+        while(true)
+        {
+            // Skip white space:
+            while(c>=0 && c<=' ')
+            {
+                if(c=='\r')
+                {
+                    line++;
+                    c = read();
+                    if(c=='\n')
+                        c = read();
+                }
+                else
+                {
+                    if(c=='\n')
+                        line++;
+                    c = read();
+                }
+            }
+            if(c<0)
+                return ttype = TT_EOF;
+            if(c!='/')
+                break;
+
+            // Skip a comment, exactly as StreamTokenizer does, which also
+            // treats a single slash as the beginning of a line comment:
+            c = read();
+            if(c=='*')
+            {
+                int prev = 0;
+                while((c = read())!='/' || prev!='*')
+                {
+                    if(c=='\r')
+                    {
+                        line++;
+                        c = read();
+                        if(c=='\n')
+                            c = read();
+                    }
+                    else if(c=='\n')
+                    {
+                        line++;
+                        c = read();
+                    }
+                    if(c<0)
+                        return ttype = TT_EOF;
+                    prev = c;
+                }
+                c = read();
+            }
+            else
+            {
+                do
+                    c = read();
+                while(c>=0 && c!='\n' && c!='\r');
+            }
+        }
+
+        if(isWordStart(c))
+            return ttype = word(c);
+        if((c>='0' && c<='9') || c=='.' || c=='-')
+            return ttype = number(c);
+        if(c=='"' || c=='\'')
+            return ttype = quoted(c);
+        return ttype = c;
+    }
+
+    /**
+     * Scans a word, starting with the given character.
+     */
+    private int word(int c) throws IOException
+    {
+        mark = pos - 1;
+        int h = 0;
+        do
+        {
+            h = 31*h + c;
+            c = read();
+        }
+        while(c>=0 && isWordPart(c));
+        unread(c);
+        int start = mark;
+        int length = pos - start;
+        mark = -1;
+        String k = KEYWORDS[keyword(length, buf[start], buf[pos - 1])];
+        if(k!=null && k.length()==length && k.hashCode()==h)
+        {
+            int i = 0;
+            while(i<length && k.charAt(i)==buf[start + i])
+                i++;
+            if(i==length)
+            {
+                sval = k;
+                return TT_WORD;
+            }
+        }
+        word = vocabulary.intern(buf, start, length, h);
+        sval = vocabulary.name(word);
+        return TT_WORD;
+    }
+
+    /**
+     * Scans a number, starting with the given character,
+     * exactly as {@link java.io.StreamTokenizer} does.
+     */
+    private int number(int c) throws IOException
+    {
+        boolean negative = false;
+        if(c=='-')
+        {
+            c = read();
+            if(c!='.' && (c<'0' || c>'9'))
+            {
+                unread(c);
+                return '-';
+            }
+            negative = true;
+        }
+        double v = 0;
+        int decexp = 0;
+        int seendot = 0;
+        while(true)
+        {
+            if(c=='.' && seendot==0)
+                seendot = 1;
+            else if(c>='0' && c<='9')
+            {
+                v = v*10 + (c - '0');
+                decexp += seendot;
+            }
+            else
+                break;
+            c = read();
+        }
+        unread(c);
+        if(decexp!=0)
+        {
+            double denom = 10;
+            while(--decexp>0)
+                denom *= 10;
+            v = v/denom;
+        }
+        nval = negative ? -v : v;
+        return TT_NUMBER;
+    }
+
+    /**
+     * Scans a quoted string, delimited by the given character, with the
+     * escape sequences of {@link java.io.StreamTokenizer}.
+     */
+    private int quoted(int quote) throws IOException
+    {
+        StringBuilder s = new StringBuilder();
+        int c = read();
+        while(c>=0 && c!=quote && c!='\n' && c!='\r')
+        {
+            if(c=='\\')
+            {
+                c = read();
+                if(c>='0' && c<='7')
+                {
+                    int first = c;
+                    int v = c - '0';
+                    c = read();
+                    if(c>='0' && c<='7')
+                    {
+                        v = (v << 3) + (c - '0');
+                        c = read();
+                        if(c>='0' && c<='7' && first<='3')
+                        {
+                            v = (v << 3) + (c - '0');
+                            c = read();
+                        }
+                    }
+                    s.append((char) v);
+                    continue;
+                }
+                switch(c)
+                {
+                    case 'a': c = 0x7; break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = 0xC; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'v': c = 0xB; break;
+                    default: break;
+                }
+                if(c<0)
+                    break;
+            }
+            s.append((char) c);
+            c = read();
+        }
+        if(c!=quote)
+            unread(c);
+        sval = s.toString();
+        return quote;
+    }
+
+    /**
+     * Causes the next call to {@link #nextToken()} to return the current token.
+     */
+    @Override
+    public void pushBack()
+    {
+        if(ttype!=NOTHING)
+            pushedBack = true;
+    }
+
+    /**
+     * Returns the current line number.
+     */
+    @Override
+    public int lineno()
+    {
+        return line;
+    }
+
+    /**
+     * Returns the atom named by the current token, which must be a word;
+     * the same atom, interned in the vocabulary, is returned for every
+     * occurrence of a name.
+     */
+    @Override
+    public PropositionalAtom atom()
+    {
+        if(word<0)
+            word = vocabulary.intern(sval);
+        return vocabulary.atom(word);
+    }
+
+    /**
+     * Returns the string representation of the current token.
+     */
+    @Override
+    public String toString()
+    {
+        String s;
+        switch(ttype)
+        {
+            case TT_EOF:
+                s = "EOF";
+                break;
+            case TT_EOL:
+                s = "EOL";
+                break;
+            case TT_WORD:
+                s = sval;
+                break;
+            case TT_NUMBER:
+                s = "n=" + nval;
+                break;
+            case NOTHING:
+                s = "NOTHING";
+                break;
+            default:
+                s = ttype=='"' || ttype=='\'' ? sval : "'" + (char) ttype + "'";
+        }
+        return "Token[" + s + "], line " + line;
+    }
+}
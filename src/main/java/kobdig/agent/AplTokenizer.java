@@ -9,6 +9,8 @@
 
 package kobdig.agent;
 
+import kobdig.logic.PropositionalAtom;
+
 import java.io.*;
 
 /**
@@ -129,4 +131,14 @@ public class AplTokenizer extends StreamTokenizer
             return false;
         return sval.compareTo(s)==0;
     }
+
+    /**
+     * Returns the atom named by the current token, which must be a word.
+     * This tokenizer returns a new atom every time; {@link AplLexer}
+     * returns the atom interned in its vocabulary.
+     */
+    public PropositionalAtom atom()
+    {
+        return new PropositionalAtom(sval);
+    }
 }
@@ -0,0 +1,681 @@
+/*
+ * BeliefJournal.java
+ *
+ * Created on October 19, 2026, 1:30 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import kobdig.logic.Formula;
+import kobdig.logic.Operator;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.TruthDegree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the events which change the knowledge and
+ * beliefs of an agent, i.e., the revisions of its beliefs and the new pieces
+ * of knowledge it is told, with periodic checkpoints of its knowledge and
+ * belief bases.
+ * <p>The journal is kept in a directory, which contains the file
+ * <code>journal.log</code>, to which the events are appended through a
+ * buffered file channel, and a file <code>checkpoint-</code><var>n</var><code>.ckp</code>
+ * for each checkpoint, taken after the <var>n</var>-th event. Every event
+ * is recorded with its sequence number, its time, its fact and degree,
+ * and a checksum, so that a record torn by a crash is detected and
+ * discarded when the journal is reopened.</p>
+ * <p>An agent running the same program may be restored to its state after
+ * any event (see {@link #restore(Agent, long)}) by loading the last
+ * checkpoint taken before that event and replaying only the events
+ * which follow it, then deliberating once.</p>
+ * <p>Telling an agent a new piece of knowledge does not change its
+ * knowledge base yet (see {@link Agent#tell(Fact, TruthDegree)}): the
+ * {@link #KNOWLEDGE} events are recorded, so that the journal is complete,
+ * but replaying them has no effect either, until telling is implemented.</p>
+ * <p>Events are buffered: those recorded after the last call to
+ * {@link #flush()}, {@link #checkpoint(Agent)}, or {@link #close()} may
+ * be lost in a crash.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class BeliefJournal implements Closeable
+{
+    /** The type of the events which record a revision of the beliefs. */
+    public static final int REVISION = 1;
+
+    /**
+     * The type of the events which record a new piece of knowledge;
+     * replaying them has no effect for now, as telling has none.
+     */
+    public static final int KNOWLEDGE = 2;
+
+    /** The default number of events between two checkpoints. */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
+    /** The magic number at the beginning of a journal file. */
+    private static final int JOURNAL_MAGIC = 0x4B424A4C;
+
+    /** The magic number at the beginning of a checkpoint file. */
+    private static final int CHECKPOINT_MAGIC = 0x4B424350;
+
+    /** The version of the file formats. */
+    private static final short VERSION = 1;
+
+    /** The length of the header of a journal file. */
+    private static final int HEADER_LENGTH = 6;
+
+    /** The size of the write buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The tags of the nodes of an encoded formula. */
+    private static final byte ATOM = 0, NOT = 1, AND = 2, OR = 3, XOR = 4;
+
+    /** The directory of the journal. */
+    protected final File directory;
+
+    /** The number of events between two checkpoints. */
+    protected final int checkpointInterval;
+
+    /** The channel of the journal file. */
+    private final FileChannel channel;
+
+    /** The buffer of the events not yet written. */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /** The position in the journal file after the last event. */
+    private long end;
+
+    /** The sequence number of the last event. */
+    private long sequence;
+
+    /** The sequence number of the last checkpoint, or -1 if there is none. */
+    private long lastCheckpoint = -1;
+
+    /**
+     * Opens the journal in the given directory, with the default
+     * checkpoint interval, creating it if necessary.
+     *
+     * @param directory the directory of the journal
+     * @throws IOException if the journal cannot be opened or is corrupt
+     */
+    public BeliefJournal(File directory) throws IOException
+    {
+        this(directory, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Opens the journal in the given directory, creating it if necessary.
+     * Events are appended after the last complete event of the journal,
+     * any incomplete event being discarded.
+     *
+     * @param directory the directory of the journal
+     * @param checkpointInterval the number of events between two checkpoints
+     * @throws IOException if the journal cannot be opened or is corrupt
+     */
+    public BeliefJournal(File directory, int checkpointInterval) throws IOException
+    {
+        if(checkpointInterval<1)
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        this.directory = directory;
+        this.checkpointInterval = checkpointInterval;
+        Files.createDirectories(directory.toPath());
+        channel = FileChannel.open(new File(directory, "journal.log").toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if(channel.size()==0)
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(JOURNAL_MAGIC).putShort(VERSION).flip();
+            while(header.hasRemaining())
+                channel.write(header, channel.size());
+            channel.force(true);
+        }
+        end = HEADER_LENGTH;
+        TreeMap<Long,File> checkpoints = checkpoints();
+        if(!checkpoints.isEmpty())
+        {
+            lastCheckpoint = checkpoints.lastKey();
+            DataInputStream in = open(checkpoints.lastEntry().getValue(), CHECKPOINT_MAGIC);
+            try
+            {
+                sequence = in.readLong();
+                end = in.readLong();
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        // Find the end of the last complete event, and discard what follows:
+        DataInputStream in = events(end);
+        try
+        {
+            Event e;
+            while((e = next(in))!=null)
+            {
+                sequence = e.sequence;
+                end += e.length;
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        if(channel.size()>end)
+            channel.truncate(end);
+    }
+
+    /**
+     * An event of the journal.
+     */
+    public static final class Event
+    {
+        /** The type of the event: {@link #REVISION} or {@link #KNOWLEDGE}. */
+        public final int type;
+
+        /** The sequence number of the event, from 1. */
+        public final long sequence;
+
+        /** The time of the event, in milliseconds since the epoch. */
+        public final long time;
+
+        /** The fact of the event. */
+        public final Fact fact;
+
+        /** The trust in the source of the fact, or its degree of truth. */
+        public final TruthDegree degree;
+
+        /** The length of the record of the event, in bytes. */
+        final int length;
+
+        Event(int type, long sequence, long time, Fact fact, TruthDegree degree, int length)
+        {
+            this.type = type;
+            this.sequence = sequence;
+            this.time = time;
+            this.fact = fact;
+            this.degree = degree;
+            this.length = length;
+        }
+
+        /**
+         * Returns a string representation of this event.
+         */
+        @Override
+        public String toString()
+        {
+            return sequence + "\t" + time + "\t" + (type==REVISION ? "revise" : "tell") +
+                "\t" + fact.formula() + " : " + degree;
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last event, i.e.,
+     * the number of events recorded in the journal.
+     */
+    public synchronized long sequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Tells whether a checkpoint has been taken.
+     */
+    public synchronized boolean hasCheckpoint()
+    {
+        return lastCheckpoint>=0;
+    }
+
+    /**
+     * Records a revision of the beliefs of the given agent, and takes
+     * a checkpoint if one is due.
+     */
+    synchronized void revised(Agent agent, Fact fact, TruthDegree trust) throws IOException
+    {
+        append(REVISION, fact, trust);
+        if(sequence - lastCheckpoint>=checkpointInterval)
+            checkpoint(agent);
+    }
+
+    /**
+     * Records a new piece of knowledge of the given agent, and takes
+     * a checkpoint if one is due.
+     */
+    synchronized void told(Agent agent, Fact fact, TruthDegree truth) throws IOException
+    {
+        append(KNOWLEDGE, fact, truth);
+        if(sequence - lastCheckpoint>=checkpointInterval)
+            checkpoint(agent);
+    }
+
+    /**
+     * Appends an event to the write buffer.
+     */
+    private void append(int type, Fact fact, TruthDegree degree) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeLong(sequence + 1);
+        out.writeLong(System.currentTimeMillis());
+        out.writeDouble(degree.doubleValue());
+        write(out, fact.formula());
+        out.flush();
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if(buffer.remaining()<8 + payload.length)
+            drain();
+        ByteBuffer record = payload.length + 8>buffer.capacity() ?
+            ByteBuffer.allocate(payload.length + 8) : buffer;
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        if(record!=buffer)
+        {
+            record.flip();
+            while(record.hasRemaining())
+                end += channel.write(record, end);
+        }
+        sequence++;
+    }
+
+    /**
+     * Writes the buffered events to the journal file.
+     */
+    private void drain() throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            end += channel.write(buffer, end);
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered events to the journal file and forces them
+     * to the storage device.
+     *
+     * @throws IOException if the events cannot be written
+     */
+    public synchronized void flush() throws IOException
+    {
+        drain();
+        channel.force(false);
+    }
+
+    /**
+     * Takes a checkpoint of the knowledge and belief bases of the given agent,
+     * which must be the agent whose events are recorded in this journal.
+     *
+     * @param agent the agent
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void checkpoint(Agent agent) throws IOException
+    {
+        flush();
+        File file = new File(directory, String.format("checkpoint-%d.ckp", sequence));
+        File temp = new File(directory, file.getName() + ".tmp");
+        FileChannel ch = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try
+        {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(ch)));
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(sequence);
+            out.writeLong(end);
+            out.writeLong(System.currentTimeMillis());
+            write(out, agent.knowledge);
+            write(out, agent.beliefs);
+            out.flush();
+            ch.force(true);
+        }
+        finally
+        {
+            ch.close();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        lastCheckpoint = sequence;
+    }
+
+    /**
+     * Restores the given agent to its state after the last event of
+     * the journal (see {@link #restore(Agent, long)}).
+     *
+     * @param agent an agent running the same program as the journaled agent
+     * @throws IOException if the journal cannot be read
+     */
+    public void restore(Agent agent) throws IOException
+    {
+        restore(agent, sequence());
+    }
+
+    /**
+     * Restores the given agent to the state of the journaled agent after
+     * the event with the given sequence number.
+     * <p>The knowledge and beliefs of the agent are replaced by those of the
+     * last checkpoint taken at or before that event, and are then updated
+     * with the following events up to that event, without journaling them,
+     * where the {@link #KNOWLEDGE} events, like the telling they record,
+     * change nothing yet; finally, the agent deliberates once. Since obligations, desires, and
+     * goals only depend on the program, knowledge, and beliefs, the agent
+     * must run the same program as the journaled agent.</p>
+     *
+     * @param agent an agent running the same program as the journaled agent
+     * @param target the sequence number of the event
+     * @throws IOException if the journal cannot be read
+     * @throws IllegalArgumentException if there is no such event, or no
+     *         checkpoint before it
+     */
+    public synchronized void restore(Agent agent, long target) throws IOException
+    {
+        if(target<0 || target>sequence)
+            throw new IllegalArgumentException("No event " + target + " in the journal");
+        drain();
+        Map.Entry<Long,File> checkpoint = checkpoints().floorEntry(target);
+        if(checkpoint==null)
+            throw new IllegalArgumentException("No checkpoint before event " + target);
+        long from, offset;
+        PossibilisticFactBase knowledge = new PossibilisticFactBase();
+        PossibilisticFactBase beliefs = new PossibilisticFactBase();
+        DataInputStream in = open(checkpoint.getValue(), CHECKPOINT_MAGIC);
+        try
+        {
+            from = in.readLong();
+            offset = in.readLong();
+            in.readLong();
+            read(in, knowledge);
+            read(in, beliefs);
+        }
+        finally
+        {
+            in.close();
+        }
+        agent.knowledge = knowledge;
+        agent.beliefs = beliefs;
+        agent.knowledgeShared = false;
+        agent.beliefsShared = false;
+        agent.approximate = false;
+        if(from<target)
+        {
+            in = events(offset);
+            try
+            {
+                Event e;
+                while((e = next(in))!=null && e.sequence<=target)
+                {
+                    if(e.type==REVISION)
+                        agent.revise(e.fact, e.degree);
+                    else
+                        agent.learn(e.fact, e.degree);
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        agent.deliberate();
+    }
+
+    /**
+     * Returns the events with sequence numbers in the given range, e.g.,
+     * for auditing. The whole journal is read.
+     *
+     * @param from the sequence number of the first event
+     * @param to the sequence number of the last event
+     * @return the events, in the order they were recorded
+     * @throws IOException if the journal cannot be read
+     */
+    public synchronized List<Event> events(long from, long to) throws IOException
+    {
+        drain();
+        List<Event> list = new ArrayList<Event>();
+        DataInputStream in = events(HEADER_LENGTH);
+        try
+        {
+            Event e;
+            while((e = next(in))!=null && e.sequence<=to)
+                if(e.sequence>=from)
+                    list.add(e);
+        }
+        finally
+        {
+            in.close();
+        }
+        return list;
+    }
+
+    /**
+     * Writes the buffered events and closes the journal.
+     *
+     * @throws IOException if the events cannot be written
+     */
+    public synchronized void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the checkpoint files of the journal, by sequence number.
+     */
+    private TreeMap<Long,File> checkpoints()
+    {
+        TreeMap<Long,File> map = new TreeMap<Long,File>();
+        File[] files = directory.listFiles();
+        if(files!=null)
+            for(int i = 0; i<files.length; i++)
+            {
+                String name = files[i].getName();
+                if(name.startsWith("checkpoint-") && name.endsWith(".ckp"))
+                {
+                    try
+                    {
+                        map.put(Long.parseLong(name.substring(11, name.length() - 4)), files[i]);
+                    }
+                    catch(NumberFormatException e)
+                    {
+                        // Not a checkpoint.
+                    }
+                }
+            }
+        return map;
+    }
+
+    /**
+     * Opens a checkpoint file and checks its header.
+     */
+    private static DataInputStream open(File file, int magic) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            Files.newInputStream(file.toPath())));
+        if(in.readInt()!=magic || in.readShort()!=VERSION)
+        {
+            in.close();
+            throw new IOException("Not a KOBDIG file of version " + VERSION + ": " + file);
+        }
+        return in;
+    }
+
+    /**
+     * Returns a stream of the events in the journal file from the given position.
+     */
+    private DataInputStream events(long position) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        channel.read(header, 0);
+        header.flip();
+        if(header.remaining()<HEADER_LENGTH || header.getInt()!=JOURNAL_MAGIC ||
+            header.getShort()!=VERSION)
+            throw new IOException("Not a KOBDIG journal of version " + VERSION + ": " + directory);
+        final long[] at = { position };
+        InputStream is = new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                byte[] b = new byte[1];
+                return read(b, 0, 1)<0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                int n = channel.read(ByteBuffer.wrap(b, off, len), at[0]);
+                if(n>0)
+                    at[0] += n;
+                return n;
+            }
+        };
+        return new DataInputStream(new BufferedInputStream(is, BUFFER_SIZE));
+    }
+
+    /**
+     * Reads the next event, or returns <code>null</code> if there are no more
+     * complete events.
+     */
+    private static Event next(DataInputStream in) throws IOException
+    {
+        byte[] payload;
+        int checksum;
+        try
+        {
+            int length = in.readInt();
+            checksum = in.readInt();
+            if(length<0 || length>(1 << 30))
+                return null;
+            payload = new byte[length];
+            in.readFully(payload);
+        }
+        catch(EOFException e)
+        {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if((int) crc.getValue()!=checksum)
+            return null;
+        DataInputStream p = new DataInputStream(new ByteArrayInputStream(payload));
+        int type = p.readByte();
+        long sequence = p.readLong();
+        long time = p.readLong();
+        TruthDegree degree = new TruthDegree(p.readDouble());
+        Fact fact = new Fact(read(p));
+        return new Event(type, sequence, time, fact, degree, payload.length + 8);
+    }
+
+    /**
+     * Writes the facts of a fact set, with their membership degrees.
+     */
+    private static void write(DataOutputStream out, FactSet fs) throws IOException
+    {
+        if(fs==null)
+        {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(fs.size());
+        Iterator<Fact> i = fs.factIterator();
+        while(i.hasNext())
+        {
+            Fact f = i.next();
+            out.writeDouble(fs.membership(f).doubleValue());
+            write(out, f.formula());
+        }
+    }
+
+    /**
+     * Reads facts, with their membership degrees, into a fact set.
+     */
+    private static void read(DataInputStream in, FactSet fs) throws IOException
+    {
+        int n = in.readInt();
+        for(int i = 0; i<n; i++)
+        {
+            TruthDegree mu = new TruthDegree(in.readDouble());
+            fs.tell(new Fact(read(in)), mu);
+        }
+    }
+
+    /**
+     * Writes a formula, in prefix order.
+     */
+    private static void write(DataOutputStream out, Formula f) throws IOException
+    {
+        Operator op = f.operator();
+        if(op==null)
+        {
+            out.writeByte(ATOM);
+            out.writeUTF(f.toString());
+            return;
+        }
+        if(op==Operator.NOT)
+            out.writeByte(NOT);
+        else if(op==Operator.AND)
+            out.writeByte(AND);
+        else if(op==Operator.OR)
+            out.writeByte(OR);
+        else if(op==Operator.XOR)
+            out.writeByte(XOR);
+        else
+            throw new IllegalArgumentException("Unsupported operator " + op);
+        for(int i = 0; i<op.arity(); i++)
+            write(out, f.term(i));
+    }
+
+    /**
+     * Reads a formula written by {@link #write(DataOutputStream, Formula)}.
+     */
+    private static Formula read(DataInputStream in) throws IOException
+    {
+        byte tag = in.readByte();
+        switch(tag)
+        {
+            case ATOM:
+                return new PropositionalFormula(new PropositionalAtom(in.readUTF()));
+            case NOT:
+                return PropositionalFormula.compose(Operator.NOT, read(in));
+            case AND:
+                return PropositionalFormula.compose(Operator.AND, read(in), read(in));
+            case OR:
+                return PropositionalFormula.compose(Operator.OR, read(in), read(in));
+            case XOR:
+                return PropositionalFormula.compose(Operator.XOR, read(in), read(in));
+            default:
+                throw new IOException("Corrupt formula");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * BinaryFormat.java
+ *
+ * Created on October 19, 2026, 3:00 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+/**
+ * The constants of the binary format of fact sets and agents, which is
+ * written by {@link BinaryWriter} and read by {@link BinaryReader}.
+ * <p>All numbers are big-endian. A file consists of</p>
+ * <ol>
+ * <li>a header: the magic number {@link #MAGIC} (4 bytes), the version
+ *     (2 bytes), the kind of content, {@link #FACT_SET} or {@link #AGENT}
+ *     (1 byte), and a reserved byte;</li>
+ * <li>for an agent, its name, as a string, i.e., its length in bytes
+ *     (2 bytes) followed by its UTF-8 encoding;</li>
+ * <li>the vocabulary: the number of names of atoms (4 bytes), followed
+ *     by the names, as strings;</li>
+ * <li>the degree table: the number of degrees (2 bytes), at most
+ *     {@link #DEGREES}, followed by the degrees (8 bytes each);</li>
+ * <li>the formula DAG: the number of nodes (4 bytes), followed by the
+ *     nodes, of {@link #NODE_SIZE} bytes each: a tag (1 byte), which is
+ *     {@link #ATOM} or the operator of the node, and two arguments (4 bytes
+ *     each), which are the index of the atom in the vocabulary, for an atom,
+ *     or the indices of the nodes of the operands, which always precede
+ *     the node, for an operator; structurally equal subformulas are
+ *     represented by the same node;</li>
+ * <li>the section table: the number of sections (1 byte), followed, for
+ *     each section, by its type, {@link #FACTS} or {@link #RULES} (1 byte),
+ *     its number of entries (4 bytes), and the position of its first entry
+ *     in the file (4 bytes); a fact set has a section of facts, an agent
+ *     has, in this order, two sections of facts, its knowledge and
+ *     beliefs, and two sections of rules, its desire-generation and
+ *     obligation-generation rules;</li>
+ * <li>the sections: the entries of a section of facts are made of the node
+ *     of the formula of a fact (4 bytes) and the index of its membership
+ *     degree in the degree table (1 byte); the entries of a section of rules
+ *     are made of the nodes of the formulas of the consequent and of the
+ *     antecedents of a rule, for modalities K, O, B, and D (4 bytes each).</li>
+ * </ol>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+final class BinaryFormat
+{
+    /** The magic number at the beginning of a file. */
+    static final int MAGIC = 0x4B424442;
+
+    /** The version of the format. */
+    static final short VERSION = 1;
+
+    /** The kind of a file containing a fact set. */
+    static final byte FACT_SET = 0;
+
+    /** The kind of a file containing an agent. */
+    static final byte AGENT = 1;
+
+    /** The type of a section of facts. */
+    static final byte FACTS = 0;
+
+    /** The type of a section of rules. */
+    static final byte RULES = 1;
+
+    /** The tag of an atomic node. */
+    static final byte ATOM = 0;
+
+    /** The tags of the nodes of the pre-defined operators. */
+    static final byte NOT = 1, AND = 2, OR = 3, XOR = 4;
+
+    /** The size of a node of the formula DAG, in bytes. */
+    static final int NODE_SIZE = 9;
+
+    /** The size of an entry of a section of facts, in bytes. */
+    static final int FACT_SIZE = 5;
+
+    /** The size of an entry of a section of rules, in bytes. */
+    static final int RULE_SIZE = 20;
+
+    /**
+     * The maximum number of distinct degrees; if there are more, degrees are
+     * quantized to the nearest multiple of 1/255.
+     */
+    static final int DEGREES = 256;
+
+    /** This class cannot have instances. */
+    private BinaryFormat()
+    {
+    }
+}
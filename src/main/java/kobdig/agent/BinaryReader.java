@@ -0,0 +1,349 @@
+/*
+ * BinaryReader.java
+ *
+ * Created on October 19, 2026, 3:50 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import kobdig.logic.Formula;
+import kobdig.logic.Operator;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.TruthDegree;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A reader of fact sets and agents written by {@link BinaryWriter}.
+ * <p>The file is mapped into memory, and only its header, vocabulary,
+ * degree table, and section table are read when it is opened; facts and
+ * rules are materialized lazily, when they are accessed, and every node
+ * of the formula DAG is materialized at most once, so that the formulas
+ * of the facts share their common subformulas.</p>
+ * <p>A reader is not thread-safe.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class BinaryReader
+{
+    /** The section of the facts of a fact set. */
+    public static final int FACTS = 0;
+
+    /** The section of the knowledge of an agent. */
+    public static final int KNOWLEDGE = 0;
+
+    /** The section of the beliefs of an agent. */
+    public static final int BELIEFS = 1;
+
+    /** The section of the desire-generation rules of an agent. */
+    public static final int DESIRE_RULES = 2;
+
+    /** The section of the obligation-generation rules of an agent. */
+    public static final int OBLIGATION_RULES = 3;
+
+    /** The contents of the file. */
+    private final ByteBuffer buf;
+
+    /** The kind of contents. */
+    private final byte kind;
+
+    /** The name of the agent, or <code>null</code>. */
+    private final String name;
+
+    /** The position of each name of the vocabulary. */
+    private final int[] namePosition;
+
+    /** The atoms of the vocabulary materialized so far. */
+    private final PropositionalAtom[] atom;
+
+    /** The degree table. */
+    private final TruthDegree[] degree;
+
+    /** The position of the first node. */
+    private final int nodeStart;
+
+    /** The formulas of the nodes materialized so far. */
+    private final Formula[] formula;
+
+    /** The type of each section. */
+    private final byte[] sectionType;
+
+    /** The number of entries of each section. */
+    private final int[] sectionSize;
+
+    /** The position of the first entry of each section. */
+    private final int[] sectionStart;
+
+    /**
+     * Opens a file written by {@link BinaryWriter}.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be read, or is not
+     *         in a supported version of the format
+     */
+    public BinaryReader(File file) throws IOException
+    {
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try
+        {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        finally
+        {
+            // The mapping remains valid after the channel is closed.
+            ch.close();
+        }
+        try
+        {
+            if(buf.getInt()!=BinaryFormat.MAGIC)
+                throw new IOException("Not a KOBDIG binary file: " + file);
+            short version = buf.getShort();
+            if(version!=BinaryFormat.VERSION)
+                throw new IOException("Unsupported version " + version + " of the KOBDIG binary format: " + file);
+            kind = buf.get();
+            buf.get();
+            name = kind==BinaryFormat.AGENT ? string(buf.position()) : null;
+            if(name!=null)
+                buf.position(buf.position() + 2 + (buf.getShort(buf.position()) & 0xFFFF));
+            namePosition = new int[buf.getInt()];
+            for(int i = 0; i<namePosition.length; i++)
+            {
+                namePosition[i] = buf.position();
+                buf.position(buf.position() + 2 + (buf.getShort() & 0xFFFF));
+            }
+            atom = new PropositionalAtom[namePosition.length];
+            degree = new TruthDegree[buf.getShort() & 0xFFFF];
+            for(int i = 0; i<degree.length; i++)
+                degree[i] = new TruthDegree(buf.getDouble());
+            formula = new Formula[buf.getInt()];
+            nodeStart = buf.position();
+            buf.position(nodeStart + BinaryFormat.NODE_SIZE*formula.length);
+            int n = buf.get() & 0xFF;
+            sectionType = new byte[n];
+            sectionSize = new int[n];
+            sectionStart = new int[n];
+            for(int s = 0; s<n; s++)
+            {
+                sectionType[s] = buf.get();
+                sectionSize[s] = buf.getInt();
+                sectionStart[s] = buf.getInt();
+                int entry = sectionType[s]==BinaryFormat.FACTS ?
+                    BinaryFormat.FACT_SIZE : BinaryFormat.RULE_SIZE;
+                if(sectionStart[s]<0 || sectionSize[s]<0 ||
+                        (long) sectionStart[s] + (long) entry*sectionSize[s]>buf.limit())
+                    throw new IOException("Truncated KOBDIG binary file: " + file);
+            }
+        }
+        catch(BufferUnderflowException e)
+        {
+            throw new IOException("Truncated KOBDIG binary file: " + file);
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException("Corrupt KOBDIG binary file: " + file);
+        }
+    }
+
+    /**
+     * Tells whether the file contains an agent, rather than a fact set.
+     */
+    public boolean isAgent()
+    {
+        return kind==BinaryFormat.AGENT;
+    }
+
+    /**
+     * Returns the name of the agent, or <code>null</code> if the file
+     * contains a fact set.
+     */
+    public String name()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the number of entries, facts or rules, in the given section.
+     *
+     * @param section a section, e.g., {@link #FACTS} or {@link #BELIEFS}
+     */
+    public int size(int section)
+    {
+        return sectionSize[section];
+    }
+
+    /**
+     * Returns a fact of the given section of facts.
+     *
+     * @param section a section of facts
+     * @param i the index of the fact in the section
+     * @return the fact
+     */
+    public Fact fact(int section, int i)
+    {
+        return new Fact(formula(buf.getInt(entry(section, i, BinaryFormat.FACTS))));
+    }
+
+    /**
+     * Returns the membership degree of a fact of the given section of facts.
+     *
+     * @param section a section of facts
+     * @param i the index of the fact in the section
+     * @return the membership degree of the fact
+     */
+    public TruthDegree membership(int section, int i)
+    {
+        return degree[buf.get(entry(section, i, BinaryFormat.FACTS) + 4) & 0xFF];
+    }
+
+    /**
+     * Returns a rule of the given section of rules.
+     *
+     * @param section a section of rules
+     * @param i the index of the rule in the section
+     * @return the rule
+     */
+    public Rule rule(int section, int i)
+    {
+        int p = entry(section, i, BinaryFormat.RULES);
+        Fact consequent = new Fact(formula(buf.getInt(p)));
+        Fact[] antecedent = new Fact[Rule.NMOD];
+        antecedent[Rule.K] = new Fact(formula(buf.getInt(p + 4)));
+        antecedent[Rule.O] = new Fact(formula(buf.getInt(p + 8)));
+        antecedent[Rule.B] = new Fact(formula(buf.getInt(p + 12)));
+        antecedent[Rule.D] = new Fact(formula(buf.getInt(p + 16)));
+        return new Rule(consequent, antecedent);
+    }
+
+    /**
+     * Returns the position of an entry of a section of the given type.
+     */
+    private int entry(int section, int i, byte type)
+    {
+        if(sectionType[section]!=type)
+            throw new IllegalArgumentException("Section " + section + " does not contain " +
+                (type==BinaryFormat.FACTS ? "facts" : "rules"));
+        if(i<0 || i>=sectionSize[section])
+            throw new IndexOutOfBoundsException("Entry " + i + " of section " + section);
+        return sectionStart[section] + i*(type==BinaryFormat.FACTS ?
+            BinaryFormat.FACT_SIZE : BinaryFormat.RULE_SIZE);
+    }
+
+    /**
+     * Returns the fact set of the file, or the given section of facts
+     * of an agent, as a possibilistic fact base.
+     *
+     * @param section a section of facts
+     * @return a new possibilistic fact base containing the facts of the section
+     */
+    public PossibilisticFactBase possibilisticFactBase(int section)
+    {
+        PossibilisticFactBase base = new PossibilisticFactBase();
+        for(int i = 0; i<sectionSize[section]; i++)
+            base.tell(fact(section, i), membership(section, i));
+        return base;
+    }
+
+    /**
+     * Returns the fact set of the file.
+     *
+     * @return a new fact set containing the facts of the file
+     */
+    public FactSet factSet()
+    {
+        FactSet fs = new FactSet();
+        for(int i = 0; i<sectionSize[FACTS]; i++)
+            fs.tell(fact(FACTS, i), membership(FACTS, i));
+        return fs;
+    }
+
+    /**
+     * Returns the given section of rules of an agent as a rule base.
+     *
+     * @param section a section of rules
+     * @return a new rule base containing the rules of the section
+     */
+    public RuleBase ruleBase(int section)
+    {
+        RuleBase rb = new RuleBase();
+        for(int i = 0; i<sectionSize[section]; i++)
+            rb.add(rule(section, i));
+        return rb;
+    }
+
+    /**
+     * Returns the agent of the file, which deliberates to initialize its
+     * obligations, desires, and goals.
+     *
+     * @return a new agent
+     * @throws IllegalStateException if the file contains a fact set
+     */
+    public Agent agent()
+    {
+        if(!isAgent())
+            throw new IllegalStateException("Not an agent");
+        return new Agent(name, possibilisticFactBase(KNOWLEDGE), possibilisticFactBase(BELIEFS),
+            ruleBase(DESIRE_RULES), ruleBase(OBLIGATION_RULES));
+    }
+
+    /**
+     * Returns the formula of the given node, materializing it if necessary.
+     */
+    private Formula formula(int n)
+    {
+        if(formula[n]!=null)
+            return formula[n];
+        int p = nodeStart + BinaryFormat.NODE_SIZE*n;
+        byte tag = buf.get(p);
+        int a = buf.getInt(p + 1);
+        int b = buf.getInt(p + 5);
+        if(tag!=BinaryFormat.ATOM && (a<0 || a>=n || b<0 || b>=n))
+            throw new IllegalStateException("Corrupt node " + n);
+        Formula f;
+        switch(tag)
+        {
+            case BinaryFormat.ATOM:
+                if(atom[a]==null)
+                    atom[a] = new PropositionalAtom(string(namePosition[a]));
+                f = new PropositionalFormula(atom[a]);
+                break;
+            case BinaryFormat.NOT:
+                f = PropositionalFormula.compose(Operator.NOT, formula(a));
+                break;
+            case BinaryFormat.AND:
+                f = PropositionalFormula.compose(Operator.AND, formula(a), formula(b));
+                break;
+            case BinaryFormat.OR:
+                f = PropositionalFormula.compose(Operator.OR, formula(a), formula(b));
+                break;
+            case BinaryFormat.XOR:
+                f = PropositionalFormula.compose(Operator.XOR, formula(a), formula(b));
+                break;
+            default:
+                throw new IllegalStateException("Corrupt node " + n);
+        }
+        formula[n] = f;
+        return f;
+    }
+
+    /**
+     * Decodes the string at the given position.
+     */
+    private String string(int p)
+    {
+        int length = buf.getShort(p) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for(int i = 0; i<length; i++)
+            bytes[i] = buf.get(p + 2 + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * BinaryWriter.java
+ *
+ * Created on October 19, 2026, 3:20 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import kobdig.logic.Formula;
+import kobdig.logic.Operator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A writer of fact sets and agents in the compact binary format described
+ * in {@link BinaryFormat}, which {@link BinaryReader} loads much faster
+ * than the textual agent-program syntax can be parsed.
+ * <p>The names of the atoms are stored once, in a vocabulary, and formulas
+ * are stored as a DAG, in which structurally equal subformulas are shared.
+ * Membership degrees are stored as one-byte indices into a table of the
+ * distinct degrees; they are exact, unless there are more than 256 distinct
+ * degrees, in which case they are quantized to the nearest multiple of
+ * 1/255.</p>
+ * <p>Only formulas built with the pre-defined operators can be written.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class BinaryWriter
+{
+    /** The names of the atoms, in the order of the vocabulary. */
+    private final List<byte[]> names = new ArrayList<byte[]>();
+
+    /** The index in the vocabulary of each name. */
+    private final Map<String,Integer> vocabulary = new HashMap<String,Integer>();
+
+    /** The tag and arguments of each node, packed into a long. */
+    private long[] node = new long[64];
+
+    /** The number of nodes. */
+    private int nodes;
+
+    /** The index of each node, by its packed tag and arguments. */
+    private final Map<Long,Integer> nodeIndex = new HashMap<Long,Integer>();
+
+    /** The node of each formula object already encoded. */
+    private final Map<Formula,Integer> formulaNode = new IdentityHashMap<Formula,Integer>();
+
+    /** The type of each section. */
+    private final List<Byte> sectionType = new ArrayList<Byte>();
+
+    /** The entries of each section: nodes, and degrees for sections of facts. */
+    private final List<int[]> sectionNodes = new ArrayList<int[]>();
+
+    /** The membership degrees of the facts of each section of facts. */
+    private final List<double[]> sectionDegrees = new ArrayList<double[]>();
+
+    /** This class is only instantiated by its static methods. */
+    private BinaryWriter()
+    {
+    }
+
+    /**
+     * Writes a fact set to a file.
+     *
+     * @param fs a fact set
+     * @param file the file, which is overwritten
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a formula contains operators
+     *         other than the pre-defined ones
+     */
+    public static void write(FactSet fs, File file) throws IOException
+    {
+        BinaryWriter w = new BinaryWriter();
+        w.addFacts(fs);
+        w.write(file, BinaryFormat.FACT_SET, null);
+    }
+
+    /**
+     * Writes an agent, i.e., its name, knowledge and beliefs, and rule
+     * bases, to a file; its obligations, desires, and goals, which are
+     * determined by the rest, are not written.
+     *
+     * @param agent an agent
+     * @param file the file, which is overwritten
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a formula contains operators
+     *         other than the pre-defined ones
+     */
+    public static void write(Agent agent, File file) throws IOException
+    {
+        BinaryWriter w = new BinaryWriter();
+        w.addFacts(agent.knowledge);
+        w.addFacts(agent.beliefs);
+        w.addRules(agent.desRules);
+        w.addRules(agent.oblRules);
+        w.write(file, BinaryFormat.AGENT, agent.name());
+    }
+
+    /**
+     * Adds a section of facts.
+     */
+    private void addFacts(FactSet fs)
+    {
+        int n = fs==null ? 0 : fs.size();
+        int[] entries = new int[n];
+        double[] degrees = new double[n];
+        if(fs!=null)
+        {
+            Iterator<Fact> i = fs.factIterator();
+            for(int k = 0; k<n; k++)
+            {
+                Fact f = i.next();
+                entries[k] = node(f.formula());
+                degrees[k] = fs.membership(f).doubleValue();
+            }
+        }
+        sectionType.add(BinaryFormat.FACTS);
+        sectionNodes.add(entries);
+        sectionDegrees.add(degrees);
+    }
+
+    /**
+     * Adds a section of rules.
+     */
+    private void addRules(RuleBase rb)
+    {
+        List<Integer> entries = new ArrayList<Integer>();
+        Iterator<Rule> i = rb.iterator();
+        while(i.hasNext())
+        {
+            Rule r = i.next();
+            entries.add(node(r.consequent().formula()));
+            entries.add(node(r.antecedent(Rule.K).formula()));
+            entries.add(node(r.antecedent(Rule.O).formula()));
+            entries.add(node(r.antecedent(Rule.B).formula()));
+            entries.add(node(r.antecedent(Rule.D).formula()));
+        }
+        int[] a = new int[entries.size()];
+        for(int k = 0; k<a.length; k++)
+            a[k] = entries.get(k);
+        sectionType.add(BinaryFormat.RULES);
+        sectionNodes.add(a);
+        sectionDegrees.add(null);
+    }
+
+    /**
+     * Returns the node of the given formula, adding it and the nodes of its
+     * subformulas to the DAG if necessary.
+     */
+    private int node(Formula f)
+    {
+        Integer known = formulaNode.get(f);
+        if(known!=null)
+            return known;
+        Operator op = f.operator();
+        int tag, a = 0, b = 0;
+        if(op==null)
+        {
+            tag = BinaryFormat.ATOM;
+            a = name(f.toString());
+        }
+        else
+        {
+            if(op==Operator.NOT)
+                tag = BinaryFormat.NOT;
+            else if(op==Operator.AND)
+                tag = BinaryFormat.AND;
+            else if(op==Operator.OR)
+                tag = BinaryFormat.OR;
+            else if(op==Operator.XOR)
+                tag = BinaryFormat.XOR;
+            else
+                throw new IllegalArgumentException("Unsupported operator " + op);
+            a = node(f.term(0));
+            if(op.arity()>1)
+                b = node(f.term(1));
+        }
+        long key = ((long) tag << 56) | ((long) a << 28) | b;
+        Integer n = nodeIndex.get(key);
+        if(n==null)
+        {
+            if(nodes==(1 << 28))
+                throw new IllegalArgumentException("Too many nodes");
+            if(nodes==node.length)
+                node = Arrays.copyOf(node, 2*nodes);
+            n = nodes;
+            node[nodes++] = key;
+            nodeIndex.put(key, n);
+        }
+        formulaNode.put(f, n);
+        return n;
+    }
+
+    /**
+     * Returns the index of the given name in the vocabulary,
+     * adding it if necessary.
+     */
+    private int name(String s)
+    {
+        Integer i = vocabulary.get(s);
+        if(i==null)
+        {
+            i = names.size();
+            names.add(string(s));
+            vocabulary.put(s, i);
+        }
+        return i;
+    }
+
+    /**
+     * Returns the UTF-8 encoding of a string, checking its length.
+     */
+    private static byte[] string(String s)
+    {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length>0xFFFF)
+            throw new IllegalArgumentException("Name too long: " + s);
+        return bytes;
+    }
+
+    /**
+     * Writes the file.
+     */
+    private void write(File file, byte kind, String agentName) throws IOException
+    {
+        // Build the degree table, exact if there are few enough degrees:
+        TreeSet<Double> distinct = new TreeSet<Double>();
+        for(double[] d : sectionDegrees)
+            if(d!=null)
+                for(int k = 0; k<d.length; k++)
+                    distinct.add(d[k]);
+        double[] table;
+        Map<Double,Integer> degreeIndex = null;
+        if(distinct.size()<=BinaryFormat.DEGREES)
+        {
+            table = new double[distinct.size()];
+            degreeIndex = new HashMap<Double,Integer>();
+            int k = 0;
+            for(double d : distinct)
+            {
+                degreeIndex.put(d, k);
+                table[k++] = d;
+            }
+        }
+        else
+        {
+            table = new double[BinaryFormat.DEGREES];
+            for(int k = 0; k<table.length; k++)
+                table[k] = k/255.0;
+        }
+
+        // Compute the size of the file:
+        byte[] agent = agentName==null ? null : string(agentName);
+        long size = 8 + (agent==null ? 0 : 2 + agent.length) + 4;
+        for(byte[] s : names)
+            size += 2 + s.length;
+        size += 2 + 8*table.length + 4 + (long) BinaryFormat.NODE_SIZE*nodes + 1 + 9*sectionType.size();
+        long start = size;
+        for(int s = 0; s<sectionType.size(); s++)
+            size += sectionType.get(s)==BinaryFormat.FACTS ?
+                (long) BinaryFormat.FACT_SIZE*sectionNodes.get(s).length :
+                4L*sectionNodes.get(s).length;
+        if(size>Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too much data for a file");
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        buf.putInt(BinaryFormat.MAGIC).putShort(BinaryFormat.VERSION).put(kind).put((byte) 0);
+        if(agent!=null)
+            buf.putShort((short) agent.length).put(agent);
+        buf.putInt(names.size());
+        for(byte[] s : names)
+            buf.putShort((short) s.length).put(s);
+        buf.putShort((short) table.length);
+        for(int k = 0; k<table.length; k++)
+            buf.putDouble(table[k]);
+        buf.putInt(nodes);
+        for(int k = 0; k<nodes; k++)
+        {
+            long key = node[k];
+            buf.put((byte) (key >>> 56));
+            buf.putInt((int) ((key >>> 28) & 0xFFFFFFF));
+            buf.putInt((int) (key & 0xFFFFFFF));
+        }
+        buf.put((byte) sectionType.size());
+        long position = start;
+        for(int s = 0; s<sectionType.size(); s++)
+        {
+            byte type = sectionType.get(s);
+            int length = sectionNodes.get(s).length;
+            int entries = type==BinaryFormat.FACTS ? length : length/5;
+            buf.put(type).putInt(entries).putInt((int) position);
+            position += type==BinaryFormat.FACTS ?
+                (long) BinaryFormat.FACT_SIZE*entries : (long) BinaryFormat.RULE_SIZE*entries;
+        }
+        for(int s = 0; s<sectionType.size(); s++)
+        {
+            int[] entries = sectionNodes.get(s);
+            double[] degrees = sectionDegrees.get(s);
+            for(int k = 0; k<entries.length; k++)
+            {
+                buf.putInt(entries[k]);
+                if(degrees!=null)
+                    buf.put((byte) (degreeIndex!=null ? degreeIndex.get(degrees[k]) :
+                        (int) Math.round(degrees[k]*255.0)));
+            }
+        }
+        buf.flip();
+
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try
+        {
+            while(buf.hasRemaining())
+                ch.write(buf);
+        }
+        finally
+        {
+            ch.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Deadline.java
+ *
+ * Created on October 18, 2026, 11:10 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+/**
+ * A time budget for the deliberation of an agent, which may also be
+ * cancelled explicitly, e.g., from another thread.
+ * <p>Cancellation is cooperative: a deadline is installed on the thread which
+ * performs the deliberation (see {@link #install(Deadline)}), and the
+ * potentially long loops of the reasoning methods, such as entailment
+ * checks, the simplification of a belief base or the computation of desires
+ * and goals, call {@link #check()}, which throws a
+ * {@link DeliberationTimeoutException} as soon as the deadline installed
+ * on the current thread has expired or has been cancelled, or the thread
+ * has been interrupted while the deadline was installed.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public final class Deadline
+{
+    /** The deadline installed on each thread, if any. */
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+    /** The time, as given by {@link System#nanoTime()}, when the budget expires. */
+    private final long end;
+
+    /** True if the deadline has no time limit. */
+    private final boolean unlimited;
+
+    /** True if the deliberation has been cancelled. */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a deadline without time limit, which expires only when it is
+     * cancelled.
+     */
+    public Deadline()
+    {
+        end = 0L;
+        unlimited = true;
+    }
+
+    /**
+     * Creates a deadline which expires after the given time budget.
+     *
+     * @param millis the time budget, in milliseconds
+     */
+    public Deadline(long millis)
+    {
+        end = System.nanoTime() + 1000000L*millis;
+        unlimited = false;
+    }
+
+    /**
+     * Cancels the deliberation: the deadline expires immediately.
+     * This method may be called from any thread.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Tells whether the deadline has been cancelled.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Tells whether the deadline has expired, because its time budget has
+     * run out or it has been cancelled.
+     */
+    public boolean expired()
+    {
+        return cancelled || (!unlimited && System.nanoTime() - end>=0L);
+    }
+
+    /**
+     * Returns the remaining time budget, in milliseconds, or
+     * {@link Long#MAX_VALUE} if the deadline has no time limit.
+     */
+    public long remaining()
+    {
+        if(cancelled)
+            return 0L;
+        if(unlimited)
+            return Long.MAX_VALUE;
+        return Math.max(0L, (end - System.nanoTime())/1000000L);
+    }
+
+    /**
+     * Installs a deadline on the current thread.
+     *
+     * @param deadline the deadline, or <code>null</code> to remove it
+     * @return the deadline previously installed, or <code>null</code>,
+     *         which should be installed back when the deliberation is over
+     */
+    public static Deadline install(Deadline deadline)
+    {
+        Deadline previous = current.get();
+        if(deadline==null)
+            current.remove();
+        else
+            current.set(deadline);
+        return previous;
+    }
+
+    /**
+     * Returns the deadline installed on the current thread, or
+     * <code>null</code> if there is none.
+     */
+    public static Deadline current()
+    {
+        return current.get();
+    }
+
+    /**
+     * Checks whether the deliberation going on in the current thread
+     * must stop. Without a deadline installed, the interrupt status of the
+     * thread is ignored, so that reasoning outside a deliberation is never
+     * stopped.
+     *
+     * @throws DeliberationTimeoutException if the deadline installed on the
+     *         current thread has expired, or the thread has been interrupted
+     *         while a deadline is installed
+     */
+    public static void check()
+    {
+        Deadline d = current.get();
+        if(d==null)
+            return;
+        if(Thread.currentThread().isInterrupted())
+            throw new DeliberationTimeoutException("Deliberation interrupted");
+        if(d.expired())
+            throw new DeliberationTimeoutException(d.cancelled ?
+                "Deliberation cancelled" : "Deliberation budget exhausted");
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * DeliberationEvent.java
+ *
+ * Created on October 19, 2026, 8:50 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import java.util.Iterator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for a step of the revision of the beliefs
+ * of an agent or of its deliberation.
+ * <p>Every event carries the number of atoms, facts, and levels of the
+ * structure which the step works on, whose meaning is given by each kind
+ * of event, and the number of entailment checks performed by the step,
+ * i.e., of necessity queries to possibilistic fact bases and of
+ * classical entailment checks by fact bases, on the thread performing it.
+ * The events can be enabled in any recording, e.g., with
+ * <code>-XX:StartFlightRecording</code>, and analyzed with the
+ * standard tools; they cost next to nothing while no recording is running.</p>
+ * <p>A step is recorded as follows:
+ * <pre>
+ *     DeliberationEvent event = new DeliberationEvent.Minimization();
+ *     event.start();
+ *     ...
+ *     if(event.stop())
+ *         event.commit(atoms, facts, levels);
+ * </pre>
+ * where the counts are computed only if the event is to be committed.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+@Category({ "KOBDIG", "Deliberation" })
+@StackTrace(false)
+abstract class DeliberationEvent extends Event
+{
+    /** True while a recording is running. */
+    static volatile boolean recording;
+
+    /** The number of entailment checks performed by each thread while recording. */
+    private static final ThreadLocal<long[]> entailments = new ThreadLocal<long[]>()
+    {
+        @Override
+        protected long[] initialValue()
+        {
+            return new long[1];
+        }
+    };
+
+    static
+    {
+        FlightRecorder.addListener(new FlightRecorderListener()
+        {
+            public void recorderInitialized(FlightRecorder recorder)
+            {
+                update(recorder);
+            }
+
+            public void recordingStateChanged(Recording r)
+            {
+                update(FlightRecorder.getFlightRecorder());
+            }
+        });
+    }
+
+    /**
+     * Updates the recording flag to the state of the recordings.
+     */
+    private static void update(FlightRecorder recorder)
+    {
+        boolean running = false;
+        Iterator<Recording> i = recorder.getRecordings().iterator();
+        while(i.hasNext())
+            if(i.next().getState()==RecordingState.RUNNING)
+                running = true;
+        recording = running;
+    }
+
+    /**
+     * Counts an entailment check performed by the current thread;
+     * it should be called only while {@link #recording}.
+     */
+    static void countEntailment()
+    {
+        entailments.get()[0]++;
+    }
+
+    /**
+     * Returns the number of entailment checks counted so far
+     * by the current thread.
+     */
+    private static long entailments()
+    {
+        return recording ? entailments.get()[0] : 0;
+    }
+
+    @Label("Atoms")
+    int atoms;
+
+    @Label("Facts")
+    int facts;
+
+    @Label("Levels")
+    int levels;
+
+    @Label("Entailment Checks")
+    long entailmentChecks;
+
+    /**
+     * Starts timing the step.
+     */
+    void start()
+    {
+        entailmentChecks = entailments();
+        begin();
+    }
+
+    /**
+     * Stops timing the step.
+     *
+     * @return true if the event should be committed
+     */
+    boolean stop()
+    {
+        end();
+        return shouldCommit();
+    }
+
+    /**
+     * Commits the event, with the given counts.
+     */
+    void commit(int atoms, int facts, int levels)
+    {
+        this.atoms = atoms;
+        this.facts = facts;
+        this.levels = levels;
+        entailmentChecks = entailments() - entailmentChecks;
+        commit();
+    }
+
+    /**
+     * Stops timing a step which works on the given fact set, and commits
+     * the event, if it should be, with the counts of the fact set.
+     */
+    void stop(FactSet fs)
+    {
+        if(stop())
+            commit(fs.atomSet().size(), fs.size(), fs.levelSet().size());
+    }
+
+    /**
+     * The contraction of the belief base, i.e., the removal of the beliefs
+     * contradicted by the incoming fact; it counts the atoms, facts, and
+     * levels of the contracted base.
+     */
+    @Name("kobdig.BeliefContraction")
+    @Label("Belief Contraction")
+    static final class Contraction extends DeliberationEvent
+    {
+    }
+
+    /**
+     * The expansion of the contracted belief base with the disjunctions of
+     * the incoming fact with the former beliefs, and with the incoming fact;
+     * it counts the atoms, facts, and levels of the expanded base.
+     */
+    @Name("kobdig.DisjunctionExpansion")
+    @Label("Disjunction Expansion")
+    static final class Expansion extends DeliberationEvent
+    {
+    }
+
+    /**
+     * The removal of the redundant facts from the revised belief base;
+     * it counts the atoms, facts, and levels of the simplified base.
+     */
+    @Name("kobdig.BeliefSimplification")
+    @Label("Belief Simplification")
+    static final class Simplification extends DeliberationEvent
+    {
+    }
+
+    /**
+     * A round of the fixpoint iteration of the desires; it counts the atoms
+     * and levels of the utility after the round, and the rules
+     * re-evaluated in the round as facts.
+     */
+    @Name("kobdig.DesireRound")
+    @Label("Desire Fixpoint Round")
+    static final class DesireRound extends DeliberationEvent
+    {
+        @Label("Round")
+        int round;
+    }
+
+    /**
+     * A round of the evaluation of a stratum of the obligation rules, which
+     * takes a single round unless the stratum is cyclic; it counts no atoms,
+     * the rules re-evaluated in the round as facts, and the distinct degrees
+     * of the consequents of the stratum after the round as levels.
+     */
+    @Name("kobdig.ObligationRound")
+    @Label("Obligation Fixpoint Round")
+    static final class ObligationRound extends DeliberationEvent
+    {
+        @Label("Stratum")
+        int stratum;
+
+        @Label("Round")
+        int round;
+    }
+
+    /**
+     * The search for the goal at a level of the belief base; it counts the
+     * atoms of the utility, the cuts examined as facts, and the cuts
+     * of the utility as levels.
+     */
+    @Name("kobdig.GoalLevelSearch")
+    @Label("Goal Level Search")
+    static final class GoalLevelSearch extends DeliberationEvent
+    {
+        @Label("Level")
+        @Description("The level of the belief base")
+        double level;
+    }
+
+    /**
+     * The Quine-McCluskey minimization of the formula of a cut of the
+     * utility; it counts the atoms of the utility, the models of the cut
+     * as facts, and the terms of the minimized formula as levels.
+     */
+    @Name("kobdig.QuineMcCluskey")
+    @Label("Quine-McCluskey Minimization")
+    static final class Minimization extends DeliberationEvent
+    {
+    }
+}
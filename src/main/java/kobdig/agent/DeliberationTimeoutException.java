@@ -0,0 +1,33 @@
+/*
+ * DeliberationTimeoutException.java
+ *
+ * Created on October 18, 2026, 11:12 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+/**
+ * Thrown when the deliberation of an agent is stopped because its
+ * {@link Deadline} has expired or has been cancelled, or because the
+ * thread performing it has been interrupted.
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class DeliberationTimeoutException extends RuntimeException
+{
+    /** The version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new exception with the given message.
+     *
+     * @param msg the detail message
+     */
+    public DeliberationTimeoutException(String msg)
+    {
+        super(msg);
+    }
+}
@@ -9,10 +9,15 @@
 
 package kobdig.agent;
 
-import kobdig.Main;
 import kobdig.logic.*;
+import kobdig.metrics.Probes;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -21,11 +26,40 @@ import java.util.Set;
  * <p>Unlike a fact set, a fact base provides methods to derive facts that are
  * logical consequences of the facts in the base and to check whether a given
  * fact is a logical consequence of the facts in the base.</p>
+ * <p>A fact base keeps track of the partition of its facts into
+ * <em>components</em>, i.e., classes of facts which share atoms, directly or
+ * transitively, by means of a union-find structure over the atoms, which is
+ * updated whenever a fact is told. Since facts in different components
+ * have no atom in common, the components are logically independent:
+ * a query only needs to be checked against the components sharing atoms
+ * with it, whereas the others contribute only through their inconsistency.</p>
  *
  * @author Andrea G. B. Tettamanzi
  */
 public class FactBase extends FactSet
 {
+    /**
+     * True if this base is split into components; false if this base is
+     * itself a component of another base.
+     */
+    protected boolean sliced = true;
+    
+    /**
+     * The union-find forest over the atoms of the base, which maps every
+     * atom to its parent, or <code>null</code> if it has to be rebuilt.
+     * The roots of the forest identify the components of the base.
+     */
+    protected Map<Atom,Atom> parent;
+    
+    /**
+     * The facts of each component, indexed by its root atom; the facts
+     * which contain no atoms, and are thus relevant to every query, are
+     * indexed by <code>null</code>.
+     */
+    protected Map<Atom,FactBase> component;
+    
+    /** The consistency of the base, or <code>null</code> if it is not known. */
+    protected TruthDegree consistency;
     
     /** Creates a new empty fact base */
     public FactBase()
@@ -39,6 +73,15 @@ public class FactBase extends FactSet
         facts = new FuzzySet<Fact>(abox.facts);
     }
     
+    /**
+     * Creates a new fact base from a given fuzzy set of facts, without
+     * copying it; this is used to query &alpha;-cuts of a base.
+     */
+    protected FactBase(FuzzySet<Fact> fs)
+    {
+        super(fs);
+    }
+    
     /**
      * Calculates the degree to which the given fact is a logical consequence
      * of the fact base.
@@ -58,9 +101,32 @@ public class FactBase extends FactSet
      */
     public TruthDegree models(Fact fact)
     {
-        // Increment the global entailment check counter:
-        Main.entailmentChecks++;
+        // Count the entailment check:
+        if(Probes.enabled())
+            Probes.ENTAILMENT_CHECKS.increment();
+        if(DeliberationEvent.recording)
+            DeliberationEvent.countEntailment();
         
+        // The facts which do not share atoms with the given fact entail it
+        // only to the extent that they are inconsistent:
+        List<FactBase> irrelevant = new ArrayList<FactBase>();
+        FactBase relevant = relevant(fact.formula().atomSet(), irrelevant);
+        TruthDegree t = TruthDegree.FALSE;
+        Iterator<FactBase> i = irrelevant.iterator();
+        while(i.hasNext() && !t.isTrue())
+            t = TruthDegree.snorm(t, i.next().consistency().negated());
+        if(t.isTrue())
+            return t;
+        return TruthDegree.snorm(t, relevant.entails(fact));
+    }
+    
+    /**
+     * Calculates the degree to which the given fact is a logical consequence
+     * of the fact base, by checking all the interpretations of the language
+     * made of the atoms of the base and of the fact.
+     */
+    private TruthDegree entails(Fact fact)
+    {
         // 1. Construct an interpretation with all the atoms from the
         //    fact base and the fact as well
         Set<Atom> atoms = atomSet();
@@ -76,11 +142,235 @@ public class FactBase extends FactSet
         TruthDegree t = TruthDegree.TRUE;
         while(itps.hasNext())
         {
+            Deadline.check();
             Interpretation itp = itps.next();
             TruthDegree sat = fact.formula.truth(itp);
             t = TruthDegree.tnorm(t, TruthDegree.snorm(truth(itp).negated(), sat));
             if(t.isFalse()) break;
         }
         return t;
-    }    
+    }
+    
+    /**
+     * Checks the degree to which this fact base is logically consistent.
+     * Since the components of the base share no atoms, this is the
+     * minimum of the degrees of consistency of its components.
+     *
+     * @return the degree to which the facts contained in the fact base are logically
+     *         consistent.
+     */
+    @Override
+    public TruthDegree consistency()
+    {
+        if(consistency==null)
+        {
+            partition();
+            if(!sliced || component.size()<=1 || component.containsKey(null))
+                consistency = super.consistency();
+            else
+            {
+                TruthDegree t = TruthDegree.TRUE;
+                Iterator<FactBase> i = component.values().iterator();
+                while(i.hasNext() && !t.isFalse())
+                    t = TruthDegree.tnorm(t, i.next().consistency());
+                consistency = t;
+            }
+        }
+        return consistency;
+    }
+    
+    /**
+     * Add a new fact to the base with the given membership, updating the
+     * partition of the base into components.
+     *
+     * @param newFact the new fact that has to be added.
+     * @param mu the degree of membership of the new fact.
+     */
+    @Override
+    public void tell(Fact newFact, TruthDegree mu)
+    {
+        TruthDegree old = membership(newFact);
+        super.tell(newFact, mu);
+        consistency = null;
+        if(parent==null)
+            return;
+        if(mu.isFalse())
+        {
+            // Union-find does not support removals:
+            if(!old.isFalse())
+                parent = null;
+        }
+        else
+            join(newFact, mu);
+    }
+    
+    /**
+     * Removes completely a fact from the base; the partition of the base
+     * into components will be rebuilt when needed.
+     *
+     * @param fact the fact that has to be removed.
+     */
+    @Override
+    public void untell(Fact fact)
+    {
+        if(!membership(fact).isFalse())
+        {
+            consistency = null;
+            parent = null;
+        }
+        super.untell(fact);
+    }
+    
+    /**
+     * Creates a new, empty component of this base.
+     * Subclasses override this method so that components are of their
+     * own type.
+     */
+    protected FactBase newComponent()
+    {
+        FactBase c = new FactBase();
+        c.sliced = false;
+        return c;
+    }
+    
+    /**
+     * Builds the partition of the base into components, if necessary.
+     */
+    private void partition()
+    {
+        if(parent!=null)
+            return;
+        parent = new HashMap<Atom,Atom>();
+        component = new HashMap<Atom,FactBase>();
+        if(!sliced)
+            return;
+        Iterator<Fact> i = factIterator();
+        while(i.hasNext())
+        {
+            Fact fact = i.next();
+            join(fact, membership(fact));
+        }
+    }
+    
+    /**
+     * Returns the root of the tree of the given atom, which must belong to
+     * the union-find forest, halving the path along the way.
+     */
+    private Atom find(Atom a)
+    {
+        Atom p = parent.get(a);
+        while(!p.equals(a))
+        {
+            Atom g = parent.get(p);
+            parent.put(a, g);
+            a = g;
+            p = parent.get(a);
+        }
+        return a;
+    }
+    
+    /**
+     * Adds a fact with the given membership to its component, merging all
+     * the components with which it shares atoms.
+     */
+    private void join(Fact fact, TruthDegree mu)
+    {
+        if(!sliced)
+            return;
+        Atom root = null;
+        FactBase c = null;
+        Iterator<Atom> i = fact.formula().atomSet().iterator();
+        while(i.hasNext())
+        {
+            Atom a = i.next();
+            if(!parent.containsKey(a))
+                parent.put(a, a);
+            Atom r = find(a);
+            if(root==null)
+            {
+                root = r;
+                c = component.get(r);
+            }
+            else if(!r.equals(root))
+            {
+                // Merge the smaller component into the larger one:
+                FactBase d = component.remove(r);
+                if(c==null || (d!=null && d.size()>c.size()))
+                {
+                    FactBase e = c;
+                    c = d;
+                    d = e;
+                }
+                parent.put(r, root);
+                if(d!=null)
+                {
+                    Iterator<Fact> j = d.factIterator();
+                    while(j.hasNext())
+                    {
+                        Fact f = j.next();
+                        c.tell(f, d.membership(f));
+                    }
+                }
+            }
+        }
+        if(root==null)
+            c = component.get(null);
+        if(c==null)
+            c = newComponent();
+        component.put(root, c);
+        c.tell(fact, mu);
+    }
+    
+    /**
+     * Returns the facts of the base which are relevant to a query over the
+     * given atoms, i.e., those of the components which share atoms with
+     * the query, together with the facts which contain no atoms.
+     *
+     * @param atoms the atoms of the query
+     * @param irrelevant a list, to which the components which are not
+     *        relevant to the query are added
+     * @return the relevant facts, as a fact base of the same type as this
+     */
+    protected FactBase relevant(Set<Atom> atoms, List<FactBase> irrelevant)
+    {
+        partition();
+        if(!sliced || atoms.isEmpty() || component.size()<=1)
+            return this;
+        Set<Atom> roots = new HashSet<Atom>();
+        roots.add(null);
+        Iterator<Atom> i = atoms.iterator();
+        while(i.hasNext())
+        {
+            Atom a = i.next();
+            if(parent.containsKey(a))
+                roots.add(find(a));
+        }
+        List<FactBase> relevant = new ArrayList<FactBase>();
+        Iterator<Map.Entry<Atom,FactBase>> j = component.entrySet().iterator();
+        while(j.hasNext())
+        {
+            Map.Entry<Atom,FactBase> e = j.next();
+            if(roots.contains(e.getKey()))
+                relevant.add(e.getValue());
+            else
+                irrelevant.add(e.getValue());
+        }
+        if(irrelevant.isEmpty())
+            return this;
+        if(relevant.size()==1)
+            return relevant.get(0);
+        FactBase base = newComponent();
+        Iterator<FactBase> k = relevant.iterator();
+        while(k.hasNext())
+        {
+            FactBase c = k.next();
+            Iterator<Fact> f = c.factIterator();
+            while(f.hasNext())
+            {
+                Fact fact = f.next();
+                base.tell(fact, c.membership(fact));
+            }
+        }
+        return base;
+    }
 }
@@ -12,8 +12,11 @@ package kobdig.agent;
 import kobdig.logic.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -87,7 +90,9 @@ public class FactSet
     
     /**
      * Return the level set of this fact set, i.e., an ordered set
-     * of truth degrees that are used in the set.
+     * of truth degrees that are used in the set, as a read-only view
+     * which reflects its later changes (see {@link FuzzySet#levelSet()}):
+     * it must be copied before changing the fact set while iterating over it.
      */
     public SortedSet<TruthDegree> levelSet()
     {
@@ -95,7 +100,11 @@ public class FactSet
     }
     
     /**
-     * Return an &alpha;-cut of this fact set.
+     * Return an &alpha;-cut of this fact set, as a read-only view of this
+     * fact set, which reflects its later changes (see
+     * {@link FuzzySet#cut(TruthDegree)}): it must be copied, e.g., by
+     * telling its facts to a new fact set, before changing this fact set
+     * while iterating over it, and cannot be changed itself.
      */
     public FactSet cut(TruthDegree alpha)
     {
@@ -133,6 +142,14 @@ public class FactSet
         return itp;
     }
     
+    /**
+     * The maximum number of atoms for which {@link #satisfyingInterpretation()}
+     * performs an exact search; random fact sets with as many facts as
+     * atoms, or twice as many, take at most a few tens of milliseconds
+     * at this size.
+     */
+    public static final int EXACT_SEARCH_ATOM_LIMIT = 32;
+    
     /**
      * Returns the propositional interpretation which satisfies this fact set
      * to the maximum degree (ideally 1.0). The returned interpretation contains
@@ -142,55 +159,40 @@ public class FactSet
      *
      * Finding such an interpretation requires solving an optimization problem
      * which, in general, can be very hard.
-     * The provisional implementation of this method performs an exhaustive search
-     * of all fuzzy interpretations with truth degrees that are multiples of 0.1.
-     * While this has a complexity of 10<sup><var>n</var></sup>, where <var>n</var>
-     * is the number of atomic symbols occurring in the fact set, i.e., the
-     * cardinality of the interpretation, it guarantees to return an approximated
-     * solution within 0.05 from the real one.
+     * This method performs an exact search (see {@link SatisfactionOptimizer})
+     * as long as there are at most {@link #EXACT_SEARCH_ATOM_LIMIT} atomic
+     * symbols, and a local search otherwise.
      */
     public PropositionalInterpretation satisfyingInterpretation()
     {
-        final double INCREMENT = 0.1;
-        PropositionalInterpretation itp = new PropositionalInterpretation();
-        Atom[] atoms = atomSet().toArray(new Atom[1]);
-        double[] t = new double[atoms.length];
-        double[] best = new double[atoms.length];
-        for(int i = 0; i<t.length; i++)
-            best[i] = t[i] = 0.0;
-        TruthDegree maxsat = TruthDegree.FALSE;
-        boolean done = false;
-        do
+        return satisfyingInterpretation(atomSet().size()<=EXACT_SEARCH_ATOM_LIMIT);
+    }
+    
+    /**
+     * Returns a propositional interpretation which satisfies this fact set
+     * to the maximum degree, if <code>exact</code> is true, or to a high degree,
+     * found by local search, otherwise.
+     * Since only the truth degrees which occur in the fact set, their
+     * complements, 0, 0.5 and 1 need to be considered, the exact search is
+     * a branch and bound over those degrees.
+     *
+     * @param exact whether to perform an exact search
+     */
+    public PropositionalInterpretation satisfyingInterpretation(boolean exact)
+    {
+        List<Formula> formulas = new ArrayList<Formula>();
+        List<TruthDegree> memberships = new ArrayList<TruthDegree>();
+        Iterator<Fact> i = facts.iterator();
+        while(i.hasNext())
         {
-            // Assign the degrees t to the atoms:
-            for(int i = 0; i<atoms.length; i++)
-                itp.assign((PropositionalAtom) atoms[i], new TruthDegree(t[i]));
-            TruthDegree sat = truth(itp);
-            
-            // Check whether there is an improvement and, if so, update the best so far:
-            if(sat.compareTo(maxsat)>0)
-            {
-                for(int i = 0; i<atoms.length; i++)
-                    best[i] = t[i];
-                maxsat = sat;
-            }
-            
-            // Consider the next assignment:
-            for(int i = 0; i<t.length; i++)
-            {
-                t[i] += INCREMENT;
-                done = t[i]>1.0;
-                if(!done) break;
-                else t[i] = 0.0;
-            }
+            Fact fact = i.next();
+            formulas.add(fact.formula());
+            memberships.add(facts.member(fact));
         }
-        while(!done);
-        
-        // Assign the solution degrees t to the atoms:
-        for(int i = 0; i<atoms.length; i++)
-            itp.assign((PropositionalAtom) atoms[i], new TruthDegree(best[i]));
-        
-        return itp;
+        SatisfactionOptimizer optimizer = new SatisfactionOptimizer(formulas, memberships);
+        if(exact)
+            return optimizer.branchAndBound();
+        return optimizer.localSearch(new Random(0), 10);
     }
     
     /**
@@ -200,23 +202,117 @@ public class FactSet
      * <p>The consistency of a fuzzy fact set is the maximum degree to which an
      * interpretation satisfies it.</p>
      * <p>Instead of checking all infinite fuzzy interpretations, this method
-     * uses all crisp interpretations, which are a finite number. Of course,
+     * considers the crisp interpretations only. Of course,
      * the maximum degree of satisfaction over all crisp interpretations is
-     * but a lower bound on the consistency of the fact set.</p>
+     * but a lower bound on the consistency of the fact set; it is exactly
+     * the complement of its possibilistic inconsistency degree, though
+     * (see {@link #inconsistency()}).</p>
      *
      * @return the degree to which the facts contained in the fact set are logically
      *         consistent.
      */
     public TruthDegree consistency()
     {
+        TruthDegree t = cutInconsistency();
+        if(t!=null)
+            return t.negated();
+        return crispConsistency();
+    }
+    
+    /**
+     * Returns the possibilistic inconsistency degree of this fact set, i.e.,
+     * the greatest truth degree &alpha; such that the &alpha;-cut of the
+     * fact set is unsatisfiable, or 0 if the fact set is satisfiable.
+     * <p>Since the &alpha;-cuts shrink as &alpha; grows, this degree is found
+     * by a binary search on the level set, checking the satisfiability of
+     * each crisp &alpha;-cut probed with a {@link SatSolver}. If the formulas
+     * contain truth constants other than 0 and 1, the crisp interpretations
+     * are enumerated instead.</p>
+     *
+     * @return the inconsistency degree of this fact set
+     */
+    public TruthDegree inconsistency()
+    {
+        TruthDegree t = cutInconsistency();
+        if(t!=null)
+            return t;
+        return crispConsistency().negated();
+    }
+    
+    /**
+     * Computes the inconsistency degree of this fact set by a binary search
+     * on its level set, checking the satisfiability of the &alpha;-cuts.
+     * All the formulas are translated once into clauses, each guarded by a
+     * selector variable, so that each &alpha;-cut is checked by assuming the
+     * selectors of the facts it contains.
+     *
+     * @return the inconsistency degree, or <code>null</code> if some formula
+     *         cannot be translated into clauses
+     */
+    private TruthDegree cutInconsistency()
+    {
+        ClauseSet cnf = new ClauseSet();
+        List<Integer> selectors = new ArrayList<Integer>();
+        List<TruthDegree> memberships = new ArrayList<TruthDegree>();
+        Iterator<Fact> i = facts.iterator();
+        try
+        {
+            while(i.hasNext())
+            {
+                Fact fact = i.next();
+                int s = cnf.newVariable();
+                cnf.addClause(-s, cnf.literal(fact.formula()));
+                selectors.add(s);
+                memberships.add(facts.member(fact));
+            }
+        }
+        catch(IllegalArgumentException e)
+        {
+            return null;
+        }
+        SatSolver solver = new SatSolver(cnf);
+        TruthDegree[] levels = levelSet().toArray(new TruthDegree[0]);
+        
+        // Find the greatest level whose cut is unsatisfiable:
+        TruthDegree t = TruthDegree.FALSE;
+        int lo = 0, hi = levels.length - 1;
+        while(lo<=hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            List<Integer> assumptions = new ArrayList<Integer>();
+            for(int k = 0; k<selectors.size(); k++)
+                if(memberships.get(k).isAtLeastAsTrueAs(levels[mid]))
+                    assumptions.add(selectors.get(k));
+            int[] a = new int[assumptions.size()];
+            for(int k = 0; k<a.length; k++)
+                a[k] = assumptions.get(k);
+            if(solver.solve(a))
+                hi = mid - 1;
+            else
+            {
+                t = levels[mid];
+                lo = mid + 1;
+            }
+        }
+        return t;
+    }
+    
+    /**
+     * Returns the maximum degree to which a crisp interpretation of the
+     * atoms of this fact set satisfies it, by enumerating all of them.
+     */
+    private TruthDegree crispConsistency()
+    {
+        PropositionalInterpretation language = new PropositionalInterpretation();
+        Iterator<Atom> i = atomSet().iterator();
+        while(i.hasNext())
+            language.assign((PropositionalAtom) i.next(), false);
         TruthDegree t = TruthDegree.FALSE;
-        Iterator<Interpretation> itps = interpretation().iterator();
+        Iterator<Interpretation> itps = language.iterator();
         while(itps.hasNext() && !t.isTrue())
         {
-            Interpretation j = itps.next();
-            t = TruthDegree.snorm(t, truth(j));
-            if(t.isTrue())
-                break;  // No need to contine...
+            Deadline.check();
+            t = TruthDegree.snorm(t, truth(itps.next()));
         }
         return t;
     }
@@ -228,7 +324,7 @@ public class FactSet
      */
     public void tell(Fact newFact)
     {
-        facts.member(newFact, TruthDegree.TRUE);
+        tell(newFact, TruthDegree.TRUE);
     }
     
     /**
@@ -0,0 +1,218 @@
+/*
+ * GoalElection.java
+ *
+ * Created on October 18, 2026, 4:05 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+
+import kobdig.logic.BooleanFormula;
+import kobdig.logic.BooleanTerm;
+import kobdig.logic.ModelSet;
+import kobdig.logic.PossibilityDistribution;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.TruthDegree;
+
+/**
+ * The goal election function of an agent, which chooses the goal among
+ * the &delta;-cuts of the qualitative utility of the agent, i.e., the least
+ * specific formulas whose models all have a utility of at least &delta;.
+ * <p>The search, for every level &gamma; of the belief base, for the highest
+ * &delta; whose cut is possible to degree at least &gamma;, considers each
+ * cut over and over. Here, the model sets of all the cuts are computed at
+ * once, cumulatively, since every cut contains the cuts for higher
+ * utility degrees, whereas the formula of each cut, which requires a
+ * Quine-McCluskey minimization, and its possibility according to the beliefs
+ * of the agent are computed at most once, when they are first needed.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+class GoalElection
+{
+    /** The belief base of the agent. */
+    protected PossibilisticFactBase beliefs;
+
+    /** The atoms of the utility distribution, sorted. */
+    protected PropositionalAtom[] atom;
+
+    /** The index in the utility distribution of each sorted atom. */
+    protected int[] position;
+
+    /** The model sets of the cuts, in order of decreasing utility degree. */
+    protected ModelSet[] cut;
+
+    /** The formula of each cut, once computed. */
+    protected Fact[] formula;
+
+    /** Tells whether the formula of each cut has been computed. */
+    protected boolean[] minimized;
+
+    /** The possibility of the formula of each cut, once computed. */
+    protected TruthDegree[] possibility;
+
+    /** True if the election was stopped by its deadline. */
+    protected boolean approximate;
+
+    /**
+     * Prepares the election of a goal.
+     *
+     * @param utility the qualitative utility of the agent
+     * @param b the belief base of the agent
+     */
+    GoalElection(PossibilityDistribution utility, PossibilisticFactBase b)
+    {
+        beliefs = b;
+        atom = utility.atoms().clone();
+        Arrays.sort(atom);
+        position = new int[atom.length];
+        for(int i = 0; i<atom.length; i++)
+            position[i] = utility.indexOf(atom[i]);
+        SortedSet<TruthDegree> levels = utility.levelSet();
+        TruthDegree[] delta = new TruthDegree[levels.size()];
+        int k = delta.length;
+        for(TruthDegree t : levels)
+            delta[--k] = t;
+        cut = utility.cuts(delta);
+        formula = new Fact[delta.length];
+        minimized = new boolean[delta.length];
+        possibility = new TruthDegree[delta.length];
+    }
+
+    /**
+     * Returns the least specific formula whose models are those of the
+     * <var>k</var>-th cut, simplified, or <code>null</code> if the cut is empty.
+     */
+    protected Fact formula(int k)
+    {
+        if(!minimized[k])
+        {
+            List<BooleanTerm> termList = new ArrayList<BooleanTerm>();
+            for(int w = cut[k].nextModel(0); w>=0; w = cut[k].nextModel(w + 1))
+            {
+                Deadline.check();
+                byte[] val = new byte[atom.length];
+                for(int i = 0; i<atom.length; i++)
+                    val[i] = ((w >> position[i]) & 1)!=0 ? BooleanTerm.True : BooleanTerm.False;
+                termList.add(new BooleanTerm(val, atom));
+            }
+            if(!termList.isEmpty())
+            {
+                Deadline.check();
+                DeliberationEvent event = new DeliberationEvent.Minimization();
+                event.start();
+                int models = termList.size();
+                BooleanFormula f = new BooleanFormula(termList);
+                f.simplify();
+                if(event.stop())
+                    event.commit(atom.length, models, f.size());
+                PropositionalFormula phi = f.toPropositionalFormula();
+                if(phi!=null)
+                    formula[k] = new Fact(phi);
+            }
+            minimized[k] = true;
+        }
+        return formula[k];
+    }
+
+    /**
+     * Returns the possibility of the formula of the <var>k</var>-th cut,
+     * which must not be <code>null</code>.
+     */
+    protected TruthDegree possibility(int k)
+    {
+        if(possibility[k]==null)
+            possibility[k] = beliefs.possibility(formula(k));
+        return possibility[k];
+    }
+
+    /**
+     * Elects the goal. This follows Algorithms 2 and 3 in
+     * C&eacute;lia da Costa Pereira and Andrea G. B. Tettamanzi,
+     * "Belief-Goal Relationships in Possibilistic Goal Generation",
+     * ECAI 2010: for the highest level &gamma; of the belief base
+     * for which there is one, the goal is the formula of the highest cut
+     * whose possibility is at least &gamma;.
+     *
+     * @return the goal, or <code>null</code> if there is none
+     */
+    Fact elect()
+    {
+        SortedSet<TruthDegree> levels = beliefs.levelSet();
+        while(!levels.isEmpty())
+        {
+            TruthDegree gamma = levels.last();
+            DeliberationEvent.GoalLevelSearch event = new DeliberationEvent.GoalLevelSearch();
+            event.start();
+            Fact goal = null;
+            int k = 0;
+            while(goal==null && k<cut.length)
+            {
+                if(formula(k)!=null && possibility(k).isAtLeastAsTrueAs(gamma))
+                    goal = formula(k);
+                k++;
+            }
+            if(event.stop())
+            {
+                event.level = gamma.doubleValue();
+                event.commit(atom.length, k, cut.length);
+            }
+            if(goal!=null)
+                return goal;
+            levels = levels.headSet(gamma);
+        }
+        return null;
+    }
+
+    /**
+     * Elects the goal, like {@link #elect()}, but, in anytime mode, if the
+     * deadline of the deliberation expires, returns the best goal among
+     * the cuts whose possibility has been computed so far, i.e., the one
+     * which would be elected for the highest level &gamma;, and sets
+     * {@link #approximate}.
+     *
+     * @param anytime true to return the best goal found so far when the
+     *        deadline expires, instead of throwing an exception
+     * @return the goal, or <code>null</code> if there is none, or none has
+     *         been found before the deadline expired
+     */
+    Fact elect(boolean anytime)
+    {
+        try
+        {
+            return elect();
+        }
+        catch(DeliberationTimeoutException e)
+        {
+            if(!anytime)
+                throw e;
+            approximate = true;
+        }
+        SortedSet<TruthDegree> levels = beliefs.levelSet();
+        Fact best = null;
+        TruthDegree bestGamma = null;
+        for(int k = 0; k<cut.length; k++)
+        {
+            if(possibility[k]==null || formula[k]==null)
+                continue;
+            // The highest level gamma for which the cut qualifies:
+            SortedSet<TruthDegree> below = levels.headSet(possibility[k]);
+            TruthDegree gamma = levels.contains(possibility[k]) ?
+                possibility[k] : below.isEmpty() ? null : below.last();
+            if(gamma!=null && (bestGamma==null || gamma.compareTo(bestGamma)>0))
+            {
+                best = formula[k];
+                bestGamma = gamma;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * MentalStateSnapshot.java
+ *
+ * Created on October 19, 2026, 12:10 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import kobdig.logic.Formula;
+import kobdig.logic.Operator;
+import kobdig.logic.PossibilityDistribution;
+import kobdig.logic.TruthDegree;
+
+/**
+ * An immutable snapshot of the mental state of an agent, as it was at the end
+ * of a deliberation.
+ * <p>An agent publishes a new snapshot at the end of each deliberation,
+ * by replacing a volatile reference (see {@link Agent#snapshot()}); any
+ * number of threads may then read and query the snapshot without locking,
+ * while the agent keeps revising its beliefs and deliberating, and they
+ * never observe a half-updated mental state.</p>
+ * <p>The knowledge, beliefs, obligations, and goals are kept as
+ * {@link PersistentFactSet}s; the qualitative utility is shared with the
+ * agent, which replaces it at each deliberation instead of modifying it,
+ * and must not be modified. Queries on the knowledge and beliefs are
+ * answered, in each thread, on a possibilistic fact base of its own; each
+ * thread caches the bases of the last few fact sets it has queried.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public final class MentalStateSnapshot
+{
+    /** The number of the deliberation this snapshot results from. */
+    private final long version;
+
+    /** The knowledge of the agent. */
+    private final PersistentFactSet knowledge;
+
+    /** The beliefs of the agent. */
+    private final PersistentFactSet beliefs;
+
+    /** The obligations of the agent. */
+    private final PersistentFactSet obligations;
+
+    /** The qualitative utility of the agent. */
+    private final PossibilityDistribution utility;
+
+    /** The goals of the agent. */
+    private final PersistentFactSet goals;
+
+    /** True if the desires and goals are approximate. */
+    private final boolean approximate;
+
+    /**
+     * The number of views of fact sets cached by each thread, which thus
+     * keeps at most as many fact sets of old snapshots reachable.
+     */
+    private static final int CACHED_VIEWS = 4;
+
+    /** The views of the fact sets last queried by each thread. */
+    private static final ThreadLocal<Views> views = new ThreadLocal<Views>()
+    {
+        @Override
+        protected Views initialValue()
+        {
+            return new Views();
+        }
+    };
+
+    /**
+     * The views of the fact sets last queried by a thread, most recently
+     * queried first.
+     */
+    private static final class Views
+    {
+        /** The fact sets. */
+        final PersistentFactSet[] sets = new PersistentFactSet[CACHED_VIEWS];
+
+        /** Their views. */
+        final PossibilisticFactBase[] bases = new PossibilisticFactBase[CACHED_VIEWS];
+
+        /**
+         * Returns the view of the given fact set, creating it, and evicting
+         * the view least recently queried, if it is not cached.
+         */
+        PossibilisticFactBase get(PersistentFactSet fs)
+        {
+            int i = 0;
+            while(i<sets.length - 1 && sets[i]!=fs)
+                i++;
+            PossibilisticFactBase base = sets[i]==fs ? bases[i] : fs.asPossibilisticFactBase();
+            System.arraycopy(sets, 0, sets, 1, i);
+            System.arraycopy(bases, 0, bases, 1, i);
+            sets[0] = fs;
+            bases[0] = base;
+            return base;
+        }
+    }
+
+    /**
+     * Creates a snapshot of the given mental state. The persistent sets of
+     * the previous snapshot are reused for the parts of the mental state
+     * which have not changed since, so that they are not copied again and
+     * the views cached on them (see {@link Views}) stay valid.
+     *
+     * @param previous the previous snapshot, or <code>null</code>
+     * @param version the number of the deliberation
+     * @param knowledge the knowledge base, or <code>null</code> if empty
+     * @param beliefs the belief base, or <code>null</code> if empty
+     * @param obligations the obligation set
+     * @param utility the qualitative utility, which is not copied
+     * @param goals the goal set
+     * @param approximate true if the desires and goals are approximate
+     */
+    MentalStateSnapshot(MentalStateSnapshot previous, long version, FactSet knowledge,
+        FactSet beliefs, FactSet obligations, PossibilityDistribution utility,
+        FactSet goals, boolean approximate)
+    {
+        this.version = version;
+        this.knowledge = persistent(knowledge, previous==null ? null : previous.knowledge);
+        this.beliefs = persistent(beliefs, previous==null ? null : previous.beliefs);
+        this.obligations = persistent(obligations, previous==null ? null : previous.obligations);
+        this.utility = utility;
+        this.goals = persistent(goals, previous==null ? null : previous.goals);
+        this.approximate = approximate;
+    }
+
+    /**
+     * Returns a persistent copy of the given fact set, or the empty set if
+     * it is <code>null</code>, or the given persistent set, if it has the
+     * same facts with the same membership degrees.
+     * <p>The contents are compared, rather than the identity of the fact set
+     * copied, since the bases handed out by an agent may be told new facts
+     * in place; the comparison, unlike the copy, builds no new structure.</p>
+     *
+     * @param fs a fact set, or <code>null</code>
+     * @param previous the copy of the fact set in the previous snapshot,
+     *        or <code>null</code>
+     */
+    private static PersistentFactSet persistent(FactSet fs, PersistentFactSet previous)
+    {
+        if(fs==null)
+            return PersistentFactSet.EMPTY;
+        if(previous!=null && previous.sameFacts(fs))
+            return previous;
+        return new PersistentFactSet(fs);
+    }
+
+    /**
+     * Returns the number of the deliberation this snapshot results from;
+     * snapshots published later by the same agent have greater numbers.
+     */
+    public long version()
+    {
+        return version;
+    }
+
+    /**
+     * Returns the knowledge of the agent.
+     */
+    public PersistentFactSet knowledge()
+    {
+        return knowledge;
+    }
+
+    /**
+     * Returns the beliefs of the agent.
+     */
+    public PersistentFactSet beliefs()
+    {
+        return beliefs;
+    }
+
+    /**
+     * Returns the obligations of the agent.
+     */
+    public PersistentFactSet obligations()
+    {
+        return obligations;
+    }
+
+    /**
+     * Returns the qualitative utility of the agent, which must not be modified.
+     */
+    public PossibilityDistribution utility()
+    {
+        return utility;
+    }
+
+    /**
+     * Returns the goals of the agent.
+     */
+    public PersistentFactSet goals()
+    {
+        return goals;
+    }
+
+    /**
+     * Tells whether the desires and goals of the agent were approximate
+     * (see {@link Agent#isApproximate()}).
+     */
+    public boolean isApproximate()
+    {
+        return approximate;
+    }
+
+    /**
+     * Returns the degree to which the agent knew the given fact was true.
+     */
+    public TruthDegree knows(Fact fact)
+    {
+        return views.get().get(knowledge).necessity(fact);
+    }
+
+    /**
+     * Returns the degree to which the agent believed the given fact was true.
+     */
+    public TruthDegree believes(Fact fact)
+    {
+        return views.get().get(beliefs).necessity(fact);
+    }
+
+    /**
+     * Returns the degree to which the given fact was a justified desire
+     * of the agent (see {@link Agent#desires(Fact)}).
+     */
+    public TruthDegree desires(Fact fact)
+    {
+        if(fact.formula().isConstant())
+            return new TruthDegree(Double.parseDouble(fact.formula().toString()));
+        return utility.guaranteedPossibility(fact.formula());
+    }
+
+    /**
+     * Returns the degree to which the given fact was an obligation for
+     * the agent (see {@link Agent#must(Fact)}).
+     */
+    public TruthDegree must(Fact fact)
+    {
+        return justify(fact.formula());
+    }
+
+    /**
+     * Returns the degree to which the obligations justify the given formula,
+     * by structural recursion on it, as {@link Agent#justify(FactSet, Fact)}
+     * does.
+     */
+    private TruthDegree justify(Formula phi)
+    {
+        if(phi.isConstant())
+            return new TruthDegree(Double.parseDouble(phi.toString()));
+        TruthDegree mu = obligations.membership(new Fact(phi));
+        if(!mu.isFalse())
+            return mu;
+        if(phi.isLiteral())
+            return TruthDegree.FALSE;
+        Operator op = phi.operator();
+        TruthDegree[] t = new TruthDegree[op.arity()];
+        for(int i = 0; i<t.length; i++)
+            t[i] = justify(phi.term(i));
+        return op.truth(t);
+    }
+
+    /**
+     * Returns a string representation of this snapshot.
+     */
+    @Override
+    public String toString()
+    {
+        String s = "snapshot(" + version + ")\n{";
+        s += "\n  knowledge\n  "   + knowledge;
+        s += "\n  beliefs\n  "     + beliefs;
+        s += "\n  obligations\n  " + obligations;
+        s += "\n  utility\n  "     + utility;
+        s += "\n  goals\n  "       + goals;
+        return s + "\n}";
+    }
+}
@@ -0,0 +1,556 @@
+/*
+ * ObligationEngine.java
+ *
+ * Created on October 18, 2026, 2:15 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import kobdig.logic.Formula;
+import kobdig.logic.Operator;
+import kobdig.logic.TruthDegree;
+
+/**
+ * A compiled, stratified form of an obligation-generation rule base,
+ * which computes the obligation set of an agent.
+ * <p>A rule reads the obligation set through its O(&phi;) antecedent,
+ * whose degree is {@link Agent#justify(FactSet, Fact) justified} by the
+ * membership of &phi; and, recursively, of its subformulas; it writes the
+ * obligation set by adding its consequent. Therefore, a rule depends on
+ * another rule if the consequent of the latter is a subformula of its
+ * obligation antecedent or a proper subformula of its own consequent.
+ * The rules are partitioned into strata, the strongly connected components
+ * of the dependency graph, which are evaluated in topological order:
+ * a stratum without cycles is evaluated just once, whereas a cyclic stratum
+ * is iterated to a fixpoint, re-evaluating at each round only the rules
+ * whose inputs have changed.</p>
+ * <p>All the subformulas of the obligation antecedents and of the
+ * consequents are interned once, when the engine is compiled, and the
+ * justified degree of every interned subformula is memoized until the
+ * obligation set changes.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+class ObligationEngine
+{
+    /** The rules, in the order in which they are evaluated. */
+    protected Rule[] rule;
+
+    /** The interned formula of the obligation antecedent of each rule. */
+    protected int[] antecedent;
+
+    /** The interned formula of the consequent of each rule. */
+    protected int[] consequent;
+
+    /**
+     * The strata, in topological order, as ranges of indices in the rule array:
+     * stratum <var>s</var> consists of the rules from <code>stratum[s]</code>
+     * (inclusive) to <code>stratum[s + 1]</code> (exclusive).
+     */
+    protected int[] stratum;
+
+    /** Tells, for each stratum, whether it is cyclic. */
+    protected boolean[] cyclic;
+
+    /** The interned formulas. */
+    protected Formula[] formula;
+
+    /** The facts corresponding to the interned formulas. */
+    protected Fact[] fact;
+
+    /**
+     * The truth degree of each interned formula which is a constant,
+     * or -1 if the formula is not a constant.
+     */
+    protected double[] constant;
+
+    /** Tells, for each interned formula, whether it is a literal. */
+    protected boolean[] literal;
+
+    /** The interned children of each interned formula. */
+    protected int[][] child;
+
+    /** For each interned formula, the rules which read it. */
+    protected int[][] readers;
+
+    /**
+     * Compiles the given rule base.
+     *
+     * @param rb an obligation-generation rule base
+     */
+    ObligationEngine(RuleBase rb)
+    {
+        // 1. Intern the formulas:
+        List<Rule> rules = new ArrayList<Rule>();
+        Iterator<Rule> rit = rb.iterator();
+        while(rit.hasNext())
+            rules.add(rit.next());
+        Map<Formula,Integer> ids = new HashMap<Formula,Integer>();
+        List<Formula> formulas = new ArrayList<Formula>();
+        int n = rules.size();
+        int[] ante = new int[n];
+        int[] cons = new int[n];
+        for(int r = 0; r<n; r++)
+        {
+            ante[r] = intern(rules.get(r).antecedent(Rule.O).formula(), ids, formulas);
+            cons[r] = intern(rules.get(r).consequent().formula(), ids, formulas);
+        }
+        int m = formulas.size();
+        formula = formulas.toArray(new Formula[m]);
+        fact = new Fact[m];
+        constant = new double[m];
+        literal = new boolean[m];
+        child = new int[m][];
+        for(int f = 0; f<m; f++)
+        {
+            fact[f] = new Fact(formula[f]);
+            constant[f] = formula[f].isConstant() ?
+                Double.parseDouble(formula[f].toString()) : -1.0;
+            literal[f] = formula[f].isLiteral();
+            Operator op = formula[f].operator();
+            child[f] = new int[op==null ? 0 : op.arity()];
+            for(int i = 0; i<child[f].length; i++)
+                child[f][i] = ids.get(formula[f].term(i));
+        }
+
+        // 2. Build the dependency graph: edge w -> r if the consequent of w
+        //    is a subformula of the obligation antecedent of r or a proper
+        //    subformula of the consequent of r:
+        List<List<Integer>> writers = new ArrayList<List<Integer>>();
+        for(int f = 0; f<m; f++)
+            writers.add(new ArrayList<Integer>());
+        for(int w = 0; w<n; w++)
+            writers.get(cons[w]).add(w);
+        List<List<Integer>> edges = new ArrayList<List<Integer>>();
+        List<List<Integer>> read = new ArrayList<List<Integer>>();
+        for(int f = 0; f<m; f++)
+            read.add(new ArrayList<Integer>());
+        for(int r = 0; r<n; r++)
+            edges.add(new ArrayList<Integer>());
+        for(int r = 0; r<n; r++)
+        {
+            boolean[] sub = new boolean[m];
+            subformulas(ante[r], sub);
+            for(int f = 0; f<m; f++)
+                if(sub[f])
+                    read.get(f).add(r);
+            for(int i = 0; i<child[cons[r]].length; i++)
+                subformulas(child[cons[r]][i], sub);
+            for(int f = 0; f<m; f++)
+                if(sub[f])
+                {
+                    Iterator<Integer> i = writers.get(f).iterator();
+                    while(i.hasNext())
+                        edges.get(i.next()).add(r);
+                }
+        }
+        readers = new int[m][];
+        for(int f = 0; f<m; f++)
+            readers[f] = toArray(read.get(f));
+
+        // 3. Compute the strata and order the rules accordingly:
+        List<List<Integer>> components = new Tarjan(edges).components;
+        Collections.reverse(components);
+        rule = new Rule[n];
+        antecedent = new int[n];
+        consequent = new int[n];
+        stratum = new int[components.size() + 1];
+        cyclic = new boolean[components.size()];
+        int[] position = new int[n];
+        int k = 0;
+        for(int s = 0; s<components.size(); s++)
+        {
+            List<Integer> component = components.get(s);
+            // Within a stratum, evaluate rules with smaller consequents first:
+            final int[] c = cons;
+            Collections.sort(component, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer a, Integer b)
+                {
+                    return c[a] - c[b];
+                }
+            });
+            stratum[s] = k;
+            cyclic[s] = component.size()>1 || edges.get(component.get(0)).contains(component.get(0));
+            Iterator<Integer> i = component.iterator();
+            while(i.hasNext())
+            {
+                int r = i.next();
+                position[r] = k;
+                rule[k] = rules.get(r);
+                antecedent[k] = ante[r];
+                consequent[k] = cons[r];
+                k++;
+            }
+        }
+        stratum[components.size()] = k;
+        for(int f = 0; f<m; f++)
+            for(int i = 0; i<readers[f].length; i++)
+                readers[f][i] = position[readers[f][i]];
+    }
+
+    /**
+     * Interns a formula and all its subformulas, children first, so that the
+     * identifier of a formula is greater than the identifiers of all its
+     * proper subformulas.
+     *
+     * @return the identifier of the interned formula
+     */
+    private static int intern(Formula f, Map<Formula,Integer> ids, List<Formula> formulas)
+    {
+        Integer id = ids.get(f);
+        if(id!=null)
+            return id;
+        Operator op = f.operator();
+        if(op!=null)
+            for(int i = 0; i<op.arity(); i++)
+                intern(f.term(i), ids, formulas);
+        id = formulas.size();
+        formulas.add(f);
+        ids.put(f, id);
+        return id;
+    }
+
+    /**
+     * Marks the given interned formula and all its subformulas.
+     */
+    private void subformulas(int f, boolean[] sub)
+    {
+        if(sub[f])
+            return;
+        sub[f] = true;
+        for(int i = 0; i<child[f].length; i++)
+            subformulas(child[f][i], sub);
+    }
+
+    /**
+     * Converts a list of integers to an array.
+     */
+    private static int[] toArray(List<Integer> list)
+    {
+        int[] a = new int[list.size()];
+        for(int i = 0; i<a.length; i++)
+            a[i] = list.get(i);
+        return a;
+    }
+
+    /**
+     * Computes the new obligation set of the given agent.
+     *
+     * @param agent the agent whose knowledge, beliefs and desires
+     *        determine the activation of the rules
+     * @param obligations the current obligation set of the agent, from which
+     *        the evaluation of cyclic strata starts
+     * @return the updated obligation set
+     */
+    FactSet evaluate(Agent agent, FactSet obligations)
+    {
+        Evaluation e = new Evaluation(agent);
+        for(int s = 0; s<cyclic.length; s++)
+        {
+            Deadline.check();
+            if(cyclic[s])
+                e.fixpoint(s, obligations);
+            else
+            {
+                DeliberationEvent.ObligationRound event = new DeliberationEvent.ObligationRound();
+                event.start();
+                for(int r = stratum[s]; r<stratum[s + 1]; r++)
+                    e.tell(r, e.activation(r));
+                if(event.stop())
+                    e.commit(event, s, 1, stratum[s + 1] - stratum[s]);
+            }
+        }
+
+        FactSet result = new FactSet();
+        for(int r = 0; r<rule.length; r++)
+        {
+            double v = e.value[consequent[r]];
+            if(v>0.0)
+                result.tell(fact[consequent[r]], new TruthDegree(v));
+        }
+        return result;
+    }
+
+    /**
+     * The state of an evaluation of the engine.
+     */
+    private class Evaluation
+    {
+        /** The agent. */
+        final Agent agent;
+
+        /** The membership of each interned formula in the obligation set. */
+        final double[] value = new double[formula.length];
+
+        /**
+         * The activation of each rule, without its obligation antecedent,
+         * which does not change during the evaluation, or -1 if not known yet.
+         */
+        final double[] mental = new double[rule.length];
+
+        /** The memoized justified degree of each interned formula. */
+        final double[] justified = new double[formula.length];
+
+        /** The epoch in which each memoized justified degree was computed. */
+        final int[] stamp = new int[formula.length];
+
+        /** The current epoch, which changes whenever a value changes. */
+        int epoch = 1;
+
+        Evaluation(Agent a)
+        {
+            agent = a;
+            Arrays.fill(mental, -1.0);
+        }
+
+        /**
+         * Returns the degree to which the obligation set justifies the given
+         * interned formula; this is the same as
+         * {@link Agent#justify(FactSet, Fact)}, memoized.
+         */
+        double justify(int f)
+        {
+            if(stamp[f]==epoch)
+                return justified[f];
+            double t;
+            if(constant[f]>=0.0)
+                t = constant[f];
+            else if(value[f]>0.0 || literal[f])
+                t = value[f];
+            else
+            {
+                Operator op = formula[f].operator();
+                if(op==Operator.NOT)
+                    t = 1.0 - justify(child[f][0]);
+                else if(op==Operator.AND)
+                    t = Math.min(justify(child[f][0]), justify(child[f][1]));
+                else if(op==Operator.OR)
+                    t = Math.max(justify(child[f][0]), justify(child[f][1]));
+                else
+                {
+                    TruthDegree[] args = new TruthDegree[child[f].length];
+                    for(int i = 0; i<args.length; i++)
+                        args[i] = new TruthDegree(justify(child[f][i]));
+                    t = op.truth(args).doubleValue();
+                }
+            }
+            justified[f] = t;
+            stamp[f] = epoch;
+            return t;
+        }
+
+        /**
+         * Returns the activation of the given rule.
+         */
+        double activation(int r)
+        {
+            if(mental[r]<0.0)
+                mental[r] = rule[r].activation(agent, TruthDegree.TRUE).doubleValue();
+            return Math.min(mental[r], justify(antecedent[r]));
+        }
+
+        /**
+         * Adds the consequent of the given rule to the obligation set,
+         * with the given degree, combined with the degree to which it is
+         * already justified.
+         *
+         * @return true if the obligation set has changed
+         */
+        boolean tell(int r, double t)
+        {
+            int c = consequent[r];
+            t = Math.max(t, justify(c));
+            if(t==value[c])
+                return false;
+            value[c] = t;
+            epoch++;
+            return true;
+        }
+
+        /**
+         * Iterates the rules of a cyclic stratum to a fixpoint.
+         * Each round re-computes the consequents of the stratum from the
+         * contributions of the previous strata, using the activations computed
+         * on the obligations of the previous round, but only the rules which
+         * read some formula that has changed are re-evaluated. The iteration
+         * starts from the current obligations. Since an obligation antecedent
+         * may contain negations, the rounds are not monotone, and the
+         * iteration may oscillate: should it not converge, it is restarted
+         * from scratch and made inflationary, i.e., each round keeps, for each
+         * consequent, the greater of its old and new degrees. The degrees can
+         * then only increase, among the finitely many degrees obtained from
+         * those of the mental state by minimum, maximum, and complement,
+         * so that the iteration stops; the result is the least fixpoint
+         * of the stratum, if it is monotone, or its inflationary fixpoint
+         * otherwise.
+         */
+        void fixpoint(int s, FactSet obligations)
+        {
+            int from = stratum[s];
+            int to = stratum[s + 1];
+            int n = to - from;
+            double[] base = new double[n];
+            double[] old = new double[n];
+            double[] t = new double[n];
+            boolean[] dirty = new boolean[n];
+            for(int r = from; r<to; r++)
+                base[r - from] = value[consequent[r]];
+            for(int r = from; r<to; r++)
+            {
+                int c = consequent[r];
+                value[c] = Math.max(value[c], obligations.membership(fact[c]).doubleValue());
+            }
+            epoch++;
+            Arrays.fill(dirty, true);
+            int rounds = 0;
+            int round = 0;
+            boolean restarted = false;
+            boolean changed = true;
+            while(changed)
+            {
+                Deadline.check();
+                DeliberationEvent.ObligationRound event = new DeliberationEvent.ObligationRound();
+                event.start();
+                int evaluated = 0;
+                if(!restarted && ++rounds>2*n + 2)
+                {
+                    // The iteration does not converge: restart from scratch,
+                    // and only let the degrees increase from now on.
+                    for(int r = from; r<to; r++)
+                        value[consequent[r]] = base[r - from];
+                    epoch++;
+                    Arrays.fill(dirty, true);
+                    restarted = true;
+                }
+                for(int r = from; r<to; r++)
+                    if(dirty[r - from])
+                    {
+                        t[r - from] = activation(r);
+                        evaluated++;
+                    }
+                for(int r = from; r<to; r++)
+                    old[r - from] = value[consequent[r]];
+                for(int r = from; r<to; r++)
+                    value[consequent[r]] = base[r - from];
+                epoch++;
+                for(int r = from; r<to; r++)
+                    tell(r, t[r - from]);
+                if(restarted)
+                {
+                    for(int r = from; r<to; r++)
+                    {
+                        int c = consequent[r];
+                        value[c] = Math.max(value[c], old[r - from]);
+                    }
+                    epoch++;
+                }
+                changed = false;
+                Arrays.fill(dirty, false);
+                for(int r = from; r<to; r++)
+                {
+                    int c = consequent[r];
+                    if(value[c]!=old[r - from])
+                    {
+                        changed = true;
+                        for(int i = 0; i<readers[c].length; i++)
+                            if(readers[c][i]>=from && readers[c][i]<to)
+                                dirty[readers[c][i] - from] = true;
+                    }
+                }
+                round++;
+                if(event.stop())
+                    commit(event, s, round, evaluated);
+            }
+        }
+
+        /**
+         * Commits the event of a round of the evaluation of a stratum,
+         * in which the given number of rules have been re-evaluated.
+         */
+        void commit(DeliberationEvent.ObligationRound event, int s, int round, int evaluated)
+        {
+            Set<Double> degrees = new HashSet<Double>();
+            for(int r = stratum[s]; r<stratum[s + 1]; r++)
+                degrees.add(Double.valueOf(value[consequent[r]]));
+            event.stratum = s;
+            event.round = round;
+            event.commit(0, evaluated, degrees.size());
+        }
+    }
+
+    /**
+     * Tarjan's algorithm for the strongly connected components of a graph,
+     * which are returned in reverse topological order.
+     */
+    private static class Tarjan
+    {
+        final List<List<Integer>> edges;
+        final List<List<Integer>> components = new ArrayList<List<Integer>>();
+        final int[] index;
+        final int[] lowlink;
+        final boolean[] onStack;
+        final List<Integer> stack = new ArrayList<Integer>();
+        int counter = 0;
+
+        Tarjan(List<List<Integer>> e)
+        {
+            edges = e;
+            int n = e.size();
+            index = new int[n];
+            lowlink = new int[n];
+            onStack = new boolean[n];
+            Arrays.fill(index, -1);
+            for(int v = 0; v<n; v++)
+                if(index[v]<0)
+                    visit(v);
+        }
+
+        void visit(int v)
+        {
+            index[v] = lowlink[v] = counter++;
+            stack.add(v);
+            onStack[v] = true;
+            Iterator<Integer> i = edges.get(v).iterator();
+            while(i.hasNext())
+            {
+                int w = i.next();
+                if(index[w]<0)
+                {
+                    visit(w);
+                    lowlink[v] = Math.min(lowlink[v], lowlink[w]);
+                }
+                else if(onStack[w])
+                    lowlink[v] = Math.min(lowlink[v], index[w]);
+            }
+            if(lowlink[v]==index[v])
+            {
+                List<Integer> component = new ArrayList<Integer>();
+                int w;
+                do
+                {
+                    w = stack.remove(stack.size() - 1);
+                    onStack[w] = false;
+                    component.add(w);
+                }
+                while(w!=v);
+                components.add(component);
+            }
+        }
+    }
+}
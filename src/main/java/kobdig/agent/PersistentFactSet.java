@@ -0,0 +1,210 @@
+/*
+ * PersistentFactSet.java
+ *
+ * Created on October 18, 2026, 6:50 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import kobdig.logic.PersistentFuzzySet;
+import kobdig.logic.TruthDegree;
+
+import java.util.Iterator;
+import java.util.SortedSet;
+
+/**
+ * An immutable set of facts.
+ * <p>Telling or untelling a fact does not modify a persistent fact set,
+ * but returns a new version of it, which shares most of its structure with
+ * the previous version (see {@link PersistentFuzzySet}). Therefore, a
+ * persistent fact set is a consistent snapshot, which may be kept, logged,
+ * or handed over to readers at no cost, and going back to a previous version
+ * is just a matter of keeping a reference to it.</p>
+ * <p>Persistent fact sets may be queried as fact bases or possibilistic fact
+ * bases through read-only views, which do not copy the facts.</p>
+ *
+ * @see FactSet
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public final class PersistentFactSet
+{
+    /** The empty persistent fact set. */
+    public static final PersistentFactSet EMPTY =
+        new PersistentFactSet(PersistentFuzzySet.<Fact>empty());
+    
+    /** The fuzzy set of facts. */
+    private final PersistentFuzzySet<Fact> facts;
+    
+    private PersistentFactSet(PersistentFuzzySet<Fact> fs)
+    {
+        facts = fs;
+    }
+    
+    /**
+     * Creates a persistent copy of the given fact set.
+     *
+     * @param fs a fact set
+     */
+    public PersistentFactSet(FactSet fs)
+    {
+        this(PersistentFuzzySet.copyOf(fs.facts));
+    }
+    
+    /**
+     * Returns the cardinality of the support of the set.
+     * 
+     * @return the number of facts whose membership is greater than zero. 
+     */
+    public int size()
+    {
+        return facts.size();
+    }
+    
+    /**
+     * Returns the degree to which this fact set contains the specified fact.
+     */
+    public TruthDegree membership(Fact fact)
+    {
+        return facts.member(fact);
+    }
+    
+    /**
+     * Return the level set of this fact set, i.e., an ordered set
+     * of truth degrees that are used in the set.
+     */
+    public SortedSet<TruthDegree> levelSet()
+    {
+        return facts.levelSet();
+    }
+    
+    /**
+     * Returns a version of this fact set with the given fact added
+     * with membership 1.
+     *
+     * @param newFact the new fact that has to be added.
+     * @return the new version of the fact set
+     */
+    public PersistentFactSet tell(Fact newFact)
+    {
+        return tell(newFact, TruthDegree.TRUE);
+    }
+    
+    /**
+     * Returns a version of this fact set with the given fact added
+     * with the given membership.
+     *
+     * @param newFact the new fact that has to be added.
+     * @param mu the degree of membership of the new fact.
+     * @return the new version of the fact set
+     */
+    public PersistentFactSet tell(Fact newFact, TruthDegree mu)
+    {
+        PersistentFuzzySet<Fact> fs = facts.member(newFact, mu);
+        return fs==facts ? this : new PersistentFactSet(fs);
+    }
+    
+    /**
+     * Returns a version of this fact set with the given fact removed.
+     *
+     * @param fact the fact that has to be removed.
+     * @return the new version of the fact set
+     */
+    public PersistentFactSet untell(Fact fact)
+    {
+        return tell(fact, TruthDegree.FALSE);
+    }
+    
+    /**
+     * Returns an iterator on all facts whose membership in this
+     * fact set is non null.
+     */
+    public Iterator<Fact> factIterator()
+    {
+        return facts.iterator();
+    }
+    
+    /**
+     * Tells whether the given fact set contains the same facts as this set,
+     * with the same membership degrees.
+     *
+     * @param fs a fact set
+     */
+    boolean sameFacts(FactSet fs)
+    {
+        if(fs.size()!=size())
+            return false;
+        Iterator<Fact> i = fs.factIterator();
+        while(i.hasNext())
+        {
+            Fact f = i.next();
+            if(!fs.membership(f).equals(membership(f)))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Returns a read-only view of this set as a fact set.
+     */
+    public FactSet asFactSet()
+    {
+        return new FactSet(facts.asFuzzySet());
+    }
+    
+    /**
+     * Returns a read-only view of this set as a fact base.
+     */
+    public FactBase asFactBase()
+    {
+        return new FactBase(facts.asFuzzySet());
+    }
+    
+    /**
+     * Returns a new read-only view of this set as a possibilistic fact base.
+     * A possibilistic fact base caches the information it computes to answer
+     * queries, so that a caller should keep the view it is given to query this
+     * set repeatedly; since each call returns a distinct view, this set may
+     * be queried by several threads at once, each through its own view.
+     */
+    public PossibilisticFactBase asPossibilisticFactBase()
+    {
+        return new PossibilisticFactBase(facts.asFuzzySet());
+    }
+    
+    /**
+     * Tells whether this fact set equals the given object.
+     * A persistent fact set equals another persistent fact set if the two
+     * contain the same facts with the same membership degrees.
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if(!(o instanceof PersistentFactSet))
+            return false;
+        return facts.equals(((PersistentFactSet) o).facts);
+    }
+    
+    /**
+     * Returns the hash code for this fact set.
+     * 
+     * @return the hash code for this fact set.
+     */
+    @Override
+    public int hashCode()
+    {
+        return facts.hashCode();
+    }
+    
+    /**
+     * Returns a string representation of this fact set.
+     */
+    @Override
+    public String toString()
+    {
+        return asFactSet().toString();
+    }
+}
@@ -9,11 +9,24 @@
 
 package kobdig.agent;
 
+import kobdig.logic.Atom;
+import kobdig.logic.ClauseSet;
+import kobdig.logic.DecisionDnnf;
+import kobdig.logic.Formula;
+import kobdig.logic.FuzzySet;
+import kobdig.logic.ModelSet;
+import kobdig.logic.Operator;
+import kobdig.logic.PossibilityDistribution;
+import kobdig.logic.PropositionalAtom;
 import kobdig.logic.TruthDegree;
+import kobdig.metrics.Probes;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A possibilistic fact base is a fact set, regarded as a necessity-based
@@ -21,11 +34,84 @@ import java.util.List;
  * <p>Unlike a fact set, a possibilistic fact base provides methods to derive facts that are
  * logical consequences of the facts in the base and to check whether a given
  * fact is a logical consequence of the facts in the base.</p>
+ * <p>As long as the language of the base is small enough (see
+ * {@link #SEMANTIC_ATOM_LIMIT}), the base also maintains the possibility
+ * distribution it induces, which is updated incrementally whenever a fact is
+ * told or untold; necessity and possibility queries are then answered by
+ * a single scan of the distribution instead of an entailment check for
+ * each level of the base.</p>
+ * <p>Necessity queries are restricted to the components of the base which
+ * share atoms with the query (see {@link FactBase}); the other components
+ * only contribute their inconsistency degree. Therefore, each component,
+ * which maintains its own possibility distribution, only needs to be small
+ * enough for the semantic path to be taken.</p>
+ * <p>Optionally (see {@link #setCompiled(boolean)}), each &alpha;-cut of the
+ * base is compiled into a {@link DecisionDnnf} circuit once per revision;
+ * a necessity query is then answered by conditioning the circuits on the
+ * terms of the disjunctive normal form of the negation of the query, which
+ * takes linear time in their size for each term.</p>
  *
  * @author Andrea G. B. Tettamanzi
  */
 public class PossibilisticFactBase extends FactBase
 {
+    /**
+     * The maximum number of atoms for which the semantic representation of
+     * the base, a possibility distribution over 2<sup><var>n</var></sup>
+     * worlds, is maintained.
+     */
+    public static final int SEMANTIC_ATOM_LIMIT = 22;
+    
+    /**
+     * The possibility distribution induced by the base, i.e.,
+     * &pi;(&omega;) = 1 - max{&alpha; : &omega; |&ne; &phi;, (&phi;, &alpha;) &isin; <i>B</i>},
+     * or <code>null</code> if it has not been computed yet or cannot be
+     * computed.
+     */
+    protected PossibilityDistribution distribution;
+    
+    /**
+     * False if an attempt to compute the possibility distribution has failed
+     * and should not be repeated until the base shrinks.
+     */
+    protected boolean semantic = true;
+    
+    /** The inconsistency degree of the base, or <code>null</code> if it is not known. */
+    protected TruthDegree inconsistency;
+    
+    /**
+     * The maximum number of nodes of the circuit compiled for an &alpha;-cut.
+     */
+    public static final int COMPILATION_NODE_LIMIT = 1000000;
+    
+    /**
+     * The maximum number of terms of the disjunctive normal form of the
+     * negation of a query answered on the compiled circuits, which are
+     * conditioned on each of them.
+     */
+    public static final int COMPILED_QUERY_TERM_LIMIT = 4096;
+    
+    /** True if the &alpha;-cuts of the base are to be compiled. */
+    protected boolean compiled;
+    
+    /** The levels of the base, in increasing order, when compiled. */
+    protected TruthDegree[] levels;
+    
+    /**
+     * The clauses of the &alpha;-cut of each level, which map atoms to
+     * the variables of its circuit, or <code>null</code> if the base has
+     * not been compiled since its last revision.
+     */
+    protected ClauseSet[] cuts;
+    
+    /** The compiled circuit of the &alpha;-cut of each level. */
+    protected DecisionDnnf[] circuits;
+    
+    /**
+     * False if an attempt to compile the base has failed and should not be
+     * repeated until the next revision.
+     */
+    protected boolean compilable = true;
     
     /** Creates a new empty possibilistic fact base */
     public PossibilisticFactBase()
@@ -39,6 +125,37 @@ public class PossibilisticFactBase extends FactBase
         super(abox);
     }
     
+    /**
+     * Creates a new possibilistic fact base from a given fuzzy set of facts,
+     * without copying it.
+     */
+    protected PossibilisticFactBase(FuzzySet<Fact> fs)
+    {
+        super(fs);
+    }
+    
+    /**
+     * Returns a copy of this base, in the same mode.
+     * <p>The facts, which are immutable, are shared; the possibility
+     * distribution, if available, is copied instead of being recomputed,
+     * whereas the components and the compiled circuits are rebuilt
+     * when needed.</p>
+     *
+     * @return a base with the same facts as this base
+     */
+    public PossibilisticFactBase copy()
+    {
+        PossibilisticFactBase b = new PossibilisticFactBase(this);
+        b.sliced = sliced;
+        b.compiled = compiled;
+        b.semantic = semantic;
+        b.consistency = consistency;
+        b.inconsistency = inconsistency;
+        if(distribution!=null)
+            b.distribution = new PossibilityDistribution(distribution);
+        return b;
+    }
+    
     /**
      * Returns the necessity degree for the given fact according to
      * the fact base.
@@ -49,17 +166,70 @@ public class PossibilisticFactBase extends FactBase
      * @return the necessity degree of the given fact
      */
     public TruthDegree necessity(Fact fact)
+    {
+        long began = Probes.start();
+        if(DeliberationEvent.recording)
+            DeliberationEvent.countEntailment();
+        TruthDegree t = computeNecessity(fact);
+        Probes.stop(Probes.NECESSITY, began);
+        return t;
+    }
+    
+    /**
+     * Computes the necessity degree for the given fact according to
+     * the fact base.
+     */
+    private TruthDegree computeNecessity(Fact fact)
     {
         // first of all, handle constant-truth formulas correctly:
         if(fact.formula().isConstant())
             return new TruthDegree(Double.parseDouble(fact.formula().toString()));
         
+        // Restrict the query to the relevant components of the base:
+        List<FactBase> irrelevant = new ArrayList<FactBase>();
+        FactBase relevant = relevant(fact.formula().atomSet(), irrelevant);
+        if(relevant!=this)
+        {
+            TruthDegree t = TruthDegree.FALSE;
+            Iterator<FactBase> i = irrelevant.iterator();
+            while(i.hasNext())
+                t = TruthDegree.snorm(t, ((PossibilisticFactBase) i.next()).inconsistency());
+            return TruthDegree.snorm(t, ((PossibilisticFactBase) relevant).computeNecessity(fact));
+        }
+        
+        // Take the compiled path, if enabled:
+        if(compiled)
+        {
+            TruthDegree t = compiledNecessity(fact.formula());
+            if(t!=null)
+                return t;
+        }
+        
+        // Take the semantic path, if available:
+        PossibilityDistribution pi = distribution();
+        if(pi!=null)
+        {
+            ModelSet models = models(pi, fact.formula());
+            if(models!=null)
+            {
+                TruthDegree t = level(pi.necessity(models));
+                if(t!=null)
+                {
+                    // A single scan decides the entailment by every cut:
+                    if(Probes.enabled())
+                        Probes.ENTAILMENT_CHECKS.increment();
+                    return t;
+                }
+            }
+        }
+        
         Iterator<TruthDegree> i = levelSet().iterator();
         TruthDegree t = TruthDegree.FALSE;
         while(i.hasNext())
         {
+            Deadline.check();
             TruthDegree alpha = i.next();
-            FactBase alphaCut = new FactBase(cut(alpha));
+            FactBase alphaCut = new FactBase(facts.cut(alpha));
             if(alphaCut.models(fact).isTrue())
                 t = alpha;
             else break;
@@ -89,6 +259,542 @@ public class PossibilisticFactBase extends FactBase
         return necessity(fact.negated()).negated();
     }
     
+    /**
+     * Returns the inconsistency degree of the base, i.e., the greatest
+     * truth degree &alpha; such that the &alpha;-cut of the base is
+     * inconsistent, or 0 if the base is consistent.
+     * <p>It is computed on the possibility distribution induced by the
+     * base, if available, or else by checking the satisfiability of the
+     * &alpha;-cuts, on their compiled circuits, if the base is compiled,
+     * or by a SAT solver (see {@link FactSet#inconsistency()}).</p>
+     * 
+     * @return the inconsistency degree of the base
+     */
+    @Override
+    public TruthDegree inconsistency()
+    {
+        if(inconsistency==null)
+        {
+            if(compiled && compile())
+            {
+                // Find the greatest level whose cut is unsatisfiable:
+                TruthDegree t = TruthDegree.FALSE;
+                int lo = 0, hi = levels.length - 1;
+                while(lo<=hi)
+                {
+                    int mid = (lo + hi) >>> 1;
+                    if(circuits[mid].isSatisfiable())
+                        hi = mid - 1;
+                    else
+                    {
+                        t = levels[mid];
+                        lo = mid + 1;
+                    }
+                }
+                inconsistency = t;
+                return t;
+            }
+            PossibilityDistribution pi = distribution();
+            if(pi!=null)
+                inconsistency = level(pi.necessity(new ModelSet(pi.atoms().length)));
+            if(inconsistency==null)
+                inconsistency = super.inconsistency();
+        }
+        return inconsistency;
+    }
+    
+    /**
+     * Add a new fact to the base with the given membership, updating the
+     * possibility distribution induced by the base, if available.
+     *
+     * @param newFact the new fact that has to be added.
+     * @param mu the degree of membership of the new fact.
+     */
+    @Override
+    public void tell(Fact newFact, TruthDegree mu)
+    {
+        TruthDegree old = membership(newFact);
+        super.tell(newFact, mu);
+        inconsistency = null;
+        cuts = null;
+        compilable = true;
+        if(mu.isAtLeastAsTrueAs(old))
+            restrict(newFact, mu);
+        else
+            retract(newFact, old);
+    }
+    
+    /**
+     * Removes completely a fact from the base, updating the possibility
+     * distribution induced by the base, if available.
+     *
+     * @param fact the fact that has to be removed.
+     */
+    @Override
+    public void untell(Fact fact)
+    {
+        TruthDegree old = membership(fact);
+        super.untell(fact);
+        inconsistency = null;
+        cuts = null;
+        compilable = true;
+        if(!old.isFalse())
+            retract(fact, old);
+    }
+    
+    /**
+     * Creates a new, empty component of this base.
+     */
+    @Override
+    protected FactBase newComponent()
+    {
+        PossibilisticFactBase c = new PossibilisticFactBase();
+        c.sliced = false;
+        c.compiled = compiled;
+        return c;
+    }
+    
+    /**
+     * Enables or disables the compiled mode, in which the &alpha;-cuts of
+     * the base are compiled into decision-DNNF circuits once per revision,
+     * and necessity queries are answered on the circuits.
+     * Compilation pays off when many queries are asked between revisions.
+     *
+     * @param compiled true to enable the compiled mode
+     */
+    public void setCompiled(boolean compiled)
+    {
+        this.compiled = compiled;
+        cuts = null;
+        circuits = null;
+        compilable = true;
+        inconsistency = null;
+        // Rebuild the components, so that they are compiled too:
+        parent = null;
+    }
+    
+    /**
+     * Tells whether the compiled mode is enabled.
+     */
+    public boolean isCompiled()
+    {
+        return compiled;
+    }
+    
+    /**
+     * Returns the total number of nodes of the circuits compiled for this
+     * base and its components, which is 0 if none has been compiled since
+     * the last revision.
+     */
+    public int compiledSize()
+    {
+        int n = 0;
+        if(cuts!=null)
+            for(int k = 0; k<circuits.length; k++)
+                n += circuits[k].size();
+        if(component!=null)
+        {
+            Iterator<FactBase> i = component.values().iterator();
+            while(i.hasNext())
+                n += ((PossibilisticFactBase) i.next()).compiledSize();
+        }
+        return n;
+    }
+    
+    /**
+     * Compiles each &alpha;-cut of the base into a circuit, if necessary.
+     *
+     * @return false if the base cannot be compiled, because some formula
+     *         contains non-crisp constants or a circuit would be too large
+     */
+    private boolean compile()
+    {
+        if(cuts!=null)
+            return true;
+        if(!compilable)
+            return false;
+        levels = levelSet().toArray(new TruthDegree[0]);
+        ClauseSet[] c = new ClauseSet[levels.length];
+        DecisionDnnf[] d = new DecisionDnnf[levels.length];
+        try
+        {
+            for(int k = 0; k<levels.length; k++)
+            {
+                c[k] = new ClauseSet();
+                Iterator<Fact> i = factIterator();
+                while(i.hasNext())
+                {
+                    Fact fact = i.next();
+                    if(membership(fact).isAtLeastAsTrueAs(levels[k]))
+                        c[k].addClause(c[k].literal(fact.formula()));
+                }
+                d[k] = new DecisionDnnf(c[k], COMPILATION_NODE_LIMIT);
+            }
+        }
+        catch(IllegalArgumentException e)
+        {
+            compilable = false;
+            return false;
+        }
+        circuits = d;
+        cuts = c;
+        return true;
+    }
+    
+    /**
+     * Computes the necessity degree of a formula on the compiled circuits,
+     * i.e., the greatest level whose &alpha;-cut, conditioned on each term
+     * of the disjunctive normal form of the negation of the formula, is
+     * unsatisfiable. The negation of a clause is a single term, which takes
+     * a single pass over each circuit visited; in general, the number of
+     * terms may be exponential in the size of the formula, and the query
+     * is left to the other paths if it exceeds
+     * {@link #COMPILED_QUERY_TERM_LIMIT}.
+     *
+     * @return the necessity degree of the formula, or <code>null</code> if
+     *         the base cannot be compiled or the formula has too many terms
+     */
+    private TruthDegree compiledNecessity(Formula f)
+    {
+        Set<Atom> atoms = f.atomSet();
+        PropositionalAtom[] language = new PropositionalAtom[atoms.size()];
+        Iterator<Atom> j = atoms.iterator();
+        for(int a = 0; a<language.length; a++)
+        {
+            Atom atom = j.next();
+            if(!(atom instanceof PropositionalAtom))
+                return null;
+            language[a] = (PropositionalAtom) atom;
+        }
+        List<byte[]> terms = terms(f, false, Arrays.asList(language));
+        if(terms==null || !compile())
+            return null;
+        if(terms.isEmpty())
+            return TruthDegree.TRUE;
+        
+        // Find the greatest level whose cut entails the formula:
+        TruthDegree t = TruthDegree.FALSE;
+        int lo = 0, hi = levels.length - 1;
+        while(lo<=hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if(entails(mid, language, terms))
+            {
+                t = levels[mid];
+                lo = mid + 1;
+            }
+            else
+                hi = mid - 1;
+        }
+        return t;
+    }
+    
+    /**
+     * Returns the terms of the disjunctive normal form of a crisp formula,
+     * or of its negation, as the signs of the atoms of the language in each
+     * term: 1 if the atom occurs positively, -1 if it occurs negatively, and
+     * 0 if it does not occur.
+     *
+     * @param f a formula over the given language
+     * @param positive false if the terms of the negation are to be returned
+     * @param language the atoms of the formula
+     * @return the terms, or <code>null</code> if the formula contains
+     *         a constant which is not crisp or there are too many terms
+     */
+    private static List<byte[]> terms(Formula f, boolean positive, List<PropositionalAtom> language)
+    {
+        List<byte[]> terms = new ArrayList<byte[]>();
+        if(f.isConstant())
+        {
+            TruthDegree t = new TruthDegree(Double.parseDouble(f.toString()));
+            if(!t.isTrue() && !t.isFalse())
+                return null;
+            if(t.isTrue()==positive)
+                terms.add(new byte[language.size()]);
+            return terms;
+        }
+        if(f.isAtomic())
+        {
+            byte[] term = new byte[language.size()];
+            term[language.indexOf(f.atomSet().iterator().next())] = (byte) (positive ? 1 : -1);
+            terms.add(term);
+            return terms;
+        }
+        Operator op = f.operator();
+        if(op==Operator.NOT)
+            return terms(f.term(0), !positive, language);
+        if(op==Operator.AND || op==Operator.OR)
+        {
+            List<byte[]> l = terms(f.term(0), positive, language);
+            List<byte[]> r = terms(f.term(1), positive, language);
+            if(l==null || r==null)
+                return null;
+            if((op==Operator.AND)==positive)
+                return product(l, r);
+            terms.addAll(l);
+            terms.addAll(r);
+        }
+        else if(op==Operator.XOR)
+        {
+            // f1 + f2 = (f1 & ~f2) | (~f1 & f2), ~(f1 + f2) = (f1 & f2) | (~f1 & ~f2):
+            List<byte[]> l = terms(f.term(0), true, language);
+            List<byte[]> nl = terms(f.term(0), false, language);
+            List<byte[]> r = terms(f.term(1), !positive, language);
+            List<byte[]> nr = terms(f.term(1), positive, language);
+            if(l==null || nl==null || r==null || nr==null)
+                return null;
+            l = product(l, r);
+            nl = product(nl, nr);
+            if(l==null || nl==null)
+                return null;
+            terms.addAll(l);
+            terms.addAll(nl);
+        }
+        else
+            return null;
+        return terms.size()>COMPILED_QUERY_TERM_LIMIT ? null : terms;
+    }
+    
+    /**
+     * Returns the consistent conjunctions of a term of each of the given
+     * disjunctions, or <code>null</code> if there are too many of them.
+     */
+    private static List<byte[]> product(List<byte[]> l, List<byte[]> r)
+    {
+        List<byte[]> terms = new ArrayList<byte[]>();
+        Iterator<byte[]> i = l.iterator();
+        while(i.hasNext())
+        {
+            byte[] s = i.next();
+            Iterator<byte[]> j = r.iterator();
+            conjunctions:
+            while(j.hasNext())
+            {
+                byte[] t = j.next();
+                byte[] term = s.clone();
+                for(int a = 0; a<term.length; a++)
+                {
+                    if(term[a]==-t[a])
+                    {
+                        if(t[a]!=0)
+                            continue conjunctions;
+                    }
+                    else if(term[a]==0)
+                        term[a] = t[a];
+                }
+                terms.add(term);
+                if(terms.size()>COMPILED_QUERY_TERM_LIMIT)
+                    return null;
+            }
+        }
+        return terms;
+    }
+    
+    /**
+     * Checks whether the circuit of the given level, conditioned on each
+     * of the given terms, is unsatisfiable.
+     */
+    private boolean entails(int k, PropositionalAtom[] language, List<byte[]> terms)
+    {
+        if(Probes.enabled())
+            Probes.ENTAILMENT_CHECKS.increment();
+        int[] lits = new int[language.length];
+        Iterator<byte[]> i = terms.iterator();
+        while(i.hasNext())
+        {
+            byte[] term = i.next();
+            for(int a = 0; a<language.length; a++)
+                lits[a] = term[a]*cuts[k].variableOf(language[a]);
+            if(circuits[k].satisfiable(lits))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the possibility distribution induced by this base,
+     * computing it if necessary, or <code>null</code> if the language
+     * of the base is too large or the base contains facts which cannot
+     * be represented semantically.
+     */
+    protected PossibilityDistribution distribution()
+    {
+        if(distribution==null && semantic)
+        {
+            semantic = false;
+            Set<Atom> atoms = atomSet();
+            if(atoms.size()>SEMANTIC_ATOM_LIMIT)
+                return null;
+            List<PropositionalAtom> language = new ArrayList<PropositionalAtom>();
+            Iterator<Atom> j = atoms.iterator();
+            while(j.hasNext())
+            {
+                Atom a = j.next();
+                if(a instanceof PropositionalAtom)
+                    language.add((PropositionalAtom) a);
+            }
+            PossibilityDistribution pi = new PossibilityDistribution(
+                    language.toArray(new PropositionalAtom[language.size()]), TruthDegree.TRUE);
+            Iterator<Fact> i = factIterator();
+            try
+            {
+                while(i.hasNext())
+                {
+                    Fact fact = i.next();
+                    ModelSet countermodels = pi.models(fact.formula());
+                    countermodels.negate();
+                    pi.restrict(countermodels, membership(fact).negated());
+                    Deadline.check();
+                }
+            }
+            catch(IllegalArgumentException e)
+            {
+                return null;
+            }
+            catch(DeliberationTimeoutException e)
+            {
+                // Try again next time:
+                semantic = true;
+                throw e;
+            }
+            distribution = pi;
+            semantic = true;
+        }
+        return distribution;
+    }
+    
+    /**
+     * Returns the set of models of the given formula over the language
+     * of the given distribution, extended with the atoms of the formula
+     * which do not belong to it, or <code>null</code> if the extended
+     * language would be too large or the formula cannot be represented
+     * semantically.
+     */
+    private ModelSet models(PossibilityDistribution pi, Formula f)
+    {
+        List<PropositionalAtom> language = new ArrayList<PropositionalAtom>(Arrays.asList(pi.atoms()));
+        Iterator<Atom> i = f.atomSet().iterator();
+        while(i.hasNext())
+        {
+            Atom a = i.next();
+            if(a instanceof PropositionalAtom && pi.indexOf(a)<0)
+                language.add((PropositionalAtom) a);
+        }
+        if(language.size()>SEMANTIC_ATOM_LIMIT)
+            return null;
+        try
+        {
+            return new ModelSet(f, language.toArray(new PropositionalAtom[language.size()]));
+        }
+        catch(IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Maps a necessity degree computed on the possibility distribution back
+     * to the level of the base it corresponds to.
+     * Since the distribution stores possibility degrees of the form
+     * 1 - &alpha;, a necessity degree computed as 1 - (1 - &alpha;) may
+     * differ from &alpha; by a rounding error; the level of the base is
+     * returned instead, so that the semantic and the syntactic paths give
+     * exactly the same results. If several levels round to the same degree,
+     * the distribution cannot tell which of them the necessity degree is,
+     * and <code>null</code> is returned, so that the caller falls back on
+     * the syntactic path.
+     */
+    private TruthDegree level(TruthDegree n)
+    {
+        if(n.isFalse() || n.isTrue())
+            return n;
+        TruthDegree level = n;
+        int matches = 0;
+        Iterator<TruthDegree> i = levelSet().iterator();
+        while(i.hasNext())
+        {
+            TruthDegree alpha = i.next();
+            if(alpha.negated().negated().equals(n))
+            {
+                level = alpha;
+                matches++;
+            }
+        }
+        return matches>1 ? null : level;
+    }
+    
+    /**
+     * Updates the possibility distribution, if available, to reflect the
+     * addition of a fact with the given degree of membership: the
+     * possibility of its countermodels cannot exceed 1 - &mu;.
+     */
+    private void restrict(Fact fact, TruthDegree mu)
+    {
+        if(distribution==null)
+            return;
+        Iterator<Atom> i = fact.formula().atomSet().iterator();
+        while(i.hasNext())
+        {
+            Atom a = i.next();
+            if(a instanceof PropositionalAtom && distribution.indexOf(a)<0)
+            {
+                if(distribution.atoms().length>=SEMANTIC_ATOM_LIMIT)
+                {
+                    distribution = null;
+                    return;
+                }
+                distribution.addAtom((PropositionalAtom) a);
+            }
+        }
+        try
+        {
+            ModelSet countermodels = distribution.models(fact.formula());
+            countermodels.negate();
+            distribution.restrict(countermodels, mu.negated());
+        }
+        catch(IllegalArgumentException e)
+        {
+            distribution = null;
+            semantic = false;
+        }
+    }
+    
+    /**
+     * Updates the possibility distribution, if available, to reflect the
+     * removal of a fact, or the lowering of its degree of membership,
+     * which was <code>old</code>. Only the countermodels of the fact whose
+     * possibility was determined by it, i.e., was exactly 1 - <code>old</code>,
+     * have to be recomputed from the remaining facts.
+     */
+    private void retract(Fact fact, TruthDegree old)
+    {
+        semantic = true;
+        if(distribution==null)
+            return;
+        try
+        {
+            ModelSet affected = distribution.models(fact.formula());
+            affected.negate();
+            affected.and(distribution.cut(old.negated()));
+            if(affected.isEmpty())
+                return;
+            distribution.possibility(affected, TruthDegree.TRUE);
+            Iterator<Fact> i = factIterator();
+            while(i.hasNext())
+            {
+                Fact psi = i.next();
+                ModelSet countermodels = distribution.models(psi.formula());
+                countermodels.negate();
+                countermodels.and(affected);
+                distribution.restrict(countermodels, membership(psi).negated());
+            }
+        }
+        catch(IllegalArgumentException e)
+        {
+            distribution = null;
+        }
+    }
+    
     /**
      * Put the base in normal form, by removing redundant facts that are
      * a logical consequence of the other facts in the base.
@@ -96,8 +802,21 @@ public class PossibilisticFactBase extends FactBase
      * try removing it from the base and check whether it may still
      * inferred. If that's the case, drop it, and begin all over,
      * until no fact may be removed.</p>
+     * <p>If the deliberation is stopped (see {@link Deadline}), the base
+     * is left equivalent to the original, although maybe not in normal
+     * form.</p>
      */
     void simplify()
+    {
+        long began = Probes.start();
+        removeRedundantFacts();
+        Probes.stop(Probes.SIMPLIFY, began);
+    }
+    
+    /**
+     * Removes the redundant facts from the base, one at a time.
+     */
+    private void removeRedundantFacts()
     {
         // First of all, prepare a list of facts in the base:
         List<Fact> factList = new LinkedList<Fact>();
@@ -111,12 +830,23 @@ public class PossibilisticFactBase extends FactBase
             Fact fact = i.next();
             TruthDegree t = membership(fact);
             untell(fact);
-            if(necessity(fact).isAtLeastAsTrueAs(t))
+            boolean redundant;
+            try
+            {
+                redundant = necessity(fact).isAtLeastAsTrueAs(t);
+            }
+            catch(DeliberationTimeoutException e)
+            {
+                // Leave the base equivalent to what it was:
+                tell(fact, t);
+                throw e;
+            }
+            if(redundant)
             {
                 // The fact is a logical consequence of the rest of the base
                 // and may be safely dropped.
                 // Now, we get a smaller base, which must be checked again:
-                simplify();
+                removeRedundantFacts();
                 break;
             }
             // The fact is not a logical consequence and should be kept:
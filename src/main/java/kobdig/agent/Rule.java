@@ -71,6 +71,19 @@ public class Rule
             antecedent[i] = Fact.TRUE;
     }
     
+    /**
+     * Creates a new rule with the given consequent and antecedents.
+     *
+     * @param fact the consequent
+     * @param antecedents the antecedent for each modality, indexed by
+     *        {@link #K}, {@link #O}, {@link #B}, and {@link #D}
+     */
+    Rule(Fact fact, Fact[] antecedents)
+    {
+        consequent = fact;
+        antecedent = antecedents.clone();
+    }
+    
     /**
      * Create a new rule from a source file.
      */
@@ -139,14 +152,37 @@ public class Rule
      * @param agent the agent in whose context the rule is evaluated.
      */
     public TruthDegree activation(Agent agent)
+    {
+        return activation(agent, agent.must(antecedent[O]));
+    }
+    
+    /**
+     * Determines the degree of truth of the antecedent of this rule,
+     * given the degree of its obligation antecedent.
+     *
+     * @param agent the agent in whose context the rule is evaluated.
+     * @param obligation the degree to which the obligation antecedent holds
+     */
+    TruthDegree activation(Agent agent, TruthDegree obligation)
     {
         TruthDegree t = agent.knows(antecedent[K]);
         t = TruthDegree.tnorm(t, agent.believes(antecedent[B]));
         t = TruthDegree.tnorm(t, agent.desires(antecedent[D]));
-        t = TruthDegree.tnorm(t, agent.must(antecedent[O]));
+        t = TruthDegree.tnorm(t, obligation);
         return t;
     }
     
+    /**
+     * Returns the antecedent of this rule for the given modality.
+     *
+     * @param modality the index of a modality, i.e., one of
+     *        {@link #K}, {@link #O}, {@link #B}, and {@link #D}
+     */
+    Fact antecedent(int modality)
+    {
+        return antecedent[modality];
+    }
+    
     /**
      * Returns the consequent of this rule.
      */
@@ -10,14 +10,33 @@
 package kobdig.agent;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import kobdig.logic.Atom;
+import kobdig.logic.Formula;
+import kobdig.logic.Interpretation;
+import kobdig.logic.ModelSet;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.PropositionalInterpretationIterator;
 
 /**
  * A set of rules, that generate new facts based on conditions on existing facts.
+ * <p>A rule base maintains an index of its rules, which records, for every
+ * rule, the set of the models of its consequent over the language of all
+ * the consequents of the base, as well as the rules whose desire antecedent
+ * is satisfied by some of those models. The index is updated as rules are
+ * added and is used to construct a qualitative utility from the rules
+ * by scattering the activation of each rule over the models of its
+ * consequent.</p>
+ * <p>Once parsed, a rule base may be shared by agents deliberating
+ * concurrently: the index is built under the lock of the base, and
+ * published only when it is complete. Agents hand out unmodifiable views
+ * of their rule bases (see {@link #unmodifiableView()}).</p>
  *
  * @author Andrea G. B. Tettamanzi
  */
@@ -25,6 +44,36 @@ public class RuleBase
 {
     protected Set<Rule> rules;
     
+    /**
+     * The language made of the atoms occurring in the consequents of the
+     * rules, or <code>null</code> if the index has to be rebuilt; it is
+     * assigned last, when the index is complete.
+     */
+    protected volatile PropositionalAtom[] consequentLanguage;
+    
+    /** The models of the consequent of every rule, over the consequent language. */
+    protected Map<Rule,ModelSet> consequentModels;
+    
+    /**
+     * The models of the desire antecedent of every rule whose desire
+     * antecedent is not constant, over the consequent language;
+     * a <code>null</code> value stands for an antecedent which cannot
+     * be represented over that language.
+     */
+    protected Map<Rule,ModelSet> desireModels;
+    
+    /**
+     * For every rule, the rules whose desire antecedent has a model in
+     * common with its consequent.
+     */
+    protected Map<Rule,Set<Rule>> readers;
+    
+    /**
+     * The compiled form of this rule base, used when it generates obligations,
+     * or <code>null</code> if it has to be recompiled.
+     */
+    protected volatile ObligationEngine obligationEngine;
+    
     /** Creates an empty rule base. */
     public RuleBase()
     {
@@ -53,17 +102,35 @@ public class RuleBase
     /**
      * Add a rule to the rule base.
      */
-    public void add(Rule r)
+    public synchronized void add(Rule r)
     {
-        rules.add(r);
+        if(!rules.add(r))
+            return;
+        obligationEngine = null;
+        if(consequentLanguage==null)
+            return;
+        // Update the index, unless the rule extends the consequent language,
+        // in which case the index has to be rebuilt:
+        Iterator<Atom> i = r.consequent().formula().atomSet().iterator();
+        while(i.hasNext())
+            if(indexOf(i.next())<0)
+            {
+                consequentLanguage = null;
+                return;
+            }
+        index(r, consequentLanguage);
     }
     
     /**
      * Remove a rule from the rule base.
      */
-    public void remove(Rule r)
+    public synchronized void remove(Rule r)
     {
-        rules.remove(r);
+        if(rules.remove(r))
+        {
+            consequentLanguage = null;
+            obligationEngine = null;
+        }
     }
     
     /**
@@ -74,6 +141,232 @@ public class RuleBase
         return rules.iterator();
     }
     
+    /**
+     * Returns an unmodifiable view of this rule base, which reflects its
+     * rules and shares its index, but throws an
+     * {@link UnsupportedOperationException} when a rule is added or removed.
+     */
+    public RuleBase unmodifiableView()
+    {
+        return new View(this);
+    }
+    
+    /**
+     * Returns the compiled form of this rule base, which computes the
+     * obligations generated by its rules.
+     */
+    ObligationEngine obligationEngine()
+    {
+        ObligationEngine e = obligationEngine;
+        if(e==null)
+            obligationEngine = e = new ObligationEngine(this);
+        return e;
+    }
+    
+    /**
+     * Returns the language made of the atoms occurring in the consequents
+     * of the rules, in the order used to index the worlds of the
+     * model sets returned by {@link #consequentModels(Rule)}.
+     * 
+     * @return an array of atomic propositions
+     */
+    PropositionalAtom[] consequentLanguage()
+    {
+        PropositionalAtom[] l = consequentLanguage;
+        return l==null ? reindex() : l;
+    }
+    
+    /**
+     * Returns the set of models of the consequent of the given rule
+     * over the consequent language of this rule base.
+     * 
+     * @param r a rule of this rule base
+     * @return the set of models of its consequent
+     */
+    ModelSet consequentModels(Rule r)
+    {
+        if(consequentLanguage==null)
+            reindex();
+        return consequentModels.get(r);
+    }
+    
+    /**
+     * Returns the rules whose desire antecedent may be affected by a change
+     * of the qualitative utility on the models of the consequent of
+     * the given rule, i.e., the rules whose desire antecedent has some
+     * model in common with that consequent. Rules whose desire antecedent
+     * cannot be represented over the consequent language are conservatively
+     * assumed to be affected by all rules.
+     * 
+     * @param w a rule of this rule base
+     * @return the rules which read what the given rule writes
+     */
+    Set<Rule> readers(Rule w)
+    {
+        if(consequentLanguage==null)
+            reindex();
+        return readers.get(w);
+    }
+    
+    /**
+     * Returns the index in the consequent language of the given atom,
+     * or -1 if it does not belong to it.
+     */
+    private int indexOf(Atom a)
+    {
+        for(int i = 0; i<consequentLanguage.length; i++)
+            if(a.equals(consequentLanguage[i]))
+                return i;
+        return -1;
+    }
+    
+    /**
+     * Rebuilds the index from scratch, unless another thread has just
+     * rebuilt it, and publishes it by assigning the consequent language.
+     *
+     * @return the consequent language
+     */
+    private synchronized PropositionalAtom[] reindex()
+    {
+        if(consequentLanguage!=null)
+            return consequentLanguage;
+        PropositionalAtom[] l = consequentAtomSet().toArray(new PropositionalAtom[0]);
+        consequentModels = new HashMap<Rule,ModelSet>();
+        desireModels = new HashMap<Rule,ModelSet>();
+        readers = new HashMap<Rule,Set<Rule>>();
+        Iterator<Rule> i = iterator();
+        while(i.hasNext())
+            index(i.next(), l);
+        consequentLanguage = l;
+        return l;
+    }
+    
+    /**
+     * Adds the given rule to the index over the given consequent language.
+     */
+    private void index(Rule r, PropositionalAtom[] language)
+    {
+        consequentModels.put(r, models(r.consequent().formula(), language));
+        
+        // The rule as a writer:
+        Set<Rule> rs = new HashSet<Rule>();
+        Iterator<Map.Entry<Rule,ModelSet>> i = desireModels.entrySet().iterator();
+        while(i.hasNext())
+        {
+            Map.Entry<Rule,ModelSet> e = i.next();
+            if(e.getValue()==null || e.getValue().intersects(consequentModels.get(r)))
+                rs.add(e.getKey());
+        }
+        readers.put(r, rs);
+        
+        // The rule as a reader:
+        Formula phi = r.antecedent(Rule.D).formula();
+        if(phi.isConstant())
+            return;
+        ModelSet read;
+        try
+        {
+            read = new ModelSet(phi, language);
+        }
+        catch(IllegalArgumentException e)
+        {
+            read = null;
+        }
+        desireModels.put(r, read);
+        Iterator<Rule> j = consequentModels.keySet().iterator();
+        while(j.hasNext())
+        {
+            Rule w = j.next();
+            if(read==null || read.intersects(consequentModels.get(w)))
+                readers.get(w).add(r);
+        }
+    }
+    
+    /**
+     * Returns the set of models, over the consequent language, of the
+     * given formula.
+     * If the formula cannot be represented as a model set, e.g., because
+     * it contains non-crisp constants, its models are determined by
+     * evaluating it in every interpretation.
+     * 
+     * @param f a formula
+     * @param language the consequent language
+     * @return the set of models of the formula
+     */
+    private static ModelSet models(Formula f, PropositionalAtom[] language)
+    {
+        try
+        {
+            return new ModelSet(f, language);
+        }
+        catch(IllegalArgumentException e)
+        {
+            ModelSet m = new ModelSet(language.length);
+            Iterator<Interpretation> i = new PropositionalInterpretationIterator(language);
+            for(int w = 0; i.hasNext(); w++)
+                if(f.truth(i.next()).isTrue())
+                    m.add(w);
+            return m;
+        }
+    }
+    
+    /**
+     * An unmodifiable view of a rule base.
+     */
+    private static class View extends RuleBase
+    {
+        /** The rule base viewed. */
+        private final RuleBase base;
+        
+        View(RuleBase base)
+        {
+            this.base = base;
+            rules = Collections.unmodifiableSet(base.rules);
+        }
+        
+        @Override
+        public void add(Rule r)
+        {
+            throw new UnsupportedOperationException("The rule base is read-only");
+        }
+        
+        @Override
+        public void remove(Rule r)
+        {
+            throw new UnsupportedOperationException("The rule base is read-only");
+        }
+        
+        @Override
+        public RuleBase unmodifiableView()
+        {
+            return this;
+        }
+        
+        @Override
+        ObligationEngine obligationEngine()
+        {
+            return base.obligationEngine();
+        }
+        
+        @Override
+        PropositionalAtom[] consequentLanguage()
+        {
+            return base.consequentLanguage();
+        }
+        
+        @Override
+        ModelSet consequentModels(Rule r)
+        {
+            return base.consequentModels(r);
+        }
+        
+        @Override
+        Set<Rule> readers(Rule w)
+        {
+            return base.readers(w);
+        }
+    }
+    
     /**
      * Returns a string representation of this rule base.
      */
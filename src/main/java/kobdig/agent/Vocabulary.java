@@ -0,0 +1,199 @@
+/*
+ * Vocabulary.java
+ *
+ * Created on October 19, 2026, 4:10 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.agent;
+
+import kobdig.logic.PropositionalAtom;
+
+import java.util.Arrays;
+
+/**
+ * A table of the names of the atoms met while parsing agent programs
+ * or fact files, in which every name is interned, i.e., represented by
+ * a single string and a single atom.
+ * <p>Names can be looked up directly in a window of a character buffer,
+ * as {@link AplLexer} does, so that no string is created for a name that
+ * is already in the vocabulary. The same vocabulary can be shared by
+ * several lexers, one after another, but it is not thread-safe.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class Vocabulary
+{
+    /** The names, by index. */
+    private String[] name;
+
+    /** The hash codes of the names, by index. */
+    private int[] hash;
+
+    /** The atoms of the names, by index, created when first requested. */
+    private PropositionalAtom[] atom;
+
+    /** The number of names. */
+    private int size;
+
+    /**
+     * The hash table: each slot holds the index of a name plus one,
+     * or zero if it is free; its length is a power of two.
+     */
+    private int[] table;
+
+    /** Creates an empty vocabulary. */
+    public Vocabulary()
+    {
+        name = new String[64];
+        hash = new int[64];
+        atom = new PropositionalAtom[64];
+        table = new int[128];
+    }
+
+    /**
+     * Returns the number of names in this vocabulary.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the name of the given index.
+     *
+     * @param i an index between 0 and {@link #size()} - 1
+     */
+    public String name(int i)
+    {
+        if(i<0 || i>=size)
+            throw new IndexOutOfBoundsException("Name " + i);
+        return name[i];
+    }
+
+    /**
+     * Returns the atom of the name of the given index; the same atom
+     * is returned every time.
+     *
+     * @param i an index between 0 and {@link #size()} - 1
+     */
+    public PropositionalAtom atom(int i)
+    {
+        if(i<0 || i>=size)
+            throw new IndexOutOfBoundsException("Name " + i);
+        if(atom[i]==null)
+            atom[i] = new PropositionalAtom(name[i]);
+        return atom[i];
+    }
+
+    /**
+     * Returns the index of the given name, adding it to this vocabulary
+     * if necessary.
+     *
+     * @param s a name
+     * @return the index of the name
+     */
+    public int intern(String s)
+    {
+        int h = s.hashCode();
+        int mask = table.length - 1;
+        for(int slot = spread(h) & mask; table[slot]!=0; slot = (slot + 1) & mask)
+        {
+            int i = table[slot] - 1;
+            if(hash[i]==h && name[i].equals(s))
+                return i;
+        }
+        return add(s, h);
+    }
+
+    /**
+     * Returns the index of the name made of the given characters, adding it
+     * to this vocabulary if necessary; a string is only created in the
+     * latter case.
+     *
+     * @param c a character buffer
+     * @param offset the position of the first character of the name
+     * @param length the length of the name
+     * @param h the hash code of the name, as computed by
+     *        {@link String#hashCode()}
+     * @return the index of the name
+     */
+    int intern(char[] c, int offset, int length, int h)
+    {
+        int mask = table.length - 1;
+        for(int slot = spread(h) & mask; table[slot]!=0; slot = (slot + 1) & mask)
+        {
+            int i = table[slot] - 1;
+            if(hash[i]==h && matches(name[i], c, offset, length))
+                return i;
+        }
+        return add(new String(c, offset, length), h);
+    }
+
+    /**
+     * Tells whether the given string is made of the given characters.
+     */
+    private static boolean matches(String s, char[] c, int offset, int length)
+    {
+        if(s.length()!=length)
+            return false;
+        for(int k = 0; k<length; k++)
+            if(s.charAt(k)!=c[offset + k])
+                return false;
+        return true;
+    }
+
+    /**
+     * Adds a new name, which is not in this vocabulary, and returns its index.
+     */
+    private int add(String s, int h)
+    {
+        if(size==name.length)
+        {
+            name = Arrays.copyOf(name, 2*size);
+            hash = Arrays.copyOf(hash, 2*size);
+            atom = Arrays.copyOf(atom, 2*size);
+        }
+        name[size] = s;
+        hash[size] = h;
+        size++;
+        if(2*size>table.length)
+            rehash();
+        else
+            insert(size - 1);
+        return size - 1;
+    }
+
+    /**
+     * Doubles the hash table and re-inserts all the names.
+     */
+    private void rehash()
+    {
+        table = new int[2*table.length];
+        for(int i = 0; i<size; i++)
+            insert(i);
+    }
+
+    /**
+     * Inserts the name of the given index into the hash table.
+     */
+    private void insert(int i)
+    {
+        int mask = table.length - 1;
+        int slot = spread(hash[i]) & mask;
+        while(table[slot]!=0)
+            slot = (slot + 1) & mask;
+        table[slot] = i + 1;
+    }
+
+    /**
+     * Spreads the higher bits of a hash code to the lower ones,
+     * which select the slot.
+     */
+    private static int spread(int h)
+    {
+        return h ^ (h >>> 16);
+    }
+}
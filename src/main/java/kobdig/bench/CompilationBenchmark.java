@@ -0,0 +1,126 @@
+/*
+ * CompilationBenchmark.java
+ *
+ * Created on October 18, 2026, 10:40 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.util.Random;
+
+import kobdig.agent.Fact;
+import kobdig.agent.PossibilisticFactBase;
+import kobdig.logic.Operator;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.TruthDegree;
+
+/**
+ * Measures the compile-once/query-many trade-off of the compiled mode of
+ * possibilistic fact bases.
+ * <p>For each size of the language, a random base of three-literal clauses
+ * with random necessity degrees is built, and the same random queries are
+ * answered with and without compilation. The benchmark prints, for each
+ * size, the time to compile the base, the average time per query in both
+ * modes, and the number of queries after which compilation pays off.</p>
+ * <p>Usage: <code>java kobdig.bench.CompilationBenchmark [max atoms
+ * [queries [seed]]]</code>.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class CompilationBenchmark
+{
+    /** This class cannot have instances. */
+    private CompilationBenchmark()
+    {
+    }
+
+    /**
+     * Returns a random literal over the given atoms.
+     */
+    private static PropositionalFormula literal(Random random, PropositionalAtom[] atoms)
+    {
+        PropositionalFormula f = new PropositionalFormula(atoms[random.nextInt(atoms.length)]);
+        if(random.nextBoolean())
+            f = new PropositionalFormula(Operator.NOT, f);
+        return f;
+    }
+
+    /**
+     * Returns a random clause of the given number of literals.
+     */
+    private static PropositionalFormula clause(Random random, PropositionalAtom[] atoms, int n)
+    {
+        PropositionalFormula f = literal(random, atoms);
+        for(int i = 1; i<n; i++)
+            f = new PropositionalFormula(Operator.OR, f, literal(random, atoms));
+        return f;
+    }
+
+    /**
+     * Builds a random base over the given atoms, with twice as many clauses
+     * as atoms.
+     */
+    private static PossibilisticFactBase base(Random random, PropositionalAtom[] atoms)
+    {
+        PossibilisticFactBase b = new PossibilisticFactBase();
+        for(int i = 0; i<2*atoms.length; i++)
+            b.tell(new Fact(clause(random, atoms, 3)),
+                    new TruthDegree(0.1*(1 + random.nextInt(10))));
+        return b;
+    }
+
+    /**
+     * Answers the given queries and returns the elapsed time in nanoseconds.
+     */
+    private static long run(PossibilisticFactBase b, Fact[] queries)
+    {
+        long start = System.nanoTime();
+        for(int i = 0; i<queries.length; i++)
+            b.necessity(queries[i]);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the maximum number of atoms (default 20), the number of
+     *        queries (default 1000), and the seed of the random number
+     *        generator (default 0)
+     */
+    public static void main(String[] args)
+    {
+        int maxAtoms = args.length>0 ? Integer.parseInt(args[0]) : 20;
+        int n = args.length>1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length>2 ? Long.parseLong(args[2]) : 0L;
+        Random random = new Random(seed);
+        System.out.print("atoms\tnodes\tcompile(ms)\tplain(us/q)\tcompiled(us/q)\tbreak-even(q)\n");
+        for(int size = 4; size<=maxAtoms; size += 4)
+        {
+            PropositionalAtom[] atoms = new PropositionalAtom[size];
+            for(int a = 0; a<size; a++)
+                atoms[a] = new PropositionalAtom("p" + a);
+            long baseSeed = random.nextLong();
+            PossibilisticFactBase plain = base(new Random(baseSeed), atoms);
+            PossibilisticFactBase compiled = base(new Random(baseSeed), atoms);
+            compiled.setCompiled(true);
+            Fact[] queries = new Fact[n];
+            for(int i = 0; i<n; i++)
+                queries[i] = new Fact(clause(random, atoms, 1 + random.nextInt(3)));
+
+            // The first query triggers the compilation:
+            long compile = run(compiled, new Fact[] {queries[0]});
+            long tPlain = run(plain, queries);
+            long tCompiled = run(compiled, queries);
+            double perPlain = tPlain/(1000.0*n);
+            double perCompiled = tCompiled/(1000.0*n);
+            String breakEven = perCompiled<perPlain ?
+                    String.format("%.0f", compile/1000.0/(perPlain - perCompiled)) : "never";
+            System.out.printf("%d\t%d\t%.3f\t%.3f\t%.3f\t%s\n", size, compiled.compiledSize(),
+                    compile/1e6, perPlain, perCompiled, breakEven);
+        }
+    }
+}
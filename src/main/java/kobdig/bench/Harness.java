@@ -0,0 +1,182 @@
+/*
+ * Harness.java
+ *
+ * Created on October 19, 2026, 9:30 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.io.PrintStream;
+
+/**
+ * A harness measuring the average time of an operation.
+ * <p>Each measurement consists of a number of warm-up iterations, whose
+ * results are discarded, so that the code being measured is compiled by
+ * the virtual machine, followed by a number of measured iterations; each
+ * iteration repeats the operation for a given time. The results of the
+ * operation are consumed, so that the virtual machine cannot eliminate
+ * it as dead code. The harness prints, for each measurement, a line of
+ * tab-separated columns: the name of the benchmark, its parameters,
+ * the number of operations measured, and the mean, standard deviation,
+ * minimum, and maximum over the iterations of the time per operation,
+ * in microseconds.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class Harness
+{
+    /**
+     * An operation to be measured.
+     */
+    public static abstract class Operation
+    {
+        /**
+         * Prepares the state on which the operation is performed; it is
+         * called, without being measured, before each iteration or, if the
+         * operation changes its own state, before each call of the operation.
+         */
+        protected void setUp()
+        {
+        }
+
+        /**
+         * Performs the operation once.
+         *
+         * @return a result, which is consumed by the harness
+         */
+        protected abstract Object call();
+    }
+
+    /** The number of warm-up iterations. */
+    protected final int warmups;
+
+    /** The number of measured iterations. */
+    protected final int iterations;
+
+    /** The duration of an iteration, in nanoseconds. */
+    protected final long time;
+
+    /** The stream on which the results are printed. */
+    protected final PrintStream out;
+
+    /** The consumer of the results of the operations. */
+    private int sink;
+
+    /** Publishes the consumed results, so that they are never dead. */
+    private static volatile int published;
+
+    /**
+     * Creates a harness.
+     *
+     * @param warmups the number of warm-up iterations
+     * @param iterations the number of measured iterations
+     * @param millis the duration of an iteration, in milliseconds
+     * @param out the stream on which the results are printed
+     */
+    public Harness(int warmups, int iterations, long millis, PrintStream out)
+    {
+        if(iterations<1)
+            throw new IllegalArgumentException("At least one iteration is needed");
+        this.warmups = warmups;
+        this.iterations = iterations;
+        this.time = millis*1000000L;
+        this.out = out;
+    }
+
+    /**
+     * Prints the header of the results.
+     *
+     * @param parameters the names of the parameters of the benchmarks,
+     *        separated by tabs
+     */
+    public void header(String parameters)
+    {
+        out.print("benchmark\t" + parameters + "\tops\tus/op\tsd\tmin\tmax\n");
+        out.flush();
+    }
+
+    /**
+     * Measures an operation and prints the results.
+     *
+     * @param benchmark the name of the benchmark
+     * @param parameters the values of its parameters, separated by tabs
+     * @param op the operation
+     * @param mutating true if the operation changes its own state,
+     *        which must be prepared anew before each call
+     * @return the mean time per operation, in microseconds
+     */
+    public double measure(String benchmark, String parameters, Operation op, boolean mutating)
+    {
+        for(int i = 0; i<warmups; i++)
+            iterate(op, mutating);
+        double[] t = new double[iterations];
+        long ops = 0;
+        for(int i = 0; i<iterations; i++)
+        {
+            long[] r = iterate(op, mutating);
+            t[i] = r[1]/1000.0/r[0];
+            ops += r[0];
+        }
+        double mean = 0.0, min = t[0], max = t[0];
+        for(int i = 0; i<t.length; i++)
+        {
+            mean += t[i]/t.length;
+            min = Math.min(min, t[i]);
+            max = Math.max(max, t[i]);
+        }
+        double var = 0.0;
+        for(int i = 0; i<t.length; i++)
+            var += (t[i] - mean)*(t[i] - mean);
+        double sd = t.length>1 ? Math.sqrt(var/(t.length - 1)) : 0.0;
+        out.printf("%s\t%s\t%d\t%.3f\t%.3f\t%.3f\t%.3f\n", benchmark, parameters,
+            ops, mean, sd, min, max);
+        out.flush();
+        return mean;
+    }
+
+    /**
+     * Repeats an operation for the duration of an iteration.
+     *
+     * @return the number of calls and the time they took, in nanoseconds
+     */
+    private long[] iterate(Operation op, boolean mutating)
+    {
+        long n = 0;
+        long elapsed = 0;
+        if(mutating)
+        {
+            while(elapsed<time)
+            {
+                op.setUp();
+                long start = System.nanoTime();
+                consume(op.call());
+                elapsed += System.nanoTime() - start;
+                n++;
+            }
+        }
+        else
+        {
+            op.setUp();
+            long start = System.nanoTime();
+            while(elapsed<time)
+            {
+                consume(op.call());
+                n++;
+                elapsed = System.nanoTime() - start;
+            }
+        }
+        published = sink;
+        return new long[] { n, elapsed };
+    }
+
+    /**
+     * Consumes the result of an operation.
+     */
+    private void consume(Object result)
+    {
+        sink += System.identityHashCode(result);
+    }
+}
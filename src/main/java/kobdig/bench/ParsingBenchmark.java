@@ -0,0 +1,149 @@
+/*
+ * ParsingBenchmark.java
+ *
+ * Created on October 19, 2026, 5:10 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import kobdig.agent.AplLexer;
+import kobdig.agent.AplTokenizer;
+import kobdig.agent.FactSet;
+
+/**
+ * Compares the hand-written {@link AplLexer} with the
+ * {@link java.io.StreamTokenizer}-based {@link AplTokenizer}.
+ * <p>For each size, a random fact set, written in the syntax of the
+ * knowledge and belief bases of agent programs, is scanned token by token,
+ * and parsed into a {@link FactSet}, with both tokenizers. The benchmark
+ * prints, for each size, the number of characters, the throughput of both
+ * tokenizers, in millions of characters per second, and the time to parse
+ * the fact set with both.</p>
+ * <p>Usage: <code>java kobdig.bench.ParsingBenchmark [max facts [atoms
+ * [seed]]]</code>.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class ParsingBenchmark
+{
+    /** The number of times each measurement is repeated; the best time is kept. */
+    private static final int RUNS = 5;
+
+    /** This class cannot have instances. */
+    private ParsingBenchmark()
+    {
+    }
+
+    /**
+     * Appends a random formula over the given number of atoms.
+     */
+    private static void formula(StringBuilder s, Random random, int atoms, int depth)
+    {
+        if(depth==0 || random.nextInt(3)==0)
+        {
+            if(random.nextBoolean())
+                s.append("not ");
+            s.append('p').append(random.nextInt(atoms));
+            return;
+        }
+        s.append('(');
+        formula(s, random, atoms, depth - 1);
+        s.append(random.nextBoolean() ? " and " : " or ");
+        formula(s, random, atoms, depth - 1);
+        s.append(')');
+    }
+
+    /**
+     * Returns the text of a random fact set of the given size.
+     */
+    private static String facts(Random random, int n, int atoms)
+    {
+        StringBuilder s = new StringBuilder("{\n");
+        for(int i = 0; i<n; i++)
+        {
+            s.append("  ");
+            formula(s, random, atoms, 3);
+            s.append(" : 0.").append(1 + random.nextInt(9));
+            s.append(i<n - 1 ? ",\n" : "\n");
+        }
+        return s.append("}\n").toString();
+    }
+
+    /**
+     * Returns a tokenizer of the given text.
+     */
+    private static AplTokenizer tokenizer(String text, boolean lexer)
+    {
+        StringReader r = new StringReader(text);
+        return lexer ? new AplLexer(r) : new AplTokenizer(r);
+    }
+
+    /**
+     * Scans the given text token by token and returns the best elapsed
+     * time in nanoseconds.
+     */
+    private static long scan(String text, boolean lexer) throws IOException
+    {
+        long best = Long.MAX_VALUE;
+        for(int run = 0; run<RUNS; run++)
+        {
+            long start = System.nanoTime();
+            AplTokenizer source = tokenizer(text, lexer);
+            while(source.nextToken()!=AplTokenizer.TT_EOF)
+                ;
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Parses the given text as a fact set and returns the best elapsed
+     * time in nanoseconds.
+     */
+    private static long parse(String text, boolean lexer) throws IOException
+    {
+        long best = Long.MAX_VALUE;
+        for(int run = 0; run<RUNS; run++)
+        {
+            long start = System.nanoTime();
+            new FactSet().parse(tokenizer(text, lexer));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the maximum number of facts (default 100000), the number
+     *        of atoms (default 1000), and the seed of the random number
+     *        generator (default 0)
+     * @throws IOException never, since the text is in memory
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int maxFacts = args.length>0 ? Integer.parseInt(args[0]) : 100000;
+        int atoms = args.length>1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length>2 ? Long.parseLong(args[2]) : 0L;
+        Random random = new Random(seed);
+        System.out.print("facts\tchars\ttokenizer(Mc/s)\tlexer(Mc/s)\tparse tokenizer(ms)\tparse lexer(ms)\n");
+        for(int n = 1000; n<=maxFacts; n *= 10)
+        {
+            String text = facts(random, n, atoms);
+            double chars = text.length();
+            long tScan = scan(text, false);
+            long lScan = scan(text, true);
+            long tParse = parse(text, false);
+            long lParse = parse(text, true);
+            System.out.printf("%d\t%d\t%.1f\t%.1f\t%.3f\t%.3f\n", n, text.length(),
+                    chars*1000.0/tScan, chars*1000.0/lScan, tParse/1e6, lParse/1e6);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * ReasoningBenchmark.java
+ *
+ * Created on October 19, 2026, 9:50 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import kobdig.agent.Agent;
+import kobdig.agent.AgentPrototype;
+import kobdig.agent.Fact;
+import kobdig.agent.FactBase;
+import kobdig.agent.PossibilisticFactBase;
+import kobdig.logic.BooleanFormula;
+import kobdig.logic.BooleanTerm;
+import kobdig.logic.Interpretation;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.PropositionalInterpretation;
+import kobdig.logic.TruthDegree;
+
+/**
+ * Measures the core reasoning operations of an agent on random inputs:
+ * <ul>
+ * <li><code>models</code>, the entailment checks of a fact base
+ *     (see {@link FactBase#models(Fact)});</li>
+ * <li><code>necessity</code>, the necessity queries to a possibilistic
+ *     fact base (see {@link PossibilisticFactBase#necessity(Fact)});</li>
+ * <li><code>updateBeliefs</code>, the revision of the beliefs of an agent,
+ *     followed by its deliberation (see {@link Agent#updateBeliefs(Fact, TruthDegree)});</li>
+ * <li><code>updateDesires</code> and <code>updateGoals</code>, the steps
+ *     of the deliberation of an agent which compute its desires and goals;</li>
+ * <li><code>dnf</code>, the transformation of a formula into disjunctive
+ *     normal form (see {@link kobdig.logic.Formula#dnf()});</li>
+ * <li><code>simplify</code>, the Quine-McCluskey minimization of the
+ *     models of a formula (see {@link BooleanFormula#simplify()}).</li>
+ * </ul>
+ * <p>The inputs are drawn by a {@link WorkloadGenerator}, from a given
+ * seed, for each combination of the number of atoms of the language, the
+ * number of facts of the bases, and the maximum depth of the formulas;
+ * the same seed always gives the
+ * same inputs, so that the results of different versions of the reasoning
+ * core can be compared. The agent has as many beliefs, desire rules, and
+ * obligation rules as there are facts; the consequents of its rules,
+ * which make up the language of its utility, are formulas over at most
+ * {@link #GOAL_ATOMS} atoms, since its goals are minimized by an algorithm
+ * exponential in that number. The results are printed as explained in
+ * {@link Harness}.</p>
+ * <p>Usage: <code>java kobdig.bench.ReasoningBenchmark [--atoms 4,8,12]
+ * [--facts 4,8] [--depth 2,3] [--seed 0] [--warmup 2] [--iterations 5]
+ * [--time 200] [benchmark ...]</code>, where the time of an iteration is
+ * in milliseconds, and all the benchmarks are run if none is named.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class ReasoningBenchmark
+{
+    /** The names of the benchmarks. */
+    public static final String[] BENCHMARKS = {
+        "models", "necessity", "updateBeliefs", "updateDesires", "updateGoals", "dnf", "simplify"
+    };
+
+    /** The maximum number of atoms of the consequents of the rules. */
+    public static final int GOAL_ATOMS = WorkloadGenerator.CONSEQUENT_ATOMS;
+
+    /** The number of queries of each input. */
+    public static final int QUERIES = 16;
+
+    /** The probability that a node of a random formula is an atom. */
+    public static final double LITERAL_RATIO = 0.5;
+
+    /** The atoms of the language. */
+    protected final PropositionalAtom[] atoms;
+
+    /** The generator of the inputs. */
+    protected final WorkloadGenerator generator;
+
+    /** The facts of the bases. */
+    protected final Fact[] facts;
+
+    /** The degrees of the facts of the bases. */
+    protected final TruthDegree[] degrees;
+
+    /** The queries. */
+    protected final Fact[] queries;
+
+    /** The agent, whose beliefs are the facts. */
+    protected final AgentPrototype prototype;
+
+    /** The models of satisfiable formulas over the atoms of the goals, as minterms. */
+    protected final List<List<BooleanTerm>> minterms = new ArrayList<List<BooleanTerm>>();
+
+    /**
+     * Draws the inputs for the given parameters.
+     *
+     * @param atoms the number of atoms of the language
+     * @param facts the number of facts of the bases
+     * @param depth the maximum depth of the formulas
+     * @param seed the seed of the random number generator
+     */
+    public ReasoningBenchmark(int atoms, int facts, int depth, long seed)
+    {
+        generator = new WorkloadGenerator(seed, atoms, depth, LITERAL_RATIO, TrustDistribution.levels(10));
+        this.atoms = generator.language();
+        this.facts = new Fact[facts];
+        degrees = new TruthDegree[facts];
+        for(int i = 0; i<facts; i++)
+        {
+            this.facts[i] = new Fact(generator.formula());
+            degrees[i] = generator.trust();
+        }
+        queries = new Fact[QUERIES];
+        for(int i = 0; i<QUERIES; i++)
+            queries[i] = new Fact(generator.formula());
+        String program = generator.program("bench", this.facts, degrees, facts);
+        try
+        {
+            prototype = new AgentPrototype(new ByteArrayInputStream(program.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch(IOException e)
+        {
+            throw new IllegalStateException("Could not parse the generated agent:\n" + program, e);
+        }
+        PropositionalAtom[] goalAtoms = Arrays.copyOf(this.atoms, Math.min(atoms, GOAL_ATOMS));
+        while(minterms.size()<QUERIES)
+        {
+            List<BooleanTerm> terms = minterms(generator.formula(goalAtoms), goalAtoms);
+            if(!terms.isEmpty())
+                minterms.add(terms);
+        }
+    }
+
+    /**
+     * Returns the minterms of the models of a formula over the given atoms.
+     */
+    private static List<BooleanTerm> minterms(PropositionalFormula phi, PropositionalAtom[] language)
+    {
+        List<BooleanTerm> terms = new ArrayList<BooleanTerm>();
+        PropositionalInterpretation itp = new PropositionalInterpretation();
+        for(int a = 0; a<language.length; a++)
+            itp.assign(language[a], false);
+        Iterator<Interpretation> i = itp.iterator();
+        while(i.hasNext())
+        {
+            PropositionalInterpretation w = (PropositionalInterpretation) i.next();
+            if(phi.truth(w).isTrue())
+                terms.add(new BooleanTerm(w));
+        }
+        return terms;
+    }
+
+    /**
+     * Returns the operation of the given benchmark.
+     *
+     * @param name the name of the benchmark
+     * @return the operation, or <code>null</code> if there is no such benchmark
+     */
+    public Harness.Operation operation(String name)
+    {
+        if(name.equals("models"))
+        {
+            final FactBase base = new FactBase();
+            for(int i = 0; i<facts.length; i++)
+                base.tell(facts[i], TruthDegree.TRUE);
+            return new Harness.Operation()
+            {
+                int i = 0;
+
+                protected Object call()
+                {
+                    return base.models(queries[i++ % queries.length]);
+                }
+            };
+        }
+        if(name.equals("necessity"))
+        {
+            final PossibilisticFactBase base = new PossibilisticFactBase();
+            for(int i = 0; i<facts.length; i++)
+                base.tell(facts[i], degrees[i]);
+            return new Harness.Operation()
+            {
+                int i = 0;
+
+                protected Object call()
+                {
+                    return base.necessity(queries[i++ % queries.length]);
+                }
+            };
+        }
+        if(name.equals("updateBeliefs"))
+            return new Harness.Operation()
+            {
+                int i = 0;
+                Agent agent;
+
+                protected void setUp()
+                {
+                    agent = prototype.instantiate();
+                }
+
+                protected Object call()
+                {
+                    int k = i++ % queries.length;
+                    agent.updateBeliefs(queries[k], degrees[k % degrees.length]);
+                    return agent;
+                }
+            };
+        if(name.equals("updateDesires") || name.equals("updateGoals"))
+        {
+            final boolean desires = name.equals("updateDesires");
+            return new Harness.Operation()
+            {
+                final Agent agent = prototype.instantiate();
+
+                protected Object call()
+                {
+                    if(desires)
+                        agent.updateDesires();
+                    else
+                        agent.updateGoals();
+                    return agent;
+                }
+            };
+        }
+        if(name.equals("dnf"))
+            return new Harness.Operation()
+            {
+                int i = 0;
+
+                protected Object call()
+                {
+                    return queries[i++ % queries.length].formula().dnf();
+                }
+            };
+        if(name.equals("simplify"))
+            return new Harness.Operation()
+            {
+                int i = 0;
+                BooleanFormula f;
+
+                protected void setUp()
+                {
+                    List<BooleanTerm> terms = minterms.get(i++ % minterms.size());
+                    f = new BooleanFormula(new ArrayList<BooleanTerm>(terms));
+                }
+
+                protected Object call()
+                {
+                    f.simplify();
+                    return f;
+                }
+            };
+        return null;
+    }
+
+    /**
+     * Tells whether the operation of the given benchmark changes its own state.
+     */
+    public static boolean isMutating(String name)
+    {
+        return name.equals("updateBeliefs") || name.equals("simplify");
+    }
+
+    /**
+     * Parses a comma-separated list of integers.
+     */
+    private static int[] list(String s)
+    {
+        String[] items = s.split(",");
+        int[] values = new int[items.length];
+        for(int i = 0; i<items.length; i++)
+            values[i] = Integer.parseInt(items[i].trim());
+        return values;
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        int[] atoms = { 4, 8, 12 };
+        int[] facts = { 4, 8 };
+        int[] depths = { 2, 3 };
+        long seed = 0L;
+        int warmups = 2;
+        int iterations = 5;
+        long time = 200;
+        List<String> names = new ArrayList<String>();
+        try
+        {
+            for(int i = 0; i<args.length; i++)
+            {
+                if(args[i].equals("--atoms"))
+                    atoms = list(args[++i]);
+                else if(args[i].equals("--facts"))
+                    facts = list(args[++i]);
+                else if(args[i].equals("--depth"))
+                    depths = list(args[++i]);
+                else if(args[i].equals("--seed"))
+                    seed = Long.parseLong(args[++i]);
+                else if(args[i].equals("--warmup"))
+                    warmups = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--iterations"))
+                    iterations = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--time"))
+                    time = Long.parseLong(args[++i]);
+                else if(Arrays.asList(BENCHMARKS).contains(args[i]))
+                    names.add(args[i]);
+                else
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        catch(RuntimeException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java kobdig.bench.ReasoningBenchmark [--atoms 4,8,12] [--facts 4,8]"
+                + " [--depth 2,3] [--seed 0] [--warmup 2] [--iterations 5] [--time 200] [benchmark ...]");
+            System.exit(2);
+        }
+        if(names.isEmpty())
+            names.addAll(Arrays.asList(BENCHMARKS));
+        Harness harness = new Harness(warmups, iterations, time, System.out);
+        harness.header("atoms\tfacts\tdepth");
+        for(int a = 0; a<atoms.length; a++)
+            for(int f = 0; f<facts.length; f++)
+                for(int d = 0; d<depths.length; d++)
+                {
+                    // The inputs depend only on the seed and on their parameters:
+                    long s = seed + 1000003L*(atoms[a] + 1009L*(facts[f] + 1009L*depths[d]));
+                    ReasoningBenchmark b = new ReasoningBenchmark(atoms[a], facts[f], depths[d], s);
+                    String parameters = atoms[a] + "\t" + facts[f] + "\t" + depths[d];
+                    Iterator<String> i = names.iterator();
+                    while(i.hasNext())
+                    {
+                        String name = i.next();
+                        harness.measure(name, parameters, b.operation(name), isMutating(name));
+                    }
+                }
+    }
+}
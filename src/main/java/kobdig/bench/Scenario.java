@@ -0,0 +1,238 @@
+/*
+ * Scenario.java
+ *
+ * Created on October 19, 2026, 10:20 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import kobdig.agent.Agent;
+import kobdig.agent.AgentPrototype;
+import kobdig.agent.AplLexer;
+import kobdig.agent.AplTokenizer;
+import kobdig.agent.Vocabulary;
+import kobdig.logic.PropositionalFormula;
+import kobdig.runtime.Message;
+
+/**
+ * A workload for the belief revision of an agent: an agent program,
+ * and a stream of revisions, i.e., of facts told to the agent by sources
+ * trusted to some degree.
+ * <p>A scenario is stored as text: a description, as comment lines,
+ * followed by the agent program (see {@link Agent#Agent(java.io.InputStream)})
+ * and by the revision stream, which has the syntax
+ * <pre>
+ *     revisions
+ *     {
+ *       formula : trust,
+ *       ...
+ *     }
+ * </pre>
+ * where the trust degree, in [0, 1], defaults to 1. A scenario is always
+ * built from its text, so that a scenario written and read back gives
+ * exactly the same inputs as the original.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class Scenario
+{
+    /** The description of the scenario, e.g., how it was generated. */
+    protected final String description;
+
+    /** The agent program. */
+    protected final String program;
+
+    /** The agent, as parsed from the program. */
+    protected final AgentPrototype prototype;
+
+    /** The revisions. */
+    protected final List<Message> revisions;
+
+    /**
+     * Creates a scenario from its text.
+     *
+     * @param text the text of the scenario
+     * @throws IOException if the text contains a syntax error
+     */
+    public Scenario(String text) throws IOException
+    {
+        char[] chars = text.toCharArray();
+        AplTokenizer source = new AplLexer(chars, 0, chars.length, new Vocabulary());
+        prototype = new AgentPrototype(new Agent(source));
+        source.nextToken();
+        source.require("revisions");
+        int line = source.lineno();
+        source.nextToken();
+        source.require('{');
+        List<Message> messages = new ArrayList<Message>();
+        source.nextToken();
+        while(source.ttype!='}')
+        {
+            messages.add(Message.parse(source, "revision " + messages.size()));
+            if(source.ttype==',')
+                source.nextToken();
+            else if(source.ttype!='}')
+                source.require(',');
+        }
+        revisions = Collections.unmodifiableList(messages);
+
+        // Split the lines before the revisions into description and program:
+        StringBuilder d = new StringBuilder();
+        StringBuilder p = new StringBuilder();
+        BufferedReader r = new BufferedReader(new StringReader(text));
+        for(int n = 1; n<line; n++)
+        {
+            String s = r.readLine();
+            if(p.length()==0 && s.startsWith("//"))
+                d.append(s.substring(2).trim()).append('\n');
+            else
+                p.append(s).append('\n');
+        }
+        description = d.toString();
+        program = p.toString();
+    }
+
+    /**
+     * Reads a scenario.
+     *
+     * @param in the reader of the text of the scenario
+     * @return the scenario
+     * @throws IOException if the text cannot be read or contains a syntax error
+     */
+    public static Scenario read(Reader in) throws IOException
+    {
+        StringBuilder s = new StringBuilder();
+        char[] buf = new char[8192];
+        int n;
+        while((n = in.read(buf))>=0)
+            s.append(buf, 0, n);
+        return new Scenario(s.toString());
+    }
+
+    /**
+     * Reads a scenario from a file.
+     *
+     * @param file the file of the scenario
+     * @return the scenario
+     * @throws IOException if the file cannot be read or contains a syntax error
+     */
+    public static Scenario read(File file) throws IOException
+    {
+        Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+        try
+        {
+            return read(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the description of the scenario.
+     */
+    public String description()
+    {
+        return description;
+    }
+
+    /**
+     * Returns the agent program of the scenario.
+     */
+    public String program()
+    {
+        return program;
+    }
+
+    /**
+     * Returns a new agent, in the initial state of the scenario.
+     */
+    public Agent agent()
+    {
+        return prototype.instantiate();
+    }
+
+    /**
+     * Returns the revisions of the scenario, in the order in which they
+     * are told to the agent.
+     */
+    public List<Message> revisions()
+    {
+        return revisions;
+    }
+
+    /**
+     * Writes the scenario.
+     *
+     * @param out the writer of the text of the scenario
+     */
+    public void write(Writer out)
+    {
+        PrintWriter w = new PrintWriter(out);
+        w.print(toString());
+        w.flush();
+    }
+
+    /**
+     * Writes the scenario to a file.
+     *
+     * @param file the file of the scenario
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException
+    {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try
+        {
+            write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the text of the scenario.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder s = new StringBuilder();
+        if(description.length()>0)
+        {
+            String[] lines = description.split("\n");
+            for(int i = 0; i<lines.length; i++)
+                s.append("// ").append(lines[i]).append('\n');
+        }
+        s.append(program).append("revisions\n{\n");
+        for(int i = 0; i<revisions.size(); i++)
+        {
+            Message m = revisions.get(i);
+            s.append(i==0 ? "  " : ",\n  ").append(((PropositionalFormula) m.fact().formula()).toSource())
+                .append(" : ").append(m.trust().doubleValue());
+        }
+        s.append("\n}\n");
+        return s.toString();
+    }
+}
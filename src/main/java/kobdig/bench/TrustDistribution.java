@@ -0,0 +1,181 @@
+/*
+ * TrustDistribution.java
+ *
+ * Created on October 19, 2026, 10:30 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A probability distribution of the degrees to which the sources of the
+ * revisions of a scenario are trusted.
+ * <p>A distribution is specified by a name, followed by its parameters,
+ * separated by colons:
+ * <ul>
+ * <li><code>constant:t</code>, always the degree <var>t</var>;</li>
+ * <li><code>uniform:lo:hi</code>, uniform in [<var>lo</var>, <var>hi</var>];</li>
+ * <li><code>levels:k</code>, uniform over the <var>k</var> degrees
+ *     1/<var>k</var>, 2/<var>k</var>, ..., 1;</li>
+ * <li><code>beta:a:b</code>, the beta distribution of integer shape
+ *     parameters <var>a</var> and <var>b</var>, e.g., <code>beta:5:2</code>
+ *     for mostly reliable sources.</li>
+ * </ul>
+ * </p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public abstract class TrustDistribution
+{
+    /** The specification of the distribution. */
+    private final String spec;
+
+    /**
+     * Creates a distribution with the given specification.
+     */
+    protected TrustDistribution(String spec)
+    {
+        this.spec = spec;
+    }
+
+    /**
+     * Draws a degree, in [0, 1].
+     *
+     * @param random a source of randomness
+     * @return a degree
+     */
+    public abstract double draw(Random random);
+
+    /**
+     * Returns the specification of the distribution.
+     */
+    @Override
+    public String toString()
+    {
+        return spec;
+    }
+
+    /**
+     * Parses the specification of a distribution.
+     *
+     * @param spec the specification
+     * @return the distribution
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    public static TrustDistribution parse(String spec)
+    {
+        String[] p = spec.split(":");
+        try
+        {
+            if(p[0].equals("constant") && p.length==2)
+                return constant(Double.parseDouble(p[1]));
+            if(p[0].equals("uniform") && p.length==3)
+                return uniform(Double.parseDouble(p[1]), Double.parseDouble(p[2]));
+            if(p[0].equals("levels") && p.length==2)
+                return levels(Integer.parseInt(p[1]));
+            if(p[0].equals("beta") && p.length==3)
+                return beta(Integer.parseInt(p[1]), Integer.parseInt(p[2]));
+        }
+        catch(NumberFormatException e)
+        {
+            // Fall through.
+        }
+        throw new IllegalArgumentException("Invalid trust distribution " + spec);
+    }
+
+    /**
+     * Checks that a degree is in [0, 1].
+     */
+    private static void check(double t)
+    {
+        if(!(t>=0.0 && t<=1.0))
+            throw new IllegalArgumentException("Trust degree " + t + " not in [0, 1]");
+    }
+
+    /**
+     * Returns the distribution which always gives the same degree.
+     *
+     * @param t the degree
+     */
+    public static TrustDistribution constant(final double t)
+    {
+        check(t);
+        return new TrustDistribution("constant:" + t)
+        {
+            public double draw(Random random)
+            {
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Returns the uniform distribution over an interval.
+     *
+     * @param lo the lower bound of the interval
+     * @param hi the upper bound of the interval
+     */
+    public static TrustDistribution uniform(final double lo, final double hi)
+    {
+        check(lo);
+        check(hi);
+        if(lo>hi)
+            throw new IllegalArgumentException("Empty interval [" + lo + ", " + hi + "]");
+        return new TrustDistribution("uniform:" + lo + ":" + hi)
+        {
+            public double draw(Random random)
+            {
+                return lo + (hi - lo)*random.nextDouble();
+            }
+        };
+    }
+
+    /**
+     * Returns the uniform distribution over the degrees
+     * 1/<var>k</var>, 2/<var>k</var>, ..., 1.
+     *
+     * @param k the number of degrees
+     */
+    public static TrustDistribution levels(final int k)
+    {
+        if(k<1)
+            throw new IllegalArgumentException("At least one level is needed");
+        return new TrustDistribution("levels:" + k)
+        {
+            public double draw(Random random)
+            {
+                return (1 + random.nextInt(k))/(double) k;
+            }
+        };
+    }
+
+    /**
+     * Returns the beta distribution of the given integer shape parameters,
+     * drawn as the <var>a</var>-th smallest of <var>a</var> + <var>b</var> - 1
+     * uniform numbers in [0, 1].
+     *
+     * @param a the first shape parameter
+     * @param b the second shape parameter
+     */
+    public static TrustDistribution beta(final int a, final int b)
+    {
+        if(a<1 || b<1)
+            throw new IllegalArgumentException("The shape parameters must be positive");
+        return new TrustDistribution("beta:" + a + ":" + b)
+        {
+            public double draw(Random random)
+            {
+                double[] u = new double[a + b - 1];
+                for(int i = 0; i<u.length; i++)
+                    u[i] = random.nextDouble();
+                Arrays.sort(u);
+                return u[a - 1];
+            }
+        };
+    }
+}
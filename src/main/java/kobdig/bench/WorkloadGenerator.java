@@ -0,0 +1,310 @@
+/*
+ * WorkloadGenerator.java
+ *
+ * Created on October 19, 2026, 10:40 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import kobdig.agent.Fact;
+import kobdig.logic.PropositionalAtom;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.TruthDegree;
+
+/**
+ * Generates random workloads for the reasoning core of an agent, from
+ * a seed: the same seed and parameters always give the same workloads.
+ * <p>The language consists of the atoms <code>p0</code>, <code>p1</code>,
+ * ...; the formulas are drawn by {@link PropositionalFormula#random(double,
+ * int, PropositionalAtom[], Random)}, each node above the maximum depth
+ * being an atom with a given probability, the literal ratio, and a connective
+ * otherwise; the trust degrees are drawn from a {@link TrustDistribution},
+ * and rounded to three decimals, so that they are written exactly.
+ * The consequents of the rules of the generated agents, which make up the
+ * language of their utility, are formulas over at most
+ * {@link #CONSEQUENT_ATOMS} atoms, since their goals are minimized by an
+ * algorithm exponential in that number.</p>
+ * <p>Usage: <code>java kobdig.bench.WorkloadGenerator [--seed 0] [--atoms 8]
+ * [--depth 3] [--literals 0.5] [--beliefs 8] [--rules 4] [--steps 100]
+ * [--trust levels:10] [-o scenario.txt]</code>, which writes a
+ * {@link Scenario} on the given file or on the standard output.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class WorkloadGenerator
+{
+    /** The maximum number of atoms of the consequents of the rules. */
+    public static final int CONSEQUENT_ATOMS = 5;
+
+    /** The seed of the generator. */
+    protected final long seed;
+
+    /** The source of randomness. */
+    protected final Random random;
+
+    /** The atoms of the language. */
+    protected final PropositionalAtom[] language;
+
+    /** The atoms of the consequents of the rules. */
+    protected final PropositionalAtom[] consequentLanguage;
+
+    /** The maximum depth of the formulas. */
+    protected final int depth;
+
+    /** The probability that a node of a formula, above the maximum depth, is an atom. */
+    protected final double literals;
+
+    /** The distribution of the trust degrees. */
+    protected final TrustDistribution trust;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed the seed of the random number generator
+     * @param atoms the number of atoms of the language
+     * @param depth the maximum depth of the formulas
+     * @param literals the probability that a node of a formula,
+     *        above the maximum depth, is an atom
+     * @param trust the distribution of the trust degrees
+     */
+    public WorkloadGenerator(long seed, int atoms, int depth, double literals, TrustDistribution trust)
+    {
+        if(atoms<1)
+            throw new IllegalArgumentException("At least one atom is needed");
+        this.seed = seed;
+        random = new Random(seed);
+        language = new PropositionalAtom[atoms];
+        for(int a = 0; a<atoms; a++)
+            language[a] = new PropositionalAtom("p" + a);
+        consequentLanguage = Arrays.copyOf(language, Math.min(atoms, CONSEQUENT_ATOMS));
+        this.depth = depth;
+        this.literals = literals;
+        this.trust = trust;
+    }
+
+    /**
+     * Returns the atoms of the language.
+     */
+    public PropositionalAtom[] language()
+    {
+        return language;
+    }
+
+    /**
+     * Draws a formula over the language.
+     */
+    public PropositionalFormula formula()
+    {
+        return formula(language);
+    }
+
+    /**
+     * Draws a formula over the given atoms.
+     *
+     * @param atoms the atoms which may occur in the formula
+     */
+    public PropositionalFormula formula(PropositionalAtom[] atoms)
+    {
+        return PropositionalFormula.random(1.0 - literals, depth, atoms, random);
+    }
+
+    /**
+     * Draws a trust degree.
+     */
+    public TruthDegree trust()
+    {
+        return new TruthDegree(Math.round(1000.0*trust.draw(random))/1000.0);
+    }
+
+    /**
+     * Generates the program of an agent with random beliefs, whose degrees
+     * are drawn as trust degrees, and random desire and obligation rules.
+     *
+     * @param name the name of the agent
+     * @param beliefs the number of beliefs
+     * @param rules the number of desire rules and of obligation rules
+     * @return the agent program
+     */
+    public String program(String name, int beliefs, int rules)
+    {
+        Fact[] facts = new Fact[beliefs];
+        TruthDegree[] degrees = new TruthDegree[beliefs];
+        for(int i = 0; i<beliefs; i++)
+        {
+            facts[i] = new Fact(formula());
+            degrees[i] = trust();
+        }
+        return program(name, facts, degrees, rules);
+    }
+
+    /**
+     * Generates the program of an agent with the given beliefs, and random
+     * desire and obligation rules. The knowledge of the agent is a tautology.
+     *
+     * @param name the name of the agent
+     * @param beliefs the beliefs, whose formulas are propositional
+     * @param degrees the degrees of the beliefs
+     * @param rules the number of desire rules and of obligation rules
+     * @return the agent program
+     */
+    public String program(String name, Fact[] beliefs, TruthDegree[] degrees, int rules)
+    {
+        StringBuilder s = new StringBuilder("agent(").append(name).append(")\n{\n  knowledge\n  {\n    (");
+        s.append(language[0]).append(" or not ").append(language[0]).append(")\n  }\n  beliefs\n  {\n");
+        for(int i = 0; i<beliefs.length; i++)
+            s.append(i==0 ? "    " : ",\n    ").append(((PropositionalFormula) beliefs[i].formula()).toSource())
+                .append(" : ").append(degrees[i].doubleValue());
+        s.append("\n  }\n  desires\n  {\n");
+        rules(s, "D", rules);
+        s.append("\n  }\n  obligations\n  {\n");
+        rules(s, "O", rules);
+        s.append("\n  }\n}\n");
+        return s.toString();
+    }
+
+    /**
+     * Appends random rules, all but the first of which have a condition
+     * on the given modality.
+     */
+    private void rules(StringBuilder s, String modality, int rules)
+    {
+        for(int i = 0; i<rules; i++)
+        {
+            s.append(i==0 ? "    " : ",\n    ").append("if B(").append(formula().toSource()).append(")");
+            if(i>0)
+                s.append(" and ").append(modality).append("(")
+                    .append(formula(consequentLanguage).toSource()).append(")");
+            s.append(" then (").append(formula(consequentLanguage).toSource()).append(")");
+        }
+    }
+
+    /**
+     * Generates the text of a scenario: a random agent, and a stream of
+     * random revisions. Unlike {@link #scenario(int, int, int)}, this method
+     * neither parses the agent nor has it deliberate.
+     *
+     * @param beliefs the number of beliefs of the agent
+     * @param rules the number of desire rules and of obligation rules of the agent
+     * @param steps the number of revisions
+     * @return the text of the scenario
+     */
+    public String scenarioText(int beliefs, int rules, int steps)
+    {
+        StringBuilder s = new StringBuilder();
+        s.append("// Generated by kobdig.bench.WorkloadGenerator --seed ").append(seed)
+            .append(" --atoms ").append(language.length).append(" --depth ").append(depth)
+            .append(" --literals ").append(literals).append(" --beliefs ").append(beliefs)
+            .append(" --rules ").append(rules).append(" --steps ").append(steps)
+            .append(" --trust ").append(trust).append('\n');
+        s.append(program("scenario", beliefs, rules));
+        s.append("revisions\n{\n");
+        for(int i = 0; i<steps; i++)
+            s.append(i==0 ? "  " : ",\n  ").append(formula().toSource())
+                .append(" : ").append(trust().doubleValue());
+        s.append("\n}\n");
+        return s.toString();
+    }
+
+    /**
+     * Generates a scenario: a random agent, and a stream of random revisions.
+     *
+     * @param beliefs the number of beliefs of the agent
+     * @param rules the number of desire rules and of obligation rules of the agent
+     * @param steps the number of revisions
+     * @return the scenario
+     */
+    public Scenario scenario(int beliefs, int rules, int steps)
+    {
+        String text = scenarioText(beliefs, rules, steps);
+        try
+        {
+            return new Scenario(text);
+        }
+        catch(IOException e)
+        {
+            throw new IllegalStateException("Could not parse the generated scenario:\n" + text, e);
+        }
+    }
+
+    /**
+     * Generates a scenario.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        long seed = 0L;
+        int atoms = 8;
+        int depth = 3;
+        double literals = 0.5;
+        int beliefs = 8;
+        int rules = 4;
+        int steps = 100;
+        TrustDistribution trust = TrustDistribution.levels(10);
+        String output = null;
+        try
+        {
+            for(int i = 0; i<args.length; i++)
+            {
+                if(args[i].equals("--seed"))
+                    seed = Long.parseLong(args[++i]);
+                else if(args[i].equals("--atoms"))
+                    atoms = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--depth"))
+                    depth = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--literals"))
+                    literals = Double.parseDouble(args[++i]);
+                else if(args[i].equals("--beliefs"))
+                    beliefs = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--rules"))
+                    rules = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--steps"))
+                    steps = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--trust"))
+                    trust = TrustDistribution.parse(args[++i]);
+                else if(args[i].equals("-o"))
+                    output = args[++i];
+                else
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        catch(RuntimeException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java kobdig.bench.WorkloadGenerator [--seed 0] [--atoms 8] [--depth 3]"
+                + " [--literals 0.5] [--beliefs 8] [--rules 4] [--steps 100] [--trust levels:10]"
+                + " [-o scenario.txt]");
+            System.exit(2);
+        }
+        // The scenario is written as generated, without parsing the agent,
+        // whose initial deliberation may take long:
+        String text = new WorkloadGenerator(seed, atoms, depth, literals, trust)
+            .scenarioText(beliefs, rules, steps);
+        try
+        {
+            Writer out = output==null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8);
+            out.write(text);
+            if(output==null)
+                out.flush();
+            else
+                out.close();
+        }
+        catch(IOException e)
+        {
+            System.err.println("Could not write the scenario: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * WorkloadRunner.java
+ *
+ * Created on October 19, 2026, 10:55 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.bench;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import kobdig.agent.Agent;
+import kobdig.agent.PossibilisticFactBase;
+import kobdig.metrics.Probes;
+import kobdig.runtime.Message;
+
+/**
+ * Replays a {@link Scenario} against a new agent, recording the cost of
+ * each revision.
+ * <p>The revisions are told to the agent in turn, by
+ * {@link Agent#updateBeliefs(kobdig.agent.Fact, kobdig.logic.TruthDegree)},
+ * which includes its deliberation, and a line of comma-separated columns is
+ * printed for each of them: the run, the step, the trust degree, the wall
+ * time of the revision in nanoseconds, the bytes allocated by it, or -1 if
+ * the virtual machine cannot measure them, the number of entailment checks
+ * by fact bases (see {@link Probes#ENTAILMENT_CHECKS}) and of necessity
+ * queries to possibilistic fact bases it performed, and the number of
+ * facts and of levels of the revised belief base. The probes of the
+ * reasoning core are enabled while replaying, so that the counts are
+ * collected, at the cost of timing the necessity queries.</p>
+ * <p>Usage: <code>java kobdig.bench.WorkloadRunner [--warmup 1] [--runs 1]
+ * [-o results.csv] scenario.txt</code>, which prints the results on the
+ * given file or on the standard output; the warm-up runs, whose results
+ * are not printed, let the virtual machine compile the code being
+ * measured.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class WorkloadRunner
+{
+    /** The header of the results. */
+    public static final String HEADER = "run,step,trust,nanos,bytes,entailments,necessity,facts,levels";
+
+    /** The scenario. */
+    protected final Scenario scenario;
+
+    /** The bean measuring the bytes allocated by a thread, if supported. */
+    private final com.sun.management.ThreadMXBean allocation;
+
+    /**
+     * Creates a runner of the given scenario.
+     *
+     * @param scenario a scenario
+     */
+    public WorkloadRunner(Scenario scenario)
+    {
+        this.scenario = scenario;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean a = null;
+        if(threads instanceof com.sun.management.ThreadMXBean)
+        {
+            a = (com.sun.management.ThreadMXBean) threads;
+            if(a.isThreadAllocatedMemorySupported())
+                a.setThreadAllocatedMemoryEnabled(true);
+            else
+                a = null;
+        }
+        allocation = a;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread,
+     * or -1 if they cannot be measured.
+     */
+    private long allocated()
+    {
+        return allocation==null ? -1L : allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Replays the scenario against a new agent.
+     *
+     * @param run the number of the run, printed in the first column
+     * @param out the stream on which the results are printed, or
+     *        <code>null</code> if they are discarded
+     * @return the agent, in its final state
+     */
+    public Agent replay(int run, PrintStream out)
+    {
+        boolean enabled = Probes.enabled();
+        Probes.REGISTRY.setEnabled(true);
+        try
+        {
+            Agent agent = scenario.agent();
+            // Make the agent copy its shared belief base before measuring:
+            agent.beliefs();
+            for(int step = 0; step<scenario.revisions().size(); step++)
+            {
+                Message m = scenario.revisions().get(step);
+                long checks = Probes.ENTAILMENT_CHECKS.sum();
+                long queries = Probes.NECESSITY.count();
+                long bytes = allocated();
+                long start = System.nanoTime();
+                agent.updateBeliefs(m.fact(), m.trust());
+                long nanos = System.nanoTime() - start;
+                if(bytes>=0)
+                    bytes = allocated() - bytes;
+                checks = Probes.ENTAILMENT_CHECKS.sum() - checks;
+                queries = Probes.NECESSITY.count() - queries;
+                if(out!=null)
+                {
+                    PossibilisticFactBase b = agent.beliefs();
+                    out.print(run + "," + step + "," + m.trust().doubleValue() + "," + nanos + ","
+                        + bytes + "," + checks + "," + queries + "," + b.size() + ","
+                        + b.levelSet().size() + "\n");
+                }
+            }
+            if(out!=null)
+                out.flush();
+            return agent;
+        }
+        finally
+        {
+            Probes.REGISTRY.setEnabled(enabled);
+        }
+    }
+
+    /**
+     * Replays a scenario.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args)
+    {
+        int warmups = 1;
+        int runs = 1;
+        String output = null;
+        String input = null;
+        try
+        {
+            for(int i = 0; i<args.length; i++)
+            {
+                if(args[i].equals("--warmup"))
+                    warmups = Integer.parseInt(args[++i]);
+                else if(args[i].equals("--runs"))
+                    runs = Integer.parseInt(args[++i]);
+                else if(args[i].equals("-o"))
+                    output = args[++i];
+                else if(input==null && !args[i].startsWith("-"))
+                    input = args[i];
+                else
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+            if(input==null)
+                throw new IllegalArgumentException("No scenario given");
+        }
+        catch(RuntimeException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java kobdig.bench.WorkloadRunner [--warmup 1] [--runs 1]"
+                + " [-o results.csv] scenario.txt");
+            System.exit(2);
+        }
+        Scenario scenario = null;
+        PrintStream out = System.out;
+        try
+        {
+            scenario = Scenario.read(new File(input));
+            if(output!=null)
+                out = new PrintStream(output);
+        }
+        catch(FileNotFoundException e)
+        {
+            System.err.println("Could not open " + e.getMessage());
+            System.exit(1);
+        }
+        catch(IOException e)
+        {
+            System.err.println("Could not read the scenario: " + e.getMessage());
+            System.exit(1);
+        }
+        WorkloadRunner runner = new WorkloadRunner(scenario);
+        for(int r = 0; r<warmups; r++)
+            runner.replay(r, null);
+        out.print(HEADER + "\n");
+        for(int r = 0; r<runs; r++)
+            runner.replay(r, out);
+        out.close();
+    }
+}
@@ -6,8 +6,13 @@
 
 package kobdig.gui;
 
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+
 import kobdig.agent.Agent;
+import kobdig.agent.Deadline;
 import kobdig.agent.Fact;
+import kobdig.agent.MentalStateSnapshot;
 import kobdig.logic.TruthDegree;
 
 /**
@@ -20,8 +25,18 @@ public class AgentView extends javax.swing.JFrame
     /** The agent whose this window is a view. */
     Agent agent;
 
+    /** The time budget of a deliberation of the agent, in milliseconds. */
+    public static final long DELIBERATION_BUDGET = 30000L;
+
+    /** The deadline of the deliberation in progress, if any. */
+    private Deadline deadline;
+
     /**
      * Creates new agent view.
+     * If the agent deliberates in anytime mode (see
+     * {@link Agent#setAnytime(boolean)}), the view shows the best goals
+     * found when the budget of a deliberation expires; otherwise, the
+     * revision is abandoned.
      */
     public AgentView(Agent a)
     {
@@ -156,7 +171,7 @@ public class AgentView extends javax.swing.JFrame
     }// </editor-fold>//GEN-END:initComponents
 
     /**
-     * Close the agent view.
+     * Close the agent view, cancelling the deliberation in progress, if any.
      * 
      * @param evt
      */
@@ -164,9 +179,23 @@ private void close(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_close
         dispose();
 }//GEN-LAST:event_close
 
+    /**
+     * Disposes of the window, however it is closed, cancelling the
+     * deliberation in progress, if any.
+     */
+    @Override
+    public void dispose()
+    {
+        if(deadline!=null)
+            deadline.cancel();
+        super.dispose();
+    }
+
 /**
  * Let the user provide a propositional formula and a degree of
  * trust for the agent to update its beliefs.
+ * The agent deliberates in the background, within
+ * {@link #DELIBERATION_BUDGET}, so that the window stays responsive.
  * 
  * @param evt
  */
@@ -181,26 +210,65 @@ private void updateBeliefs(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_up
         // User cancelled the operation.
         return;
     // 2. pass the provided formula to the agent.
-    TruthDegree trust = dialog.getTrust();
-    agent.updateBeliefs(fact, trust);
-    update();
-    log("Revised beliefs with new information " + fact.formula() +
-            ", trusted to the degree " + trust + ".");
+    final Fact newFact = fact;
+    final TruthDegree trust = dialog.getTrust();
+    final Deadline budget = new Deadline(DELIBERATION_BUDGET);
+    deadline = budget;
+    updateBeliefs.setEnabled(false);
+    log("Revising beliefs with new information " + fact.formula() +
+            ", trusted to the degree " + trust + "...");
+    new SwingWorker<Void,Void>()
+    {
+        @Override
+        protected Void doInBackground()
+        {
+            agent.updateBeliefs(newFact, trust, budget);
+            return null;
+        }
+
+        @Override
+        protected void done()
+        {
+            deadline = null;
+            updateBeliefs.setEnabled(true);
+            try
+            {
+                get();
+                update();
+                if(agent.isApproximate())
+                    log("Revised beliefs; the deliberation budget was exhausted, " +
+                            "so desires and goals are approximate.");
+                else
+                    log("Revised beliefs.");
+            }
+            catch(InterruptedException e)
+            {
+                log("Belief revision interrupted.");
+            }
+            catch(ExecutionException e)
+            {
+                log("Belief revision abandoned: " + e.getCause().getMessage() + ".");
+            }
+        }
+    }.execute();
 }//GEN-LAST:event_updateBeliefs
 
     /**
-     * Updates the view to reflect the current status of the associated agent.
+     * Updates the view to reflect the current status of the associated agent,
+     * as published at the end of its last deliberation, so that the view is
+     * consistent even if the agent is deliberating in the background.
      */
     public void update()
     {
-        knowledge.setText(agent.knowledge().toString());
-        beliefs.setText(agent.beliefs().toString());
+        MentalStateSnapshot state = agent.snapshot();
+        knowledge.setText(state.knowledge().toString());
+        beliefs.setText(state.beliefs().toString());
         obligationRules.setText(agent.obligationRules().toString());
         desireRules.setText(agent.desireRules().toString());
-        obligations.setText(agent.obligations().toString());
+        obligations.setText(state.obligations().toString());
         // desires.setText(agent.desires().toString());
-        desires.setText(agent.utility().toString());
-        goals.setText(agent.goals().toString());
+        desires.setText(state.utility().toString());
+        goals.setText(state.goals().toString());
     }
 
     /**
@@ -6,6 +6,7 @@
 
 package kobdig.gui;
 
+import kobdig.agent.AplLexer;
 import kobdig.agent.AplTokenizer;
 import kobdig.agent.Fact;
 import kobdig.logic.Formula;
@@ -13,7 +14,6 @@ import kobdig.logic.PropositionalFormula;
 import kobdig.logic.TruthDegree;
 
 import java.awt.Frame;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
@@ -176,9 +176,8 @@ private void formulaTextTextValueChanged(java.awt.event.TextEvent evt) {//GEN-FI
 // TODO add your handling code here:
     try
     {
-        // Use a buffered reader with default buffer size
-        Reader r = new BufferedReader(new StringReader(formulaText.getText()));
-        AplTokenizer st = new AplTokenizer(r);
+        Reader r = new StringReader(formulaText.getText());
+        AplTokenizer st = new AplLexer(r);
         st.nextToken();
         Formula phi = new PropositionalFormula(st);
         fact = new Fact(phi);
@@ -145,6 +145,8 @@ private void openAgent(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_openAg
     try
     {
         Agent agent = new Agent(new FileInputStream(file));
+        // Keep the best goals found if a deliberation runs out of time:
+        agent.setAnytime(true);
         AgentView agentView = new AgentView(agent);
         agentView.setVisible(true);
     }
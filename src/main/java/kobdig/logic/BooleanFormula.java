@@ -28,6 +28,8 @@ Retrieved from: http://en.literateprograms.org/Quine-McCluskey_algorithm_(Java)?
 
 import java.util.*;
 
+import kobdig.metrics.Probes;
+
 /**
  * A Boolean formula, represented as a list of Boolean terms.
  * 
@@ -189,8 +191,18 @@ public class BooleanFormula
      */
     public void simplify()
     {
+        long began = Probes.start();
         reduceToPrimeImplicants();
         reducePrimeImplicantsToSubset();
+        Probes.stop(Probes.BOOLEAN_SIMPLIFY, began);
+    }
+
+    /**
+     * Returns the number of terms of the formula.
+     */
+    public int size()
+    {
+        return termList.size();
     }
 
     /**
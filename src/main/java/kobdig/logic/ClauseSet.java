@@ -0,0 +1,171 @@
+/*
+ * ClauseSet.java
+ *
+ * Created on October 18, 2026, 9:50 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of clauses over numbered variables, i.e., a crisp propositional
+ * formula in conjunctive normal form.
+ * <p>Variables are numbered from 1 and literals are represented, as in the
+ * DIMACS format, by non-zero integers: literal <var>v</var> stands for
+ * variable <var>v</var> and literal -<var>v</var> for its negation.
+ * Formulas are translated into clauses by the Tseitin transformation,
+ * i.e., by introducing a variable for each compound subformula
+ * (see {@link #literal(Formula)}); the clause set is thus equisatisfiable
+ * with the formulas, also when the variables of their atoms are fixed.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class ClauseSet
+{
+    /** The number of variables. */
+    protected int variables;
+
+    /** The clauses. */
+    protected List<int[]> clauses = new ArrayList<int[]>();
+
+    /** The variable of each atom. */
+    protected Map<Atom,Integer> atomVariable = new HashMap<Atom,Integer>();
+
+    /** The literal of each compound formula already translated. */
+    protected Map<Formula,Integer> formulaLiteral = new IdentityHashMap<Formula,Integer>();
+
+    /** The literal which is always true, or 0 if not created yet. */
+    protected int truth;
+
+    /** Creates an empty clause set. */
+    public ClauseSet()
+    {
+    }
+
+    /**
+     * Creates a new variable.
+     *
+     * @return the new variable
+     */
+    public int newVariable()
+    {
+        return ++variables;
+    }
+
+    /**
+     * Returns the number of variables.
+     */
+    public int variableCount()
+    {
+        return variables;
+    }
+
+    /**
+     * Adds a clause, i.e., a disjunction of literals.
+     *
+     * @param lits the literals of the clause
+     */
+    public void addClause(int... lits)
+    {
+        clauses.add(lits.clone());
+    }
+
+    /**
+     * Returns the clauses.
+     */
+    public List<int[]> clauses()
+    {
+        return clauses;
+    }
+
+    /**
+     * Returns the variable standing for the given atom, creating it if necessary.
+     */
+    public int variable(Atom a)
+    {
+        Integer v = atomVariable.get(a);
+        if(v==null)
+        {
+            v = newVariable();
+            atomVariable.put(a, v);
+        }
+        return v;
+    }
+
+    /**
+     * Returns the variable standing for the given atom, or 0 if the atom
+     * does not occur in the clauses.
+     */
+    public int variableOf(Atom a)
+    {
+        Integer v = atomVariable.get(a);
+        return v==null ? 0 : v;
+    }
+
+    /**
+     * Returns a literal equivalent to the given crisp formula, adding the
+     * clauses which define the variables introduced for its compound
+     * subformulas (Tseitin transformation).
+     *
+     * @param f a formula whose constants, if any, are crisp
+     * @return a literal which is true exactly in the models of the formula
+     * @throws IllegalArgumentException if the formula contains non-crisp
+     *         constants or operators other than the pre-defined ones
+     */
+    public int literal(Formula f)
+    {
+        if(f.op==null)
+        {
+            if(!f.isConstant())
+                return variable(f.atom);
+            TruthDegree t = new TruthDegree(Double.parseDouble(f.atom.toString()));
+            if(!t.isTrue() && !t.isFalse())
+                throw new IllegalArgumentException("Crisp formula required");
+            if(truth==0)
+            {
+                truth = newVariable();
+                addClause(truth);
+            }
+            return t.isTrue() ? truth : -truth;
+        }
+        if(f.op==Operator.NOT)
+            return -literal(f.child[0]);
+        Integer known = formulaLiteral.get(f);
+        if(known!=null)
+            return known;
+        int a = literal(f.child[0]);
+        int b = literal(f.child[1]);
+        int g = newVariable();
+        if(f.op==Operator.AND)
+        {
+            addClause(-g, a);
+            addClause(-g, b);
+            addClause(g, -a, -b);
+        }
+        else if(f.op==Operator.OR)
+        {
+            addClause(g, -a);
+            addClause(g, -b);
+            addClause(-g, a, b);
+        }
+        else if(f.op==Operator.XOR)
+        {
+            addClause(-g, a, b);
+            addClause(-g, -a, -b);
+            addClause(g, -a, b);
+            addClause(g, a, -b);
+        }
+        else
+            throw new IllegalArgumentException("Unsupported operator " + f.op);
+        formulaLiteral.put(f, g);
+        return g;
+    }
+}
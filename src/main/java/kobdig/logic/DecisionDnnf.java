@@ -0,0 +1,510 @@
+/*
+ * DecisionDnnf.java
+ *
+ * Created on October 18, 2026, 10:05 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.logic;
+
+import kobdig.agent.Deadline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of clauses compiled into a circuit in decision decomposable negation
+ * normal form (decision-DNNF).
+ * <p>The circuit is made of literals, of conjunctions whose arguments share
+ * no variables, and of decisions on a variable, i.e., disjunctions of the
+ * form (<var>v</var> &and; &phi;) &or; (&not;<var>v</var> &and; &psi;).
+ * Once the circuit is compiled, checking its satisfiability after fixing the
+ * values of any number of variables, i.e., under <em>conditioning</em>, only
+ * takes a pass over the circuit, linear in its size. Entailment of a formula
+ * may thus be decided by conditioning on each term of the disjunctive normal
+ * form of its negation, i.e., by a single pass if the formula is a clause.</p>
+ * <p>The compiler follows the usual exhaustive DPLL scheme: unit propagation,
+ * decomposition of the remaining clauses into components which do not share
+ * variables, which are cached so that each is compiled once, and branching
+ * on the variable with the most occurrences in a component.
+ * The size of the circuit may be exponential in the number of variables;
+ * the compilation fails if the circuit grows beyond a given number of nodes.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class DecisionDnnf
+{
+    /** The kind of the constant false node. */
+    private static final byte FALSE = 0;
+
+    /** The kind of the constant true node. */
+    private static final byte TRUE = 1;
+
+    /** The kind of literal nodes. */
+    private static final byte LITERAL = 2;
+
+    /** The kind of decomposable conjunction nodes. */
+    private static final byte AND = 3;
+
+    /** The kind of decision nodes. */
+    private static final byte DECISION = 4;
+
+    /** The number of variables. */
+    protected int variables;
+
+    /** The kind of each node. */
+    protected byte[] kind = new byte[16];
+
+    /**
+     * The literal of each literal node and the variable of each decision node.
+     */
+    protected int[] literal = new int[16];
+
+    /**
+     * The children of each node: the arguments of a conjunction, or the
+     * branches where the variable of a decision is true and false.
+     */
+    protected int[][] child = new int[16][];
+
+    /** The number of nodes, which are stored children first. */
+    protected int size;
+
+    /** The root node. */
+    protected int root;
+
+    /** The maximum number of nodes. */
+    private int limit;
+
+    /** The clauses being compiled. */
+    private int[][] clause;
+
+    /** The value of each variable during compilation. */
+    private byte[] value;
+
+    /** The assigned literals during compilation. */
+    private int[] trail;
+
+    /** The number of assigned literals. */
+    private int trailSize;
+
+    /** The compiled components, indexed by their clauses and variables. */
+    private Map<String,Integer> cache;
+
+    /** The node of each literal. */
+    private Map<Integer,Integer> literalNode;
+
+    /** Scratch array for the union-find forest and the occurrence counts. */
+    private int[] scratch;
+
+    /**
+     * Compiles the given clauses.
+     *
+     * @param cnf a clause set
+     * @param limit the maximum number of nodes of the circuit
+     * @throws IllegalArgumentException if the circuit would have more than
+     *         <code>limit</code> nodes
+     */
+    public DecisionDnnf(ClauseSet cnf, int limit)
+    {
+        this.limit = limit;
+        variables = cnf.variableCount();
+        clause = cnf.clauses().toArray(new int[0][]);
+        value = new byte[variables + 1];
+        trail = new int[variables + 1];
+        scratch = new int[variables + 1];
+        cache = new HashMap<String,Integer>();
+        literalNode = new HashMap<Integer,Integer>();
+        node(FALSE, 0, null);
+        node(TRUE, 0, null);
+        int[] all = new int[clause.length];
+        for(int i = 0; i<all.length; i++)
+            all[i] = i;
+        root = compile(all);
+        clause = null;
+        value = null;
+        trail = null;
+        scratch = null;
+        cache = null;
+        literalNode = null;
+    }
+
+    /**
+     * Returns the number of nodes of the circuit.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds a node to the circuit.
+     *
+     * @return the index of the new node
+     */
+    private int node(byte k, int lit, int[] c)
+    {
+        if(size==limit)
+            throw new IllegalArgumentException("Circuit too large");
+        if(size==kind.length)
+        {
+            int n = 2*size;
+            kind = Arrays.copyOf(kind, n);
+            literal = Arrays.copyOf(literal, n);
+            child = Arrays.copyOf(child, n);
+        }
+        kind[size] = k;
+        literal[size] = lit;
+        child[size] = c;
+        return size++;
+    }
+
+    /**
+     * Returns the node of the given literal.
+     */
+    private int literalNode(int lit)
+    {
+        Integer n = literalNode.get(lit);
+        if(n==null)
+        {
+            n = node(LITERAL, lit, null);
+            literalNode.put(lit, n);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the value of a literal during compilation.
+     */
+    private int value(int lit)
+    {
+        int v = value[Math.abs(lit)];
+        return lit>0 ? v : -v;
+    }
+
+    /**
+     * Assigns a literal during compilation.
+     */
+    private void assign(int lit)
+    {
+        value[Math.abs(lit)] = (byte) (lit>0 ? 1 : -1);
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Undoes the assignments after the given position in the trail.
+     */
+    private void undo(int mark)
+    {
+        while(trailSize>mark)
+            value[Math.abs(trail[--trailSize])] = 0;
+    }
+
+    /**
+     * Compiles the given clauses under the current assignment.
+     *
+     * @param ids the indices of the clauses
+     * @return the root node of the compiled circuit
+     */
+    private int compile(int[] ids)
+    {
+        int mark = trailSize;
+
+        // Unit propagation:
+        boolean changed = true;
+        while(changed)
+        {
+            changed = false;
+            for(int i = 0; i<ids.length; i++)
+            {
+                int[] c = clause[ids[i]];
+                int free = 0;
+                int last = 0;
+                boolean satisfied = false;
+                for(int j = 0; j<c.length && !satisfied; j++)
+                {
+                    int v = value(c[j]);
+                    satisfied = v>0;
+                    if(v==0)
+                    {
+                        free++;
+                        last = c[j];
+                    }
+                }
+                if(satisfied)
+                    continue;
+                if(free==0)
+                {
+                    undo(mark);
+                    return FALSE;
+                }
+                if(free==1)
+                {
+                    assign(last);
+                    changed = true;
+                }
+            }
+        }
+        List<Integer> parts = new ArrayList<Integer>();
+        for(int t = mark; t<trailSize; t++)
+            parts.add(literalNode(trail[t]));
+
+        // Decompose the remaining clauses into components:
+        Iterator<int[]> i = components(ids).iterator();
+        while(i.hasNext())
+        {
+            int[] component = i.next();
+            String key = key(component);
+            Integer n = cache.get(key);
+            if(n==null)
+            {
+                n = decide(component);
+                cache.put(key, n);
+            }
+            if(n==FALSE)
+            {
+                undo(mark);
+                return FALSE;
+            }
+            parts.add(n);
+        }
+        undo(mark);
+        if(parts.isEmpty())
+            return TRUE;
+        if(parts.size()==1)
+            return parts.get(0);
+        int[] c = new int[parts.size()];
+        for(int k = 0; k<c.length; k++)
+            c[k] = parts.get(k);
+        return node(AND, 0, c);
+    }
+
+    /**
+     * Returns the root of the tree of the given variable in the union-find
+     * forest stored in the scratch array, halving the path along the way.
+     */
+    private int find(int v)
+    {
+        while(scratch[v]!=v)
+        {
+            scratch[v] = scratch[scratch[v]];
+            v = scratch[v];
+        }
+        return v;
+    }
+
+    /**
+     * Partitions the clauses which are not satisfied by the current
+     * assignment into components which share no unassigned variables.
+     *
+     * @param ids the indices of the clauses
+     * @return the indices of the clauses of each component
+     */
+    private List<int[]> components(int[] ids)
+    {
+        List<Integer> open = new ArrayList<Integer>();
+        for(int i = 0; i<ids.length; i++)
+        {
+            int[] c = clause[ids[i]];
+            boolean satisfied = false;
+            for(int j = 0; j<c.length && !satisfied; j++)
+                satisfied = value(c[j])>0;
+            if(satisfied)
+                continue;
+            open.add(ids[i]);
+            for(int j = 0; j<c.length; j++)
+                if(value(c[j])==0)
+                    scratch[Math.abs(c[j])] = Math.abs(c[j]);
+        }
+        Iterator<Integer> i = open.iterator();
+        while(i.hasNext())
+        {
+            int first = 0;
+            int[] c = clause[i.next()];
+            for(int j = 0; j<c.length; j++)
+                if(value(c[j])==0)
+                {
+                    int r = find(Math.abs(c[j]));
+                    if(first==0)
+                        first = r;
+                    else if(r!=first)
+                        scratch[r] = first;
+                }
+        }
+        Map<Integer,List<Integer>> groups = new HashMap<Integer,List<Integer>>();
+        List<int[]> result = new ArrayList<int[]>();
+        i = open.iterator();
+        while(i.hasNext())
+        {
+            int id = i.next();
+            int[] c = clause[id];
+            int r = 0;
+            for(int j = 0; j<c.length && r==0; j++)
+                if(value(c[j])==0)
+                    r = find(Math.abs(c[j]));
+            List<Integer> g = groups.get(r);
+            if(g==null)
+            {
+                g = new ArrayList<Integer>();
+                groups.put(r, g);
+            }
+            g.add(id);
+        }
+        Iterator<List<Integer>> j = groups.values().iterator();
+        while(j.hasNext())
+        {
+            List<Integer> g = j.next();
+            int[] component = new int[g.size()];
+            for(int k = 0; k<component.length; k++)
+                component[k] = g.get(k);
+            result.add(component);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a key identifying a component: since the clauses of a
+     * component are not satisfied and the variables they share with other
+     * components are assigned, the residual clauses are determined by the
+     * indices of the clauses and the set of their unassigned variables.
+     */
+    private String key(int[] component)
+    {
+        Arrays.sort(component);
+        List<Integer> vars = new ArrayList<Integer>();
+        for(int i = 0; i<component.length; i++)
+        {
+            int[] c = clause[component[i]];
+            for(int j = 0; j<c.length; j++)
+                if(value(c[j])==0)
+                    vars.add(Math.abs(c[j]));
+        }
+        int[] v = new int[vars.size()];
+        for(int k = 0; k<v.length; k++)
+            v[k] = vars.get(k);
+        Arrays.sort(v);
+        StringBuilder key = new StringBuilder();
+        for(int i = 0; i<component.length; i++)
+            key.append(component[i]).append(',');
+        key.append('|');
+        for(int k = 0; k<v.length; k++)
+            if(k==0 || v[k]!=v[k - 1])
+                key.append(v[k]).append(',');
+        return key.toString();
+    }
+
+    /**
+     * Compiles a component by branching on its most frequent variable.
+     *
+     * @param component the indices of the clauses of the component
+     * @return the root node of the compiled component
+     */
+    private int decide(int[] component)
+    {
+        Deadline.check();
+        for(int i = 0; i<component.length; i++)
+        {
+            int[] c = clause[component[i]];
+            for(int j = 0; j<c.length; j++)
+                scratch[Math.abs(c[j])] = 0;
+        }
+        int best = 0;
+        for(int i = 0; i<component.length; i++)
+        {
+            int[] c = clause[component[i]];
+            for(int j = 0; j<c.length; j++)
+                if(value(c[j])==0)
+                {
+                    int v = Math.abs(c[j]);
+                    scratch[v]++;
+                    if(best==0 || scratch[v]>scratch[best])
+                        best = v;
+                }
+        }
+        int mark = trailSize;
+        assign(best);
+        int high = compile(component);
+        undo(mark);
+        assign(-best);
+        int low = compile(component);
+        undo(mark);
+        if(high==FALSE && low==FALSE)
+            return FALSE;
+        if(high==low)
+            return high;
+        return node(DECISION, best, new int[] {high, low});
+    }
+
+    /**
+     * Checks whether the clauses are satisfiable.
+     */
+    public boolean isSatisfiable()
+    {
+        return satisfiable();
+    }
+
+    /**
+     * Checks whether the clauses are satisfiable when the given literals
+     * are true, by conditioning the circuit on them.
+     *
+     * @param lits the literals to be assumed true; literals of variables
+     *        which do not occur in the clauses are ignored
+     * @return true if some assignment extending the given literals
+     *         satisfies the clauses
+     */
+    public boolean satisfiable(int... lits)
+    {
+        byte[] fixed = new byte[variables + 1];
+        for(int i = 0; i<lits.length; i++)
+        {
+            int v = Math.abs(lits[i]);
+            if(v>0 && v<=variables)
+            {
+                byte b = (byte) (lits[i]>0 ? 1 : -1);
+                if(fixed[v]==-b)
+                    return false;
+                fixed[v] = b;
+            }
+        }
+        boolean[] sat = new boolean[size];
+        for(int n = 0; n<size; n++)
+        {
+            switch(kind[n])
+            {
+                case TRUE:
+                    sat[n] = true;
+                    break;
+                case LITERAL:
+                {
+                    int lit = literal[n];
+                    int f = fixed[Math.abs(lit)];
+                    sat[n] = lit>0 ? f>=0 : f<=0;
+                    break;
+                }
+                case AND:
+                {
+                    boolean t = true;
+                    int[] c = child[n];
+                    for(int i = 0; i<c.length && t; i++)
+                        t = sat[c[i]];
+                    sat[n] = t;
+                    break;
+                }
+                case DECISION:
+                {
+                    int f = fixed[literal[n]];
+                    sat[n] = (f>=0 && sat[child[n][0]]) || (f<=0 && sat[child[n][1]]);
+                    break;
+                }
+                default:
+                    sat[n] = false;
+            }
+        }
+        return sat[root];
+    }
+}
@@ -9,14 +9,24 @@
 
 package kobdig.logic;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
  * A fuzzy set over a discrete universe of discourse. 
+ * <p>Besides the membership degree of each element, a fuzzy set keeps its
+ * elements bucketed by membership degree into <em>strata</em>, sorted by
+ * degree. This way, the level set is maintained incrementally and an
+ * &alpha;-cut can be provided as a read-only view over the strata at or
+ * above &alpha;, without copying any element.</p>
  *
  * @author Andrea G. B. Tettamanzi
  */
@@ -25,17 +35,36 @@ public class FuzzySet<E>
     /** The elements that make up the fuzzy set, physically stored in a HashSet. */
     protected Map<E, TruthDegree> elements;
     
+    /** The elements of the fuzzy set, bucketed by membership degree. */
+    protected TreeMap<TruthDegree, Set<E>> strata;
+    
     /** Creates a new fuzzy set */
     public FuzzySet()
     {
         elements = new HashMap<E, TruthDegree>();
+        strata = new TreeMap<TruthDegree, Set<E>>();
+    }
+
+    /**
+     * Creates a fuzzy set with the given storage, which may be
+     * <code>null</code> for views.
+     */
+    FuzzySet(Map<E, TruthDegree> e, TreeMap<TruthDegree, Set<E>> s)
+    {
+        elements = e;
+        strata = s;
     }
 
     /** Copy constructor. */
     public FuzzySet(FuzzySet<E> that)
     {
-        elements = new HashMap<E, TruthDegree>();
-        elements.putAll(that.elements);
+        this();
+        Iterator<E> i = that.iterator();
+        while(i.hasNext())
+        {
+            E element = i.next();
+            member(element, that.member(element));
+        }
     }
     
     /**
@@ -66,10 +95,25 @@ public class FuzzySet<E>
      */
     public void member(E element, TruthDegree membership)
     {
+        TruthDegree old;
         if(membership.isFalse())
-            elements.remove(element);
+            old = elements.remove(element);
         else
-            elements.put(element, membership);
+            old = elements.put(element, membership);
+        if(old!=null)
+        {
+            Set<E> stratum = strata.get(old);
+            stratum.remove(element);
+            if(stratum.isEmpty())
+                strata.remove(old);
+        }
+        if(!membership.isFalse())
+        {
+            Set<E> stratum = strata.get(membership);
+            if(stratum==null)
+                strata.put(membership, stratum = new HashSet<E>());
+            stratum.add(element);
+        }
     }
     
     /**
@@ -77,16 +121,22 @@ public class FuzzySet<E>
      */
     public Iterator<E> iterator()
     {
-        return elements.keySet().iterator();
+        return Collections.unmodifiableSet(elements.keySet()).iterator();
     }
     
     /**
      * Returns the level set of the fuzzy set, i.e.,
      * the set of truth values used in the set.
+     * The returned set is a read-only view, which reflects
+     * later changes to the fuzzy set; unlike the copy returned by earlier
+     * versions, it must not be iterated over while the fuzzy set is being
+     * changed, which would throw a
+     * {@link java.util.ConcurrentModificationException}: a caller doing
+     * that must copy it first, e.g., into a new {@link TreeSet}.
      */
     public SortedSet<TruthDegree> levelSet()
     {
-        return new TreeSet<TruthDegree>(elements.values());
+        return Collections.unmodifiableSortedSet(strata.navigableKeySet());
     }
     
     /**
@@ -100,10 +150,21 @@ public class FuzzySet<E>
     @Override
     public boolean equals(Object o)
     {
-        if(!(o instanceof FuzzySet))
+        if(!(o instanceof FuzzySet<?>))
             return false;
-        FuzzySet that = (FuzzySet) o;
-        return elements.equals(that.elements);
+        // Looking up an element of another type just finds no membership:
+        @SuppressWarnings("unchecked")
+        FuzzySet<E> that = (FuzzySet<E>) o;
+        if(size()!=that.size())
+            return false;
+        Iterator<E> i = iterator();
+        while(i.hasNext())
+        {
+            E element = i.next();
+            if(!member(element).equals(that.member(element)))
+                return false;
+        }
+        return true;
     }
 
     /**
@@ -114,25 +175,141 @@ public class FuzzySet<E>
     @Override
     public int hashCode()
     {
-        return this.elements.hashCode();
+        int h = 0;
+        Iterator<E> i = iterator();
+        while(i.hasNext())
+        {
+            E element = i.next();
+            h += element.hashCode() ^ member(element).hashCode();
+        }
+        return h;
     }
 
     /**
-     * Return an &alpha;-cut of this fuzzy set.
+     * Return an &alpha;-cut of this fuzzy set, as a read-only view
+     * of this fuzzy set, which reflects its later changes.
+     * Unlike the copy returned by earlier versions, the view must not be
+     * iterated over while this fuzzy set is being changed, and cannot be
+     * changed itself: a caller doing either must copy it first, with
+     * {@link #FuzzySet(FuzzySet)}.
      * 
      * @param alpha the value of &alpha;
      * @return the &alpha;-cut of this fuzzy set
      */
     public FuzzySet<E> cut(TruthDegree alpha)
     {
-        FuzzySet<E> aCut = new FuzzySet<E>();
-        Iterator<E> i = iterator();
-        while(i.hasNext())
+        return new Cut<E>(this, alpha);
+    }
+    
+    /**
+     * A read-only view of the &alpha;-cut of a fuzzy set, i.e., the crisp
+     * set of the elements whose membership is at least &alpha;.
+     */
+    private static class Cut<E> extends FuzzySet<E>
+    {
+        /** The fuzzy set of which this is a cut. */
+        private final FuzzySet<E> set;
+        
+        /** The value of &alpha;. */
+        private final TruthDegree alpha;
+        
+        Cut(FuzzySet<E> s, TruthDegree a)
         {
-            E element = i.next();
-            if(member(element).compareTo(alpha)>=0)
-                aCut.member(element, TruthDegree.TRUE);
+            super(null, null);
+            set = s;
+            alpha = a;
+        }
+        
+        /**
+         * Returns the strata of the underlying fuzzy set which belong to the cut;
+         * if the underlying fuzzy set is not stratified, its whole support is
+         * returned as a single stratum, to be filtered.
+         */
+        private Iterator<Set<E>> strata()
+        {
+            if(set.strata==null)
+            {
+                Set<E> support = new HashSet<E>();
+                Iterator<E> i = set.iterator();
+                while(i.hasNext())
+                {
+                    E element = i.next();
+                    if(set.member(element).compareTo(alpha)>=0)
+                        support.add(element);
+                }
+                return Collections.singleton(support).iterator();
+            }
+            return set.strata.tailMap(alpha, true).values().iterator();
+        }
+        
+        @Override
+        public int size()
+        {
+            int n = 0;
+            Iterator<Set<E>> i = strata();
+            while(i.hasNext())
+                n += i.next().size();
+            return n;
+        }
+        
+        @Override
+        public TruthDegree member(E element)
+        {
+            return set.member(element).compareTo(alpha)>=0 ?
+                TruthDegree.TRUE : TruthDegree.FALSE;
+        }
+        
+        @Override
+        public void member(E element, TruthDegree membership)
+        {
+            throw new UnsupportedOperationException("An alpha-cut is read-only");
+        }
+        
+        @Override
+        public Iterator<E> iterator()
+        {
+            final Iterator<Set<E>> i = strata();
+            return new Iterator<E>()
+            {
+                private Iterator<E> j = Collections.<E>emptySet().iterator();
+                
+                @Override
+                public boolean hasNext()
+                {
+                    while(!j.hasNext() && i.hasNext())
+                        j = i.next().iterator();
+                    return j.hasNext();
+                }
+                
+                @Override
+                public E next()
+                {
+                    if(!hasNext())
+                        throw new NoSuchElementException();
+                    return j.next();
+                }
+                
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException("An alpha-cut is read-only");
+                }
+            };
+        }
+        
+        @Override
+        public SortedSet<TruthDegree> levelSet()
+        {
+            SortedSet<TruthDegree> levels = new TreeSet<TruthDegree>();
+            if(iterator().hasNext())
+                levels.add(TruthDegree.TRUE);
+            return Collections.unmodifiableSortedSet(levels);
+        }
+        
+        @Override
+        public FuzzySet<E> cut(TruthDegree beta)
+        {
+            return this;
         }
-        return aCut;
     }
 }
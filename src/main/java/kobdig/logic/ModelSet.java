@@ -0,0 +1,378 @@
+/*
+ * ModelSet.java
+ *
+ * Created on October 18, 2026, 9:40 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.logic;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of crisp interpretations (worlds) of a propositional language,
+ * represented as a bitmap.
+ * <p>The language is given by an array of <var>n</var> propositional atoms;
+ * world number <var>w</var>, 0 &le; <var>w</var> &lt; 2<sup><var>n</var></sup>,
+ * is the interpretation which makes the <var>i</var>-th atom true if and only
+ * if bit <var>i</var> of <var>w</var> is set. This is the same indexing scheme
+ * used by {@link PossibilityDistribution}.</p>
+ * <p>The typical use of a model set is to represent the set of models of
+ * a formula: the models are computed once, by structural recursion on the
+ * formula, with bitwise operations on 64 worlds at a time, and then used
+ * to perform masked scans over a possibility distribution, without
+ * evaluating the formula world by world.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class ModelSet
+{
+    /** The maximum number of atoms of a language supported by model sets. */
+    public static final int MAX_ATOMS = 30;
+
+    /**
+     * The bit patterns of the first six atoms within a 64-bit word:
+     * bit <var>w</var> of <code>PATTERN[i]</code> is set if and only if
+     * bit <var>i</var> of <var>w</var> is set.
+     */
+    private static final long[] PATTERN = {
+        0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L
+    };
+
+    /** The number of atoms of the language. */
+    protected int atoms;
+
+    /** The bitmap of the worlds, 64 worlds per word. */
+    protected long[] word;
+
+    /**
+     * Creates an empty set of worlds of a language with the given number of atoms.
+     *
+     * @param n the number of atoms of the language
+     */
+    public ModelSet(int n)
+    {
+        if(n<0 || n>MAX_ATOMS)
+            throw new UnsupportedOperationException("Propositional language too large");
+        atoms = n;
+        word = new long[n<6 ? 1 : 1 << (n - 6)];
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param that a model set
+     */
+    public ModelSet(ModelSet that)
+    {
+        atoms = that.atoms;
+        word = that.word.clone();
+    }
+
+    /**
+     * Creates the set of the models of the given formula, over the language
+     * made of the given atoms.
+     * <p>All the atoms of the formula must belong to the language, except
+     * for constant atoms (see {@link Formula#isConstant()}), which must be
+     * crisp, i.e., either true or false.</p>
+     *
+     * @param f a formula
+     * @param atom the atoms of the language
+     * @throws IllegalArgumentException if the formula uses atoms which are
+     *         not in the language, non-crisp constants, or operators other
+     *         than the pre-defined ones
+     */
+    public ModelSet(Formula f, PropositionalAtom[] atom)
+    {
+        this(atom.length);
+        Map<Atom,Integer> index = new HashMap<Atom,Integer>();
+        for(int i = 0; i<atom.length; i++)
+            index.put(atom[i], i);
+        word = bitmap(f, index);
+    }
+
+    /**
+     * Computes the bitmap of the models of a formula by structural recursion.
+     *
+     * @param f a formula
+     * @param index the position of each atom in the language
+     * @return the bitmap of the models of the formula
+     */
+    private long[] bitmap(Formula f, Map<Atom,Integer> index)
+    {
+        if(f.isAtomic())
+        {
+            if(f.isConstant())
+            {
+                TruthDegree t = new TruthDegree(Double.parseDouble(f.atom.toString()));
+                if(!t.isTrue() && !t.isFalse())
+                    throw new IllegalArgumentException("Crisp formula required");
+                long[] b = new long[word.length];
+                if(t.isTrue())
+                    fill(b);
+                return b;
+            }
+            Integer i = index.get(f.atom);
+            if(i==null)
+                throw new IllegalArgumentException("Atom " + f.atom + " not in the language");
+            return pattern(i);
+        }
+        long[] b = bitmap(f.child[0], index);
+        if(f.op==Operator.NOT)
+        {
+            for(int k = 0; k<b.length; k++)
+                b[k] = ~b[k];
+            trim(b);
+            return b;
+        }
+        long[] c = bitmap(f.child[1], index);
+        if(f.op==Operator.AND)
+            for(int k = 0; k<b.length; k++)
+                b[k] &= c[k];
+        else if(f.op==Operator.OR)
+            for(int k = 0; k<b.length; k++)
+                b[k] |= c[k];
+        else if(f.op==Operator.XOR)
+            for(int k = 0; k<b.length; k++)
+                b[k] ^= c[k];
+        else
+            throw new IllegalArgumentException("Unsupported operator " + f.op);
+        return b;
+    }
+
+    /**
+     * Returns the bitmap of the worlds in which the <var>i</var>-th atom is true.
+     */
+    private long[] pattern(int i)
+    {
+        long[] b = new long[word.length];
+        if(i<6)
+        {
+            for(int k = 0; k<b.length; k++)
+                b[k] = PATTERN[i];
+            trim(b);
+        }
+        else
+            for(int k = 0; k<b.length; k++)
+                if(((k >> (i - 6)) & 1)!=0)
+                    b[k] = -1L;
+        return b;
+    }
+
+    /**
+     * Sets all the bits of the given bitmap which correspond to worlds.
+     */
+    private void fill(long[] b)
+    {
+        for(int k = 0; k<b.length; k++)
+            b[k] = -1L;
+        trim(b);
+    }
+
+    /**
+     * Clears the bits of the given bitmap which do not correspond to worlds,
+     * which is necessary when there are less than 64 worlds.
+     */
+    private void trim(long[] b)
+    {
+        if(atoms<6)
+            b[0] &= (1L << (1 << atoms)) - 1L;
+    }
+
+    /**
+     * Returns the number of atoms of the language.
+     */
+    public int atomCount()
+    {
+        return atoms;
+    }
+
+    /**
+     * Returns the number of worlds of the language, i.e., 2<sup><var>n</var></sup>.
+     */
+    public int worldCount()
+    {
+        return 1 << atoms;
+    }
+
+    /**
+     * Tells whether the given world belongs to this set.
+     *
+     * @param w the index of a world
+     */
+    public boolean contains(int w)
+    {
+        return (word[w >>> 6] & (1L << w))!=0;
+    }
+
+    /**
+     * Adds the given world to this set.
+     *
+     * @param w the index of a world
+     */
+    public void add(int w)
+    {
+        word[w >>> 6] |= 1L << w;
+    }
+
+    /**
+     * Removes the given world from this set.
+     *
+     * @param w the index of a world
+     */
+    public void remove(int w)
+    {
+        word[w >>> 6] &= ~(1L << w);
+    }
+
+    /**
+     * Returns the index of the first world belonging to this set
+     * which is not less than the given index, or -1 if there is none.
+     *
+     * @param from the index from which to start searching
+     * @return the index of the next model, or -1
+     */
+    public int nextModel(int from)
+    {
+        if(from>=worldCount())
+            return -1;
+        int k = from >>> 6;
+        long b = word[k] & (-1L << from);
+        while(b==0)
+        {
+            if(++k==word.length)
+                return -1;
+            b = word[k];
+        }
+        return (k << 6) + Long.numberOfTrailingZeros(b);
+    }
+
+    /**
+     * Returns the index of the first world not belonging to this set
+     * which is not less than the given index, or -1 if there is none.
+     *
+     * @param from the index from which to start searching
+     * @return the index of the next countermodel, or -1
+     */
+    public int nextCountermodel(int from)
+    {
+        int n = worldCount();
+        if(from>=n)
+            return -1;
+        int k = from >>> 6;
+        long b = ~word[k] & (-1L << from);
+        while(b==0)
+        {
+            if(++k==word.length)
+                return -1;
+            b = ~word[k];
+        }
+        int w = (k << 6) + Long.numberOfTrailingZeros(b);
+        return w<n ? w : -1;
+    }
+
+    /**
+     * Returns the number of worlds in this set.
+     */
+    public int cardinality()
+    {
+        int c = 0;
+        for(int k = 0; k<word.length; k++)
+            c += Long.bitCount(word[k]);
+        return c;
+    }
+
+    /**
+     * Tells whether this set contains no world.
+     */
+    public boolean isEmpty()
+    {
+        for(int k = 0; k<word.length; k++)
+            if(word[k]!=0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Tells whether this set and the given set have at least a world in common.
+     * The two sets must be defined on the same language.
+     */
+    public boolean intersects(ModelSet that)
+    {
+        for(int k = 0; k<word.length; k++)
+            if((word[k] & that.word[k])!=0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Intersects this set with the given set, defined on the same language.
+     */
+    public void and(ModelSet that)
+    {
+        for(int k = 0; k<word.length; k++)
+            word[k] &= that.word[k];
+    }
+
+    /**
+     * Removes from this set all the worlds in the given set,
+     * defined on the same language.
+     */
+    public void andNot(ModelSet that)
+    {
+        for(int k = 0; k<word.length; k++)
+            word[k] &= ~that.word[k];
+    }
+
+    /**
+     * Adds to this set all the worlds in the given set,
+     * defined on the same language.
+     */
+    public void or(ModelSet that)
+    {
+        for(int k = 0; k<word.length; k++)
+            word[k] |= that.word[k];
+    }
+
+    /**
+     * Replaces this set with its complement.
+     */
+    public void negate()
+    {
+        for(int k = 0; k<word.length; k++)
+            word[k] = ~word[k];
+        trim(word);
+    }
+
+    /**
+     * Checks whether this model set equals another object.
+     *
+     * @param o an object
+     * @return true if the object is a model set on a language with the
+     *         same number of atoms and containing the same worlds
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if(!(o instanceof ModelSet))
+            return false;
+        ModelSet that = (ModelSet) o;
+        return atoms==that.atoms && Arrays.equals(word, that.word);
+    }
+
+    /**
+     * Returns a hash code for this model set.
+     *
+     * @return the hash code for this model set
+     */
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(word);
+    }
+}
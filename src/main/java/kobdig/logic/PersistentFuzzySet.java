@@ -0,0 +1,577 @@
+/*
+ * PersistentFuzzySet.java
+ *
+ * Created on October 18, 2026, 6:20 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * An immutable fuzzy set over a discrete universe of discourse.
+ * <p>Setting the membership degree of an element does not modify a
+ * persistent fuzzy set, but returns a new version of it, which shares
+ * most of its structure with the previous version. The elements are stored
+ * in a hash array mapped trie, so that both looking up and updating
+ * the membership degree of an element take O(log <var>n</var>) time.
+ * Therefore, keeping snapshots of a persistent fuzzy set, or rolling back
+ * to a previous version, costs nothing.</p>
+ * <p>A read-only {@link FuzzySet} view of a persistent fuzzy set is
+ * provided by {@link #asFuzzySet()}.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public final class PersistentFuzzySet<E>
+{
+    /** The number of bits of the hash code consumed at each level of the trie. */
+    private static final int BITS = 5;
+
+    /** The mask used to extract a chunk of the hash code. */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** The empty fuzzy set. */
+    private static final PersistentFuzzySet<?> EMPTY = new PersistentFuzzySet<Object>(null, 0);
+
+    /** The root of the trie, or <code>null</code> if the set is empty. */
+    private final Node<E> root;
+
+    /** The number of elements in the support of the set. */
+    private final int size;
+
+    /**
+     * The level set of this fuzzy set, computed when first needed; since it
+     * is immutable, a thread may compute it again, but never sees it partly built.
+     */
+    private volatile SortedSet<TruthDegree> levels;
+
+    private PersistentFuzzySet(Node<E> r, int n)
+    {
+        root = r;
+        size = n;
+    }
+
+    /**
+     * Returns the empty fuzzy set.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentFuzzySet<E> empty()
+    {
+        return (PersistentFuzzySet<E>) EMPTY;
+    }
+
+    /**
+     * Returns a persistent copy of the given fuzzy set.
+     *
+     * @param fs a fuzzy set
+     * @return a persistent fuzzy set with the same membership degrees
+     */
+    public static <E> PersistentFuzzySet<E> copyOf(FuzzySet<E> fs)
+    {
+        PersistentFuzzySet<E> s = empty();
+        Iterator<E> i = fs.iterator();
+        while(i.hasNext())
+        {
+            E element = i.next();
+            s = s.member(element, fs.member(element));
+        }
+        return s;
+    }
+
+    /**
+     * Spreads the higher bits of a hash code to the lower ones.
+     */
+    private static int hash(Object o)
+    {
+        int h = o.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the cardinality of the support of the fuzzy set, i.e.,
+     * the number of elements whose degree of membership in the set
+     * is greater than zero.
+     *
+     * @return the cardinality of the support of the fuzzy set.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the membership degree of the given element.
+     */
+    public TruthDegree member(E element)
+    {
+        TruthDegree t = root==null ? null : root.get(element, hash(element), 0);
+        return t==null ? TruthDegree.FALSE : t;
+    }
+
+    /**
+     * Returns a version of this fuzzy set in which the membership degree of
+     * the given element is as specified; this fuzzy set is left unchanged.
+     *
+     * @param element an element
+     * @param membership its new membership degree
+     * @return the new version of the fuzzy set
+     */
+    public PersistentFuzzySet<E> member(E element, TruthDegree membership)
+    {
+        TruthDegree old = member(element);
+        if(old.equals(membership))
+            return this;
+        int h = hash(element);
+        if(membership.isFalse())
+        {
+            Node<E> r = root.remove(element, h, 0);
+            return r==null ? PersistentFuzzySet.<E>empty() : new PersistentFuzzySet<E>(r, size - 1);
+        }
+        Entry<E> e = new Entry<E>(element, h, membership);
+        Node<E> r = root==null ? new BitmapNode<E>(0, new Object[0]).put(e, 0) : root.put(e, 0);
+        return new PersistentFuzzySet<E>(r, old.isFalse() ? size + 1 : size);
+    }
+
+    /**
+     * Returns an iterator on the elements of the fuzzy set.
+     */
+    public Iterator<E> iterator()
+    {
+        return new TrieIterator<E>(root);
+    }
+
+    /**
+     * Returns the level set of the fuzzy set, i.e.,
+     * the set of truth values used in the set.
+     */
+    public SortedSet<TruthDegree> levelSet()
+    {
+        SortedSet<TruthDegree> l = levels;
+        if(l==null)
+        {
+            SortedSet<TruthDegree> set = new TreeSet<TruthDegree>();
+            Iterator<E> i = iterator();
+            while(i.hasNext())
+                set.add(member(i.next()));
+            l = Collections.unmodifiableSortedSet(set);
+            levels = l;
+        }
+        return l;
+    }
+
+    /**
+     * Returns a read-only view of this fuzzy set as a {@link FuzzySet}.
+     */
+    public FuzzySet<E> asFuzzySet()
+    {
+        return new View<E>(this);
+    }
+
+    /**
+     * Checks whether this fuzzy set equals another fuzzy set.
+     * Two fuzzy sets are equal if and only if their membership
+     * degrees are equal for all elements.
+     *
+     * @param o an object
+     * @return true if o is a persistent fuzzy set identical to this one
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(Object o)
+    {
+        if(o==this)
+            return true;
+        if(!(o instanceof PersistentFuzzySet))
+            return false;
+        PersistentFuzzySet<E> that = (PersistentFuzzySet<E>) o;
+        if(size!=that.size)
+            return false;
+        Iterator<E> i = iterator();
+        while(i.hasNext())
+        {
+            E element = i.next();
+            if(!member(element).equals(that.member(element)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code for this fuzzy set, which is the same as the hash
+     * code of a {@link FuzzySet} with the same membership degrees.
+     *
+     * @return the hash code for this fuzzy set.
+     */
+    @Override
+    public int hashCode()
+    {
+        int h = 0;
+        Iterator<E> i = iterator();
+        while(i.hasNext())
+        {
+            E element = i.next();
+            h += element.hashCode() ^ member(element).hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * An element of the set, with its hash code and membership degree.
+     */
+    private static final class Entry<E>
+    {
+        final E key;
+        final int hash;
+        final TruthDegree value;
+
+        Entry(E k, int h, TruthDegree v)
+        {
+            key = k;
+            hash = h;
+            value = v;
+        }
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private static abstract class Node<E>
+    {
+        /**
+         * Returns the membership degree of the given element,
+         * or <code>null</code> if it is not in the subtrie.
+         */
+        abstract TruthDegree get(E key, int hash, int shift);
+
+        /**
+         * Returns a copy of this subtrie with the given entry added or replaced.
+         */
+        abstract Node<E> put(Entry<E> e, int shift);
+
+        /**
+         * Returns a copy of this subtrie with the given element removed,
+         * which must be in the subtrie, or <code>null</code> if the subtrie
+         * becomes empty.
+         */
+        abstract Node<E> remove(E key, int hash, int shift);
+
+        /** Returns the number of slots of this node. */
+        abstract int slots();
+
+        /** Returns the entry or node in the given slot of this node. */
+        abstract Object slot(int i);
+    }
+
+    /**
+     * A node indexed by a chunk of the hash codes: bit <var>i</var> of the
+     * bitmap is set if the node has a slot for chunk <var>i</var>; each slot
+     * holds either an entry or a child node.
+     */
+    private static final class BitmapNode<E> extends Node<E>
+    {
+        final int bitmap;
+        final Object[] slot;
+
+        BitmapNode(int b, Object[] s)
+        {
+            bitmap = b;
+            slot = s;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        TruthDegree get(E key, int hash, int shift)
+        {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if((bitmap & bit)==0)
+                return null;
+            Object o = slot[Integer.bitCount(bitmap & (bit - 1))];
+            if(o instanceof Node)
+                return ((Node<E>) o).get(key, hash, shift + BITS);
+            Entry<E> e = (Entry<E>) o;
+            return e.hash==hash && e.key.equals(key) ? e.value : null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<E> put(Entry<E> e, int shift)
+        {
+            int bit = 1 << ((e.hash >>> shift) & MASK);
+            int i = Integer.bitCount(bitmap & (bit - 1));
+            if((bitmap & bit)==0)
+            {
+                Object[] s = new Object[slot.length + 1];
+                System.arraycopy(slot, 0, s, 0, i);
+                s[i] = e;
+                System.arraycopy(slot, i, s, i + 1, slot.length - i);
+                return new BitmapNode<E>(bitmap | bit, s);
+            }
+            Object o = slot[i];
+            Object n;
+            if(o instanceof Node)
+                n = ((Node<E>) o).put(e, shift + BITS);
+            else
+            {
+                Entry<E> f = (Entry<E>) o;
+                if(f.hash==e.hash && f.key.equals(e.key))
+                    n = e;
+                else
+                    n = merge(f, e, shift + BITS);
+            }
+            Object[] s = slot.clone();
+            s[i] = n;
+            return new BitmapNode<E>(bitmap, s);
+        }
+
+        /**
+         * Creates a subtrie containing two entries with different keys.
+         */
+        private static <E> Node<E> merge(Entry<E> f, Entry<E> e, int shift)
+        {
+            if(f.hash==e.hash || shift>=32)
+                return new CollisionNode<E>(new Object[] { f, e });
+            return new BitmapNode<E>(0, new Object[0]).put(f, shift).put(e, shift);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<E> remove(E key, int hash, int shift)
+        {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = Integer.bitCount(bitmap & (bit - 1));
+            Object o = slot[i];
+            if(o instanceof Node)
+            {
+                Node<E> n = ((Node<E>) o).remove(key, hash, shift + BITS);
+                if(n!=null)
+                {
+                    Object[] s = slot.clone();
+                    // Pull a lone entry up, to keep the trie compact:
+                    s[i] = n.slots()==1 && !(n.slot(0) instanceof Node) ? n.slot(0) : n;
+                    return new BitmapNode<E>(bitmap, s);
+                }
+            }
+            if(slot.length==1)
+                return null;
+            Object[] s = new Object[slot.length - 1];
+            System.arraycopy(slot, 0, s, 0, i);
+            System.arraycopy(slot, i + 1, s, i, slot.length - i - 1);
+            return new BitmapNode<E>(bitmap & ~bit, s);
+        }
+
+        @Override
+        int slots()
+        {
+            return slot.length;
+        }
+
+        @Override
+        Object slot(int i)
+        {
+            return slot[i];
+        }
+    }
+
+    /**
+     * A node holding entries whose keys have the same hash code.
+     */
+    private static final class CollisionNode<E> extends Node<E>
+    {
+        final Object[] entry;
+
+        CollisionNode(Object[] e)
+        {
+            entry = e;
+        }
+
+        @SuppressWarnings("unchecked")
+        private int indexOf(E key)
+        {
+            for(int i = 0; i<entry.length; i++)
+                if(((Entry<E>) entry[i]).key.equals(key))
+                    return i;
+            return -1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        TruthDegree get(E key, int hash, int shift)
+        {
+            int i = indexOf(key);
+            return i<0 ? null : ((Entry<E>) entry[i]).value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<E> put(Entry<E> e, int shift)
+        {
+            Entry<E> f = (Entry<E>) entry[0];
+            if(f.hash!=e.hash)
+            {
+                // Push this node one level down, below a bitmap node:
+                int bit = 1 << ((f.hash >>> shift) & MASK);
+                return new BitmapNode<E>(bit, new Object[] { this }).put(e, shift);
+            }
+            int i = indexOf(e.key);
+            Object[] s;
+            if(i<0)
+            {
+                s = new Object[entry.length + 1];
+                System.arraycopy(entry, 0, s, 0, entry.length);
+                s[entry.length] = e;
+            }
+            else
+            {
+                s = entry.clone();
+                s[i] = e;
+            }
+            return new CollisionNode<E>(s);
+        }
+
+        @Override
+        Node<E> remove(E key, int hash, int shift)
+        {
+            int i = indexOf(key);
+            if(entry.length==1)
+                return null;
+            Object[] s = new Object[entry.length - 1];
+            System.arraycopy(entry, 0, s, 0, i);
+            System.arraycopy(entry, i + 1, s, i, entry.length - i - 1);
+            return new CollisionNode<E>(s);
+        }
+
+        @Override
+        int slots()
+        {
+            return entry.length;
+        }
+
+        @Override
+        Object slot(int i)
+        {
+            return entry[i];
+        }
+    }
+
+    /**
+     * A depth-first iterator over the elements stored in a trie.
+     */
+    private static final class TrieIterator<E> implements Iterator<E>
+    {
+        private final List<Node<E>> nodes = new ArrayList<Node<E>>();
+        private final List<Integer> positions = new ArrayList<Integer>();
+        private Entry<E> next;
+
+        TrieIterator(Node<E> root)
+        {
+            if(root!=null)
+            {
+                nodes.add(root);
+                positions.add(0);
+            }
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance()
+        {
+            next = null;
+            while(next==null && !nodes.isEmpty())
+            {
+                int top = nodes.size() - 1;
+                Node<E> n = nodes.get(top);
+                int i = positions.get(top);
+                if(i==n.slots())
+                {
+                    nodes.remove(top);
+                    positions.remove(top);
+                    continue;
+                }
+                positions.set(top, i + 1);
+                Object o = n.slot(i);
+                if(o instanceof Node)
+                {
+                    nodes.add((Node<E>) o);
+                    positions.add(0);
+                }
+                else
+                    next = (Entry<E>) o;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next!=null;
+        }
+
+        @Override
+        public E next()
+        {
+            if(next==null)
+                throw new NoSuchElementException();
+            E key = next.key;
+            advance();
+            return key;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("A persistent fuzzy set is immutable");
+        }
+    }
+
+    /**
+     * A read-only view of a persistent fuzzy set as a fuzzy set.
+     */
+    private static final class View<E> extends FuzzySet<E>
+    {
+        private final PersistentFuzzySet<E> set;
+
+        View(PersistentFuzzySet<E> s)
+        {
+            super(null, null);
+            set = s;
+        }
+
+        @Override
+        public int size()
+        {
+            return set.size();
+        }
+
+        @Override
+        public TruthDegree member(E element)
+        {
+            return set.member(element);
+        }
+
+        @Override
+        public void member(E element, TruthDegree membership)
+        {
+            throw new UnsupportedOperationException("A persistent fuzzy set is immutable");
+        }
+
+        @Override
+        public Iterator<E> iterator()
+        {
+            return set.iterator();
+        }
+
+        @Override
+        public SortedSet<TruthDegree> levelSet()
+        {
+            return set.levelSet();
+        }
+    }
+}
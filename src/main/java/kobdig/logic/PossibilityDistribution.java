@@ -9,6 +9,7 @@
 
 package kobdig.logic;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.SortedSet;
@@ -34,8 +35,11 @@ public class PossibilityDistribution
     /** The set of propositional atoms that make up the propositional language. */
     protected PropositionalAtom[] atom;
     
-    /** Degrees of possibility for each interpretation. */
-    protected TruthDegree[] possibility;
+    /**
+     * Degrees of possibility for each interpretation, stored as primitive
+     * values to allow fast masked scans (see {@link ModelSet}).
+     */
+    protected double[] possibility;
     
     /**
      * Creates an empty possibility distribution.
@@ -55,10 +59,35 @@ public class PossibilityDistribution
      */
     public PossibilityDistribution(Set<Atom> atoms, TruthDegree t)
     {
-        atom = atoms.toArray(new PropositionalAtom[1]);
+        this(atoms.toArray(new PropositionalAtom[1]), t);
+    }
+    
+    /**
+     * Creates a possibility distribution on the provided
+     * array of atomic propositions, initialized with all
+     * interpretations possible to the degree supplied.
+     * The index of each atom in the array determines the
+     * indexing of worlds (see {@link ModelSet}).
+     * 
+     * @param atoms an array of atomic propositions
+     */
+    public PossibilityDistribution(PropositionalAtom[] atoms, TruthDegree t)
+    {
+        atom = atoms;
         if(atom.length>31) throw new UnsupportedOperationException("Propositional language too large");
-        possibility = new TruthDegree[1 << atom.length];
-        for(int w = 0; w<possibility.length; possibility[w++] = t);
+        possibility = new double[1 << atom.length];
+        Arrays.fill(possibility, t.doubleValue());
+    }
+    
+    /**
+     * Copy constructor.
+     * 
+     * @param that a possibility distribution
+     */
+    public PossibilityDistribution(PossibilityDistribution that)
+    {
+        atom = that.atom;
+        possibility = that.possibility==null ? null : that.possibility.clone();
     }
     
     /**
@@ -83,7 +112,10 @@ public class PossibilityDistribution
     public SortedSet<TruthDegree> levelSet()
     {
         TreeSet<TruthDegree> set = new TreeSet<TruthDegree>();
-        for(int w = 0; w<possibility.length; set.add(possibility[w++]));
+        double last = -1.0;
+        for(int w = 0; w<possibility.length; w++)
+            if(possibility[w]!=last)
+                set.add(degree(last = possibility[w]));
         return set;
     }
     
@@ -126,7 +158,21 @@ public class PossibilityDistribution
             throw new IllegalArgumentException("Propositional interpretation required");
         
         PropositionalInterpretation interpretation = (PropositionalInterpretation) itp;
-        return(possibility[index(interpretation)]);
+        return degree(possibility[index(interpretation)]);
+    }
+    
+    /**
+     * Return the possibility degree of the world of the given index,
+     * whose i-th bit is the truth value of the i-th atom of the language
+     * (see {@link #atoms()}).
+     * 
+     * @param world the index of a world, between 0 and 2<sup>n</sup> - 1,
+     *   where n is the number of atoms
+     * @return the possibility degree of the world
+     */
+    public TruthDegree possibility(int world)
+    {
+        return degree(possibility[world]);
     }
     
     /**
@@ -141,7 +187,7 @@ public class PossibilityDistribution
             throw new IllegalArgumentException("Propositional interpretation required");
         
         PropositionalInterpretation interpretation = (PropositionalInterpretation) itp;
-        possibility[index(interpretation)] = t;
+        possibility[index(interpretation)] = t.doubleValue();
     }
     
     /**
@@ -246,6 +292,223 @@ public class PossibilityDistribution
         return t;
     }
     
+    /**
+     * Returns the truth degree corresponding to the given value,
+     * sharing the pre-defined instances for true and false.
+     */
+    protected static TruthDegree degree(double v)
+    {
+        if(v==1.0)
+            return TruthDegree.TRUE;
+        if(v==0.0)
+            return TruthDegree.FALSE;
+        return new TruthDegree(v);
+    }
+    
+    /**
+     * Returns the atomic propositions that make up the propositional
+     * language of this distribution, in the order which determines
+     * the indexing of worlds.
+     * 
+     * @return the atoms of the language
+     */
+    public PropositionalAtom[] atoms()
+    {
+        return atom;
+    }
+    
+    /**
+     * Returns the position of the given atom in the language of this
+     * distribution, or -1 if the atom does not belong to the language.
+     * 
+     * @param a an atom
+     * @return the index of the atom, or -1
+     */
+    public int indexOf(Atom a)
+    {
+        for(int i = 0; i<atom.length; i++)
+            if(atom[i].equals(a))
+                return i;
+        return -1;
+    }
+    
+    /**
+     * Extends the language of this distribution with a new atom.
+     * Since the degrees of possibility do not depend on the new atom,
+     * the possibility of every world of the extended language is the
+     * possibility of its restriction to the original language.
+     * 
+     * @param a a new atom
+     * @return the index of the new atom
+     */
+    public int addAtom(PropositionalAtom a)
+    {
+        if(atom.length>=31) throw new UnsupportedOperationException("Propositional language too large");
+        PropositionalAtom[] extended = Arrays.copyOf(atom, atom.length + 1);
+        extended[atom.length] = a;
+        double[] p = Arrays.copyOf(possibility, possibility.length << 1);
+        System.arraycopy(possibility, 0, p, possibility.length, possibility.length);
+        atom = extended;
+        possibility = p;
+        return atom.length - 1;
+    }
+    
+    /**
+     * Returns the &alpha;-cut of this distribution, i.e., the set
+     * of the worlds whose possibility is at least &alpha;.
+     * 
+     * @param alpha a truth degree
+     * @return the set of worlds &omega; such that &pi;(&omega;) &ge; &alpha;
+     */
+    public ModelSet cut(TruthDegree alpha)
+    {
+        double v = alpha.doubleValue();
+        ModelSet worlds = new ModelSet(atom.length);
+        for(int w = 0; w<possibility.length; w++)
+            if(possibility[w]>=v)
+                worlds.add(w);
+        return worlds;
+    }
+
+    /**
+     * Returns the &alpha;-cuts of this distribution for several values of &alpha;.
+     * Since every cut contains the cuts for higher values of &alpha;, the cuts
+     * are computed cumulatively, with a single scan of the distribution.
+     *
+     * @param alpha the values of &alpha;, in decreasing order
+     * @return an array whose <var>k</var>-th element is the set of the worlds
+     *         whose possibility is at least <code>alpha[k]</code>
+     */
+    public ModelSet[] cuts(TruthDegree[] alpha)
+    {
+        ModelSet[] worlds = new ModelSet[alpha.length];
+        for(int k = 0; k<alpha.length; k++)
+            worlds[k] = new ModelSet(atom.length);
+        for(int w = 0; w<possibility.length; w++)
+        {
+            // Find the first (i.e., highest) alpha not exceeding the
+            // possibility of w, by binary search:
+            int lo = 0, hi = alpha.length;
+            while(lo<hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if(alpha[mid].doubleValue()<=possibility[w])
+                    hi = mid;
+                else
+                    lo = mid + 1;
+            }
+            if(lo<alpha.length)
+                worlds[lo].add(w);
+        }
+        for(int k = 1; k<alpha.length; k++)
+            worlds[k].or(worlds[k - 1]);
+        return worlds;
+    }
+
+    /**
+     * Sets the possibility degree of all the worlds in the given set
+     * as indicated.
+     * 
+     * @param worlds a set of worlds of the language of this distribution
+     * @param t the new possibility degree of those worlds
+     */
+    public void possibility(ModelSet worlds, TruthDegree t)
+    {
+        double v = t.doubleValue();
+        for(int w = worlds.nextModel(0); w>=0; w = worlds.nextModel(w + 1))
+            possibility[w] = v;
+    }
+    
+    /**
+     * Returns the set of models of the given formula over the language
+     * of this distribution.
+     * 
+     * @param f a formula whose atoms all belong to the language
+     * @return the set of models of the formula
+     */
+    public ModelSet models(Formula f)
+    {
+        return new ModelSet(f, atom);
+    }
+    
+    /**
+     * Lowers to at most the given degree the possibility of
+     * all the worlds in the given set, i.e., sets
+     * &pi;(&omega;) = min{&pi;(&omega;), <i>t</i>} for all &omega; in the set.
+     * 
+     * @param worlds a set of worlds of the language of this distribution
+     * @param t a truth degree
+     */
+    public void restrict(ModelSet worlds, TruthDegree t)
+    {
+        double v = t.doubleValue();
+        for(int w = worlds.nextModel(0); w>=0; w = worlds.nextModel(w + 1))
+            if(possibility[w]>v)
+                possibility[w] = v;
+    }
+    
+    /**
+     * Raises to at least the given degree the possibility of
+     * all the worlds in the given set, i.e., sets
+     * &pi;(&omega;) = max{&pi;(&omega;), <i>t</i>} for all &omega; in the set.
+     * 
+     * @param worlds a set of worlds of the language of this distribution
+     * @param t a truth degree
+     * @return true if the possibility of at least a world has changed
+     */
+    public boolean raise(ModelSet worlds, TruthDegree t)
+    {
+        double v = t.doubleValue();
+        boolean changed = false;
+        for(int w = worlds.nextModel(0); w>=0; w = worlds.nextModel(w + 1))
+            if(possibility[w]<v)
+            {
+                possibility[w] = v;
+                changed = true;
+            }
+        return changed;
+    }
+    
+    /**
+     * Compute the possibility degree of the formula whose models are given.
+     * <p>The set of models may be defined over an extension of the language
+     * of this distribution, obtained by appending further atoms to it; since
+     * the distribution does not depend on those atoms, the possibility of
+     * a world of the extended language is the possibility of its restriction
+     * to the language of the distribution.</p>
+     * 
+     * @param models the set of models of a formula
+     * @return its possibility measure
+     */
+    public TruthDegree possibility(ModelSet models)
+    {
+        int mask = possibility.length - 1;
+        double t = 0.0;
+        for(int w = models.nextModel(0); w>=0 && t<1.0; w = models.nextModel(w + 1))
+            if(possibility[w & mask]>t)
+                t = possibility[w & mask];
+        return degree(t);
+    }
+    
+    /**
+     * Compute the necessity degree of the formula whose models are given,
+     * i.e., 1 minus the maximum possibility of its countermodels.
+     * <p>The set of models may be defined over an extension of the language
+     * of this distribution, as explained in {@link #possibility(ModelSet)}.</p>
+     * 
+     * @param models the set of models of a formula
+     * @return its necessity measure
+     */
+    public TruthDegree necessity(ModelSet models)
+    {
+        int mask = possibility.length - 1;
+        double t = 0.0;
+        for(int w = models.nextCountermodel(0); w>=0 && t<1.0; w = models.nextCountermodel(w + 1))
+            if(possibility[w & mask]>t)
+                t = possibility[w & mask];
+        return degree(1.0 - t);
+    }
+    
     /**
      * Returns a human-readable string representation of the
      * possibility distribution.
@@ -12,6 +12,7 @@ package kobdig.logic;
 import kobdig.agent.AplTokenizer;
 
 import java.io.IOException;
+import java.util.Random;
 
 /**
  * A well-formed formula in the language of propositional logic
@@ -65,6 +66,27 @@ public class PropositionalFormula extends Formula
             child[i] = new PropositionalFormula(args[i]);
     }
     
+    /**
+     * Creates a new compound formula, with the given logical operator and
+     * arguments, which, unlike with
+     * {@link #PropositionalFormula(Operator, Formula...)}, are not copied
+     * but shared by the new formula; this is how formulas are built,
+     * bottom-up, when they are parsed or read from a binary representation.
+     *
+     * @param o the operator
+     * @param args the arguments of the operator, as many as its arity
+     * @return the compound formula
+     */
+    public static PropositionalFormula compose(Operator o, Formula... args)
+    {
+        if(args.length < o.arity())
+            throw new IllegalArgumentException("Not enough arguments for an operator of arity " + o.arity());
+        PropositionalFormula phi = new PropositionalFormula(o);
+        for(int i = 0; i<phi.child.length; i++)
+            phi.child[i] = args[i];
+        return phi;
+    }
+    
     /**
      * Copy constructor: creates a new formula identical to the one provided
      * as parameter, without sharing any of its objects.
@@ -114,7 +136,7 @@ public class PropositionalFormula extends Formula
             else
             {
                 source.nextToken();
-                phi = new PropositionalFormula(Operator.OR, parseConjunction(source), phi);
+                phi = compose(Operator.OR, parseConjunction(source), phi);
             }
         }
         while(source.has("or"));
@@ -140,7 +162,7 @@ public class PropositionalFormula extends Formula
             else
             {
                 source.nextToken();
-                phi = new PropositionalFormula(Operator.AND, parseSubFormula(source), phi);
+                phi = compose(Operator.AND, parseSubFormula(source), phi);
             }
         }
         while(source.has("and"));
@@ -163,11 +185,11 @@ public class PropositionalFormula extends Formula
             if(source.has("not"))
             {
                 source.nextToken();
-                return new PropositionalFormula(Operator.NOT, parseSubFormula(source));
+                return compose(Operator.NOT, parseSubFormula(source));
             }
             else 
             {
-                PropositionalAtom a = new PropositionalAtom(source.sval);
+                PropositionalAtom a = source.atom();
                 source.nextToken();
                 return new PropositionalFormula(a);
             }
@@ -220,6 +242,49 @@ public class PropositionalFormula extends Formula
             return child[0];
     }
     
+    /**
+     * Returns this formula in the syntax of agent programs, from which it
+     * can be parsed back. Since the parser makes the last operand of a
+     * conjunction or disjunction its first term, the operands of each
+     * binary connective are written in reverse order, so that the formula
+     * parsed back has exactly the structure of this formula.
+     * 
+     * @return the source text of this formula
+     * @throws IllegalArgumentException if the formula contains operators
+     *         other than negation, conjunction, and disjunction
+     */
+    public String toSource()
+    {
+        StringBuilder s = new StringBuilder();
+        source(this, s);
+        return s.toString();
+    }
+    
+    /**
+     * Appends the source text of a formula to the given string builder.
+     */
+    private static void source(Formula phi, StringBuilder s)
+    {
+        Operator op = phi.operator();
+        if(op==null)
+            s.append(phi);
+        else if(op==Operator.NOT)
+        {
+            s.append("not ");
+            source(phi.term(0), s);
+        }
+        else if(op==Operator.AND || op==Operator.OR)
+        {
+            s.append('(');
+            source(phi.term(1), s);
+            s.append(op==Operator.AND ? " and " : " or ");
+            source(phi.term(0), s);
+            s.append(')');
+        }
+        else
+            throw new IllegalArgumentException("No source syntax for " + op);
+    }
+    
     /**
      * Generates a random propositional formulas using atoms from the
      * provided atom set.
@@ -232,21 +297,65 @@ public class PropositionalFormula extends Formula
      */
     public static PropositionalFormula random(double p, PropositionalAtom[] atoms)
     {
-        if(Math.random()<p)
+        return random(p, Integer.MAX_VALUE, atoms, RANDOM);
+    }
+    
+    /** The source of randomness of the formulas generated without a seed. */
+    private static final Random RANDOM = new Random();
+    
+    /**
+     * Generates a random propositional formula using atoms from the
+     * provided atom set, drawing from the given source of randomness,
+     * so that the same formulas are generated from the same seed.
+     * 
+     * @param p a parameter controlling the expected depth of the formula,
+     *   0 &lt; p &lt; 1.
+     * @param atoms a set of propositional atoms that can be used to construct
+     *   the random formula
+     * @param random a source of randomness
+     * @return a random propositional formula
+     */
+    public static PropositionalFormula random(double p, PropositionalAtom[] atoms, Random random)
+    {
+        return random(p, Integer.MAX_VALUE, atoms, random);
+    }
+    
+    /**
+     * Generates a random propositional formula of bounded depth using atoms
+     * from the provided atom set, drawing from the given source of randomness.
+     * Each node of the formula, above the maximum depth, is a connective
+     * with probability <var>p</var>, i.e., one of negation, conjunction,
+     * and disjunction with equal probability, and an atom otherwise.
+     * 
+     * @param p the probability that a node is a connective, 0 &lt; p &lt; 1;
+     *   the expected number of nodes is finite if p &lt; 3/5.
+     * @param depth the maximum depth of the formula, 0 for an atom
+     * @param atoms a set of propositional atoms that can be used to construct
+     *   the random formula
+     * @param random a source of randomness
+     * @return a random propositional formula
+     */
+    public static PropositionalFormula random(double p, int depth,
+        PropositionalAtom[] atoms, Random random)
+    {
+        if(depth>0 && random.nextDouble()<p)
         {
-            switch((int) Math.floor(Math.random()*3.0))
+            switch(random.nextInt(3))
             {
                 case 0:
-                    return new PropositionalFormula(Operator.NOT, random(p, atoms));
+                    return new PropositionalFormula(Operator.NOT,
+                            random(p, depth - 1, atoms, random));
                 case 1:
                     return new PropositionalFormula(Operator.AND,
-                            random(p, atoms), random(p, atoms));
-                case 2:
+                            random(p, depth - 1, atoms, random),
+                            random(p, depth - 1, atoms, random));
+                default:
                     return new PropositionalFormula(Operator.OR,
-                            random(p, atoms), random(p, atoms));
-            }            
+                            random(p, depth - 1, atoms, random),
+                            random(p, depth - 1, atoms, random));
+            }
         }
-        return new PropositionalFormula(atoms[(int) Math.floor(Math.random()*atoms.length)]);
+        return new PropositionalFormula(atoms[random.nextInt(atoms.length)]);
     }
 }
 
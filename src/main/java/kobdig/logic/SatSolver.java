@@ -0,0 +1,479 @@
+/*
+ * SatSolver.java
+ *
+ * Created on October 18, 2026, 8:40 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.logic;
+
+import kobdig.agent.Deadline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A satisfiability solver for sets of clauses.
+ * <p>Variables and literals are numbered as in a {@link ClauseSet}, from
+ * which crisp propositional formulas may be translated into clauses.</p>
+ * <p>The solver is a conflict-driven clause-learning one, with two watched
+ * literals per clause, first-UIP learning, an activity-based choice of
+ * the decision variables, which are given their last value first, and
+ * restarts after a number of conflicts following the Luby sequence.
+ * It can be called repeatedly under different <em>assumptions</em>, i.e.,
+ * literals which are temporarily required to be true; the learned clauses
+ * are kept from a call to the next.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class SatSolver
+{
+    /** The number of variables. */
+    protected int variables;
+
+    /** The clauses, original and learned. */
+    protected List<int[]> clauses = new ArrayList<int[]>();
+
+    /** For every literal, the indices of the clauses watching it. */
+    protected List<List<Integer>> watches = new ArrayList<List<Integer>>();
+
+    /** The value of each variable: 1 (true), -1 (false), or 0 (unassigned). */
+    protected byte[] assignment = new byte[1];
+
+    /** The decision level at which each variable was assigned. */
+    protected int[] level = new int[1];
+
+    /** The clause which implied the value of each variable, or -1. */
+    protected int[] reason = new int[1];
+
+    /** The activity of each variable, used to choose decisions. */
+    protected double[] activity = new double[1];
+
+    /** The amount by which the activity of a variable is bumped. */
+    protected double bump = 1.0;
+
+    /** The last value assigned to each variable, tried first when deciding it. */
+    protected byte[] phase = new byte[1];
+
+    /** The assigned literals, in chronological order. */
+    protected int[] trail = new int[1];
+
+    /** The number of assigned literals. */
+    protected int trailSize;
+
+    /** The position in the trail of the first literal of each decision level. */
+    protected List<Integer> trailLimits = new ArrayList<Integer>();
+
+    /** The position in the trail of the next literal to propagate. */
+    protected int head;
+
+    /** False if the clauses are known to be unsatisfiable. */
+    protected boolean ok = true;
+
+    /** The model found by the last successful call to {@link #solve(int...)}. */
+    protected byte[] model;
+
+    /** Creates a solver without variables and clauses. */
+    public SatSolver()
+    {
+        watches.add(new ArrayList<Integer>());
+        watches.add(new ArrayList<Integer>());
+    }
+
+    /**
+     * Creates a solver for the given clauses, with the same variables.
+     *
+     * @param cnf a clause set
+     */
+    public SatSolver(ClauseSet cnf)
+    {
+        this();
+        while(variables<cnf.variableCount())
+            newVariable();
+        Iterator<int[]> i = cnf.clauses().iterator();
+        while(i.hasNext())
+            addClause(i.next());
+    }
+
+    /**
+     * Returns the index of a literal in the watch lists.
+     */
+    private static int index(int lit)
+    {
+        return lit>0 ? 2*lit : -2*lit + 1;
+    }
+
+    /**
+     * Returns the value of a literal: 1 (true), -1 (false), or 0 (unassigned).
+     */
+    private int value(int lit)
+    {
+        int v = assignment[Math.abs(lit)];
+        return lit>0 ? v : -v;
+    }
+
+    /**
+     * Creates a new variable.
+     *
+     * @return the new variable
+     */
+    public int newVariable()
+    {
+        variables++;
+        if(variables==assignment.length)
+        {
+            int n = 2*assignment.length;
+            assignment = Arrays.copyOf(assignment, n);
+            level = Arrays.copyOf(level, n);
+            reason = Arrays.copyOf(reason, n);
+            activity = Arrays.copyOf(activity, n);
+            phase = Arrays.copyOf(phase, n);
+            trail = Arrays.copyOf(trail, n);
+        }
+        watches.add(new ArrayList<Integer>());
+        watches.add(new ArrayList<Integer>());
+        return variables;
+    }
+
+    /**
+     * Returns the number of variables.
+     */
+    public int variableCount()
+    {
+        return variables;
+    }
+
+    /**
+     * Adds a clause, i.e., a disjunction of literals.
+     * Clauses may only be added when the solver is not solving.
+     *
+     * @param lits the literals of the clause
+     */
+    public void addClause(int... lits)
+    {
+        if(!ok)
+            return;
+        // Remove duplicate and false literals, and detect tautologies:
+        int[] c = new int[lits.length];
+        int n = 0;
+        for(int i = 0; i<lits.length; i++)
+        {
+            int lit = lits[i];
+            if(value(lit)>0)
+                return;
+            if(value(lit)<0)
+                continue;
+            boolean duplicate = false;
+            for(int j = 0; j<n; j++)
+            {
+                if(c[j]==-lit)
+                    return;
+                duplicate |= c[j]==lit;
+            }
+            if(!duplicate)
+                c[n++] = lit;
+        }
+        if(n==0)
+            ok = false;
+        else if(n==1)
+        {
+            assign(c[0], -1);
+            ok = propagate()<0;
+        }
+        else
+            attach(Arrays.copyOf(c, n));
+    }
+
+    /**
+     * Adds a clause to the data base and watches its first two literals.
+     *
+     * @return the index of the clause
+     */
+    private int attach(int[] c)
+    {
+        int k = clauses.size();
+        clauses.add(c);
+        watches.get(index(c[0])).add(k);
+        watches.get(index(c[1])).add(k);
+        return k;
+    }
+
+    /**
+     * Assigns a literal, with the given reason.
+     */
+    private void assign(int lit, int why)
+    {
+        int v = Math.abs(lit);
+        assignment[v] = (byte) (lit>0 ? 1 : -1);
+        level[v] = trailLimits.size();
+        reason[v] = why;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Propagates the assigned literals.
+     *
+     * @return the index of a conflicting clause, or -1 if there is no conflict
+     */
+    private int propagate()
+    {
+        while(head<trailSize)
+        {
+            int falsified = -trail[head++];
+            List<Integer> watching = watches.get(index(falsified));
+            int i = 0, j = 0;
+            int conflict = -1;
+            while(i<watching.size())
+            {
+                int k = watching.get(i++);
+                int[] c = clauses.get(k);
+                if(conflict>=0)
+                {
+                    watching.set(j++, k);
+                    continue;
+                }
+                // Make sure the falsified literal is c[1]:
+                if(c[0]==falsified)
+                {
+                    c[0] = c[1];
+                    c[1] = falsified;
+                }
+                if(value(c[0])>0)
+                {
+                    watching.set(j++, k);
+                    continue;
+                }
+                // Look for a new literal to watch:
+                boolean found = false;
+                for(int m = 2; m<c.length && !found; m++)
+                    if(value(c[m])>=0)
+                    {
+                        c[1] = c[m];
+                        c[m] = falsified;
+                        watches.get(index(c[1])).add(k);
+                        found = true;
+                    }
+                if(found)
+                    continue;
+                watching.set(j++, k);
+                if(value(c[0])<0)
+                    conflict = k;
+                else
+                    assign(c[0], k);
+            }
+            while(watching.size()>j)
+                watching.remove(watching.size() - 1);
+            if(conflict>=0)
+                return conflict;
+        }
+        return -1;
+    }
+
+    /**
+     * Undoes all the assignments above the given decision level.
+     */
+    private void backtrack(int target)
+    {
+        if(trailLimits.size()<=target)
+            return;
+        int limit = trailLimits.get(target);
+        for(int i = trailSize - 1; i>=limit; i--)
+        {
+            int v = Math.abs(trail[i]);
+            phase[v] = assignment[v];
+            assignment[v] = 0;
+        }
+        trailSize = head = limit;
+        while(trailLimits.size()>target)
+            trailLimits.remove(trailLimits.size() - 1);
+    }
+
+    /**
+     * Analyzes a conflict and derives the first-UIP learned clause.
+     *
+     * @return the learned clause, whose first literal is the asserting one
+     *         and whose second literal, if any, has the highest level among
+     *         the others
+     */
+    private int[] analyze(int conflict)
+    {
+        boolean[] seen = new boolean[variables + 1];
+        List<Integer> learned = new ArrayList<Integer>();
+        learned.add(0);
+        int pending = 0;
+        int p = 0;
+        int i = trailSize - 1;
+        int current = trailLimits.size();
+        do
+        {
+            int[] c = clauses.get(conflict);
+            for(int j = 0; j<c.length; j++)
+            {
+                int v = Math.abs(c[j]);
+                if(v!=Math.abs(p) && !seen[v] && level[v]>0)
+                {
+                    seen[v] = true;
+                    activity[v] += bump;
+                    if(level[v]==current)
+                        pending++;
+                    else
+                        learned.add(c[j]);
+                }
+            }
+            while(!seen[Math.abs(trail[i])])
+                i--;
+            p = trail[i--];
+            seen[Math.abs(p)] = false;
+            conflict = reason[Math.abs(p)];
+            pending--;
+        }
+        while(pending>0);
+        learned.set(0, -p);
+        bump *= 1.05;
+        if(bump>1e100)
+        {
+            // Rescale all the activities, to avoid overflows:
+            for(int v = 1; v<=variables; v++)
+                activity[v] *= 1e-100;
+            bump *= 1e-100;
+        }
+        int[] c = new int[learned.size()];
+        for(int j = 0; j<c.length; j++)
+            c[j] = learned.get(j);
+        // Put a literal of the highest level in the second position:
+        for(int j = 2; j<c.length; j++)
+            if(level[Math.abs(c[j])]>level[Math.abs(c[1])])
+            {
+                int t = c[1];
+                c[1] = c[j];
+                c[j] = t;
+            }
+        return c;
+    }
+
+    /**
+     * Checks whether the clauses are satisfiable under the given assumptions.
+     * After a successful call, {@link #modelValue(int)} tells the value of
+     * any literal in the model found.
+     *
+     * @param assumptions literals which are required to be true
+     * @return true if there is an assignment satisfying all the clauses
+     *         and the assumptions
+     */
+    public boolean solve(int... assumptions)
+    {
+        if(!ok)
+            return false;
+        backtrack(0);
+        if(propagate()>=0)
+        {
+            ok = false;
+            return false;
+        }
+        int restarts = 0;
+        int conflicts = 0;
+        while(true)
+        {
+            int conflict = propagate();
+            if(conflict>=0)
+            {
+                if(trailLimits.isEmpty())
+                {
+                    ok = false;
+                    return false;
+                }
+                conflicts++;
+                Deadline.check();
+                int[] c = analyze(conflict);
+                int target = c.length==1 ? 0 : level[Math.abs(c[1])];
+                backtrack(target);
+                if(c.length==1)
+                    assign(c[0], -1);
+                else
+                    assign(c[0], attach(c));
+                continue;
+            }
+            if(conflicts>=100*luby(restarts))
+            {
+                // Restart, keeping the learned clauses and the activities:
+                restarts++;
+                conflicts = 0;
+                backtrack(0);
+            }
+            // Decide the assumptions first, then the most active variable:
+            int d = trailLimits.size();
+            int lit = 0;
+            while(d<assumptions.length && lit==0)
+            {
+                int a = assumptions[d];
+                if(value(a)<0)
+                {
+                    backtrack(0);
+                    return false;
+                }
+                if(value(a)>0)
+                {
+                    // Already true: open an empty decision level.
+                    trailLimits.add(trailSize);
+                    d++;
+                }
+                else
+                    lit = a;
+            }
+            if(lit==0)
+            {
+                double best = -1.0;
+                for(int v = 1; v<=variables; v++)
+                    if(assignment[v]==0 && activity[v]>best)
+                    {
+                        best = activity[v];
+                        lit = phase[v]>0 ? v : -v;
+                    }
+                if(lit==0)
+                {
+                    model = Arrays.copyOf(assignment, variables + 1);
+                    backtrack(0);
+                    return true;
+                }
+            }
+            trailLimits.add(trailSize);
+            assign(lit, -1);
+        }
+    }
+
+    /**
+     * Returns the <var>i</var>-th term of the Luby sequence 1, 1, 2, 1, 1, 2,
+     * 4, 1, ..., which sets the number of conflicts between restarts.
+     */
+    private static int luby(int i)
+    {
+        int size = 1;
+        int power = 1;
+        while(size<i + 1)
+        {
+            size = 2*size + 1;
+            power *= 2;
+        }
+        while(size - 1!=i)
+        {
+            size = (size - 1)/2;
+            power /= 2;
+            i %= size;
+        }
+        return power;
+    }
+
+    /**
+     * Returns the value of the given literal in the model found by the last
+     * successful call to {@link #solve(int...)}.
+     */
+    public boolean modelValue(int lit)
+    {
+        int v = model[Math.abs(lit)];
+        return lit>0 ? v>0 : v<0;
+    }
+}
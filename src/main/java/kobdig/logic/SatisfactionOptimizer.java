@@ -0,0 +1,421 @@
+/*
+ * SatisfactionOptimizer.java
+ *
+ * Created on October 18, 2026, 7:30 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.logic;
+
+import kobdig.agent.Deadline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * An optimizer for the max-min fuzzy satisfaction problem: given a set
+ * of formulas &phi;<sub><var>i</var></sub>, with membership degrees
+ * &mu;<sub><var>i</var></sub>, find a fuzzy interpretation <i>I</i> which
+ * maximizes min<sub><var>i</var></sub> max(1 - &mu;<sub><var>i</var></sub>,
+ * <i>I</i>(&phi;<sub><var>i</var></sub>)).
+ * <p>Since the truth functions of the pre-defined operators only take
+ * minima, maxima and complements of their arguments, an optimal solution
+ * may always be found among the interpretations which assign to every atom
+ * a degree from a small set of <em>candidates</em>: 0, 0.5, 1, the membership
+ * degrees and the truth degrees of the constants, and their complements.
+ * The optimizer searches that set, either exhaustively, by branch and bound,
+ * using an upper bound on the satisfaction computed by interval evaluation
+ * of the formulas under a partial assignment, or approximately, by a local
+ * search; the exact search takes time exponential in the number of atoms
+ * in the worst case (see {@link #branchAndBound()}).</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class SatisfactionOptimizer
+{
+    /** The atoms, i.e., the variables of the problem. */
+    protected PropositionalAtom[] atom;
+
+    /** The candidate degrees for the atoms, in decreasing order. */
+    protected double[] candidate;
+
+    /** The complement of the membership degree of each formula. */
+    protected double[] slack;
+
+    /** The root node of each formula. */
+    protected int[] root;
+
+    /**
+     * The operator of each node: <code>null</code> for atoms and constants.
+     */
+    protected Operator[] op;
+
+    /** The children of each node. */
+    protected int[][] child;
+
+    /**
+     * The index of the atom of each atomic node, or -1 for constants
+     * and compound nodes.
+     */
+    protected int[] variable;
+
+    /** The truth degree of each constant node. */
+    protected double[] constant;
+
+    /** The lower bound of the truth degree of each node, during evaluation. */
+    private double[] lo;
+
+    /** The upper bound of the truth degree of each node, during evaluation. */
+    private double[] hi;
+
+    /** The degree assigned to each atom, or -1 if unassigned. */
+    private double[] value;
+
+    /** The best assignment found so far. */
+    private double[] best;
+
+    /** The satisfaction degree of the best assignment found so far. */
+    private double bestSat;
+
+    /**
+     * Creates an optimizer for the given formulas and membership degrees.
+     *
+     * @param formulas the formulas
+     * @param memberships the membership degree of each formula
+     */
+    public SatisfactionOptimizer(List<Formula> formulas, List<TruthDegree> memberships)
+    {
+        Map<Atom,Integer> index = new HashMap<Atom,Integer>();
+        List<PropositionalAtom> atoms = new ArrayList<PropositionalAtom>();
+        TreeSet<Double> candidates = new TreeSet<Double>();
+        candidates.add(0.0);
+        candidates.add(0.5);
+        candidates.add(1.0);
+        List<Operator> ops = new ArrayList<Operator>();
+        List<int[]> children = new ArrayList<int[]>();
+        List<Integer> variables = new ArrayList<Integer>();
+        List<Double> constants = new ArrayList<Double>();
+        root = new int[formulas.size()];
+        slack = new double[formulas.size()];
+        for(int i = 0; i<root.length; i++)
+        {
+            double mu = memberships.get(i).doubleValue();
+            slack[i] = 1.0 - mu;
+            candidates.add(mu);
+            candidates.add(1.0 - mu);
+            root[i] = compile(formulas.get(i), index, atoms, candidates,
+                ops, children, variables, constants);
+        }
+        atom = atoms.toArray(new PropositionalAtom[atoms.size()]);
+        candidate = new double[candidates.size()];
+        int k = candidate.length;
+        for(double c : candidates)
+            candidate[--k] = c;
+        int n = ops.size();
+        op = ops.toArray(new Operator[n]);
+        child = children.toArray(new int[n][]);
+        variable = new int[n];
+        constant = new double[n];
+        for(int i = 0; i<n; i++)
+        {
+            variable[i] = variables.get(i);
+            constant[i] = constants.get(i);
+        }
+        lo = new double[n];
+        hi = new double[n];
+        value = new double[atom.length];
+        best = new double[atom.length];
+    }
+
+    /**
+     * Compiles a formula into nodes, children first.
+     *
+     * @return the index of the root node of the formula
+     */
+    private static int compile(Formula f, Map<Atom,Integer> index,
+        List<PropositionalAtom> atoms, TreeSet<Double> candidates,
+        List<Operator> ops, List<int[]> children, List<Integer> variables,
+        List<Double> constants)
+    {
+        int[] c = new int[f.op==null ? 0 : f.op.arity()];
+        int v = -1;
+        double t = 0.0;
+        if(f.op!=null)
+            for(int i = 0; i<c.length; i++)
+                c[i] = compile(f.child[i], index, atoms, candidates,
+                    ops, children, variables, constants);
+        else if(f.isConstant())
+        {
+            t = Double.parseDouble(f.atom.toString());
+            candidates.add(t);
+            candidates.add(1.0 - t);
+        }
+        else
+        {
+            Integer i = index.get(f.atom);
+            if(i==null)
+            {
+                i = atoms.size();
+                index.put(f.atom, i);
+                atoms.add((PropositionalAtom) f.atom);
+            }
+            v = i;
+        }
+        ops.add(f.op);
+        children.add(c);
+        variables.add(v);
+        constants.add(t);
+        return ops.size() - 1;
+    }
+
+    /**
+     * Returns the atoms of the problem.
+     */
+    public PropositionalAtom[] atoms()
+    {
+        return atom;
+    }
+
+    /**
+     * Returns the satisfaction degree of the last solution found.
+     */
+    public TruthDegree satisfaction()
+    {
+        return new TruthDegree(bestSat);
+    }
+
+    /**
+     * Computes bounds on the truth degree of the given node,
+     * under the current partial assignment.
+     */
+    private void evaluate(int n)
+    {
+        Operator o = op[n];
+        if(o==null)
+        {
+            if(variable[n]<0)
+                lo[n] = hi[n] = constant[n];
+            else if(value[variable[n]]<0.0)
+            {
+                lo[n] = 0.0;
+                hi[n] = 1.0;
+            }
+            else
+                lo[n] = hi[n] = value[variable[n]];
+            return;
+        }
+        int[] c = child[n];
+        for(int i = 0; i<c.length; i++)
+            evaluate(c[i]);
+        if(o==Operator.NOT)
+        {
+            lo[n] = 1.0 - hi[c[0]];
+            hi[n] = 1.0 - lo[c[0]];
+        }
+        else if(o==Operator.AND)
+        {
+            lo[n] = Math.min(lo[c[0]], lo[c[1]]);
+            hi[n] = Math.min(hi[c[0]], hi[c[1]]);
+        }
+        else if(o==Operator.OR)
+        {
+            lo[n] = Math.max(lo[c[0]], lo[c[1]]);
+            hi[n] = Math.max(hi[c[0]], hi[c[1]]);
+        }
+        else if(o==Operator.XOR)
+        {
+            // (~x & y) | (x & ~y), whose arguments vary independently:
+            lo[n] = Math.max(Math.min(1.0 - hi[c[1]], lo[c[0]]), Math.min(lo[c[1]], 1.0 - hi[c[0]]));
+            hi[n] = Math.max(Math.min(1.0 - lo[c[1]], hi[c[0]]), Math.min(hi[c[1]], 1.0 - lo[c[0]]));
+        }
+        else
+        {
+            boolean known = true;
+            TruthDegree[] t = new TruthDegree[c.length];
+            for(int i = 0; i<c.length && known; i++)
+            {
+                known = lo[c[i]]==hi[c[i]];
+                t[i] = new TruthDegree(lo[c[i]]);
+            }
+            if(known)
+                lo[n] = hi[n] = o.truth(t).doubleValue();
+            else
+            {
+                lo[n] = 0.0;
+                hi[n] = 1.0;
+            }
+        }
+    }
+
+    /**
+     * Returns an upper bound on the satisfaction degree of the formulas
+     * under the current partial assignment, which is exact if the
+     * assignment is complete, stopping as soon as it is not greater than
+     * the given threshold.
+     */
+    private double bound(double threshold)
+    {
+        double t = 1.0;
+        for(int i = 0; i<root.length && t>threshold; i++)
+        {
+            evaluate(root[i]);
+            t = Math.min(t, Math.max(slack[i], hi[root[i]]));
+        }
+        return t;
+    }
+
+    /**
+     * Finds an optimal interpretation by branch and bound.
+     * The search starts from the interpretation found by a short
+     * {@link #localSearch(Random, int) local search}, whose satisfaction
+     * degree, e.g., at least 0.5 for formulas without constants, prunes
+     * from the start every partial assignment which cannot improve on it.
+     * Besides, an interpretation which satisfies a formula to a degree
+     * greater than 0.5 still satisfies it once rounded to a crisp one, i.e.,
+     * with degrees above 0.5 set to 1 and below 0.5 set to 0, as can be
+     * checked by induction on the minima, maxima, and complements
+     * which make up the truth functions; therefore, as soon as the best
+     * satisfaction degree found is at least 0.5, only the crisp assignments
+     * need to be searched. The search still takes time exponential in the
+     * number of atoms in the worst case, but its base is 2 instead of the
+     * number of candidates.
+     *
+     * @return an interpretation which satisfies the formulas to the
+     *         maximum degree
+     */
+    public PropositionalInterpretation branchAndBound()
+    {
+        localSearch(new Random(0), 1);
+        Arrays.fill(value, -1.0);
+        if(bestSat<1.0)
+            branch(0);
+        return interpretation(best);
+    }
+
+    /**
+     * Explores the assignments of the atoms from the given one onwards.
+     */
+    private void branch(int k)
+    {
+        Deadline.check();
+        if(k==atom.length)
+        {
+            double t = bound(bestSat);
+            if(t>bestSat)
+            {
+                bestSat = t;
+                System.arraycopy(value, 0, best, 0, value.length);
+            }
+            return;
+        }
+        for(int i = 0; i<candidate.length && bestSat<1.0; i++)
+        {
+            // Above 0.5, only crisp assignments need to be searched:
+            if(bestSat>=0.5 && candidate[i]>0.0 && candidate[i]<1.0)
+                continue;
+            value[k] = candidate[i];
+            if(bound(bestSat)>bestSat)
+                branch(k + 1);
+        }
+        value[k] = -1.0;
+    }
+
+    /**
+     * Returns the satisfaction degree of the formulas under the current
+     * complete assignment, and stores in <code>count[0]</code> the number
+     * of formulas which are satisfied exactly to that degree.
+     */
+    private double satisfaction(int[] count)
+    {
+        double t = 1.0;
+        int n = 0;
+        for(int i = 0; i<root.length; i++)
+        {
+            evaluate(root[i]);
+            double u = Math.max(slack[i], hi[root[i]]);
+            if(u<t)
+            {
+                t = u;
+                n = 1;
+            }
+            else if(u==t)
+                n++;
+        }
+        count[0] = n;
+        return t;
+    }
+
+    /**
+     * Finds a good, but not necessarily optimal, interpretation by
+     * hill climbing: starting from an assignment of 0.5 to all atoms, and
+     * then from random assignments, the degree of an atom is changed to the
+     * candidate which most improves the satisfaction degree or, on a tie,
+     * decreases the number of formulas satisfied just to that degree, until
+     * no further improvement is possible; the search is restarted the given
+     * number of times.
+     *
+     * @param random the source of randomness
+     * @param restarts the number of restarts
+     * @return an interpretation which satisfies the formulas to a high degree
+     */
+    public PropositionalInterpretation localSearch(Random random, int restarts)
+    {
+        Arrays.fill(best, 0.0);
+        bestSat = 0.0;
+        int[] count = new int[1];
+        for(int r = 0; r<=restarts && bestSat<1.0; r++)
+        {
+            for(int k = 0; k<atom.length; k++)
+                value[k] = r==0 ? 0.5 : candidate[random.nextInt(candidate.length)];
+            double t = satisfaction(count);
+            int n = count[0];
+            boolean improved = true;
+            while(improved && t<1.0)
+            {
+                Deadline.check();
+                improved = false;
+                for(int k = 0; k<atom.length; k++)
+                {
+                    double bestValue = value[k];
+                    for(int i = 0; i<candidate.length; i++)
+                    {
+                        value[k] = candidate[i];
+                        double u = satisfaction(count);
+                        if(u>t || (u==t && count[0]<n))
+                        {
+                            t = u;
+                            n = count[0];
+                            bestValue = candidate[i];
+                            improved = true;
+                        }
+                    }
+                    value[k] = bestValue;
+                }
+            }
+            if(t>bestSat)
+            {
+                bestSat = t;
+                System.arraycopy(value, 0, best, 0, value.length);
+            }
+        }
+        return interpretation(best);
+    }
+
+    /**
+     * Builds the interpretation corresponding to the given assignment.
+     */
+    private PropositionalInterpretation interpretation(double[] v)
+    {
+        PropositionalInterpretation itp = new PropositionalInterpretation();
+        for(int k = 0; k<atom.length; k++)
+            itp.assign(atom[k], new TruthDegree(v[k]));
+        return itp;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * LatencyHistogram.java
+ *
+ * Created on October 19, 2026, 7:00 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, from which percentiles can be estimated.
+ * <p>Latencies are counted in log-linear buckets: each power of two is
+ * split into 16 buckets of equal width, so that the relative error of
+ * a percentile is at most 1/16, whatever the magnitude of the latencies;
+ * latencies below 32 ns are counted exactly. Any number of threads may
+ * record latencies without locking.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class LatencyHistogram
+{
+    /** The number of bits of a latency, after the leading one, which select its bucket. */
+    private static final int SUB_BITS = 4;
+
+    /** The number of buckets per power of two. */
+    private static final int SUB = 1 << SUB_BITS;
+
+    /** The counts of the buckets. */
+    private final AtomicLongArray counts = new AtomicLongArray(64*SUB);
+
+    /** The number of latencies recorded. */
+    private final AtomicLong count = new AtomicLong();
+
+    /** The sum of the latencies recorded, in nanoseconds. */
+    private final AtomicLong total = new AtomicLong();
+
+    /** The longest latency recorded, in nanoseconds. */
+    private final AtomicLong max = new AtomicLong();
+
+    /** Creates an empty histogram. */
+    public LatencyHistogram()
+    {
+    }
+
+    /**
+     * Returns the bucket of a latency.
+     */
+    private static int bucket(long v)
+    {
+        if(v<2*SUB)
+            return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        return (exp - SUB_BITS + 1)*SUB + (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+    }
+
+    /**
+     * Returns the smallest latency of a bucket.
+     */
+    private static long lowest(int b)
+    {
+        if(b<2*SUB)
+            return b;
+        int exp = b/SUB + SUB_BITS - 1;
+        return (long) (SUB + b%SUB) << (exp - SUB_BITS);
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if(nanos<0)
+            nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m = max.get();
+        while(nanos>m && !max.compareAndSet(m, nanos))
+            m = max.get();
+    }
+
+    /**
+     * Forgets all the latencies recorded; latencies recorded by other threads
+     * while the histogram is being reset may be partially forgotten.
+     */
+    public void reset()
+    {
+        for(int b = 0; b<counts.length(); b++)
+            counts.set(b, 0);
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     */
+    public long count()
+    {
+        return count.get();
+    }
+
+    /**
+     * Returns the average latency, in microseconds.
+     */
+    public double mean()
+    {
+        long n = count.get();
+        return n==0 ? 0.0 : total.get()/1000.0/n;
+    }
+
+    /**
+     * Returns the longest latency, in microseconds.
+     */
+    public double max()
+    {
+        return max.get()/1000.0;
+    }
+
+    /**
+     * Returns an estimate of the given percentile of the latencies,
+     * in microseconds: the middle of the bucket containing it.
+     *
+     * @param p a fraction in [0, 1], e.g., 0.99 for the 99th percentile
+     * @return the estimated percentile, or 0 if no latency has been recorded
+     */
+    public double percentile(double p)
+    {
+        long n = 0;
+        for(int b = 0; b<counts.length(); b++)
+            n += counts.get(b);
+        if(n==0)
+            return 0.0;
+        long rank = Math.max(1, (long) Math.ceil(p*n));
+        long seen = 0;
+        for(int b = 0; b<counts.length(); b++)
+        {
+            seen += counts.get(b);
+            if(seen>=rank)
+            {
+                long low = lowest(b);
+                long high = b + 1<counts.length() ? lowest(b + 1) : Long.MAX_VALUE;
+                return Math.min(low + (high - low)/2.0, max.get())/1000.0;
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Returns a string representation of this histogram.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%d, avg %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+            count(), mean(), percentile(0.5), percentile(0.99), max());
+    }
+}
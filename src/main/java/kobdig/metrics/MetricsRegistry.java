@@ -0,0 +1,328 @@
+/*
+ * MetricsRegistry.java
+ *
+ * Created on October 19, 2026, 8:00 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * A registry of named counters and latency histograms, which any number of
+ * threads may update without locking.
+ * <p>The registry may be enabled or disabled as a whole: the probes which
+ * update it are expected to check {@link #isEnabled()} first, so that they
+ * cost no more than reading a field while it is disabled.</p>
+ * <p>The metrics may be printed as text, on demand or periodically, and
+ * read through JMX, once the registry has been registered as an MBean:
+ * a counter is an attribute named after it, while a histogram
+ * <code>h</code> gives the attributes <code>h.count</code>,
+ * <code>h.mean</code>, <code>h.p50</code>, <code>h.p99</code>, and
+ * <code>h.max</code>, in microseconds; the attribute
+ * <code>Enabled</code> enables or disables the registry.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class MetricsRegistry implements DynamicMBean
+{
+    /** The counters, by name. */
+    private final Map<String,LongAdder> counters = new LinkedHashMap<String,LongAdder>();
+
+    /** The histograms, by name. */
+    private final Map<String,LatencyHistogram> histograms = new LinkedHashMap<String,LatencyHistogram>();
+
+    /** True if the metrics are being collected. */
+    private volatile boolean enabled;
+
+    /** Creates an empty, disabled registry. */
+    public MetricsRegistry()
+    {
+    }
+
+    /**
+     * Tells whether the metrics are being collected.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops collecting the metrics.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     */
+    public synchronized LongAdder counter(String name)
+    {
+        LongAdder c = counters.get(name);
+        if(c==null)
+        {
+            c = new LongAdder();
+            counters.put(name, c);
+        }
+        return c;
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     */
+    public synchronized LatencyHistogram histogram(String name)
+    {
+        LatencyHistogram h = histograms.get(name);
+        if(h==null)
+        {
+            h = new LatencyHistogram();
+            histograms.put(name, h);
+        }
+        return h;
+    }
+
+    /**
+     * Resets all the counters and histograms.
+     */
+    public synchronized void reset()
+    {
+        Iterator<LongAdder> i = counters.values().iterator();
+        while(i.hasNext())
+            i.next().reset();
+        Iterator<LatencyHistogram> j = histograms.values().iterator();
+        while(j.hasNext())
+            j.next().reset();
+    }
+
+    /**
+     * Prints the metrics, one per line.
+     *
+     * @param out the stream on which to print them
+     */
+    public void dump(PrintStream out)
+    {
+        out.print(toString());
+        out.flush();
+    }
+
+    /**
+     * Starts printing the metrics periodically, on a thread of its own.
+     *
+     * @param out the stream on which to print them
+     * @param period the time between two dumps, in milliseconds
+     * @return the timer of the dumps, which stops them when cancelled
+     */
+    public Timer startDump(final PrintStream out, long period)
+    {
+        Timer timer = new Timer("metrics-dump", true);
+        timer.scheduleAtFixedRate(new TimerTask()
+        {
+            public void run()
+            {
+                dump(out);
+            }
+        }, period, period);
+        return timer;
+    }
+
+    /**
+     * Registers this registry as an MBean of the platform MBean server.
+     *
+     * @param name the object name of the MBean, e.g.,
+     *        <code>kobdig:type=Metrics</code>
+     * @throws JMException if the MBean cannot be registered
+     */
+    public void register(String name) throws JMException
+    {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    /**
+     * Returns the value of an attribute of the MBean.
+     */
+    public synchronized Object getAttribute(String attribute) throws AttributeNotFoundException
+    {
+        if(attribute.equals("Enabled"))
+            return Boolean.valueOf(enabled);
+        LongAdder c = counters.get(attribute);
+        if(c!=null)
+            return Long.valueOf(c.sum());
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram h = dot<0 ? null : histograms.get(attribute.substring(0, dot));
+        if(h!=null)
+        {
+            String statistic = attribute.substring(dot + 1);
+            if(statistic.equals("count"))
+                return Long.valueOf(h.count());
+            if(statistic.equals("mean"))
+                return Double.valueOf(h.mean());
+            if(statistic.equals("p50"))
+                return Double.valueOf(h.percentile(0.5));
+            if(statistic.equals("p99"))
+                return Double.valueOf(h.percentile(0.99));
+            if(statistic.equals("max"))
+                return Double.valueOf(h.max());
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    /**
+     * Sets the value of an attribute of the MBean; only
+     * <code>Enabled</code> may be set.
+     */
+    public void setAttribute(Attribute attribute)
+        throws AttributeNotFoundException, InvalidAttributeValueException
+    {
+        if(!attribute.getName().equals("Enabled"))
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        if(!(attribute.getValue() instanceof Boolean))
+            throw new InvalidAttributeValueException("Enabled must be a boolean");
+        setEnabled(((Boolean) attribute.getValue()).booleanValue());
+    }
+
+    /**
+     * Returns the values of the given attributes of the MBean,
+     * skipping those which do not exist.
+     */
+    public AttributeList getAttributes(String[] attributes)
+    {
+        AttributeList list = new AttributeList();
+        for(int i = 0; i<attributes.length; i++)
+        {
+            try
+            {
+                list.add(new Attribute(attributes[i], getAttribute(attributes[i])));
+            }
+            catch(AttributeNotFoundException e)
+            {
+                // Skip it.
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Sets the values of the given attributes of the MBean,
+     * skipping those which cannot be set.
+     */
+    public AttributeList setAttributes(AttributeList attributes)
+    {
+        AttributeList list = new AttributeList();
+        Iterator<Attribute> i = attributes.asList().iterator();
+        while(i.hasNext())
+        {
+            Attribute a = i.next();
+            try
+            {
+                setAttribute(a);
+                list.add(a);
+            }
+            catch(JMException e)
+            {
+                // Skip it.
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Invokes an operation of the MBean: <code>reset</code>, or
+     * <code>dump</code>, which returns the metrics as text.
+     */
+    public Object invoke(String action, Object[] params, String[] signature)
+        throws ReflectionException
+    {
+        if(action.equals("reset"))
+        {
+            reset();
+            return null;
+        }
+        if(action.equals("dump"))
+            return toString();
+        throw new ReflectionException(new NoSuchMethodException(action));
+    }
+
+    /**
+     * Returns the description of the MBean, with an attribute for each
+     * counter and statistic of a histogram.
+     */
+    public synchronized MBeanInfo getMBeanInfo()
+    {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        attributes.add(new MBeanAttributeInfo("Enabled", "boolean",
+            "True if the metrics are being collected", true, true, true));
+        Iterator<String> i = counters.keySet().iterator();
+        while(i.hasNext())
+            attributes.add(new MBeanAttributeInfo(i.next(), "long", "Counter", true, false, false));
+        i = histograms.keySet().iterator();
+        while(i.hasNext())
+        {
+            String name = i.next();
+            attributes.add(new MBeanAttributeInfo(name + ".count", "long",
+                "Number of latencies", true, false, false));
+            String[] statistics = { "mean", "p50", "p99", "max" };
+            for(int k = 0; k<statistics.length; k++)
+                attributes.add(new MBeanAttributeInfo(name + "." + statistics[k], "double",
+                    "Latency (" + statistics[k] + "), in microseconds", true, false, false));
+        }
+        MBeanOperationInfo[] operations = {
+            new MBeanOperationInfo("reset", "Resets all the metrics",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+            new MBeanOperationInfo("dump", "Returns the metrics as text",
+                new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO)
+        };
+        return new MBeanInfo(getClass().getName(), "Metrics of the reasoning core",
+            attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+            null, operations, null);
+    }
+
+    /**
+     * Returns the metrics, one per line.
+     */
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder s = new StringBuilder();
+        Iterator<Map.Entry<String,LongAdder>> i = counters.entrySet().iterator();
+        while(i.hasNext())
+        {
+            Map.Entry<String,LongAdder> e = i.next();
+            s.append(e.getKey()).append('\t').append(e.getValue().sum()).append('\n');
+        }
+        Iterator<Map.Entry<String,LatencyHistogram>> j = histograms.entrySet().iterator();
+        while(j.hasNext())
+        {
+            Map.Entry<String,LatencyHistogram> e = j.next();
+            s.append(e.getKey()).append('\t').append(e.getValue()).append('\n');
+        }
+        return s.toString();
+    }
+}
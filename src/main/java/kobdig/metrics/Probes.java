@@ -0,0 +1,126 @@
+/*
+ * Probes.java
+ *
+ * Created on October 19, 2026, 8:20 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+
+/**
+ * The probes of the reasoning core, which update the metrics of a global
+ * registry.
+ * <p>The registry is disabled by default, in which case a probe costs
+ * a single read of a volatile field. It is enabled by setting the system
+ * property <code>kobdig.metrics</code> to <code>true</code>, which also
+ * registers it as the MBean <code>kobdig:type=Metrics</code>; if the
+ * system property <code>kobdig.metrics.dump</code> is set to a number of
+ * seconds, the metrics are also printed on the standard error
+ * at that interval.</p>
+ * <p>A timed section is written as follows:
+ * <pre>
+ *     long began = Probes.start();
+ *     ...
+ *     Probes.stop(Probes.NECESSITY, began);
+ * </pre>
+ * where nothing is recorded if the registry was disabled at the start.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public final class Probes
+{
+    /** The global registry. */
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    /**
+     * The number of entailment checks performed by fact bases: one for each
+     * call of {@link kobdig.agent.FactBase#models(kobdig.agent.Fact)}, e.g.,
+     * for each &alpha;-cut checked by the syntactic path of a necessity query,
+     * one for each level checked on the compiled circuits, and one for each
+     * necessity query answered by a single scan of a possibility distribution.
+     */
+    public static final LongAdder ENTAILMENT_CHECKS = REGISTRY.counter("FactBase.models");
+
+    /** The latencies of the necessity queries to possibilistic fact bases. */
+    public static final LatencyHistogram NECESSITY = REGISTRY.histogram("PossibilisticFactBase.necessity");
+
+    /** The latencies of the simplifications of possibilistic fact bases. */
+    public static final LatencyHistogram SIMPLIFY = REGISTRY.histogram("PossibilisticFactBase.simplify");
+
+    /** The latencies of the belief updates of agents, deliberation included. */
+    public static final LatencyHistogram UPDATE_BELIEFS = REGISTRY.histogram("Agent.updateBeliefs");
+
+    /** The latencies of the desire updates of agents. */
+    public static final LatencyHistogram UPDATE_DESIRES = REGISTRY.histogram("Agent.updateDesires");
+
+    /** The latencies of the obligation updates of agents. */
+    public static final LatencyHistogram UPDATE_OBLIGATIONS = REGISTRY.histogram("Agent.updateObligations");
+
+    /** The latencies of the goal updates of agents. */
+    public static final LatencyHistogram UPDATE_GOALS = REGISTRY.histogram("Agent.updateGoals");
+
+    /** The latencies of the Quine-McCluskey simplifications of Boolean formulas. */
+    public static final LatencyHistogram BOOLEAN_SIMPLIFY = REGISTRY.histogram("BooleanFormula.simplify");
+
+    static
+    {
+        if(Boolean.getBoolean("kobdig.metrics"))
+        {
+            REGISTRY.setEnabled(true);
+            try
+            {
+                REGISTRY.register("kobdig:type=Metrics");
+            }
+            catch(JMException e)
+            {
+                System.err.println("Could not register the metrics: " + e);
+            }
+        }
+        long seconds = Long.getLong("kobdig.metrics.dump", 0L).longValue();
+        if(seconds>0)
+            REGISTRY.startDump(System.err, 1000*seconds);
+    }
+
+    /** This class cannot have instances. */
+    private Probes()
+    {
+    }
+
+    /**
+     * Tells whether the probes are enabled.
+     */
+    public static boolean enabled()
+    {
+        return REGISTRY.isEnabled();
+    }
+
+    /**
+     * Starts a timed section.
+     *
+     * @return the current time, as given by {@link System#nanoTime()},
+     *         or 0 if the probes are disabled
+     */
+    public static long start()
+    {
+        return REGISTRY.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Ends a timed section, recording its latency in the given histogram,
+     * unless the probes were disabled at its start.
+     *
+     * @param h a histogram
+     * @param began the value returned by {@link #start()} at the start of the section
+     */
+    public static void stop(LatencyHistogram h, long began)
+    {
+        if(began!=0)
+            h.record(System.nanoTime() - began);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * AgentProcess.java
+ *
+ * Created on October 19, 2026, 10:50 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import kobdig.agent.Agent;
+
+/**
+ * An agent hosted by a runtime, together with its mailbox and metrics.
+ * <p>Whenever its mailbox is not empty, the process is scheduled to run
+ * on the runtime's threads; each run drains a batch of messages from the
+ * mailbox, revises the beliefs of the agent with each of them, in the order
+ * they were posted, and then deliberates once. Since a process runs on one
+ * thread at a time, the agent needs no synchronization, but it should not
+ * be accessed by other threads while the runtime is active. The errors
+ * raised by the agent are passed to the error handler of the runtime.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class AgentProcess implements Runnable
+{
+    /** The agent. */
+    protected final Agent agent;
+
+    /** The behavior of the agent, or <code>null</code>. */
+    protected final Behavior behavior;
+
+    /** The runtime hosting the agent. */
+    protected final AgentRuntime runtime;
+
+    /** The mailbox of the agent. */
+    protected final Mailbox mailbox = new Mailbox();
+
+    /** The metrics of the agent. */
+    protected final Metrics metrics = new Metrics();
+
+    /**
+     * Creates a process for the given agent.
+     */
+    AgentProcess(Agent agent, Behavior behavior, AgentRuntime runtime)
+    {
+        this.agent = agent;
+        this.behavior = behavior;
+        this.runtime = runtime;
+    }
+
+    /**
+     * Returns the agent.
+     */
+    public Agent agent()
+    {
+        return agent;
+    }
+
+    /**
+     * Returns the name of the agent.
+     */
+    public String name()
+    {
+        return agent.name();
+    }
+
+    /**
+     * Returns the mailbox of the agent.
+     */
+    public Mailbox mailbox()
+    {
+        return mailbox;
+    }
+
+    /**
+     * Returns the metrics of the agent.
+     */
+    public Metrics metrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Posts a message into the mailbox of the agent, scheduling it if idle.
+     */
+    void post(Message m)
+    {
+        metrics.recordMessage();
+        if(mailbox.post(m))
+            runtime.schedule(this);
+    }
+
+    /**
+     * Processes a batch of messages from the mailbox, then reschedules
+     * the process if more messages have been posted in the meantime.
+     */
+    public void run()
+    {
+        List<Message> batch = new ArrayList<Message>();
+        try
+        {
+            if(mailbox.drain(batch, runtime.batchSize())>0)
+                process(batch);
+        }
+        finally
+        {
+            runtime.processed(batch.size());
+            if(mailbox.release())
+                runtime.schedule(this);
+        }
+    }
+
+    /**
+     * Drops the messages in the mailbox, once the runtime has been shut
+     * down, so that they are no longer counted as pending.
+     */
+    void drop()
+    {
+        List<Message> dropped = new ArrayList<Message>();
+        do
+            mailbox.drain(dropped, Integer.MAX_VALUE);
+        while(mailbox.release());
+        runtime.processed(dropped.size());
+    }
+
+    /**
+     * Revises the beliefs of the agent with a batch of messages,
+     * deliberates, and acts.
+     */
+    private void process(List<Message> batch)
+    {
+        long began = System.nanoTime();
+        int failures = 0;
+        Iterator<Message> i = batch.iterator();
+        while(i.hasNext())
+        {
+            Message m = i.next();
+            try
+            {
+                agent.reviseBeliefs(m.fact(), m.trust());
+            }
+            catch(RuntimeException e)
+            {
+                runtime.errorHandler().error(agent, "revise beliefs with " + m, e);
+                failures++;
+            }
+        }
+        try
+        {
+            agent.deliberate();
+        }
+        catch(RuntimeException e)
+        {
+            runtime.errorHandler().error(agent, "deliberate", e);
+            failures = batch.size();
+        }
+        long ended = System.nanoTime();
+        metrics.recordBatch(batch, failures, began, ended);
+        runtime.metrics.recordBatch(batch, failures, began, ended);
+        if(behavior!=null)
+        {
+            try
+            {
+                behavior.act(agent, batch, runtime);
+            }
+            catch(RuntimeException e)
+            {
+                runtime.errorHandler().error(agent, "act", e);
+            }
+        }
+    }
+
+    /**
+     * Returns a string representation of this process.
+     */
+    @Override
+    public String toString()
+    {
+        return agent.name() + ": " + metrics;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * AgentRuntime.java
+ *
+ * Created on October 19, 2026, 11:10 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kobdig.agent.Agent;
+import kobdig.agent.Fact;
+import kobdig.logic.TruthDegree;
+
+/**
+ * A runtime hosting any number of agents, which run concurrently and tell
+ * each other facts.
+ * <p>Each agent is hosted by an {@link AgentProcess}, which is scheduled on
+ * the runtime's executor whenever its mailbox is not empty. By default,
+ * the executor is a work-stealing pool with as many threads as there are
+ * processors, in asynchronous mode, which suits tasks, like these,
+ * that are never joined; any other executor may be supplied instead,
+ * e.g., one which starts a virtual thread per task, on platforms which
+ * provide them.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class AgentRuntime
+{
+    /** The default maximum number of messages processed by a deliberation. */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    /** The executor running the agents. */
+    protected final ExecutorService executor;
+
+    /** The maximum number of messages processed by a deliberation. */
+    protected final int batchSize;
+
+    /** The processes hosting the agents, by name. */
+    protected final ConcurrentHashMap<String,AgentProcess> processes = new ConcurrentHashMap<String,AgentProcess>();
+
+    /** The metrics of the whole runtime. */
+    protected final Metrics metrics = new Metrics();
+
+    /** The number of messages posted and not yet processed. */
+    private final AtomicLong pending = new AtomicLong();
+
+    /** The lock on which threads wait for the runtime to become quiescent. */
+    private final Object quiescence = new Object();
+
+    /** The handler of the errors raised by the agents. */
+    private volatile ErrorHandler errorHandler = ErrorHandler.PRINT;
+
+    /**
+     * Creates a runtime on a work-stealing pool.
+     */
+    public AgentRuntime()
+    {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a runtime on the given executor, which is shut down
+     * along with the runtime.
+     *
+     * @param executor the executor which runs the agents
+     * @param batchSize the maximum number of messages processed by
+     *        a deliberation
+     */
+    public AgentRuntime(ExecutorService executor, int batchSize)
+    {
+        if(batchSize<1)
+            throw new IllegalArgumentException("Batch size must be positive");
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the maximum number of messages processed by a deliberation.
+     */
+    public int batchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Returns the handler of the errors raised by the agents.
+     */
+    public ErrorHandler errorHandler()
+    {
+        return errorHandler;
+    }
+
+    /**
+     * Sets the handler of the errors raised by the agents, which by default
+     * prints them on the standard error stream.
+     *
+     * @param handler the handler
+     */
+    public void setErrorHandler(ErrorHandler handler)
+    {
+        if(handler==null)
+            throw new NullPointerException("No error handler");
+        errorHandler = handler;
+    }
+
+    /**
+     * Hosts an agent without any behavior.
+     *
+     * @param agent an agent, whose name must be unique within the runtime
+     * @return the process hosting the agent
+     */
+    public AgentProcess spawn(Agent agent)
+    {
+        return spawn(agent, null);
+    }
+
+    /**
+     * Hosts an agent with the given behavior.
+     *
+     * @param agent an agent, whose name must be unique within the runtime
+     * @param behavior what the agent does after each deliberation,
+     *        or <code>null</code>
+     * @return the process hosting the agent
+     * @throws IllegalArgumentException if the runtime already hosts an agent
+     *         with the same name
+     */
+    public AgentProcess spawn(Agent agent, Behavior behavior)
+    {
+        AgentProcess p = new AgentProcess(agent, behavior, this);
+        if(processes.putIfAbsent(agent.name(), p)!=null)
+            throw new IllegalArgumentException("Duplicate agent " + agent.name());
+        return p;
+    }
+
+    /**
+     * Returns the process hosting the agent with the given name,
+     * or <code>null</code> if there is none.
+     */
+    public AgentProcess process(String name)
+    {
+        return processes.get(name);
+    }
+
+    /**
+     * Returns the processes hosting the agents.
+     */
+    public Collection<AgentProcess> processes()
+    {
+        return Collections.unmodifiableCollection(processes.values());
+    }
+
+    /**
+     * Tells a fact to an agent, on behalf of the given source, which may
+     * be another agent or any other entity.
+     *
+     * @param source the name of the source of the fact
+     * @param recipient the name of the agent to tell the fact to
+     * @param fact the fact
+     * @param trust the degree to which the recipient trusts the source
+     * @return false if there is no agent with the given name
+     * @throws IllegalStateException if the runtime has been shut down
+     */
+    public boolean tell(String source, String recipient, Fact fact, TruthDegree trust)
+    {
+        return tell(recipient, new Message(fact, trust, source));
+    }
+
+    /**
+     * Posts a message to an agent; the very same message is passed to the
+     * behavior of the agent (see {@link Behavior#act(Agent, java.util.List, AgentRuntime)})
+     * after the deliberation which follows its processing.
+     *
+     * @param recipient the name of the agent to post the message to
+     * @param message the message
+     * @return false if there is no agent with the given name
+     * @throws IllegalStateException if the runtime has been shut down
+     */
+    public boolean tell(String recipient, Message message)
+    {
+        AgentProcess p = processes.get(recipient);
+        if(p==null)
+            return false;
+        if(executor.isShutdown())
+            throw new IllegalStateException("Runtime shut down");
+        pending.incrementAndGet();
+        metrics.recordMessage();
+        p.post(message);
+        return true;
+    }
+
+    /**
+     * Tells a fact to all the agents but the source.
+     *
+     * @param source the name of the source of the fact
+     * @param fact the fact
+     * @param trust the degree to which the recipients trust the source
+     */
+    public void broadcast(String source, Fact fact, TruthDegree trust)
+    {
+        Iterator<String> i = processes.keySet().iterator();
+        while(i.hasNext())
+        {
+            String recipient = i.next();
+            if(!recipient.equals(source))
+                tell(source, recipient, fact, trust);
+        }
+    }
+
+    /**
+     * Schedules a process to run.
+     */
+    void schedule(AgentProcess p)
+    {
+        try
+        {
+            executor.execute(p);
+        }
+        catch(RejectedExecutionException e)
+        {
+            // The runtime has been shut down: the messages are dropped.
+            p.drop();
+        }
+    }
+
+    /**
+     * Records that the given number of messages have been processed.
+     */
+    void processed(int n)
+    {
+        if(pending.addAndGet(-n)==0)
+            synchronized(quiescence)
+            {
+                quiescence.notifyAll();
+            }
+    }
+
+    /**
+     * Returns the number of messages posted and not yet processed.
+     */
+    public long pending()
+    {
+        return pending.get();
+    }
+
+    /**
+     * Waits until all the messages posted have been processed, including
+     * those posted by the agents themselves while processing, or until
+     * the given time has elapsed.
+     *
+     * @param millis the maximum time to wait, in milliseconds
+     * @return true if the runtime is quiescent
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitQuiescence(long millis) throws InterruptedException
+    {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        synchronized(quiescence)
+        {
+            while(pending.get()>0)
+            {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                if(remaining<=0)
+                    return false;
+                quiescence.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the metrics of the whole runtime.
+     */
+    public Metrics metrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Shuts the runtime down: no more messages are accepted, the agents
+     * already scheduled process their next batch, and the messages left
+     * in their mailboxes are dropped. Deliberations in progress are not
+     * interrupted (see {@link #awaitTermination(long)}).
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until the agents have stopped, after the runtime has been shut
+     * down, or until the given time has elapsed.
+     *
+     * @param millis the maximum time to wait, in milliseconds
+     * @return true if the agents have stopped
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitTermination(long millis) throws InterruptedException
+    {
+        return executor.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a string representation of this runtime.
+     */
+    @Override
+    public String toString()
+    {
+        return "runtime(" + processes.size() + " agents): " + metrics;
+    }
+}
@@ -0,0 +1,700 @@
+/*
+ * AgentService.java
+ *
+ * Created on October 19, 2026, 7:20 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import kobdig.agent.Agent;
+import kobdig.agent.AplLexer;
+import kobdig.agent.AplTokenizer;
+import kobdig.agent.Fact;
+import kobdig.agent.MentalStateSnapshot;
+import kobdig.agent.Vocabulary;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.TruthDegree;
+import kobdig.metrics.LatencyHistogram;
+
+/**
+ * A service answering requests about the agents hosted by a runtime, sent
+ * by local clients over TCP connections to the loopback interface.
+ * <p>Requests and replies are lines of text; the replies to the requests
+ * sent on a connection are sent back in the same order. A request is one of:
+ * <ul>
+ * <li><code>knows</code>, <code>believes</code>, <code>desires</code>, or
+ *     <code>must</code> followed by the name of an agent and a formula,
+ *     answered with the degree to which the agent knows, believes, desires,
+ *     or must make the formula true;</li>
+ * <li><code>goals</code> followed by the name of an agent, answered with
+ *     the goals of the agent;</li>
+ * <li><code>update</code> followed by the name of an agent and a fact,
+ *     <code>formula [: trust]</code>, with which the agent revises its
+ *     beliefs; it is answered, with the number of the snapshot which
+ *     reflects it, once the agent has deliberated;</li>
+ * <li><code>agents</code>, answered with the names of the agents;</li>
+ * <li><code>stats</code>, answered with the latencies of the requests.</li>
+ * </ul>
+ * A reply is either <code>ok</code> followed by its value, or
+ * <code>error</code> followed by an explanation.</p>
+ * <p>A single thread serves all the connections, without blocking:
+ * the queries are answered from the latest snapshot of the mental state
+ * of the agent (see {@link Agent#snapshot()}), without waiting for it
+ * to finish a deliberation, while the updates are posted to the agent's
+ * mailbox; the updates which arrive while the agent is deliberating,
+ * from any number of clients, are thus coalesced into its next
+ * deliberation. The service thread only parses the queries about
+ * a formula, which are evaluated by a few threads of the service, apart
+ * from the deliberations of the agents, and sends their replies once they
+ * have been completed, so that a costly query holds up neither the other
+ * connections nor, waiting for a deliberation to end, itself.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class AgentService implements Closeable
+{
+    /** The longest request accepted, in bytes. */
+    public static final int MAX_REQUEST = 65536;
+
+    /**
+     * The maximum time, in milliseconds, for which closing the service waits
+     * for the agents of the runtime it created to finish their batch.
+     */
+    public static final long SHUTDOWN_TIMEOUT = 10000L;
+
+    /** The number of threads evaluating the queries. */
+    public static final int QUERY_THREADS = 2;
+
+    /** The runtime hosting the agents. */
+    protected final AgentRuntime runtime;
+
+    /** True if the runtime is shut down along with the service. */
+    private final boolean ownsRuntime;
+
+    /** The latencies of the queries. */
+    protected final LatencyHistogram reads = new LatencyHistogram();
+
+    /** The latencies of the updates. */
+    protected final LatencyHistogram updates = new LatencyHistogram();
+
+    /** The executor evaluating the queries, apart from the agents' deliberations. */
+    private final ExecutorService queries;
+
+    /** The selector of the connections. */
+    private final Selector selector;
+
+    /** The socket on which the service listens. */
+    private final ServerSocketChannel server;
+
+    /** The thread serving the connections. */
+    private final Thread loop;
+
+    /** The replies awaited by the updates posted and not yet processed. */
+    private final ConcurrentHashMap<Message,Reply> outstanding = new ConcurrentHashMap<Message,Reply>();
+
+    /** The connections with replies which have been completed by other threads. */
+    private final ConcurrentLinkedQueue<Connection> completed = new ConcurrentLinkedQueue<Connection>();
+
+    /** True once the service has been closed. */
+    private volatile boolean closed;
+
+    /** The behavior of the agents, which completes the replies to the updates. */
+    private final Behavior completion = new Behavior()
+    {
+        public void act(Agent agent, List<Message> batch, AgentRuntime runtime)
+        {
+            String value = "ok " + agent.snapshot().version();
+            Iterator<Message> i = batch.iterator();
+            while(i.hasNext())
+            {
+                Reply r = outstanding.remove(i.next());
+                if(r!=null)
+                    complete(r, value, updates);
+            }
+        }
+    };
+
+    /**
+     * A reply to a request, which may be completed later.
+     */
+    private static final class Reply
+    {
+        /** The connection on which the request was received. */
+        final Connection connection;
+
+        /** The time when the request was received. */
+        final long received;
+
+        /** The text of the reply, or <code>null</code> while not completed. */
+        volatile String text;
+
+        Reply(Connection connection, long received)
+        {
+            this.connection = connection;
+            this.received = received;
+        }
+    }
+
+    /**
+     * A connection from a client.
+     */
+    private static final class Connection
+    {
+        /** The channel of the connection. */
+        final SocketChannel channel;
+
+        /** The name of the client, as the source of the facts it tells. */
+        final String name;
+
+        /** The bytes received and not yet parsed. */
+        ByteBuffer input = ByteBuffer.allocate(4096);
+
+        /** The replies not yet sent, in the order of the requests. */
+        final ArrayDeque<Reply> replies = new ArrayDeque<Reply>();
+
+        /** The bytes to be sent. */
+        final ArrayDeque<ByteBuffer> output = new ArrayDeque<ByteBuffer>();
+
+        /** True once the client has stopped sending requests. */
+        boolean ended;
+
+        Connection(SocketChannel channel, String name)
+        {
+            this.channel = channel;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Creates a service, on a runtime of its own, listening on the given
+     * port of the loopback interface.
+     *
+     * @param port a port number, or 0 for any free port
+     * @throws IOException if the socket cannot be opened
+     */
+    public AgentService(int port) throws IOException
+    {
+        this(new AgentRuntime(), true, port);
+    }
+
+    /**
+     * Creates a service for the agents hosted by the given runtime through
+     * {@link #host(Agent)}, listening on the given port of the loopback
+     * interface.
+     *
+     * @param runtime the runtime hosting the agents, which is not shut down
+     *        along with the service
+     * @param port a port number, or 0 for any free port
+     * @throws IOException if the socket cannot be opened
+     */
+    public AgentService(AgentRuntime runtime, int port) throws IOException
+    {
+        this(runtime, false, port);
+    }
+
+    /**
+     * Creates a service and starts serving.
+     */
+    private AgentService(AgentRuntime runtime, boolean ownsRuntime, int port) throws IOException
+    {
+        this.runtime = runtime;
+        this.ownsRuntime = ownsRuntime;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try
+        {
+            server.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 50);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        catch(IOException e)
+        {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        queries = Executors.newFixedThreadPool(QUERY_THREADS, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "agent-service-query");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        loop = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                serve();
+            }
+        }, "agent-service");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /**
+     * Hosts an agent on the runtime, so that requests about it are served.
+     *
+     * @param agent an agent, whose name must be unique within the runtime
+     * @return the process hosting the agent
+     * @throws IllegalArgumentException if the runtime already hosts an agent
+     *         with the same name
+     */
+    public AgentProcess host(Agent agent)
+    {
+        return runtime.spawn(agent, completion);
+    }
+
+    /**
+     * Returns the runtime hosting the agents.
+     */
+    public AgentRuntime runtime()
+    {
+        return runtime;
+    }
+
+    /**
+     * Returns the port on which the service listens.
+     */
+    public int port()
+    {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the latencies of the queries.
+     */
+    public LatencyHistogram reads()
+    {
+        return reads;
+    }
+
+    /**
+     * Returns the latencies of the updates, from their arrival to the end
+     * of the deliberation which follows their processing.
+     */
+    public LatencyHistogram updates()
+    {
+        return updates;
+    }
+
+    /**
+     * Completes a reply, from any thread, and has it sent.
+     *
+     * @param r the reply
+     * @param text the text of the reply
+     * @param latencies the histogram recording the latency of the request
+     */
+    private void complete(Reply r, String text, LatencyHistogram latencies)
+    {
+        r.text = text;
+        latencies.record(System.nanoTime() - r.received);
+        completed.add(r.connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Serves the connections until the service is closed.
+     */
+    private void serve()
+    {
+        try
+        {
+            while(!closed)
+            {
+                selector.select();
+                Connection c;
+                while((c = completed.poll())!=null)
+                    flush(c);
+                Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+                while(i.hasNext())
+                {
+                    SelectionKey key = i.next();
+                    i.remove();
+                    if(!key.isValid())
+                        continue;
+                    if(key.isAcceptable())
+                        accept();
+                    else
+                    {
+                        c = (Connection) key.attachment();
+                        try
+                        {
+                            if(key.isReadable())
+                                read(c);
+                            if(key.isValid() && key.isWritable())
+                                flush(c);
+                        }
+                        catch(IOException e)
+                        {
+                            disconnect(c);
+                        }
+                    }
+                }
+            }
+        }
+        catch(IOException e)
+        {
+            if(!closed)
+                System.err.println("Agent service: " + e.getMessage());
+        }
+        finally
+        {
+            Iterator<SelectionKey> i = selector.keys().iterator();
+            while(i.hasNext())
+            {
+                try
+                {
+                    i.next().channel().close();
+                }
+                catch(IOException e)
+                {
+                    // Nothing more can be done.
+                }
+            }
+            try
+            {
+                selector.close();
+            }
+            catch(IOException e)
+            {
+                // Nothing more can be done.
+            }
+        }
+    }
+
+    /**
+     * Accepts a connection.
+     */
+    private void accept() throws IOException
+    {
+        SocketChannel ch = server.accept();
+        if(ch==null)
+            return;
+        ch.configureBlocking(false);
+        InetSocketAddress a = (InetSocketAddress) ch.socket().getRemoteSocketAddress();
+        Connection c = new Connection(ch, a.getAddress().getHostAddress() + ":" + a.getPort());
+        ch.register(selector, SelectionKey.OP_READ, c);
+    }
+
+    /**
+     * Closes a connection.
+     */
+    private void disconnect(Connection c)
+    {
+        try
+        {
+            c.channel.close();
+        }
+        catch(IOException e)
+        {
+            // Nothing more can be done.
+        }
+    }
+
+    /**
+     * Reads the requests received on a connection and serves them.
+     */
+    private void read(Connection c) throws IOException
+    {
+        if(!c.input.hasRemaining())
+        {
+            if(c.input.capacity()>=MAX_REQUEST)
+            {
+                disconnect(c);
+                return;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(2*c.input.capacity());
+            c.input.flip();
+            larger.put(c.input);
+            c.input = larger;
+        }
+        if(c.channel.read(c.input)<0)
+            c.ended = true;
+        ByteBuffer in = c.input;
+        int start = 0;
+        for(int p = 0; p<in.position(); p++)
+            if(in.get(p)=='\n')
+            {
+                serve(c, new String(in.array(), start, p - start, StandardCharsets.UTF_8));
+                start = p + 1;
+            }
+        if(c.ended && start<in.position())
+        {
+            serve(c, new String(in.array(), start, in.position() - start, StandardCharsets.UTF_8));
+            start = in.position();
+        }
+        in.flip();
+        in.position(start);
+        in.compact();
+        flush(c);
+    }
+
+    /**
+     * Serves a request received on a connection.
+     */
+    private void serve(Connection c, String request)
+    {
+        long received = System.nanoTime();
+        char[] text = request.toCharArray();
+        // A vocabulary of its own, so that the names sent by the clients
+        // are not retained once the request has been served:
+        AplTokenizer lexer = new AplLexer(text, 0, text.length, new Vocabulary());
+        final Reply r = new Reply(c, received);
+        try
+        {
+            if(lexer.nextToken()==AplTokenizer.TT_EOF)
+                return;
+            c.replies.add(r);
+            String command = lexer.requireWord("command");
+            lexer.nextToken();
+            if(command.equals("agents"))
+            {
+                requireEnd(lexer);
+                String s = "ok";
+                Iterator<String> i = runtime.processes.keySet().iterator();
+                while(i.hasNext())
+                    s += " " + i.next();
+                r.text = s;
+                return;
+            }
+            if(command.equals("stats"))
+            {
+                requireEnd(lexer);
+                r.text = "ok reads " + reads + "; updates " + updates;
+                return;
+            }
+            String name = lexer.requireWord("agent name");
+            lexer.nextToken();
+            AgentProcess p = runtime.process(name);
+            if(p==null)
+            {
+                r.text = "error unknown agent " + name;
+                return;
+            }
+            if(command.equals("update"))
+            {
+                Message m = Message.parse(lexer, c.name);
+                requireEnd(lexer);
+                outstanding.put(m, r);
+                try
+                {
+                    if(runtime.tell(name, m))
+                        return;
+                    r.text = "error unknown agent " + name;
+                }
+                catch(IllegalStateException e)
+                {
+                    r.text = "error " + e.getMessage();
+                }
+                outstanding.remove(m);
+                return;
+            }
+            final MentalStateSnapshot snapshot = p.agent().snapshot();
+            if(command.equals("goals"))
+            {
+                requireEnd(lexer);
+                r.text = "ok " + snapshot.goals();
+                reads.record(System.nanoTime() - received);
+                return;
+            }
+            final Fact fact = new Fact(new PropositionalFormula(lexer));
+            requireEnd(lexer);
+            final String query = command;
+            if(!query.equals("knows") && !query.equals("believes")
+                && !query.equals("desires") && !query.equals("must"))
+            {
+                r.text = "error unknown command " + command;
+                return;
+            }
+            try
+            {
+                queries.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        String text;
+                        try
+                        {
+                            text = "ok " + query(snapshot, query, fact);
+                        }
+                        catch(RuntimeException e)
+                        {
+                            text = "error " + e;
+                        }
+                        complete(r, text, reads);
+                    }
+                });
+            }
+            catch(RejectedExecutionException e)
+            {
+                r.text = "error Service closed";
+            }
+        }
+        catch(IOException e)
+        {
+            r.text = "error " + e.getMessage();
+        }
+        catch(RuntimeException e)
+        {
+            r.text = "error " + e;
+        }
+    }
+
+    /**
+     * Evaluates a query about a formula on a snapshot.
+     *
+     * @param snapshot the snapshot of the mental state of the agent
+     * @param command <code>knows</code>, <code>believes</code>,
+     *        <code>desires</code>, or <code>must</code>
+     * @param fact the fact the query is about
+     * @return the degree answering the query
+     */
+    private static TruthDegree query(MentalStateSnapshot snapshot, String command, Fact fact)
+    {
+        if(command.equals("knows"))
+            return snapshot.knows(fact);
+        if(command.equals("believes"))
+            return snapshot.believes(fact);
+        if(command.equals("desires"))
+            return snapshot.desires(fact);
+        return snapshot.must(fact);
+    }
+
+    /**
+     * Checks that the current token is the end of the request.
+     */
+    private static void requireEnd(AplTokenizer lexer) throws IOException
+    {
+        if(lexer.ttype!=AplTokenizer.TT_EOF)
+            throw new IOException("Unexpected " + lexer + " at the end of the request");
+    }
+
+    /**
+     * Sends the completed replies of a connection, in order, for as long
+     * as its channel accepts them without blocking.
+     */
+    private void flush(Connection c)
+    {
+        SelectionKey key = c.channel.keyFor(selector);
+        if(key==null || !key.isValid())
+            return;
+        while(!c.replies.isEmpty() && c.replies.peek().text!=null)
+            c.output.add(ByteBuffer.wrap((c.replies.poll().text + "\n").getBytes(StandardCharsets.UTF_8)));
+        try
+        {
+            while(!c.output.isEmpty())
+            {
+                c.channel.write(c.output.peek());
+                if(c.output.peek().hasRemaining())
+                    break;
+                c.output.poll();
+            }
+        }
+        catch(IOException e)
+        {
+            disconnect(c);
+            return;
+        }
+        if(c.ended && c.replies.isEmpty() && c.output.isEmpty())
+            disconnect(c);
+        else
+            key.interestOps((c.ended ? 0 : SelectionKey.OP_READ)
+                | (c.output.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+    }
+
+    /**
+     * Closes the service: the connections are closed, without waiting
+     * for the replies not yet sent, and the threads evaluating the queries
+     * stop once they are done; the runtime is shut down if it was
+     * created by the service, waiting at most {@link #SHUTDOWN_TIMEOUT}
+     * for its agents to stop.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    public void close() throws IOException
+    {
+        closed = true;
+        selector.wakeup();
+        try
+        {
+            loop.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        server.close();
+        queries.shutdown();
+        outstanding.clear();
+        if(ownsRuntime)
+        {
+            runtime.shutdown();
+            try
+            {
+                runtime.awaitTermination(SHUTDOWN_TIMEOUT);
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns a string representation of this service.
+     */
+    @Override
+    public String toString()
+    {
+        return "service(" + runtime.processes.size() + " agents): reads " + reads + "; updates " + updates;
+    }
+
+    /**
+     * Serves requests about the given agents until the process is terminated.
+     * <p>Usage: <code>java kobdig.runtime.AgentService port agent.apl ...</code>,
+     * where <code>port</code> is a port of the loopback interface,
+     * or 0 for any free port.</p>
+     *
+     * @param args the command-line arguments
+     * @throws Exception if the agents cannot be read
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length<2)
+        {
+            System.err.println("Usage: java kobdig.runtime.AgentService port agent.apl ...");
+            System.exit(2);
+        }
+        AgentService service = new AgentService(Integer.parseInt(args[0]));
+        for(int i = 1; i<args.length; i++)
+            service.host(new Agent(new FileInputStream(args[i])));
+        System.err.println("Listening on port " + service.port());
+        Thread.currentThread().join();
+    }
+}
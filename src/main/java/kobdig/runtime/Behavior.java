@@ -0,0 +1,35 @@
+/*
+ * Behavior.java
+ *
+ * Created on October 19, 2026, 10:40 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.util.List;
+
+import kobdig.agent.Agent;
+
+/**
+ * The behavior of an agent hosted by a runtime, i.e., what it does after
+ * each deliberation, such as telling facts to other agents
+ * (see {@link AgentRuntime#tell(String, String, kobdig.agent.Fact, kobdig.logic.TruthDegree)}).
+ * <p>A behavior is called by the thread running the agent, which may
+ * access the agent freely.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public interface Behavior
+{
+    /**
+     * Acts after a deliberation of the given agent.
+     *
+     * @param agent the agent, which has just deliberated
+     * @param batch the messages with which it has revised its beliefs
+     * @param runtime the runtime hosting the agent
+     */
+    void act(Agent agent, List<Message> batch, AgentRuntime runtime);
+}
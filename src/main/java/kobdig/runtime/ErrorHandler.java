@@ -0,0 +1,43 @@
+/*
+ * ErrorHandler.java
+ *
+ * Created on October 19, 2026, 11:55 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import kobdig.agent.Agent;
+
+/**
+ * Handles the errors raised by an agent hosted by a runtime while it
+ * revises its beliefs, deliberates, or acts
+ * (see {@link AgentRuntime#setErrorHandler(ErrorHandler)}).
+ * <p>A handler is called by the thread running the agent, which then goes
+ * on with the next message or batch; it must therefore return quickly.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public interface ErrorHandler
+{
+    /** The default handler, which prints the errors on the standard error stream. */
+    ErrorHandler PRINT = new ErrorHandler()
+    {
+        public void error(Agent agent, String activity, RuntimeException e)
+        {
+            System.err.println(agent.name() + ": could not " + activity + ": " + e);
+        }
+    };
+
+    /**
+     * Handles an error.
+     *
+     * @param agent the agent which raised the error
+     * @param activity what the agent could not do, e.g.,
+     *        <code>"deliberate"</code>
+     * @param e the error
+     */
+    void error(Agent agent, String activity, RuntimeException e);
+}
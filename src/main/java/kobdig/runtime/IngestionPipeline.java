@@ -0,0 +1,579 @@
+/*
+ * IngestionPipeline.java
+ *
+ * Created on October 19, 2026, 5:40 PM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kobdig.agent.Agent;
+import kobdig.agent.AplLexer;
+import kobdig.agent.AplTokenizer;
+
+/**
+ * A pipeline which feeds an agent with a continuous stream of facts.
+ * <p>Facts are read from any number of character streams, e.g., files,
+ * the standard input, or connections to a local socket, in the syntax of
+ * the facts of a fact set, <code>formula : trust</code>, where the trust
+ * degree defaults to 1 and facts may be separated by commas; a fact which
+ * cannot be parsed is reported and skipped, together with the rest of its
+ * line. Each stream is read by a thread of its own, which puts the facts
+ * into a bounded queue, and blocks when the queue is full, so that the
+ * sources are slowed down when the agent cannot keep up with them.</p>
+ * <p>A single thread applies the facts to the agent in micro-batches:
+ * a batch is made of the facts which arrive within a window of time from
+ * the first one, or of those already queued, up to a maximum size;
+ * the beliefs of the agent are revised with each fact of a batch, and then
+ * the agent deliberates once. The larger the backlog, the larger the
+ * batches, and the fewer the deliberations per fact. The agent should
+ * not be accessed by other threads, except through its snapshots (see
+ * {@link Agent#snapshot()}), while the pipeline is open.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class IngestionPipeline implements Closeable
+{
+    /** The default window of a batch, in milliseconds. */
+    public static final long DEFAULT_WINDOW = 10;
+
+    /** The default maximum number of facts processed by a deliberation. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /** The default capacity of the queue. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** The agent. */
+    protected final Agent agent;
+
+    /** The window of a batch, in nanoseconds. */
+    protected final long window;
+
+    /** The maximum number of facts processed by a deliberation. */
+    protected final int batchSize;
+
+    /** The metrics of the pipeline. */
+    protected final Metrics metrics = new Metrics();
+
+    /** The facts read and not yet applied. */
+    private final BlockingQueue<Message> queue;
+
+    /** The thread applying the facts to the agent. */
+    private final Thread applier;
+
+    /** The streams being read, which are closed along with the pipeline. */
+    private final List<Closeable> sources = new ArrayList<Closeable>();
+
+    /** The number of facts read and not yet applied. */
+    private final AtomicLong pending = new AtomicLong();
+
+    /** The number of facts which could not be parsed. */
+    private final AtomicLong errors = new AtomicLong();
+
+    /** The lock on which threads wait for the pipeline to become idle. */
+    private final Object idle = new Object();
+
+    /** True once the pipeline has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Creates a pipeline feeding the given agent, with the default window,
+     * batch size, and capacity.
+     *
+     * @param agent the agent
+     */
+    public IngestionPipeline(Agent agent)
+    {
+        this(agent, DEFAULT_WINDOW, DEFAULT_BATCH_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a pipeline feeding the given agent.
+     *
+     * @param agent the agent
+     * @param window the window of a batch, in milliseconds
+     * @param batchSize the maximum number of facts processed by a deliberation
+     * @param capacity the maximum number of facts read and not yet applied
+     */
+    public IngestionPipeline(Agent agent, long window, int batchSize, int capacity)
+    {
+        if(window<0)
+            throw new IllegalArgumentException("Window must not be negative");
+        if(batchSize<1)
+            throw new IllegalArgumentException("Batch size must be positive");
+        this.agent = agent;
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.batchSize = batchSize;
+        queue = new ArrayBlockingQueue<Message>(capacity);
+        applier = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                apply();
+            }
+        }, agent.name() + "-ingestion");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    /**
+     * Returns the agent fed by this pipeline.
+     */
+    public Agent agent()
+    {
+        return agent;
+    }
+
+    /**
+     * Returns the metrics of this pipeline.
+     */
+    public Metrics metrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of facts which could not be parsed.
+     */
+    public long errors()
+    {
+        return errors.get();
+    }
+
+    /**
+     * Returns the number of facts read and not yet applied.
+     */
+    public long pending()
+    {
+        return pending.get();
+    }
+
+    /**
+     * Reads facts from a character stream, on the calling thread,
+     * until its end, and closes it.
+     *
+     * @param r the character stream
+     * @param source the name of the source of the facts
+     * @throws IOException if the stream cannot be read
+     * @throws InterruptedException if the thread is interrupted while
+     *         waiting for room in the queue
+     */
+    public void ingest(Reader r, String source) throws IOException, InterruptedException
+    {
+        if(!open(r))
+            throw new IllegalStateException("Pipeline closed");
+        try
+        {
+            read(r, source);
+        }
+        finally
+        {
+            close(r);
+        }
+    }
+
+    /**
+     * Starts reading facts from a character stream, on a thread of its own,
+     * until its end, and then closes it.
+     *
+     * @param r the character stream
+     * @param source the name of the source of the facts
+     * @return the thread reading the stream
+     */
+    public Thread start(Reader r, String source)
+    {
+        return start(r, source, r);
+    }
+
+    /**
+     * Starts reading facts from a character stream, on a thread of its own,
+     * until its end, and then closes the given handle, which is also closed
+     * along with the pipeline.
+     */
+    private Thread start(final Reader r, final String source, final Closeable handle)
+    {
+        if(!open(handle))
+            throw new IllegalStateException("Pipeline closed");
+        Thread t = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    read(r, source);
+                }
+                catch(IOException e)
+                {
+                    if(!closed)
+                        System.err.println(source + ": " + e.getMessage());
+                }
+                catch(InterruptedException e)
+                {
+                    // Stop reading.
+                }
+                finally
+                {
+                    close(handle);
+                }
+            }
+        }, source);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Starts reading facts, encoded in UTF-8, from a byte stream, on a thread
+     * of its own, until its end, and then closes it.
+     *
+     * @param is the byte stream
+     * @param source the name of the source of the facts
+     * @return the thread reading the stream
+     */
+    public Thread start(InputStream is, String source)
+    {
+        return start(new InputStreamReader(is, StandardCharsets.UTF_8), source, is);
+    }
+
+    /**
+     * Starts listening on the given port of the loopback interface;
+     * the facts sent on each connection are read by a thread of its own.
+     *
+     * @param port a port number, or 0 for any free port
+     * @return the port on which the pipeline listens
+     * @throws IOException if the socket cannot be opened
+     */
+    public int listen(int port) throws IOException
+    {
+        final ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        if(!open(server))
+        {
+            server.close();
+            throw new IllegalStateException("Pipeline closed");
+        }
+        Thread t = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    while(!closed)
+                    {
+                        Socket s = server.accept();
+                        String source = s.getInetAddress().getHostAddress() + ":" + s.getPort();
+                        try
+                        {
+                            start(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8), source, s);
+                        }
+                        catch(IllegalStateException e)
+                        {
+                            s.close();
+                        }
+                    }
+                }
+                catch(IOException e)
+                {
+                    if(!closed)
+                        System.err.println("Ingestion socket: " + e.getMessage());
+                }
+                finally
+                {
+                    close(server);
+                }
+            }
+        }, agent.name() + "-listener");
+        t.setDaemon(true);
+        t.start();
+        return server.getLocalPort();
+    }
+
+    /**
+     * Registers a stream being read, unless the pipeline is closed.
+     */
+    private boolean open(Closeable c)
+    {
+        synchronized(sources)
+        {
+            if(closed)
+                return false;
+            sources.add(c);
+            return true;
+        }
+    }
+
+    /**
+     * Closes a stream which is no longer being read.
+     */
+    private void close(Closeable c)
+    {
+        synchronized(sources)
+        {
+            sources.remove(c);
+        }
+        try
+        {
+            c.close();
+        }
+        catch(IOException e)
+        {
+            // Nothing more can be done.
+        }
+    }
+
+    /**
+     * Parses the facts of a character stream and puts them into the queue.
+     */
+    private void read(Reader r, String source) throws IOException, InterruptedException
+    {
+        AplTokenizer lexer = new AplLexer(r);
+        lexer.nextToken();
+        while(lexer.ttype!=AplTokenizer.TT_EOF && !closed)
+        {
+            if(lexer.ttype==',' || lexer.ttype==';')
+            {
+                lexer.nextToken();
+                continue;
+            }
+            int line = lexer.lineno();
+            try
+            {
+                Message m = Message.parse(lexer, source);
+                pending.incrementAndGet();
+                metrics.recordMessage();
+                queue.put(m);
+            }
+            catch(IOException e)
+            {
+                if(closed)
+                    throw e;
+                errors.incrementAndGet();
+                System.err.println(source + ": " + e.getMessage());
+                // Skip the rest of the line:
+                while(lexer.ttype!=AplTokenizer.TT_EOF && lexer.lineno()==line)
+                    lexer.nextToken();
+            }
+        }
+    }
+
+    /**
+     * Applies the queued facts to the agent, in batches, until the pipeline
+     * is closed and the queue is empty.
+     */
+    private void apply()
+    {
+        List<Message> batch = new ArrayList<Message>();
+        while(true)
+        {
+            Message first;
+            try
+            {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException e)
+            {
+                return;
+            }
+            if(first==null)
+            {
+                if(closed)
+                    return;
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            long deadline = first.sent() + window;
+            try
+            {
+                while(batch.size()<batchSize)
+                {
+                    long wait = deadline - System.nanoTime();
+                    if(wait<=0)
+                        break;
+                    Message m = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if(m==null)
+                        break;
+                    batch.add(m);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            }
+            catch(InterruptedException e)
+            {
+                // Apply what has been collected, then stop.
+                Thread.currentThread().interrupt();
+            }
+            process(batch);
+            batch.clear();
+            if(Thread.currentThread().isInterrupted())
+                return;
+        }
+    }
+
+    /**
+     * Revises the beliefs of the agent with a batch of facts and deliberates.
+     */
+    private void process(List<Message> batch)
+    {
+        long began = System.nanoTime();
+        int failures = 0;
+        Iterator<Message> i = batch.iterator();
+        while(i.hasNext())
+        {
+            Message m = i.next();
+            try
+            {
+                agent.reviseBeliefs(m.fact(), m.trust());
+            }
+            catch(RuntimeException e)
+            {
+                System.err.println(agent.name() + ": could not revise beliefs with " + m + ": " + e);
+                failures++;
+            }
+        }
+        try
+        {
+            agent.deliberate();
+        }
+        catch(RuntimeException e)
+        {
+            System.err.println(agent.name() + ": could not deliberate: " + e);
+            failures = batch.size();
+        }
+        metrics.recordBatch(batch, failures, began, System.nanoTime());
+        if(pending.addAndGet(-batch.size())==0)
+            synchronized(idle)
+            {
+                idle.notifyAll();
+            }
+    }
+
+    /**
+     * Waits until all the facts read so far have been applied,
+     * or until the given time has elapsed.
+     *
+     * @param millis the maximum time to wait, in milliseconds
+     * @return true if no fact is waiting to be applied
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitIdle(long millis) throws InterruptedException
+    {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        synchronized(idle)
+        {
+            while(pending.get()>0)
+            {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                if(remaining<=0)
+                    return false;
+                idle.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes the pipeline: the streams being read are closed, and the facts
+     * already queued are applied before this method returns; a fact read
+     * by a source while the pipeline is being closed may be lost.
+     *
+     * @throws IOException never
+     */
+    public void close() throws IOException
+    {
+        List<Closeable> open;
+        synchronized(sources)
+        {
+            closed = true;
+            open = new ArrayList<Closeable>(sources);
+        }
+        Iterator<Closeable> i = open.iterator();
+        while(i.hasNext())
+        {
+            try
+            {
+                i.next().close();
+            }
+            catch(IOException e)
+            {
+                // The reader stops anyway.
+            }
+        }
+        try
+        {
+            applier.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a string representation of this pipeline.
+     */
+    @Override
+    public String toString()
+    {
+        return agent.name() + " ingestion: " + metrics + ", " + errors.get() + " errors";
+    }
+
+    /**
+     * Feeds an agent with the facts read from a file, the standard input,
+     * or a local socket, then prints the agent and the metrics of the
+     * pipeline.
+     * <p>Usage: <code>java kobdig.runtime.IngestionPipeline agent.apl
+     * [file | - | :port [window [batch size [capacity]]]]</code>, where
+     * <code>-</code>, the default, stands for the standard input and
+     * <code>:port</code> for a port of the loopback interface, in which
+     * case the pipeline runs until the process is terminated.</p>
+     *
+     * @param args the command-line arguments
+     * @throws Exception if the agent or the facts cannot be read
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length<1)
+        {
+            System.err.println("Usage: java kobdig.runtime.IngestionPipeline agent.apl [file | - | :port [window [batch size [capacity]]]]");
+            System.exit(2);
+        }
+        Agent agent = new Agent(new FileInputStream(args[0]));
+        String from = args.length>1 ? args[1] : "-";
+        long window = args.length>2 ? Long.parseLong(args[2]) : DEFAULT_WINDOW;
+        int batchSize = args.length>3 ? Integer.parseInt(args[3]) : DEFAULT_BATCH_SIZE;
+        int capacity = args.length>4 ? Integer.parseInt(args[4]) : DEFAULT_CAPACITY;
+        final IngestionPipeline pipeline = new IngestionPipeline(agent, window, batchSize, capacity);
+        if(from.startsWith(":"))
+        {
+            int port = pipeline.listen(Integer.parseInt(from.substring(1)));
+            System.err.println("Listening on port " + port);
+            Thread.currentThread().join();
+        }
+        else if(from.equals("-"))
+            pipeline.start(System.in, "stdin").join();
+        else
+            pipeline.start(new FileInputStream(from), from).join();
+        pipeline.close();
+        System.out.println(agent);
+        System.err.println(pipeline);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Mailbox.java
+ *
+ * Created on October 19, 2026, 10:15 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The mailbox of an agent, into which any number of threads may post
+ * messages, without locking, and which is drained by the thread running
+ * the agent.
+ * <p>The mailbox also keeps track of whether its agent is scheduled to run:
+ * posting a message into an idle mailbox tells the poster to schedule
+ * the agent, so that it is scheduled at most once at any time.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class Mailbox
+{
+    /** The messages not yet drained. */
+    private final ConcurrentLinkedQueue<Message> queue = new ConcurrentLinkedQueue<Message>();
+
+    /** True if the agent is scheduled to run, or running. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Creates an empty mailbox. */
+    public Mailbox()
+    {
+    }
+
+    /**
+     * Posts a message into the mailbox.
+     *
+     * @param m a message
+     * @return true if the agent was idle and must now be scheduled by the caller
+     */
+    public boolean post(Message m)
+    {
+        queue.offer(m);
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Moves up to the given number of messages, in the order they were
+     * posted, from the mailbox into the given list.
+     *
+     * @param batch the list to which the messages are added
+     * @param max the maximum number of messages to drain
+     * @return the number of messages drained
+     */
+    public int drain(List<Message> batch, int max)
+    {
+        int n = 0;
+        Message m;
+        while(n<max && (m = queue.poll())!=null)
+        {
+            batch.add(m);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Marks the agent as idle, after it has run.
+     *
+     * @return true if messages were posted in the meantime, in which case
+     *         the agent has been marked as scheduled again and must be
+     *         rescheduled by the caller
+     */
+    public boolean release()
+    {
+        scheduled.set(false);
+        return !queue.isEmpty() && scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Returns the number of messages in the mailbox.
+     * This takes time linear in the number of messages.
+     */
+    public int size()
+    {
+        return queue.size();
+    }
+}
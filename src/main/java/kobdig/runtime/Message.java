@@ -0,0 +1,120 @@
+/*
+ * Message.java
+ *
+ * Created on October 19, 2026, 10:05 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.io.IOException;
+
+import kobdig.agent.AplTokenizer;
+import kobdig.agent.Fact;
+import kobdig.logic.PropositionalFormula;
+import kobdig.logic.TruthDegree;
+
+/**
+ * A message told to an agent: a fact, the degree to which its source
+ * is trusted, and the name of its source.
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public final class Message
+{
+    /** The fact told. */
+    private final Fact fact;
+
+    /** The degree to which the source of the fact is trusted. */
+    private final TruthDegree trust;
+
+    /** The name of the source of the fact. */
+    private final String source;
+
+    /** The time, as given by {@link System#nanoTime()}, when the message was sent. */
+    private final long sent;
+
+    /**
+     * Creates a new message, sent now.
+     *
+     * @param fact the fact told
+     * @param trust the degree to which the source of the fact is trusted
+     * @param source the name of the source of the fact
+     */
+    public Message(Fact fact, TruthDegree trust, String source)
+    {
+        this.fact = fact;
+        this.trust = trust;
+        this.source = source;
+        sent = System.nanoTime();
+    }
+
+    /**
+     * Parses a message, sent now, in the syntax of the facts of a fact set,
+     * i.e., a formula, optionally followed by a colon and the trust degree,
+     * which defaults to 1. The current token must be the first token of the
+     * formula; the token following the message becomes the current token.
+     *
+     * @param tokenizer a tokenizer of the text of the message
+     * @param source the name of the source of the fact
+     * @return the message
+     * @throws IOException if the text cannot be read or contains a syntax error
+     */
+    public static Message parse(AplTokenizer tokenizer, String source) throws IOException
+    {
+        PropositionalFormula phi = new PropositionalFormula(tokenizer);
+        TruthDegree t = TruthDegree.TRUE;
+        if(tokenizer.ttype==':')
+        {
+            tokenizer.nextToken();
+            tokenizer.requireNumber("trust degree in [0, 1]");
+            t = new TruthDegree(tokenizer.nval);
+            tokenizer.nextToken();
+        }
+        return new Message(new Fact(phi), t, source);
+    }
+
+    /**
+     * Returns the fact told.
+     */
+    public Fact fact()
+    {
+        return fact;
+    }
+
+    /**
+     * Returns the degree to which the source of the fact is trusted.
+     */
+    public TruthDegree trust()
+    {
+        return trust;
+    }
+
+    /**
+     * Returns the name of the source of the fact.
+     */
+    public String source()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the time when the message was sent,
+     * as given by {@link System#nanoTime()}.
+     */
+    public long sent()
+    {
+        return sent;
+    }
+
+    /**
+     * Returns a string representation of this message.
+     */
+    @Override
+    public String toString()
+    {
+        return source + ": " + fact + " : " + trust;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Metrics.java
+ *
+ * Created on October 19, 2026, 10:30 AM
+ *
+ * To change this template, choose Tools | Template Manager
+ * and open the template in the editor.
+ */
+
+package kobdig.runtime;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency metrics of an agent, or of a whole runtime.
+ * <p>The <em>latency</em> of a message is the time from when it is sent
+ * to when the agent has deliberated after revising its beliefs with it;
+ * the <em>throughput</em> is the number of messages processed per second
+ * since the metrics started.</p>
+ * <p>The counters are updated by the thread running the agent and may be
+ * read by any thread.</p>
+ *
+ * @author Andrea G. B. Tettamanzi
+ */
+public class Metrics
+{
+    /** The time when the metrics started, as given by {@link System#nanoTime()}. */
+    protected final long start;
+
+    /** The number of messages received. */
+    protected final AtomicLong received = new AtomicLong();
+
+    /** The number of messages processed. */
+    protected final AtomicLong processed = new AtomicLong();
+
+    /** The number of messages whose processing failed. */
+    protected final AtomicLong failed = new AtomicLong();
+
+    /** The number of batches of messages processed, i.e., of deliberations. */
+    protected final AtomicLong batches = new AtomicLong();
+
+    /** The total latency of the processed messages, in nanoseconds. */
+    protected final AtomicLong totalLatency = new AtomicLong();
+
+    /** The maximum latency of a processed message, in nanoseconds. */
+    protected final AtomicLong maxLatency = new AtomicLong();
+
+    /** The total time spent processing messages, in nanoseconds. */
+    protected final AtomicLong busy = new AtomicLong();
+
+    /** Creates new metrics, starting now. */
+    public Metrics()
+    {
+        this(System.nanoTime());
+    }
+
+    /**
+     * Creates new metrics, starting at the given time.
+     *
+     * @param start a time, as given by {@link System#nanoTime()}
+     */
+    protected Metrics(long start)
+    {
+        this.start = start;
+    }
+
+    /** Records the reception of a message. */
+    void recordMessage()
+    {
+        received.incrementAndGet();
+    }
+
+    /**
+     * Records the processing of a batch of messages.
+     *
+     * @param batch the messages
+     * @param failures the number of messages whose processing failed
+     * @param began the time when the processing began
+     * @param ended the time when the processing ended
+     */
+    void recordBatch(Iterable<Message> batch, int failures, long began, long ended)
+    {
+        long n = 0;
+        long total = 0;
+        long max = 0;
+        for(Message m : batch)
+        {
+            long latency = ended - m.sent();
+            total += latency;
+            max = Math.max(max, latency);
+            n++;
+        }
+        processed.addAndGet(n);
+        failed.addAndGet(failures);
+        batches.incrementAndGet();
+        totalLatency.addAndGet(total);
+        busy.addAndGet(ended - began);
+        long m = maxLatency.get();
+        while(max>m && !maxLatency.compareAndSet(m, max))
+            m = maxLatency.get();
+    }
+
+    /**
+     * Adds the counts of the given metrics to these metrics.
+     */
+    protected void add(Metrics that)
+    {
+        received.addAndGet(that.received());
+        processed.addAndGet(that.processed());
+        failed.addAndGet(that.failed());
+        batches.addAndGet(that.batches());
+        totalLatency.addAndGet(that.totalLatency.get());
+        busy.addAndGet(that.busy.get());
+        long max = that.maxLatency.get();
+        if(max>maxLatency.get())
+            maxLatency.set(max);
+    }
+
+    /**
+     * Returns the number of messages received.
+     */
+    public long received()
+    {
+        return received.get();
+    }
+
+    /**
+     * Returns the number of messages processed, including those whose
+     * processing failed.
+     */
+    public long processed()
+    {
+        return processed.get();
+    }
+
+    /**
+     * Returns the number of messages whose processing failed.
+     */
+    public long failed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * Returns the number of batches of messages processed, i.e.,
+     * the number of deliberations.
+     */
+    public long batches()
+    {
+        return batches.get();
+    }
+
+    /**
+     * Returns the average number of messages per batch.
+     */
+    public double averageBatch()
+    {
+        long b = batches.get();
+        return b==0 ? 0.0 : (double) processed.get()/b;
+    }
+
+    /**
+     * Returns the average latency of the processed messages, in microseconds.
+     */
+    public double averageLatency()
+    {
+        long n = processed.get();
+        return n==0 ? 0.0 : totalLatency.get()/(1e3*n);
+    }
+
+    /**
+     * Returns the maximum latency of a processed message, in microseconds.
+     */
+    public double maxLatency()
+    {
+        return maxLatency.get()/1e3;
+    }
+
+    /**
+     * Returns the number of messages processed per second since
+     * the metrics started.
+     */
+    public double throughput()
+    {
+        long elapsed = System.nanoTime() - start;
+        return elapsed<=0 ? 0.0 : processed.get()*1e9/elapsed;
+    }
+
+    /**
+     * Returns the fraction of the time since the metrics started spent
+     * processing messages, which may exceed 1 for a whole runtime.
+     */
+    public double utilization()
+    {
+        long elapsed = System.nanoTime() - start;
+        return elapsed<=0 ? 0.0 : (double) busy.get()/elapsed;
+    }
+
+    /**
+     * Returns a string representation of these metrics.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("received %d, processed %d (%d failed) in %d batches (%.1f/batch), " +
+            "latency avg %.1f us max %.1f us, throughput %.1f msg/s, utilization %.2f",
+            received(), processed(), failed(), batches(), averageBatch(),
+            averageLatency(), maxLatency(), throughput(), utilization());
+    }
+}